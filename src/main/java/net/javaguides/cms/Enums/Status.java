@@ -6,8 +6,9 @@ package net.javaguides.cms.Enums;
  *     <li>{@link #Approved} - Indicates that the profile has been approved by the employee.</li>
  *     <li>{@link #Pending} - Indicates that the profile currently pending review from the employee.</li>
  *     <li>{@link #Rejected} - Indicates that the profile has been rejected due to some errors or inconsistencies.</li>
+ *     <li>{@link #Expired} - Indicates that the profile stayed pending for too long and was closed without review.</li>
  * </ul>
  */
 public enum Status {
-  Approved, Pending, Rejected
+  Approved, Pending, Rejected, Expired
 }
@@ -0,0 +1,71 @@
+package net.javaguides.cms.Enums;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Represents the roles a user can hold. A user's roles are stored together as a bitmask in the
+ * {@code role_mask} column of {@code users}, one fixed bit per role:
+ * <ul>
+ *     <li>{@link #CLIENT} - A client managing their own profile.</li>
+ *     <li>{@link #EMPLOYEE} - An employee reviewing and managing clients.</li>
+ *     <li>{@link #ADMIN} - An administrator managing employees.</li>
+ * </ul>
+ * The bits are explicit, so roles can be reordered or added without changing stored masks.
+ */
+public enum UserRole {
+  CLIENT(1), EMPLOYEE(2), ADMIN(4);
+
+  private static final String AUTHORITY_PREFIX = "ROLE_";
+
+  private final int bit;
+
+  UserRole(int bit) {
+    this.bit = bit;
+  }
+
+  public int bit() {
+    return bit;
+  }
+
+  /**
+   * @return the authority granted for this role, as expected by {@code hasRole(...)}.
+   */
+  public String authority() {
+    return AUTHORITY_PREFIX + name();
+  }
+
+  /**
+   * @return the mask holding every role.
+   */
+  public static int allBits() {
+    int mask = 0;
+    for (UserRole role : values()) {
+      mask |= role.bit;
+    }
+    return mask;
+  }
+
+  /**
+   * Converts role names, as stored in the legacy {@code role} table, into a mask.
+   * Names are matched with or without the {@code ROLE_} prefix; unknown names are ignored.
+   *
+   * @param roleNames the role names.
+   * @return the mask of the recognized roles.
+   */
+  public static int maskOf(Collection<String> roleNames) {
+    int mask = 0;
+    for (String roleName : roleNames) {
+      String name = roleName.toUpperCase(Locale.ROOT);
+      if (name.startsWith(AUTHORITY_PREFIX)) {
+        name = name.substring(AUTHORITY_PREFIX.length());
+      }
+      for (UserRole role : values()) {
+        if (role.name().equals(name)) {
+          mask |= role.bit;
+        }
+      }
+    }
+    return mask;
+  }
+}
@@ -0,0 +1,159 @@
+package net.javaguides.cms.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.event.ClientChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * A pre-serialized copy of the {@code GET /cms/clients} response body.
+ *
+ * <p>Each client is kept as its own chunk of JSON bytes, ordered by id. A {@link ClientChangedEvent}
+ * re-serializes only the affected client once its transaction commits. Serving the full list then
+ * costs a concatenation of the chunks, done once per change, and the gzip-compressed form is computed
+ * once per change too.
+ *
+ * <p>The snapshot is loaded on first use. Because other application instances can change clients
+ * without this instance seeing an event, it is reloaded from the database after
+ * {@code cms.clients.snapshot.max-age-seconds}.
+ */
+@Component
+public class ClientListSnapshot {
+
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final long maxAgeNanos;
+  private final ConcurrentSkipListMap<Long, byte[]> rows = new ConcurrentSkipListMap<>();
+  private final AtomicLong version = new AtomicLong();
+  private volatile boolean loaded;
+  private volatile long loadedAt;
+  private volatile Body body;
+
+  public ClientListSnapshot(ObjectMapper objectMapper,
+      @Value("${cms.clients.snapshot.enabled:false}") boolean enabled,
+      @Value("${cms.clients.snapshot.max-age-seconds:30}") long maxAgeSeconds) {
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the current response body, loading the snapshot first if needed.
+   *
+   * @param loader reads every client from the database; used on first use and after the maximum age.
+   * @return the serialized client list.
+   */
+  public Body get(Supplier<List<ClientDTO>> loader) {
+    if (!loaded || System.nanoTime() - loadedAt > maxAgeNanos) {
+      load(loader);
+    }
+    Body current = body;
+    long currentVersion = version.get();
+    if (current == null || current.version != currentVersion) {
+      current = new Body(currentVersion, concatenate());
+      body = current;
+    }
+    return current;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onClientChanged(ClientChangedEvent event) {
+    if (loaded) {
+      if (event.isDeleted()) {
+        rows.remove(event.clientId());
+      } else {
+        rows.put(event.clientId(), serialize(event.client()));
+      }
+    }
+    version.incrementAndGet();
+  }
+
+  private synchronized void load(Supplier<List<ClientDTO>> loader) {
+    if (loaded && System.nanoTime() - loadedAt <= maxAgeNanos) {
+      return;
+    }
+    loaded = false;
+    long versionBefore = version.get();
+    List<ClientDTO> clients = loader.get();
+    rows.clear();
+    for (ClientDTO client : clients) {
+      rows.put(client.getId(), serialize(client));
+    }
+    version.incrementAndGet();
+    // a change that committed while the list was being read may be missing from it; load again next time
+    loaded = version.get() == versionBefore + 1;
+    loadedAt = System.nanoTime();
+  }
+
+  private byte[] concatenate() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write('[');
+    boolean first = true;
+    for (byte[] row : rows.values()) {
+      if (!first) {
+        out.write(',');
+      }
+      out.writeBytes(row);
+      first = false;
+    }
+    out.write(']');
+    return out.toByteArray();
+  }
+
+  private byte[] serialize(ClientDTO client) {
+    try {
+      return objectMapper.writeValueAsBytes(client);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize client " + client.getId(), e);
+    }
+  }
+
+  /**
+   * One version of the serialized list, as plain JSON and, once requested, gzip-compressed.
+   */
+  public static final class Body {
+    private final long version;
+    private final byte[] json;
+    private volatile byte[] gzip;
+
+    private Body(long version, byte[] json) {
+      this.version = version;
+      this.json = json;
+    }
+
+    public byte[] json() {
+      return json;
+    }
+
+    public byte[] gzip() {
+      byte[] compressed = gzip;
+      if (compressed == null) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(out)) {
+          gzipStream.write(json);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        compressed = out.toByteArray();
+        gzip = compressed;
+      }
+      return compressed;
+    }
+  }
+}
@@ -0,0 +1,272 @@
+package net.javaguides.cms.cache;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.ClientStats;
+import net.javaguides.cms.event.ClientChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Client counts by status, by onboarding day and by age band, kept in memory for
+ * {@code GET /cms/clients/stats}.
+ *
+ * <p>The counts are built from one pass over the {@code clients} table on first use, and from then on
+ * each {@link ClientChangedEvent} adjusts them for the one client that changed, so no query runs per
+ * request. To do that a few facts are remembered per client: its status, creation day and date of
+ * birth. Age bands are derived from counts per date of birth, so they stay right as clients get older.
+ * The response itself is rebuilt only after a change or when the day rolls over.
+ *
+ * <p>Changes made by other application instances are not seen as events, so the counts are rebuilt from
+ * the database every {@code cms.clients.stats.reconcile-minutes}. Events that commit while the rebuild
+ * reads the table are applied again on top of it.
+ */
+@Slf4j
+@Component
+public class ClientStatistics {
+
+  private static final String SELECT_CLIENTS = "select c.id, c.status, c.created_at, c.date_of_birth"
+      + " from clients c join users u on u.id = c.id where u.deleted = 0";
+  private static final int[] AGE_BAND_LOWER_BOUNDS = {0, 18, 25, 35, 45, 55, 65};
+
+  record Facts(Status status, LocalDate createdOn, LocalDate dateOfBirth) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ClientShards clientShards;
+  private final int onboardingDays;
+
+  private final Object reconcileLock = new Object();
+  //guarded by this
+  private Counts counts;
+  private List<ClientChangedEvent> changesDuringReconcile;
+  private Instant reconciledAt;
+  //written under this, read without it
+  private volatile long version;
+
+  private volatile Snapshot snapshot;
+
+  @Autowired
+  public ClientStatistics(DataSource dataSource, PlatformTransactionManager transactionManager,
+      ClientShards clientShards, @Value("${cms.clients.stats.onboarding-days:30}") int onboardingDays) {
+    this(streamingJdbcTemplate(dataSource), transactionManager, clientShards, onboardingDays);
+  }
+
+  ClientStatistics(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+      ClientShards clientShards, int onboardingDays) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.clientShards = clientShards;
+    this.onboardingDays = onboardingDays;
+  }
+
+  private static JdbcTemplate streamingJdbcTemplate(DataSource dataSource) {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    //makes MySQL Connector/J stream rows one by one instead of buffering the whole result
+    jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    return jdbcTemplate;
+  }
+
+  /**
+   * Returns the current statistics, reading the clients table first if this is the first use.
+   *
+   * @return the client statistics.
+   */
+  public ClientStats get() {
+    LocalDate today = LocalDate.now();
+    Snapshot current = snapshot;
+    if (current != null && current.day.equals(today) && current.version == version) {
+      return current.stats;
+    }
+    if (!isLoaded()) {
+      reconcile(true);
+    }
+    synchronized (this) {
+      current = new Snapshot(version, today, counts.toStats(today, onboardingDays, reconciledAt));
+      snapshot = current;
+    }
+    return current.stats;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onClientChanged(ClientChangedEvent event) {
+    if (changesDuringReconcile != null) {
+      changesDuringReconcile.add(event);
+    }
+    //before the first load there is nothing to adjust; the load reads this change from the database
+    if (counts != null) {
+      counts.apply(event, LocalDate.now());
+      version++;
+    }
+  }
+
+  /**
+   * Rebuilds the counts from the database on every shard. Does nothing until the statistics are first used.
+   */
+  @Scheduled(fixedDelayString = "${cms.clients.stats.reconcile-minutes:15}",
+      initialDelayString = "${cms.clients.stats.reconcile-minutes:15}", timeUnit = TimeUnit.MINUTES)
+  public void scheduledReconcile() {
+    if (isLoaded()) {
+      reconcile(false);
+    }
+  }
+
+  /**
+   * Reads the counts from the database. Callers wait for a rebuild already in progress.
+   *
+   * @param onlyIfUnloaded skip the rebuild if the counts were loaded in the meantime.
+   */
+  private void reconcile(boolean onlyIfUnloaded) {
+    synchronized (reconcileLock) {
+      if (onlyIfUnloaded && isLoaded()) {
+        return;
+      }
+      rebuild();
+    }
+  }
+
+  private void rebuild() {
+    synchronized (this) {
+      changesDuringReconcile = new ArrayList<>();
+    }
+    Counts fresh = new Counts();
+    try {
+      for (int shard = 0; shard < clientShards.count(); shard++) {
+        clientShards.callOn(shard, () -> readOnlyTransaction.execute(status -> {
+          jdbcTemplate.query(SELECT_CLIENTS, rs -> {
+            int ordinal = rs.getInt("status");
+            Status clientStatus = rs.wasNull() ? null : Status.values()[ordinal];
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            Timestamp dateOfBirth = rs.getTimestamp("date_of_birth");
+            fresh.add(rs.getLong("id"), new Facts(clientStatus,
+                createdAt == null ? null : createdAt.toLocalDateTime().toLocalDate(),
+                dateOfBirth == null ? null : dateOfBirth.toLocalDateTime().toLocalDate()));
+          });
+          return null;
+        }));
+      }
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        changesDuringReconcile = null;
+      }
+      throw e;
+    }
+    synchronized (this) {
+      LocalDate today = LocalDate.now();
+      //replaying is harmless for changes the read already saw: they set the same facts again
+      for (ClientChangedEvent event : changesDuringReconcile) {
+        fresh.apply(event, today);
+      }
+      changesDuringReconcile = null;
+      counts = fresh;
+      reconciledAt = Instant.now();
+      version++;
+    }
+    log.debug("Reconciled client statistics: {} clients", fresh.facts.size());
+  }
+
+  private synchronized boolean isLoaded() {
+    return counts != null;
+  }
+
+  private record Snapshot(long version, LocalDate day, ClientStats stats) {
+  }
+
+  /**
+   * The remembered facts per client and the counts derived from them. Not thread-safe.
+   */
+  static final class Counts {
+
+    private final Map<Long, Facts> facts = new HashMap<>();
+    private final long[] byStatus = new long[Status.values().length];
+    private final TreeMap<LocalDate, Long> byCreatedDay = new TreeMap<>();
+    private final TreeMap<LocalDate, Long> byDateOfBirth = new TreeMap<>();
+
+    void apply(ClientChangedEvent event, LocalDate today) {
+      if (event.isDeleted()) {
+        remove(event.clientId());
+        return;
+      }
+      ClientDTO client = event.client();
+      Facts previous = facts.get(event.clientId());
+      //a client seen for the first time was just created
+      LocalDate createdOn = previous != null ? previous.createdOn() : today;
+      LocalDate dateOfBirth = client.getDateOfBirth() == null ? null
+          : client.getDateOfBirth().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+      add(event.clientId(), new Facts(client.getStatus(), createdOn, dateOfBirth));
+    }
+
+    void add(long id, Facts clientFacts) {
+      remove(id);
+      facts.put(id, clientFacts);
+      count(clientFacts, 1);
+    }
+
+    private void remove(long id) {
+      Facts previous = facts.remove(id);
+      if (previous != null) {
+        count(previous, -1);
+      }
+    }
+
+    private void count(Facts clientFacts, long delta) {
+      if (clientFacts.status() != null) {
+        byStatus[clientFacts.status().ordinal()] += delta;
+      }
+      adjust(byCreatedDay, clientFacts.createdOn(), delta);
+      adjust(byDateOfBirth, clientFacts.dateOfBirth(), delta);
+    }
+
+    private static void adjust(TreeMap<LocalDate, Long> countsByDay, LocalDate day, long delta) {
+      if (day != null) {
+        countsByDay.merge(day, delta, (current, change) -> current + change == 0 ? null : current + change);
+      }
+    }
+
+    ClientStats toStats(LocalDate today, int onboardingDays, Instant reconciledAt) {
+      Map<Status, Long> statusCounts = new EnumMap<>(Status.class);
+      for (Status status : Status.values()) {
+        statusCounts.put(status, byStatus[status.ordinal()]);
+      }
+      Map<LocalDate, Long> onboarded = new LinkedHashMap<>();
+      for (LocalDate day = today.minusDays(onboardingDays - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+        onboarded.put(day, byCreatedDay.getOrDefault(day, 0L));
+      }
+      Map<String, Long> ageBands = new LinkedHashMap<>();
+      for (int i = 0; i < AGE_BAND_LOWER_BOUNDS.length; i++) {
+        int lower = AGE_BAND_LOWER_BOUNDS[i];
+        boolean last = i == AGE_BAND_LOWER_BOUNDS.length - 1;
+        //born after today minus (upper) years, and on or before today minus (lower) years
+        LocalDate bornOnOrBefore = today.minusYears(lower);
+        Map<LocalDate, Long> band = last ? byDateOfBirth.headMap(bornOnOrBefore, true)
+            : byDateOfBirth.subMap(today.minusYears(AGE_BAND_LOWER_BOUNDS[i + 1]), false, bornOnOrBefore, true);
+        String label = last ? lower + "+" : lower + "-" + (AGE_BAND_LOWER_BOUNDS[i + 1] - 1);
+        ageBands.put(label, band.values().stream().mapToLong(Long::longValue).sum());
+      }
+      return new ClientStats(facts.size(), statusCounts, onboarded, ageBands, reconciledAt);
+    }
+  }
+}
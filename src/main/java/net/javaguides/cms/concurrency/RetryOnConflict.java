@@ -0,0 +1,27 @@
+package net.javaguides.cms.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+
+/**
+ * Marks a service method whose transaction may fail its optimistic version check.
+ * The method is applied by {@link RetryOnConflictAspect} around its transaction: when the commit
+ * detects a concurrent update, the whole transaction is run again on fresh data, up to
+ * {@link #attempts()} times, after which a {@link ConcurrentUpdateException} is thrown.
+ *
+ * <p>Only operations whose outcome does not depend on the state the caller saw, such as setting a
+ * status, should be retried. Other operations use {@code attempts = 1} so that the conflict is
+ * reported to the caller instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+  /**
+   * How many times the method is run before the conflict is reported.
+   */
+  int attempts() default 3;
+}
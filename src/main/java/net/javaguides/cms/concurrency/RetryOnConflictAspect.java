@@ -0,0 +1,49 @@
+package net.javaguides.cms.concurrency;
+
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies {@link RetryOnConflict} to service methods.
+ *
+ * <p>The aspect runs after shard routing and before the transaction interceptor, so every attempt
+ * commits or rolls back its own transaction on the same shard. A short random pause between
+ * attempts keeps competing writers from colliding again in lockstep.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 200)
+public class RetryOnConflictAspect {
+
+  private static final long MAX_PAUSE_MILLIS = 20;
+
+  @Around("@annotation(retryOnConflict)")
+  public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      //the caller's transaction decides the outcome; a nested attempt cannot be replayed on its own
+      return joinPoint.proceed();
+    }
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return joinPoint.proceed();
+      } catch (OptimisticLockingFailureException e) {
+        if (attempt >= retryOnConflict.attempts()) {
+          throw new ConcurrentUpdateException("The record was modified concurrently, reload it and try again");
+        }
+        log.debug("Optimistic conflict in {}, attempt {} of {}", joinPoint.getSignature().toShortString(),
+            attempt, retryOnConflict.attempts());
+        Thread.sleep(ThreadLocalRandom.current().nextLong(1, MAX_PAUSE_MILLIS * attempt));
+      }
+    }
+  }
+}
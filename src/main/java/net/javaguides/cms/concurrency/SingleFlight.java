@@ -0,0 +1,25 @@
+package net.javaguides.cms.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only service method whose concurrent identical calls may share one database read.
+ * The method is applied by {@link SingleFlightAspect}: while a call with the same {@link #value()} and
+ * arguments is in flight, later callers wait for its result instead of running their own query, and all
+ * of them receive the same result or exception.
+ *
+ * <p>Only methods whose result does not depend on the caller may be marked, and the shared result must
+ * not be modified by the callers.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+
+  /**
+   * The name calls are grouped under, e.g. {@code "client"}.
+   */
+  String value();
+}
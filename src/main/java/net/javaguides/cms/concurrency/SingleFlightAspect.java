@@ -0,0 +1,106 @@
+package net.javaguides.cms.concurrency;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import net.javaguides.cms.datasource.ReadYourWritesTracker;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies {@link SingleFlight} to service methods.
+ *
+ * <p>The first caller of a name and argument list becomes the leader and runs the method; callers
+ * arriving while it runs wait on its future. The aspect runs after the circuit breaker and before shard
+ * routing and the transaction, so only the leader opens a transaction. Callers already inside a
+ * transaction run on their own, since they may need to see its uncommitted writes, and callers pinned to
+ * the primary by {@link ReadYourWritesTracker} only share reads with each other.
+ *
+ * <p>A {@link ClientChangedEvent} ends the grouping of reads of that client and of the client list, and an
+ * {@link EmployeeChangedEvent} those of that employee and of the employee list, so a caller arriving after
+ * a committed change does not receive a result read before it. The calls are counted by
+ * {@link SingleFlightMetrics}.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 75)
+public class SingleFlightAspect {
+
+  public static final String CLIENT = "client";
+  public static final String CLIENTS = "clients";
+  public static final String EMPLOYEE = "employee";
+  public static final String EMPLOYEES = "employees";
+
+  private record Key(String name, List<Object> arguments, boolean primary) {
+  }
+
+  private final ReadYourWritesTracker readYourWritesTracker;
+  private final SingleFlightMetrics metrics;
+  private final boolean enabled;
+  private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+  public SingleFlightAspect(ReadYourWritesTracker readYourWritesTracker, SingleFlightMetrics metrics,
+      @Value("${cms.single-flight.enabled:true}") boolean enabled) {
+    this.readYourWritesTracker = readYourWritesTracker;
+    this.metrics = metrics;
+    this.enabled = enabled;
+  }
+
+  @Around("@annotation(singleFlight)")
+  public Object coalesce(ProceedingJoinPoint joinPoint, SingleFlight singleFlight) throws Throwable {
+    String name = singleFlight.value();
+    metrics.called(name);
+    if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+      return joinPoint.proceed();
+    }
+    Key key = new Key(name, Arrays.asList(joinPoint.getArgs().clone()),
+        readYourWritesTracker.hasRecentWrite());
+    CompletableFuture<Object> flight = new CompletableFuture<>();
+    CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+    if (leader != null) {
+      metrics.coalesced(name);
+      try {
+        return leader.join();
+      } catch (CompletionException e) {
+        throw e.getCause();
+      }
+    }
+    metrics.flightStarted(name);
+    try {
+      Object result = joinPoint.proceed();
+      flight.complete(result);
+      return result;
+    } catch (Throwable e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+      metrics.flightEnded(name);
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onClientChanged(ClientChangedEvent event) {
+    //callers already waiting keep their flight; later callers start a new read
+    inFlight.keySet().removeIf(key -> key.name().equals(CLIENTS)
+        || key.name().equals(CLIENT) && key.arguments().equals(List.of(event.clientId())));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEmployeeChanged(EmployeeChangedEvent event) {
+    inFlight.keySet().removeIf(key -> key.name().equals(EMPLOYEES)
+        || key.name().equals(EMPLOYEE) && key.arguments().equals(List.of(event.employeeId())));
+  }
+}
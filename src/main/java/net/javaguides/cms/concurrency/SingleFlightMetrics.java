@@ -0,0 +1,51 @@
+package net.javaguides.cms.concurrency;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the calls {@link SingleFlightAspect} handles, per {@link SingleFlight} name.
+ */
+@Component
+public class SingleFlightMetrics {
+
+  private static final class Counters {
+    final LongAdder calls = new LongAdder();
+    final LongAdder coalesced = new LongAdder();
+    final LongAdder inFlight = new LongAdder();
+  }
+
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+  private final Instant since = Instant.now();
+
+  void called(String name) {
+    countersOf(name).calls.increment();
+  }
+
+  void coalesced(String name) {
+    countersOf(name).coalesced.increment();
+  }
+
+  void flightStarted(String name) {
+    countersOf(name).inFlight.increment();
+  }
+
+  void flightEnded(String name) {
+    countersOf(name).inFlight.decrement();
+  }
+
+  public SingleFlightStats getStats() {
+    Map<String, SingleFlightStats.Flights> flights = new TreeMap<>();
+    counters.forEach((name, nameCounters) -> flights.put(name, new SingleFlightStats.Flights(
+        nameCounters.calls.sum(), nameCounters.coalesced.sum(), nameCounters.inFlight.sum())));
+    return new SingleFlightStats(since, flights);
+  }
+
+  private Counters countersOf(String name) {
+    return counters.computeIfAbsent(name, key -> new Counters());
+  }
+}
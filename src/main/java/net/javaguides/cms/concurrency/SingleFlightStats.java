@@ -0,0 +1,21 @@
+package net.javaguides.cms.concurrency;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Counters of {@link SingleFlightMetrics}, per {@link SingleFlight} name.
+ *
+ * @param since when counting started.
+ * @param flights the counters by name.
+ */
+public record SingleFlightStats(Instant since, Map<String, Flights> flights) {
+
+  /**
+   * @param calls how many calls were made.
+   * @param coalesced how many of them waited for another call's result instead of querying.
+   * @param inFlight how many distinct reads are running right now.
+   */
+  public record Flights(long calls, long coalesced, long inFlight) {
+  }
+}
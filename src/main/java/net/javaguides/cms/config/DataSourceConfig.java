@@ -0,0 +1,200 @@
+package net.javaguides.cms.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.datasource.DataSourceRole;
+import net.javaguides.cms.datasource.ReadWriteRoutingDataSource;
+import net.javaguides.cms.datasource.ReadYourWritesTracker;
+import net.javaguides.cms.datasource.ReplicaLagMonitor;
+import net.javaguides.cms.datasource.ShardRoutingDataSource;
+import net.javaguides.cms.datasource.UserKeyLocks;
+import net.javaguides.cms.profiling.ProfilingDataSource;
+import net.javaguides.cms.profiling.SqlProfiler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+/**
+ * Configuration class that builds the application's {@link DataSource}.
+ *
+ * <p>The primary pool is always created from the standard {@code spring.datasource.*} properties.
+ * When {@code cms.datasource.replica.url} is set, a second pool is created for the MySQL replica and
+ * the exposed data source becomes a {@link ReadWriteRoutingDataSource}:
+ * <ul>
+ *   <li>Read-only transactions (all {@code get*} service methods) are served by the replica.
+ *   <li>Everything else, and reads while the replica is lagging, go to the primary.
+ *   <li>A user who just wrote keeps reading from the primary for {@code cms.datasource.read-your-writes-window-ms}.
+ * </ul>
+ *
+ * <p>When {@code cms.sharding.clients.urls} lists extra databases, {@code Client} rows are
+ * hash-partitioned across the primary and those databases (see {@link ClientShards}), and the exposed
+ * data source additionally routes by the shard selected for the current thread.
+ *
+ * <p>The exposed data source is wrapped in a {@link LazyConnectionDataSourceProxy} so that no physical
+ * connection is taken until the first statement runs, at which point the transaction's read-only flag is known.
+ * When {@code cms.sql-profiler.enabled} is set, that proxy is in turn wrapped in a {@link ProfilingDataSource}
+ * that times every statement.
+ */
+@Configuration
+public class DataSourceConfig {
+
+  /**
+   * The connection pool for the primary (writable) database.
+   *
+   * @param properties the standard Spring Boot data source properties.
+   * @return a Hikari pool bound to {@code spring.datasource.hikari.*}.
+   */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties, ClientShards clientShards) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    if (clientShards.isSharded()) {
+      primary.setConnectionInitSql(clientShards.idAllocationSql(0));
+    }
+    return primary;
+  }
+
+  /**
+   * The client shards. Shard 0 is always the primary; each URL in {@code cms.sharding.clients.urls}
+   * adds one more shard, which shares the primary's credentials and must have the same schema.
+   *
+   * @param shardUrls comma-separated JDBC URLs of the extra shards, empty when sharding is disabled.
+   * @param legacyMaxId the highest id allocated on the primary before sharding was enabled.
+   * @return the shard layout together with the pools of the extra shards.
+   */
+  @Bean
+  public ClientShards clientShards(DataSourceProperties properties,
+      @Value("${cms.sharding.clients.urls:}") List<String> shardUrls,
+      @Value("${cms.sharding.clients.legacy-max-id:0}") long legacyMaxId) {
+    List<String> urls = shardUrls.stream().filter(StringUtils::hasText).toList();
+    List<HikariDataSource> pools = new ArrayList<>();
+    for (int i = 0; i < urls.size(); i++) {
+      HikariDataSource shard = new HikariDataSource();
+      shard.setJdbcUrl(urls.get(i).trim());
+      shard.setUsername(properties.determineUsername());
+      shard.setPassword(properties.determinePassword());
+      shard.setConnectionInitSql(ClientShards.idAllocationSql(i + 1, urls.size() + 1));
+      shard.setPoolName("client-shard-" + (i + 1));
+      pools.add(shard);
+    }
+    return new ClientShards(pools, legacyMaxId);
+  }
+
+  /**
+   * The named locks that keep usernames, emails and SSNs unique across client shards. They are taken on
+   * a small pool of their own, so waiting for a lock never competes with transactions for a connection.
+   *
+   * @param lockPoolSize the maximum number of writers holding user key locks at once.
+   * @return the locks, which do nothing when clients are not sharded.
+   */
+  @Bean
+  public UserKeyLocks userKeyLocks(DataSourceProperties properties, ClientShards clientShards,
+      @Value("${cms.sharding.clients.key-lock-pool-size:10}") int lockPoolSize) {
+    if (!clientShards.isSharded()) {
+      return new UserKeyLocks(null);
+    }
+    HikariDataSource lockPool = new HikariDataSource();
+    lockPool.setJdbcUrl(properties.determineUrl());
+    lockPool.setUsername(properties.determineUsername());
+    lockPool.setPassword(properties.determinePassword());
+    lockPool.setMaximumPoolSize(lockPoolSize);
+    lockPool.setPoolName("user-key-locks");
+    return new UserKeyLocks(lockPool);
+  }
+
+  /**
+   * The connection pool for the read replica. Only created when a replica URL is configured.
+   * Credentials default to the primary's when not set explicitly.
+   *
+   * @return a Hikari pool bound to {@code cms.datasource.replica.hikari.*}.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "cms.datasource.replica.url")
+  @ConfigurationProperties("cms.datasource.replica.hikari")
+  public HikariDataSource replicaDataSource(DataSourceProperties properties,
+      @Value("${cms.datasource.replica.url}") String url,
+      @Value("${cms.datasource.replica.username:}") String username,
+      @Value("${cms.datasource.replica.password:}") String password) {
+    HikariDataSource replica = new HikariDataSource();
+    replica.setJdbcUrl(url);
+    replica.setUsername(StringUtils.hasText(username) ? username : properties.determineUsername());
+    replica.setPassword(StringUtils.hasText(password) ? password : properties.determinePassword());
+    replica.setReadOnly(true);
+    replica.setPoolName("replica");
+    return replica;
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "cms.datasource.replica.url")
+  public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+      @Value("${cms.datasource.replica.max-lag-seconds:5}") long maxLagSeconds) {
+    return new ReplicaLagMonitor(replicaDataSource, maxLagSeconds);
+  }
+
+  @Bean
+  public ReadYourWritesTracker readYourWritesTracker(
+      @Value("${cms.datasource.read-your-writes-window-ms:3000}") long stickyWindowMillis) {
+    return new ReadYourWritesTracker(stickyWindowMillis);
+  }
+
+  /**
+   * The data source used by JPA and every other component of the application.
+   *
+   * @return the primary pool, or a primary/replica router when a replica is configured,
+   *         wrapped in a lazy connection proxy and, if enabled, the statement profiler.
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+      @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+      ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+      ReadYourWritesTracker readYourWritesTracker,
+      ClientShards clientShards,
+      SqlProfiler sqlProfiler) {
+    DataSource primary = primaryDataSource;
+    DataSource replica = replicaDataSource.getIfAvailable();
+    if (replica != null) {
+      Map<Object, Object> targets = new HashMap<>();
+      targets.put(DataSourceRole.PRIMARY, primaryDataSource);
+      targets.put(DataSourceRole.REPLICA, replica);
+
+      ReadWriteRoutingDataSource routing =
+          new ReadWriteRoutingDataSource(replicaLagMonitor.getObject(), readYourWritesTracker);
+      routing.setTargetDataSources(targets);
+      routing.setDefaultTargetDataSource(primaryDataSource);
+      routing.afterPropertiesSet();
+      primary = routing;
+    }
+    if (!clientShards.isSharded()) {
+      return profiled(new LazyConnectionDataSourceProxy(primary), sqlProfiler);
+    }
+
+    Map<Object, Object> shards = new HashMap<>();
+    shards.put(0, primary);
+    for (int i = 0; i < clientShards.getExtraShards().size(); i++) {
+      shards.put(i + 1, clientShards.getExtraShards().get(i));
+    }
+    ShardRoutingDataSource sharding = new ShardRoutingDataSource();
+    sharding.setTargetDataSources(shards);
+    sharding.setDefaultTargetDataSource(primary);
+    sharding.afterPropertiesSet();
+    return profiled(new LazyConnectionDataSourceProxy(sharding), sqlProfiler);
+  }
+
+  private static DataSource profiled(DataSource dataSource, SqlProfiler sqlProfiler) {
+    return sqlProfiler.isEnabled() ? new ProfilingDataSource(dataSource, sqlProfiler) : dataSource;
+  }
+}
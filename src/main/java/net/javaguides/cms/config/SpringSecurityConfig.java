@@ -3,6 +3,8 @@ package net.javaguides.cms.config;
 import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import net.javaguides.cms.security.CustomUserDetailsService;
+import net.javaguides.cms.security.RateLimitFilter;
+import net.javaguides.cms.security.RateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,6 +20,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.stereotype.Service;
 
 /**
@@ -30,6 +33,7 @@ import org.springframework.stereotype.Service;
  *   <li>Stateless session management to prevent session creation on the server.
  *   <li>Configurable authentication and authorization paths, with some endpoints public and others secured.
  *   <li>Use of HTTP Basic authentication for simplicity.
+ *   <li>Per-caller rate limiting that rejects excess requests before any password is checked.
  * </ul>
  *
  * <p>This configuration ensures that various API endpoints are either restricted to authenticated users or available publicly.
@@ -48,6 +52,8 @@ public class SpringSecurityConfig {
 
   private net.javaguides.cms.security.CustomUserDetailsService userDetailsService;
 
+  private RateLimiter rateLimiter;
+
 
   /**
    * Bean configuration for the password encoder.
@@ -68,6 +74,8 @@ public class SpringSecurityConfig {
    *   <li>Disables CSRF to support REST APIs.
    *   <li>Configures access rules for various API endpoints.
    *   <li>Enables HTTP Basic authentication.
+   *   <li>Rate limits requests per route group: per client address ahead of authentication,
+   *   and per authenticated user after it.
    * </ul>
    *
    * @param http the {@link HttpSecurity} to configure.
@@ -86,9 +94,15 @@ public class SpringSecurityConfig {
           authorize.requestMatchers("/cms/employees/*").hasRole("ADMIN");
           authorize.requestMatchers("/cms/clients").hasAnyRole("EMPLOYEE", "ADMIN");
           authorize.requestMatchers("/cms/clients/*").hasAnyRole("EMPLOYEE", "ADMIN");
+          authorize.requestMatchers("/cms/clients/exports/**").hasAnyRole("EMPLOYEE", "ADMIN");
+          authorize.requestMatchers("/cms/clients/imports/**").hasAnyRole("EMPLOYEE", "ADMIN");
+          authorize.requestMatchers("/cms/clients/review/**").hasAnyRole("EMPLOYEE", "ADMIN");
+          authorize.requestMatchers("/cms/admin/**").hasRole("ADMIN");
           authorize.requestMatchers("/cms/profile/*").hasRole("CLIENT");
           authorize.anyRequest().authenticated();
-        }).httpBasic(Customizer.withDefaults());
+        }).httpBasic(Customizer.withDefaults())
+        .addFilterBefore(RateLimitFilter.perAddress(rateLimiter), BasicAuthenticationFilter.class)
+        .addFilterAfter(RateLimitFilter.perPrincipal(rateLimiter), BasicAuthenticationFilter.class);
 
 
 
@@ -0,0 +1,50 @@
+package net.javaguides.cms.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.web.DegradedResponseAdvice;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC configuration for the REST API.
+ *
+ * <p>Registers binary Jackson formats next to JSON, so that internal consumers can send and receive
+ * client and employee payloads as {@code application/cbor} or {@code application/x-jackson-smile}
+ * through the usual {@code Accept} and {@code Content-Type} negotiation. The binary converters are
+ * built from Spring Boot's {@link Jackson2ObjectMapperBuilder}, so they honor the same
+ * {@code spring.jackson.*} settings as JSON.
+ *
+ * <p>Also registers {@link DegradedResponseAdvice} as an interceptor, so the stale marks it turns into
+ * headers are cleared around every request.
+ */
+@Configuration
+@AllArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+  private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+  private DegradedResponseAdvice degradedResponseAdvice;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(degradedResponseAdvice);
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+        || converter instanceof MappingJackson2SmileHttpMessageConverter);
+    converters.add(new MappingJackson2CborHttpMessageConverter(
+        objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+    converters.add(new MappingJackson2SmileHttpMessageConverter(
+        objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+  }
+}
@@ -2,11 +2,23 @@ package net.javaguides.cms.controller;
 
 import java.util.List;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.cache.ClientListSnapshot;
+import net.javaguides.cms.cache.ClientStatistics;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.ClientStats;
+import net.javaguides.cms.dto.MultiGetResponse;
 import net.javaguides.cms.dto.PasswordChangeDto;
+import net.javaguides.cms.dto.SsnLookupDto;
 import net.javaguides.cms.repository.RoleRepository;
 import net.javaguides.cms.service.ClientService;
+import net.javaguides.cms.web.AcceptHeaders;
+import net.javaguides.cms.web.IdempotencyStore;
+import net.javaguides.cms.web.JdbcListStreamer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -17,8 +29,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 /**
  * Controller for managing client profiles within the system. This controller handles all HTTP requests
  * related to client operations such as creating, retrieving, updating, approving, rejecting, and deleting client profiles.
@@ -30,41 +45,121 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping("/cms")
 @AllArgsConstructor
+@Slf4j
 
 public class ClientController {
   private ClientService clientService;
+  private IdempotencyStore idempotencyStore;
+  private ClientListSnapshot clientListSnapshot;
+  private JdbcListStreamer jdbcListStreamer;
+  private ClientStatistics clientStatistics;
 
   /**
    * Creates a new client in the system. This endpoint requires the user to have an 'EMPLOYEE' role.
    * The method takes a {@link ClientDTO} object, creates a new client profile, and returns the created profile
    * with a status code of 201 (Created).
+   * Retries that repeat the same {@code Idempotency-Key} header receive the original response instead of
+   * creating the client again.
    *
    * @param clientDTO the client data transfer object containing information about the new client (cannot be null).
+   * @param idempotencyKey an optional client-chosen key that identifies retries of the same request.
    * @return a {@link ResponseEntity} containing the newly created {@link ClientDTO} and the HTTP status.
    */
 
   @PostMapping("/clients")
-  public ResponseEntity<ClientDTO> createClient(@RequestBody ClientDTO clientDTO) {
+  public ResponseEntity<ClientDTO> createClient(@RequestBody ClientDTO clientDTO,
+      @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
 
-    ClientDTO savedClient = clientService.createClient(clientDTO);
-    return new ResponseEntity<>(savedClient, HttpStatus.CREATED);
+    return idempotencyStore.execute("POST /cms/clients", idempotencyKey, clientDTO, () -> {
+      ClientDTO savedClient = clientService.createClient(clientDTO);
+      return new ResponseEntity<>(savedClient, HttpStatus.CREATED);
+    });
   }
 
   /**
    * Retrieves a list of all clients in the system. Restricted to users with the 'EMPLOYEE' role. This method fetches and returns all client profiles,
    * allowing employees to view all registered clients.
+   * When the client list snapshot is enabled and the caller accepts JSON, the body is served
+   * pre-serialized, gzip-compressed if the caller accepts it. Otherwise, when list streaming is enabled,
+   * the rows are written from the database to the response without loading entities.
    *
+   * @param accept the media types accepted by the caller.
+   * @param acceptEncoding the encodings accepted by the caller.
    * @return a {@link ResponseEntity} containing a list of {@link ClientDTO} and the HTTP status code.
    */
 
   @GetMapping("/clients")
-  public ResponseEntity<List<ClientDTO>> getAllClients() {
+  public ResponseEntity<?> getAllClients(
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    if (clientListSnapshot.isEnabled() && AcceptHeaders.prefersJson(accept)) {
+      ClientListSnapshot.Body body = clientListSnapshot.get(clientService::getClients);
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      if (AcceptHeaders.acceptsGzip(acceptEncoding)) {
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+      }
+      return response.body(body.json());
+    }
+    if (jdbcListStreamer.streamsClients() && AcceptHeaders.prefersJson(accept)) {
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(jdbcListStreamer.clients());
+    }
     List<ClientDTO> clients = clientService.getClients();
 
     return new ResponseEntity<>(clients, HttpStatus.OK);
   }
 
 
+  /**
+   * Retrieves client statistics for the management dashboard: counts by status, clients onboarded per
+   * day and counts by age band. Restricted to users with the 'EMPLOYEE' or 'ADMIN' role. The statistics
+   * are kept up to date in memory, so no query runs per request.
+   *
+   * @return a {@link ResponseEntity} containing the {@link ClientStats} and the HTTP status code.
+   */
+  @GetMapping("/clients/stats")
+  public ResponseEntity<ClientStats> getClientStats() {
+    return new ResponseEntity<>(clientStatistics.get(), HttpStatus.OK);
+  }
+
+
+  /**
+   * Retrieves a client by their Social Security Number. Accessible to users with 'EMPLOYEE' or 'ADMIN' roles.
+   * The SSN is sent in the request body so that it never appears in a URL. SSNs are stored encrypted; the
+   * client is found through the SSN's blind index with one indexed lookup.
+   *
+   * @param lookup the Social Security Number of the client.
+   * @return a {@link ResponseEntity} containing the {@link ClientDTO} and the HTTP status code.
+   * @throws ResponseStatusException with 400 Bad Request if no SSN is given.
+   */
+  @PostMapping("/clients/by-ssn")
+  public ResponseEntity<ClientDTO> getClientBySsn(@RequestBody SsnLookupDto lookup) {
+    if (lookup.getSsn() == null || lookup.getSsn().isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ssn is required");
+    }
+    ClientDTO client = clientService.getClientBySsn(lookup.getSsn());
+
+    return new ResponseEntity<>(client, HttpStatus.OK);
+  }
+
+
+  /**
+   * Retrieves several clients by id in a single request, e.g. {@code GET /cms/clients?ids=3,1,2}.
+   * Restricted to users with the 'EMPLOYEE' role. The clients are fetched with one query and returned
+   * in the order their ids were requested; ids that match no client are listed under {@code missing}.
+   *
+   * @param clientIds the ids of the clients to retrieve, at most {@value MultiGetResponse#MAX_IDS}.
+   * @return a {@link ResponseEntity} containing the found clients, the missing ids and the HTTP status code.
+   */
+  @GetMapping(value = "/clients", params = "ids")
+  public ResponseEntity<MultiGetResponse<ClientDTO>> getClientsByIds(@RequestParam("ids") List<Long> clientIds) {
+    List<Long> requestedIds = MultiGetResponse.distinctIds(clientIds);
+    List<ClientDTO> clients = clientService.getClientsByIds(requestedIds);
+
+    return new ResponseEntity<>(MultiGetResponse.of(requestedIds, clients, ClientDTO::getId), HttpStatus.OK);
+  }
+
   /**
    * Retrieves a client by their unique identifier. Accessible to users with 'EMPLOYEE' roles.
    * Returns the client details if found or an appropriate HTTP status code if the client does not exist.
@@ -100,6 +195,22 @@ public class ClientController {
   }
 
 
+  /**
+   * Applies partial changes to many clients in one request. Accessible to users with the 'EMPLOYEE' role.
+   * Each item identifies a client by id; its non-null first name, last name and email are applied.
+   * The changes are committed in chunks, and the response reports the outcome of every item.
+   *
+   * @param updates the changes to apply.
+   * @return a {@link ResponseEntity} containing one {@link BatchItemResult} per item and the HTTP status code.
+   */
+  @PatchMapping("/clients/batch")
+  public ResponseEntity<List<BatchItemResult>> updateClients(@RequestBody List<ClientDTO> updates) {
+    List<BatchItemResult> results = clientService.updateClients(updates);
+
+    return new ResponseEntity<>(results, HttpStatus.OK);
+  }
+
+
   /**
    * Approves a client's status based on their unique identifier. Only accessible by users with the 'EMPLOYEE' role.
    * This method updates the client's status to 'approved' and returns the updated client profile.
@@ -129,6 +240,26 @@ public class ClientController {
     return new ResponseEntity<>(clientDTO, HttpStatus.OK);
   }
 
+  /**
+   * Leases the next pending clients to the calling reviewer. Only accessible by users with the 'EMPLOYEE'
+   * or 'ADMIN' role. Concurrent callers receive disjoint clients; a client returns to the queue when its
+   * lease expires, and approving or rejecting it completes the lease.
+   *
+   * @param count how many clients to claim, at least 1.
+   * @param authentication the authenticated reviewer.
+   * @return a {@link ResponseEntity} containing the claimed clients, empty if nothing is pending.
+   */
+
+  @PostMapping("/clients/review/claim")
+  public ResponseEntity<List<ClientDTO>> claimClientsForReview(
+      @RequestParam(value = "n", defaultValue = "1") int count, Authentication authentication) {
+    if (count < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "n must be at least 1");
+    }
+    List<ClientDTO> claimed = clientService.claimForReview(authentication.getName(), count);
+    return new ResponseEntity<>(claimed, HttpStatus.OK);
+  }
+
   /**
    * Deletes a client profile based on their unique identifier. Accessible only by users with the 'EMPLOYEE' role.
    * This method removes the client from the system and returns a confirmation message.
@@ -158,7 +289,8 @@ public class ClientController {
   @PatchMapping("/profile/{id}")
   public ResponseEntity<ClientDTO> editProfile(@PathVariable("id") Long clientId, @RequestBody ClientDTO updatedClient) {
     ClientDTO clientDTO = clientService.updateClient(clientId, updatedClient);
-    System.out.println(updatedClient);
+    //the body carries personal data, so only the id is logged
+    log.debug("Client {} updated their profile", clientId);
     return new ResponseEntity<>(clientDTO, HttpStatus.OK);
 
   }
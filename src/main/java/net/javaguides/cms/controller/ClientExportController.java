@@ -0,0 +1,92 @@
+package net.javaguides.cms.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.export.ClientExportService;
+import net.javaguides.cms.export.ExportJob;
+import net.javaguides.cms.export.ExportLease;
+import net.javaguides.cms.web.FileDownloads;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Controller for full client snapshot exports. An export is started, polled until it has completed,
+ * and then downloaded as a gzip-compressed NDJSON file with one client per line.
+ * Access is restricted to users with the 'EMPLOYEE' or 'ADMIN' role.
+ *
+ * @see ClientExportService for how snapshots are produced and reused.
+ */
+@RestController
+@RequestMapping("/cms")
+@AllArgsConstructor
+public class ClientExportController {
+
+  private ClientExportService clientExportService;
+
+  /**
+   * Starts a client snapshot export. If a running export, or a completed one that is still current,
+   * exists, that job is returned instead of starting another.
+   *
+   * @return a {@link ResponseEntity} containing the {@link ExportJob}, the location to poll and the HTTP status code.
+   */
+  @PostMapping("/clients/exports")
+  public ResponseEntity<ExportJob> startExport() {
+    ExportJob job = clientExportService.start();
+
+    return ResponseEntity.status(HttpStatus.ACCEPTED)
+        .location(URI.create("/cms/clients/exports/" + job.getId()))
+        .body(job);
+  }
+
+  /**
+   * Reports the progress of an export.
+   *
+   * @param jobId the id of the export job.
+   * @return a {@link ResponseEntity} containing the {@link ExportJob} and the HTTP status code.
+   */
+  @GetMapping("/clients/exports/{id}")
+  public ResponseEntity<ExportJob> getExport(@PathVariable("id") String jobId) {
+    ExportJob job = findJob(jobId);
+
+    return new ResponseEntity<>(job, HttpStatus.OK);
+  }
+
+  /**
+   * Downloads the snapshot of a completed export. The file is sent by the servlet container or
+   * the operating system without being copied through the application.
+   *
+   * @param jobId the id of the export job.
+   * @param request the current request.
+   * @param response the response the file is written to.
+   * @throws IOException if the file cannot be sent.
+   */
+  @GetMapping("/clients/exports/{id}/file")
+  public void downloadExport(@PathVariable("id") String jobId, HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    //the lease keeps a replaced snapshot on disk until the download is done
+    try (ExportLease lease = clientExportService.lease(jobId)
+        .orElseThrow(() -> new ResourceNotFoundException("Export does not exist by the given id " + jobId))) {
+      ExportJob job = lease.getJob();
+      if (job.getState() != ExportJob.State.COMPLETED) {
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "The export has not completed");
+      }
+      FileDownloads.send(job.getFile(), "application/gzip", "clients-" + job.getId() + ".ndjson.gz",
+          request, response);
+    }
+  }
+
+  private ExportJob findJob(String jobId) {
+    return clientExportService.find(jobId)
+        .orElseThrow(() -> new ResourceNotFoundException("Export does not exist by the given id " + jobId));
+  }
+}
@@ -0,0 +1,92 @@
+package net.javaguides.cms.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.imports.ClientImportService;
+import net.javaguides.cms.imports.ImportJob;
+import net.javaguides.cms.web.FileDownloads;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Controller for bulk client imports from CSV files. A file is uploaded, its import is polled for
+ * progress, and the rows that were rejected can be downloaded with the reason for each.
+ * Access is restricted to users with the 'EMPLOYEE' or 'ADMIN' role.
+ *
+ * @see ClientImportService for the expected columns and how rows are committed.
+ */
+@RestController
+@RequestMapping("/cms")
+@AllArgsConstructor
+public class ClientImportController {
+
+  private ClientImportService clientImportService;
+
+  /**
+   * Uploads a CSV file of new clients and queues its import.
+   *
+   * @param file the CSV file, sent as the {@code file} part of a multipart request.
+   * @return a {@link ResponseEntity} containing the {@link ImportJob}, the location to poll and the HTTP status code.
+   * @throws IOException if the upload cannot be stored.
+   */
+  @PostMapping("/clients/imports")
+  public ResponseEntity<ImportJob> startImport(@RequestParam("file") MultipartFile file) throws IOException {
+    if (file.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The uploaded file is empty");
+    }
+    ImportJob job = clientImportService.submit(file);
+
+    return ResponseEntity.status(HttpStatus.ACCEPTED)
+        .location(URI.create("/cms/clients/imports/" + job.getId()))
+        .body(job);
+  }
+
+  /**
+   * Reports the progress of an import.
+   *
+   * @param jobId the id of the import job.
+   * @return a {@link ResponseEntity} containing the {@link ImportJob} and the HTTP status code.
+   */
+  @GetMapping("/clients/imports/{id}")
+  public ResponseEntity<ImportJob> getImport(@PathVariable("id") String jobId) {
+    ImportJob job = findJob(jobId);
+
+    return new ResponseEntity<>(job, HttpStatus.OK);
+  }
+
+  /**
+   * Downloads the rejected rows of a finished import as CSV. Each row is preceded by its line
+   * number in the uploaded file and the reason it was rejected.
+   *
+   * @param jobId the id of the import job.
+   * @param request the current request.
+   * @param response the response the file is written to.
+   * @throws IOException if the file cannot be sent.
+   */
+  @GetMapping("/clients/imports/{id}/errors")
+  public void downloadErrors(@PathVariable("id") String jobId, HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    ImportJob job = findJob(jobId);
+    if (job.getFinishedAt() == null) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "The import has not finished");
+    }
+    FileDownloads.send(job.getErrorFile(), "text/csv", "clients-" + job.getId() + "-errors.csv", request, response);
+  }
+
+  private ImportJob findJob(String jobId) {
+    return clientImportService.find(jobId)
+        .orElseThrow(() -> new ResourceNotFoundException("Import does not exist by the given id " + jobId));
+  }
+}
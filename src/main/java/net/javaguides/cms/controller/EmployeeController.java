@@ -3,10 +3,17 @@ package net.javaguides.cms.controller;
 
 import java.util.List;
 import lombok.AllArgsConstructor;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.EmployeeDto;
+import net.javaguides.cms.dto.MultiGetResponse;
 import net.javaguides.cms.dto.PasswordChangeDto;
 import net.javaguides.cms.service.EmployeeService;
+import net.javaguides.cms.web.AcceptHeaders;
+import net.javaguides.cms.web.IdempotencyStore;
+import net.javaguides.cms.web.JdbcListStreamer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,7 +22,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -25,32 +34,62 @@ import org.springframework.web.bind.annotation.RestController;
 public class EmployeeController {
 
   private EmployeeService employeeService;
+  private IdempotencyStore idempotencyStore;
+  private JdbcListStreamer jdbcListStreamer;
 
    /**
    * Creates a new employee using the provided employee data transfer object (DTO).
+   * Retries that repeat the same {@code Idempotency-Key} header receive the original response.
    * 
    * @param employeeDto the DTO containing data for the new employee
+   * @param idempotencyKey an optional client-chosen key that identifies retries of the same request
    * @return a {@link ResponseEntity} containing the created employee DTO and the HTTP status code
    */ 
   @PostMapping("/employees")
-  public ResponseEntity<EmployeeDto> createEmployee(@RequestBody EmployeeDto employeeDto) {
-    EmployeeDto savedEmployee = employeeService.createEmployee(employeeDto);
+  public ResponseEntity<EmployeeDto> createEmployee(@RequestBody EmployeeDto employeeDto,
+      @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+    return idempotencyStore.execute("POST /cms/employees", idempotencyKey, employeeDto, () -> {
+      EmployeeDto savedEmployee = employeeService.createEmployee(employeeDto);
 
-    return new ResponseEntity<>(savedEmployee, HttpStatus.CREATED);
+      return new ResponseEntity<>(savedEmployee, HttpStatus.CREATED);
+    });
   }
 
   /**
    * Retrieves a list of all employees.
+   * When list streaming is enabled and the caller accepts JSON, the rows are written from the database
+   * to the response without loading entities.
    * 
+   * @param accept the {@code Accept} header, used to decide whether the streamed JSON body can be served
    * @return a {@link ResponseEntity} containing a list of employee DTOs and the HTTP status code
    */
   @GetMapping("/employees")
-  public ResponseEntity<List<EmployeeDto>> getAllEmployees() {
+  public ResponseEntity<?> getAllEmployees(
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    if (jdbcListStreamer.streamsEmployees() && AcceptHeaders.prefersJson(accept)) {
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(jdbcListStreamer.employees());
+    }
     List<EmployeeDto> allEmployees = employeeService.getEmployees();
 
     return new ResponseEntity<>(allEmployees, HttpStatus.OK);
   }
 
+  /**
+   * Retrieves several employees by id in a single request, e.g. {@code GET /cms/employees?ids=3,1,2}.
+   * The employees are fetched with one query and returned in the order their ids were requested;
+   * ids that match no employee are listed under {@code missing}.
+   * 
+   * @param employeeIds the ids of the employees to retrieve, at most 200
+   * @return a {@link ResponseEntity} containing the found employees, the missing ids and the HTTP status code
+   */
+  @GetMapping(value = "/employees", params = "ids")
+  public ResponseEntity<MultiGetResponse<EmployeeDto>> getEmployeesByIds(@RequestParam("ids") List<Long> employeeIds) {
+    List<Long> requestedIds = MultiGetResponse.distinctIds(employeeIds);
+    List<EmployeeDto> employees = employeeService.getEmployeesByIds(requestedIds);
+
+    return new ResponseEntity<>(MultiGetResponse.of(requestedIds, employees, EmployeeDto::getId), HttpStatus.OK);
+  }
+
   //Build GET API for one employee
 
   /**
@@ -93,6 +132,21 @@ public class EmployeeController {
     return new ResponseEntity<>(employeeDto,HttpStatus.OK);
   }
 
+  /**
+   * Applies partial changes to many employees in one request.
+   * Each item identifies an employee by id; its non-null first name, last name and department are applied.
+   * The changes are committed in chunks, and the response reports the outcome of every item.
+   * 
+   * @param updates the changes to apply
+   * @return a {@link ResponseEntity} containing one {@link BatchItemResult} per item and the HTTP status code
+   */
+  @PatchMapping("/employees/batch")
+  public ResponseEntity<List<BatchItemResult>> updateEmployees(@RequestBody List<EmployeeDto> updates) {
+    List<BatchItemResult> results = employeeService.updateEmployees(updates);
+
+    return new ResponseEntity<>(results, HttpStatus.OK);
+  }
+
   /**
    * Changes the password for an employee identified by their unique ID.
    * 
@@ -0,0 +1,31 @@
+package net.javaguides.cms.controller;
+
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.maintenance.PendingClientSweeper;
+import net.javaguides.cms.maintenance.SweepProgress;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller reporting on background maintenance jobs. Access is restricted to users with the 'ADMIN' role.
+ */
+@RestController
+@RequestMapping("/cms/admin")
+@AllArgsConstructor
+public class MaintenanceController {
+
+  private PendingClientSweeper pendingClientSweeper;
+
+  /**
+   * Reports the progress of the sweep that expires clients left pending for too long.
+   *
+   * @return a {@link ResponseEntity} containing the {@link SweepProgress} and the HTTP status code.
+   */
+  @GetMapping("/sweeps/pending-clients")
+  public ResponseEntity<SweepProgress> getPendingSweepProgress() {
+    return new ResponseEntity<>(pendingClientSweeper.getProgress(), HttpStatus.OK);
+  }
+}
@@ -0,0 +1,32 @@
+package net.javaguides.cms.controller;
+
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.concurrency.SingleFlightMetrics;
+import net.javaguides.cms.concurrency.SingleFlightStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller reporting how many reads were served by sharing another caller's in-flight database read.
+ * Access is restricted to users with the 'ADMIN' role.
+ */
+@RestController
+@RequestMapping("/cms/admin")
+@AllArgsConstructor
+public class ReadCoalescingController {
+
+  private SingleFlightMetrics singleFlightMetrics;
+
+  /**
+   * Reports the calls and coalesced calls of each single-flight read since start-up.
+   *
+   * @return a {@link ResponseEntity} containing the {@link SingleFlightStats} and the HTTP status code.
+   */
+  @GetMapping("/single-flight")
+  public ResponseEntity<SingleFlightStats> getSingleFlightStats() {
+    return new ResponseEntity<>(singleFlightMetrics.getStats(), HttpStatus.OK);
+  }
+}
@@ -0,0 +1,46 @@
+package net.javaguides.cms.controller;
+
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.profiling.SqlProfiler;
+import net.javaguides.cms.profiling.SqlStatsReport;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller exposing the JDBC statement timings collected by {@link SqlProfiler}.
+ * Access is restricted to users with the 'ADMIN' role.
+ */
+@RestController
+@RequestMapping("/cms/admin")
+@AllArgsConstructor
+public class SqlStatsController {
+
+  private SqlProfiler sqlProfiler;
+
+  /**
+   * Reports statement timings by SQL shape, most expensive first, and the slowest recent statements.
+   *
+   * @param limit the maximum number of shapes to report.
+   * @return a {@link ResponseEntity} containing the {@link SqlStatsReport} and the HTTP status code.
+   */
+  @GetMapping("/sql-stats")
+  public ResponseEntity<SqlStatsReport> getSqlStats(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+    return new ResponseEntity<>(sqlProfiler.report(Math.max(limit, 0)), HttpStatus.OK);
+  }
+
+  /**
+   * Discards the timings collected so far.
+   *
+   * @return a {@link ResponseEntity} with the HTTP status code.
+   */
+  @DeleteMapping("/sql-stats")
+  public ResponseEntity<Void> resetSqlStats() {
+    sqlProfiler.reset();
+    return ResponseEntity.noContent().build();
+  }
+}
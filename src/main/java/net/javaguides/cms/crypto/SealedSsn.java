@@ -0,0 +1,57 @@
+package net.javaguides.cms.crypto;
+
+/**
+ * An SSN as held by a {@code Client}: either a new plaintext value that is encrypted when it is written,
+ * or a stored value that is decrypted the first time it is read. Loading clients therefore costs no
+ * decryption unless their SSN is actually used, e.g. serialized in a response.
+ */
+public final class SealedSsn {
+
+  private final String stored;
+  private final SsnProtector protector;
+  private volatile String plaintext;
+
+  private SealedSsn(String stored, SsnProtector protector, String plaintext) {
+    this.stored = stored;
+    this.protector = protector;
+    this.plaintext = plaintext;
+  }
+
+  /**
+   * Wraps a new SSN entered by a user.
+   */
+  public static SealedSsn of(String plaintext) {
+    return new SealedSsn(null, null, plaintext);
+  }
+
+  /**
+   * Wraps an SSN read from the database, to be decrypted on first use.
+   */
+  static SealedSsn stored(String stored, SsnProtector protector) {
+    return new SealedSsn(stored, protector, null);
+  }
+
+  /**
+   * Returns the plaintext SSN, decrypting it on first use.
+   */
+  public String reveal() {
+    String value = plaintext;
+    if (value == null) {
+      value = protector.decrypt(stored);
+      plaintext = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value to store, encrypting a new SSN.
+   */
+  String toStored(SsnProtector encryptor) {
+    return stored != null && encryptor.isEncrypted(stored) ? stored : encryptor.encrypt(reveal());
+  }
+
+  @Override
+  public String toString() {
+    return "SealedSsn[****]";
+  }
+}
@@ -0,0 +1,30 @@
+package net.javaguides.cms.crypto;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps {@link SealedSsn} to its encrypted column value. Reading a client does not decrypt the SSN;
+ * {@link SealedSsn#reveal()} does, when it is first called.
+ */
+@Component
+@Converter
+public class SealedSsnConverter implements AttributeConverter<SealedSsn, String> {
+
+  private final SsnProtector ssnProtector;
+
+  public SealedSsnConverter(SsnProtector ssnProtector) {
+    this.ssnProtector = ssnProtector;
+  }
+
+  @Override
+  public String convertToDatabaseColumn(SealedSsn ssn) {
+    return ssn == null ? null : ssn.toStored(ssnProtector);
+  }
+
+  @Override
+  public SealedSsn convertToEntityAttribute(String stored) {
+    return stored == null ? null : SealedSsn.stored(stored, ssnProtector);
+  }
+}
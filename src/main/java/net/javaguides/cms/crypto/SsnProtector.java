@@ -0,0 +1,129 @@
+package net.javaguides.cms.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encrypts client SSNs for storage and derives their blind index.
+ *
+ * <p>SSNs are encrypted with AES-GCM under a random IV and stored as {@code v1:} followed by the base64
+ * of IV and ciphertext, so equal SSNs never produce equal column values. To still find and deduplicate
+ * clients by SSN with one indexed lookup, each SSN also gets a blind index: the hex HMAC-SHA256 of the
+ * SSN with spaces and dashes removed, under a separate key. The index column carries the unique
+ * constraint.
+ *
+ * <p>Values without the {@code v1:} prefix are plaintext SSNs written before encryption was introduced;
+ * {@link #decrypt(String)} returns them unchanged until {@code SsnEncryptionMigration} has rewritten them.
+ */
+@Component
+public class SsnProtector {
+
+  private static final String PREFIX = "v1:";
+  private static final String CIPHER = "AES/GCM/NoPadding";
+  private static final String MAC = "HmacSHA256";
+  private static final int IV_BYTES = 12;
+  private static final int TAG_BITS = 128;
+
+  private final SecretKeySpec encryptionKey;
+  private final SecretKeySpec indexKey;
+  private final SecureRandom random = new SecureRandom();
+  private final ThreadLocal<Mac> macs;
+
+  public SsnProtector(@Value("${cms.crypto.ssn-encryption-key}") String encryptionKey,
+      @Value("${cms.crypto.ssn-index-key}") String indexKey) {
+    byte[] encryptionKeyBytes = Base64.getDecoder().decode(encryptionKey);
+    byte[] indexKeyBytes = Base64.getDecoder().decode(indexKey);
+    if (encryptionKeyBytes.length != 32 || indexKeyBytes.length < 32) {
+      throw new IllegalStateException("cms.crypto.ssn-encryption-key must be 32 bytes and"
+          + " cms.crypto.ssn-index-key at least 32 bytes, base64-encoded");
+    }
+    this.encryptionKey = new SecretKeySpec(encryptionKeyBytes, "AES");
+    this.indexKey = new SecretKeySpec(indexKeyBytes, MAC);
+    this.macs = ThreadLocal.withInitial(this::newMac);
+  }
+
+  /**
+   * Encrypts an SSN for storage.
+   *
+   * @param ssn the plaintext SSN.
+   * @return the value to store.
+   */
+  public String encrypt(String ssn) {
+    byte[] iv = new byte[IV_BYTES];
+    random.nextBytes(iv);
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, iv));
+      byte[] ciphertext = cipher.doFinal(ssn.getBytes(StandardCharsets.UTF_8));
+      ByteBuffer sealed = ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext);
+      return PREFIX + Base64.getEncoder().encodeToString(sealed.array());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Could not encrypt SSN", e);
+    }
+  }
+
+  /**
+   * Decrypts a stored SSN.
+   *
+   * @param stored the stored value, encrypted or legacy plaintext.
+   * @return the plaintext SSN.
+   */
+  public String decrypt(String stored) {
+    if (!isEncrypted(stored)) {
+      return stored;
+    }
+    byte[] sealed = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+      byte[] plaintext = cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES);
+      return new String(plaintext, StandardCharsets.UTF_8);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Could not decrypt SSN", e);
+    }
+  }
+
+  /**
+   * Computes the blind index of an SSN.
+   *
+   * @param ssn the plaintext SSN, or null.
+   * @return the index value, or null if the SSN is null.
+   */
+  public String blindIndex(String ssn) {
+    if (ssn == null) {
+      return null;
+    }
+    String normalized = ssn.replaceAll("[\\s-]", "");
+    return HexFormat.of().formatHex(macs.get().doFinal(normalized.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Tells whether a stored value is already encrypted.
+   *
+   * @param stored the stored value, or null.
+   * @return true if the value was written by {@link #encrypt(String)}.
+   */
+  public boolean isEncrypted(String stored) {
+    return stored != null && stored.startsWith(PREFIX);
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(MAC);
+      mac.init(indexKey);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Could not initialize the SSN index key", e);
+    }
+  }
+}
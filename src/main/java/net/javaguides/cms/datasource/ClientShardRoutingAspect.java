@@ -0,0 +1,75 @@
+package net.javaguides.cms.datasource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import lombok.AllArgsConstructor;
+import net.javaguides.cms.dto.ClientDTO;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies {@link ShardRouted} to client service methods.
+ *
+ * <p>The aspect runs before the transaction interceptor so that each transaction is opened
+ * against the shard that owns the data. Methods routed to {@link ShardRouted.Mode#ALL_SHARDS}
+ * are invoked once per shard in parallel, and their list results are merged and ordered by client id.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+@AllArgsConstructor
+public class ClientShardRoutingAspect {
+
+  private ClientShards clientShards;
+
+  @Around("@annotation(shardRouted)")
+  public Object route(ProceedingJoinPoint joinPoint, ShardRouted shardRouted) throws Throwable {
+    if (!clientShards.isSharded() || ShardContext.current() != null) {
+      return joinPoint.proceed();
+    }
+    Object firstArg = joinPoint.getArgs().length > 0 ? joinPoint.getArgs()[0] : null;
+    try {
+      switch (shardRouted.value()) {
+        case BY_ID:
+          return clientShards.callOn(clientShards.shardForId((Long) firstArg), () -> proceed(joinPoint));
+        case NEW_CLIENT:
+          String username = firstArg instanceof ClientDTO client ? client.getUsername() : null;
+          return clientShards.callOn(clientShards.shardForNewClient(username), () -> proceed(joinPoint));
+        default:
+          return merge(clientShards.onAllShards(() -> proceed(joinPoint)));
+      }
+    } catch (CompletionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static Object merge(List<Object> shardResults) {
+    List<Object> merged = new ArrayList<>();
+    for (Object result : shardResults) {
+      merged.addAll((List<?>) result);
+    }
+    if (!merged.isEmpty() && merged.get(0) instanceof ClientDTO) {
+      merged.sort(Comparator.comparingLong(client -> ((ClientDTO) client).getId()));
+    }
+    return merged;
+  }
+
+  /**
+   * Proceeds with a copy of the invocation, so the same join point can run once per shard.
+   */
+  private static Object proceed(ProceedingJoinPoint joinPoint) {
+    try {
+      return joinPoint.proceed();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new CompletionException(e);
+    }
+  }
+}
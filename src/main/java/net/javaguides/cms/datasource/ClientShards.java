@@ -0,0 +1,173 @@
+package net.javaguides.cms.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Describes how {@code Client} rows are hash-partitioned across databases and runs work against them.
+ *
+ * <p>Shard 0 is the primary database; shards 1..N-1 are the extra databases listed in
+ * {@code cms.sharding.clients.urls}. Every shard generates ids with
+ * {@code auto_increment_increment = N} and {@code auto_increment_offset = shard + 1}, so ids stay
+ * globally unique and the owning shard of any id is simply {@code (id - 1) mod N}.
+ * New clients are placed by a hash of their username.
+ *
+ * <p>Clients created before sharding was enabled all live on the primary, whatever their id. Their ids
+ * are at most {@code cms.sharding.clients.legacy-max-id}, which must be set to {@code max(id)} of the
+ * primary's {@code users} table when sharding is first turned on; those ids keep being routed to shard 0,
+ * so no rows have to move. At start-up the extra shards' id counters are raised above that value, so
+ * ids generated by them can never be mistaken for legacy ones.
+ *
+ * <p>With no extra shards configured every method degenerates to running the work once on the primary.
+ */
+@Slf4j
+public class ClientShards implements InitializingBean, DisposableBean {
+
+  private final List<HikariDataSource> extraShards;
+  private final long legacyMaxId;
+  private final ExecutorService executor;
+
+  /**
+   * @param extraShards the connection pools for shards 1..N-1, in order.
+   * @param legacyMaxId the highest id allocated before sharding was enabled, or 0 if there is none.
+   */
+  public ClientShards(List<HikariDataSource> extraShards, long legacyMaxId) {
+    this.extraShards = List.copyOf(extraShards);
+    this.legacyMaxId = legacyMaxId;
+    this.executor = extraShards.isEmpty() ? null : Executors.newFixedThreadPool(count(), runnable -> {
+      Thread thread = new Thread(runnable, "client-shard-scatter");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return the total number of shards, including the primary.
+   */
+  public int count() {
+    return extraShards.size() + 1;
+  }
+
+  public boolean isSharded() {
+    return count() > 1;
+  }
+
+  public List<HikariDataSource> getExtraShards() {
+    return extraShards;
+  }
+
+  /**
+   * @return the session statement that makes a shard's connections generate ids owned by that shard.
+   */
+  public String idAllocationSql(int shard) {
+    return idAllocationSql(shard, count());
+  }
+
+  public static String idAllocationSql(int shard, int shardCount) {
+    return "SET SESSION auto_increment_increment = " + shardCount + ", auto_increment_offset = " + (shard + 1);
+  }
+
+  public int shardForId(long id) {
+    if (id <= legacyMaxId) {
+      return 0;
+    }
+    return (int) Math.floorMod(id - 1, (long) count());
+  }
+
+  public int shardForNewClient(String username) {
+    return Math.floorMod(username == null ? 0 : username.hashCode(), count());
+  }
+
+  /**
+   * Groups ids by the shard that owns them, keeping their relative order.
+   */
+  public Map<Integer, List<Long>> partition(Collection<Long> ids) {
+    Map<Integer, List<Long>> byShard = new LinkedHashMap<>();
+    for (Long id : ids) {
+      byShard.computeIfAbsent(shardForId(id), shard -> new ArrayList<>()).add(id);
+    }
+    return byShard;
+  }
+
+  /**
+   * Runs the action against one shard on the calling thread.
+   */
+  public <T> T callOn(int shard, Supplier<T> action) {
+    return ShardContext.callOn(shard, action);
+  }
+
+  /**
+   * Runs the action against every shard in parallel.
+   *
+   * @return the per-shard results, indexed by shard.
+   */
+  public <T> List<T> onAllShards(Supplier<T> action) {
+    if (!isSharded()) {
+      return List.of(action.get());
+    }
+    List<CompletableFuture<T>> futures = new ArrayList<>(count());
+    for (int shard = 0; shard < count(); shard++) {
+      int target = shard;
+      futures.add(CompletableFuture.supplyAsync(() -> ShardContext.callOn(target, action), executor));
+    }
+    List<T> results = new ArrayList<>(count());
+    try {
+      for (CompletableFuture<T> future : futures) {
+        results.add(future.join());
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    return results;
+  }
+
+  /**
+   * Runs a single-row lookup on every shard and returns the first match.
+   */
+  public <T> Optional<T> findFirst(Supplier<Optional<T>> lookup) {
+    return onAllShards(lookup).stream().flatMap(Optional::stream).findFirst();
+  }
+
+  /**
+   * Raises the id counter of every extra shard above {@code legacyMaxId}, unless it already holds larger ids.
+   */
+  @Override
+  public void afterPropertiesSet() {
+    if (legacyMaxId <= 0) {
+      return;
+    }
+    for (int i = 0; i < extraShards.size(); i++) {
+      JdbcTemplate shard = new JdbcTemplate(extraShards.get(i));
+      Long maxId = shard.queryForObject("select coalesce(max(id), 0) from users", Long.class);
+      if (maxId != null && maxId <= legacyMaxId) {
+        shard.execute("alter table users auto_increment = " + (legacyMaxId + 1));
+        log.info("Client shard {} now allocates ids above {}", i + 1, legacyMaxId);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    extraShards.forEach(HikariDataSource::close);
+  }
+}
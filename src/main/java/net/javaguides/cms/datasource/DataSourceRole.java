@@ -0,0 +1,13 @@
+package net.javaguides.cms.datasource;
+
+/**
+ * Identifies which physical database a routed connection should be taken from.
+ *
+ * <ul>
+ *     <li>{@link #PRIMARY} - The writable MySQL instance configured through {@code spring.datasource.*}.</li>
+ *     <li>{@link #REPLICA} - The read-only replica configured through {@code cms.datasource.replica.*}.</li>
+ * </ul>
+ */
+public enum DataSourceRole {
+  PRIMARY, REPLICA
+}
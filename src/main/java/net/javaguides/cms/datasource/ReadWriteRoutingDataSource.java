@@ -0,0 +1,38 @@
+package net.javaguides.cms.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections to the primary or the replica depending on the current transaction.
+ *
+ * <p>Read-only transactions go to the replica unless the replica is lagging or the current
+ * principal wrote recently; everything else goes to the primary. The routing decision is made
+ * when a physical connection is requested, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the read-only
+ * flag of the transaction to be visible at that point.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  private final ReplicaLagMonitor lagMonitor;
+  private final ReadYourWritesTracker readYourWritesTracker;
+
+  public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker readYourWritesTracker) {
+    this.lagMonitor = lagMonitor;
+    this.readYourWritesTracker = readYourWritesTracker;
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      if (lagMonitor.isLagging() || readYourWritesTracker.hasRecentWrite()) {
+        return DataSourceRole.PRIMARY;
+      }
+      return DataSourceRole.REPLICA;
+    }
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      readYourWritesTracker.recordWrite();
+    }
+    return DataSourceRole.PRIMARY;
+  }
+}
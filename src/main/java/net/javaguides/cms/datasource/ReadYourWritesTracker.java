@@ -0,0 +1,66 @@
+package net.javaguides.cms.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Remembers when each authenticated user last wrote to the primary database so that their
+ * follow-up reads can be pinned to the primary for a short window.
+ *
+ * <p>Without this, a user who updates a record and immediately reads it back could be served
+ * by a replica that has not yet applied the change, and would appear to lose their own write.
+ */
+public class ReadYourWritesTracker {
+
+  private static final int PRUNE_THRESHOLD = 10_000;
+
+  private final long stickyWindowNanos;
+  private final Map<String, Long> lastWriteByPrincipal = new ConcurrentHashMap<>();
+
+  /**
+   * @param stickyWindowMillis how long after a write the same principal keeps reading from the primary.
+   */
+  public ReadYourWritesTracker(long stickyWindowMillis) {
+    this.stickyWindowNanos = stickyWindowMillis * 1_000_000L;
+  }
+
+  /**
+   * Records that the principal of the current request is writing to the primary.
+   */
+  public void recordWrite() {
+    String principal = currentPrincipal();
+    if (principal == null) {
+      return;
+    }
+    if (lastWriteByPrincipal.size() > PRUNE_THRESHOLD) {
+      prune();
+    }
+    lastWriteByPrincipal.put(principal, System.nanoTime());
+  }
+
+  /**
+   * Checks whether the principal of the current request wrote within the sticky window.
+   *
+   * @return true if reads for this principal must go to the primary.
+   */
+  public boolean hasRecentWrite() {
+    String principal = currentPrincipal();
+    if (principal == null) {
+      return false;
+    }
+    Long lastWrite = lastWriteByPrincipal.get(principal);
+    return lastWrite != null && System.nanoTime() - lastWrite < stickyWindowNanos;
+  }
+
+  private void prune() {
+    long now = System.nanoTime();
+    lastWriteByPrincipal.values().removeIf(lastWrite -> now - lastWrite >= stickyWindowNanos);
+  }
+
+  private static String currentPrincipal() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null ? authentication.getName() : null;
+  }
+}
@@ -0,0 +1,64 @@
+package net.javaguides.cms.datasource;
+
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically polls the replica's replication status and reports whether it is too far behind
+ * the primary to serve reads.
+ *
+ * <p>The replica is considered unhealthy when replication is stopped, when the status cannot be
+ * read at all, or when {@code Seconds_Behind_Source} exceeds the configured maximum. While it is
+ * unhealthy, {@link ReadWriteRoutingDataSource} sends read-only transactions to the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+  private final JdbcTemplate replicaJdbcTemplate;
+  private final long maxLagSeconds;
+  private volatile boolean lagging = true;
+
+  public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagSeconds) {
+    this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+    this.maxLagSeconds = maxLagSeconds;
+  }
+
+  /**
+   * @return true if reads must fall back to the primary.
+   */
+  public boolean isLagging() {
+    return lagging;
+  }
+
+  /**
+   * Refreshes the lag status. Runs on the scheduler at a configurable interval.
+   */
+  @Scheduled(fixedDelayString = "${cms.datasource.replica.lag-check-interval-ms:5000}")
+  public void checkLag() {
+    boolean nowLagging;
+    try {
+      List<Map<String, Object>> rows = replicaJdbcTemplate.queryForList("SHOW REPLICA STATUS");
+      nowLagging = rows.isEmpty() || isBehind(rows.get(0));
+    } catch (RuntimeException e) {
+      log.warn("Could not read replica status, routing reads to primary: {}", e.getMessage());
+      nowLagging = true;
+    }
+    if (nowLagging != lagging) {
+      log.info("Replica is now {}", nowLagging ? "lagging, reads go to primary" : "healthy, reads go to replica");
+    }
+    lagging = nowLagging;
+  }
+
+  private boolean isBehind(Map<String, Object> status) {
+    Object seconds = status.get("Seconds_Behind_Source");
+    if (seconds == null) {
+      // MySQL releases before 8.0.22 only expose the older column name
+      seconds = status.get("Seconds_Behind_Master");
+    }
+    return !(seconds instanceof Number) || ((Number) seconds).longValue() > maxLagSeconds;
+  }
+}
@@ -0,0 +1,45 @@
+package net.javaguides.cms.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the client shard that connections opened by the current thread should be taken from.
+ *
+ * <p>The shard must be selected before a transaction starts, because the transaction binds its
+ * connection on the first statement and keeps it until commit.
+ */
+public final class ShardContext {
+
+  private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+  private ShardContext() {
+  }
+
+  /**
+   * @return the shard selected for the current thread, or null when none is selected.
+   */
+  public static Integer current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs the given action with the given shard selected, restoring the previous selection afterwards.
+   *
+   * @param shard the index of the shard to use.
+   * @param action the work to run against that shard.
+   * @return the result of the action.
+   */
+  public static <T> T callOn(int shard, Supplier<T> action) {
+    Integer previous = CURRENT.get();
+    CURRENT.set(shard);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+}
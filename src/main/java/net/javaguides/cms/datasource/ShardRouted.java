@@ -0,0 +1,30 @@
+package net.javaguides.cms.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a client service method whose database work must run on a specific client shard.
+ * The routing is applied by {@link ClientShardRoutingAspect} before the method's transaction starts.
+ * It has no effect unless client sharding is configured.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardRouted {
+
+  /**
+   * How the target shard is derived from the method call.
+   */
+  Mode value();
+
+  enum Mode {
+    /** The first argument is a client id; run on the shard that owns it. */
+    BY_ID,
+    /** The first argument is a new client; pick its shard from a hash of the username. */
+    NEW_CLIENT,
+    /** Run on every shard in parallel and concatenate the returned lists. */
+    ALL_SHARDS
+  }
+}
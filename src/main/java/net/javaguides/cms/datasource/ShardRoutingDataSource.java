@@ -0,0 +1,16 @@
+package net.javaguides.cms.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes connections to the client shard selected in {@link ShardContext}.
+ * Connections opened without a selected shard go to shard 0, the primary database,
+ * which also holds every non-client table.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return ShardContext.current();
+  }
+}
@@ -0,0 +1,134 @@
+package net.javaguides.cms.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Serializes writes that take the same username, email or SSN on different client shards.
+ *
+ * <p>The unique indexes of one shard cannot see the rows of another, so when clients are sharded a
+ * check-then-insert of a key must not overlap with another one for the same key. Each key is locked with
+ * a MySQL named lock ({@code GET_LOCK}) on the primary, taken on a connection of a small dedicated pool
+ * and held until the current transaction completes; keys are locked in sorted order so two writers cannot
+ * deadlock. The locks belong to the database session, so they are released even if this instance dies.
+ *
+ * <p>Without extra shards there is no pool and every method does nothing: the unique indexes suffice.
+ */
+@Slf4j
+public class UserKeyLocks implements DisposableBean {
+
+  private static final String LOCK_PREFIX = "cms.user-key.";
+  private static final int LOCK_TIMEOUT_SECONDS = 10;
+
+  private final HikariDataSource lockPool;
+
+  /**
+   * @param lockPool a pool of connections to the primary, or null when clients are not sharded.
+   */
+  public UserKeyLocks(HikariDataSource lockPool) {
+    this.lockPool = lockPool;
+  }
+
+  public boolean isEnabled() {
+    return lockPool != null;
+  }
+
+  /**
+   * Locks the given keys until the current transaction commits or rolls back.
+   *
+   * @param keys the keys to lock, e.g. {@code "email:jane@example.com"}; nulls are ignored.
+   * @throws ConcurrentUpdateException if a key stays locked by another writer for too long.
+   * @throws IllegalStateException if no transaction is active.
+   */
+  public void lockUntilTransactionEnds(Collection<String> keys) {
+    if (lockPool == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      throw new IllegalStateException("User keys can only be locked inside a transaction");
+    }
+    TreeSet<String> lockNames = new TreeSet<>();
+    keys.stream().filter(Objects::nonNull).map(UserKeyLocks::lockName).forEach(lockNames::add);
+    if (lockNames.isEmpty()) {
+      return;
+    }
+    Connection connection;
+    try {
+      connection = lockPool.getConnection();
+    } catch (SQLException e) {
+      throw new DataAccessResourceFailureException("Could not lock the user's keys", e);
+    }
+    try {
+      for (String lockName : lockNames) {
+        if (!acquire(connection, lockName)) {
+          release(connection);
+          throw new ConcurrentUpdateException(
+              "Another request is registering the same username, email or SSN, try again");
+        }
+      }
+    } catch (SQLException e) {
+      release(connection);
+      throw new DataAccessResourceFailureException("Could not lock the user's keys", e);
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        release(connection);
+      }
+    });
+  }
+
+  private static boolean acquire(Connection connection, String lockName) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement("select get_lock(?, ?)")) {
+      statement.setString(1, lockName);
+      statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getInt(1) == 1;
+      }
+    }
+  }
+
+  //the locks outlive the connection's return to the pool, so they are released explicitly
+  private void release(Connection connection) {
+    try (PreparedStatement statement = connection.prepareStatement("select release_all_locks()")) {
+      statement.execute();
+      connection.close();
+    } catch (SQLException e) {
+      log.warn("Could not release user key locks, discarding the connection: {}", e.getMessage());
+      lockPool.evictConnection(connection);
+    }
+  }
+
+  //MySQL lock names are limited to 64 characters
+  static String lockName(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      return LOCK_PREFIX + HexFormat.of().formatHex(digest, 0, 24);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (lockPool != null) {
+      lockPool.close();
+    }
+  }
+}
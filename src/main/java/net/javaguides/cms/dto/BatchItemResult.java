@@ -0,0 +1,43 @@
+package net.javaguides.cms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object reporting what happened to one item of a batch request.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+  /**
+   * The outcome of one batch item.
+   * <ul>
+   *     <li>{@link #UPDATED} - The changes were applied and committed.</li>
+   *     <li>{@link #NOT_FOUND} - No record exists with the given id.</li>
+   *     <li>{@link #FAILED} - The changes were rejected, see the message.</li>
+   * </ul>
+   */
+  public enum Outcome {
+    UPDATED, NOT_FOUND, FAILED
+  }
+
+  /**
+   * The id of the record the item targeted.
+   */
+  private Long id;
+
+  /**
+   * The outcome of the item.
+   */
+  private Outcome outcome;
+
+  /**
+   * Why the item failed, or null when it did not.
+   */
+  private String message;
+}
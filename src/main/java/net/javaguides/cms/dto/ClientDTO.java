@@ -1,10 +1,12 @@
 package net.javaguides.cms.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Date;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import net.javaguides.cms.crypto.SealedSsn;
 
 /**
  * Data Transfer Object for client details.
@@ -17,7 +19,6 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class ClientDTO {
 
   /**
@@ -46,9 +47,12 @@ public class ClientDTO {
 
   /**
    * The Social Security Number (SSN) of the client.
-   * This is a sensitive piece of data uniquely identifying the client.
+   * This is a sensitive piece of data uniquely identifying the client. When mapped from a stored client it
+   * stays encrypted until {@link #getSSN()} is called, which is when the DTO is serialized into a response.
    */
-  private String SSN;
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private SealedSsn SSN;
 
   /**
    * The date of birth of the client.
@@ -61,4 +65,58 @@ public class ClientDTO {
 
   private net.javaguides.cms.Enums.Status Status;
 
+  /**
+   * The version of the client record this data was read from.
+   * When sent with an update, the update is rejected if the record has changed since.
+   */
+  private Long version;
+
+  public ClientDTO(long id, String firstName, String lastName, String username, String email, String SSN,
+      Date dateOfBirth, net.javaguides.cms.Enums.Status Status, Long version) {
+    this.id = id;
+    this.firstName = firstName;
+    this.lastName = lastName;
+    this.username = username;
+    this.email = email;
+    setSSN(SSN);
+    this.dateOfBirth = dateOfBirth;
+    this.Status = Status;
+    this.version = version;
+  }
+
+  /**
+   * Creates client details without a version, for callers that do not track record versions.
+   */
+  public ClientDTO(long id, String firstName, String lastName, String username, String email, String SSN,
+      Date dateOfBirth, net.javaguides.cms.Enums.Status Status) {
+    this(id, firstName, lastName, username, email, SSN, dateOfBirth, Status, null);
+  }
+
+  /**
+   * Returns the plaintext SSN, decrypting it on first use.
+   */
+  public String getSSN() {
+    return SSN == null ? null : SSN.reveal();
+  }
+
+  public void setSSN(String SSN) {
+    this.SSN = SSN == null ? null : SealedSsn.of(SSN);
+  }
+
+  /**
+   * Returns the SSN without decrypting it, to hand it on to a client entity.
+   */
+  @JsonIgnore
+  public SealedSsn getSealedSsn() {
+    return SSN;
+  }
+
+  /**
+   * Sets the SSN of a stored client, to be decrypted only if {@link #getSSN()} is called.
+   */
+  @JsonIgnore
+  public void setSealedSsn(SealedSsn SSN) {
+    this.SSN = SSN;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package net.javaguides.cms.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.javaguides.cms.Enums.Status;
+
+/**
+ * Data Transfer Object for the client statistics shown on the management dashboard.
+ * Deleted clients are not counted.
+ */
+@Getter
+@AllArgsConstructor
+public class ClientStats {
+
+  /**
+   * The number of clients.
+   */
+  private long total;
+
+  /**
+   * The number of clients in each status.
+   */
+  private Map<Status, Long> byStatus;
+
+  /**
+   * The number of clients created on each of the most recent days, oldest first.
+   */
+  private Map<LocalDate, Long> onboardedPerDay;
+
+  /**
+   * The number of clients in each age band, youngest first, derived from their date of birth.
+   */
+  private Map<String, Long> ageBands;
+
+  /**
+   * When the statistics were last reconciled against the database.
+   */
+  private Instant reconciledAt;
+}
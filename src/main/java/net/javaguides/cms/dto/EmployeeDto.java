@@ -50,4 +50,17 @@ public class EmployeeDto {
    */
   private String department;
 
+  /**
+   * Version of the employee record this data was read from.
+   * When sent with an update, the update is rejected if the record has changed since.
+   */
+  private Long version;
+
+  /**
+   * Creates employee details without a version, for callers that do not track record versions.
+   */
+  public EmployeeDto(Long id, String firstName, String lastName, String username, String email, String department) {
+    this(id, firstName, lastName, username, email, department, null);
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package net.javaguides.cms.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Data Transfer Object for the result of fetching several records by id in one request.
+ * The found records are listed in the order their ids were requested, and the ids that
+ * matched no record are reported separately.
+ *
+ * @param <T> the type of the records, e.g. {@link ClientDTO} or {@link EmployeeDto}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResponse<T> {
+
+  /**
+   * The maximum number of ids accepted by one multi-get request.
+   */
+  public static final int MAX_IDS = 200;
+
+  /**
+   * The records that were found, in request order.
+   */
+  private List<T> items;
+
+  /**
+   * The requested ids that matched no record, in request order.
+   */
+  private List<Long> missing;
+
+  /**
+   * Removes duplicate ids, keeping the first occurrence of each, and enforces {@link #MAX_IDS}.
+   *
+   * @param ids the ids as requested.
+   * @return the distinct ids in request order.
+   * @throws ResponseStatusException with 400 Bad Request if an id is empty or too many ids are requested.
+   */
+  public static List<Long> distinctIds(List<Long> ids) {
+    //an empty element such as the middle of ?ids=1,,2 is bound as null
+    if (ids.stream().anyMatch(Objects::isNull)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must not contain empty values");
+    }
+    List<Long> distinct = List.copyOf(new LinkedHashSet<>(ids));
+    if (distinct.size() > MAX_IDS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_IDS + " ids can be requested at once");
+    }
+    return distinct;
+  }
+
+  /**
+   * Arranges the found records in the order of the requested ids.
+   *
+   * @param requestedIds the ids in the order they were requested, without duplicates.
+   * @param found the records returned by the lookup, in any order.
+   * @param idOf extracts the id of a record.
+   * @return the response listing the found records and the missing ids.
+   */
+  public static <T> MultiGetResponse<T> of(List<Long> requestedIds, Collection<T> found, Function<T, Long> idOf) {
+    Map<Long, T> byId = new HashMap<>();
+    for (T record : found) {
+      byId.put(idOf.apply(record), record);
+    }
+    List<T> items = new ArrayList<>(requestedIds.size());
+    List<Long> missing = new ArrayList<>();
+    for (Long id : requestedIds) {
+      T record = byId.get(id);
+      if (record != null) {
+        items.add(record);
+      } else {
+        missing.add(id);
+      }
+    }
+    return new MultiGetResponse<>(items, missing);
+  }
+}
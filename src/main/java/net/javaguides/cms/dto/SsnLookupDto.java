@@ -0,0 +1,29 @@
+package net.javaguides.cms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Data Transfer Object for finding a client by SSN.
+ * The SSN is sent in the request body rather than the URL, so it does not end up in access logs,
+ * proxy logs or browser history.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SsnLookupDto {
+
+  /**
+   * The Social Security Number (SSN) of the client to find.
+   */
+  private String ssn;
+
+  //keep the SSN out of logs
+  @Override
+  public String toString() {
+    return "SsnLookupDto[ssn=****]";
+  }
+}
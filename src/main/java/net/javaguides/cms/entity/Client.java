@@ -4,37 +4,62 @@ package net.javaguides.cms.entity;
  * Represents a client in the system.
  * This class extends {@link User}, inheriting user-related properties and functionalities.
  * It is annotated with JPA annotations to define its mapping to a database table.
+ * Pending clients can be leased to one reviewer at a time through the review lease columns.
  *
  */
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import java.time.LocalDateTime;
 import java.util.Date;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import net.javaguides.cms.crypto.SealedSsn;
+import net.javaguides.cms.crypto.SealedSsnConverter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.type.descriptor.java.Immutability;
 
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "clients")
+@Table(name = "clients", indexes = {
+    @Index(name = "idx_clients_review_queue", columnList = "Status, review_lease_until"),
+    @Index(name = "idx_clients_status_created", columnList = "Status, created_at")})
 public class Client extends User{
 
   /**
-   * The Social Security Number (SSN) of the client.
-   * This field is unique for each client and cannot be null.
+   * The Social Security Number (SSN) of the client, encrypted in the database.
+   * This field cannot be null; it is decrypted only when {@link #getSSN()} is first called.
    */
 
 
-  @Column(name = "SSN", nullable = false, unique = true)
-  private String SSN;
+  @Convert(converter = SealedSsnConverter.class)
+  @Mutability(Immutability.class)
+  @Column(name = "SSN", nullable = false)
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private SealedSsn sealedSsn;
+
+  /**
+   * The keyed hash of the SSN, used to find clients by SSN.
+   * This field is unique for each client; see {@link net.javaguides.cms.crypto.SsnProtector#blindIndex(String)}.
+   */
+
+  @Column(name = "ssn_index", unique = true, length = 64)
+  private String ssnIndex;
   /**
    * The date of birth of the client.
    * This field is required and cannot be null.
@@ -51,4 +76,52 @@ public class Client extends User{
   @Column(name = "Status", nullable = false)
   private net.javaguides.cms.Enums.Status Status;
 
+  /**
+   * The username of the reviewer currently holding this client, or null if it is not leased.
+   */
+
+  @Column(name = "review_lease_owner")
+  private String reviewLeaseOwner;
+
+  /**
+   * When the current review lease expires; after that the client can be claimed again.
+   */
+
+  @Column(name = "review_lease_until")
+  private LocalDateTime reviewLeaseUntil;
+
+  /**
+   * When the client was created; clients pending for too long are expired by the pending sweep.
+   */
+
+  @CreationTimestamp
+  @ColumnDefault("CURRENT_TIMESTAMP(6)")
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  public String getSSN() {
+    return sealedSsn == null ? null : sealedSsn.reveal();
+  }
+
+  /**
+   * Sets a new SSN, encrypted when the client is written. The caller also sets {@link #ssnIndex}.
+   */
+  public void setSSN(String ssn) {
+    this.sealedSsn = ssn == null ? null : SealedSsn.of(ssn);
+  }
+
+  /**
+   * Returns the SSN without decrypting it, e.g. to hand it on to a DTO.
+   */
+  public SealedSsn getSealedSsn() {
+    return sealedSsn;
+  }
+
+  /**
+   * Sets the SSN from a value that is already sealed; a stored SSN is written back without re-encrypting it.
+   */
+  public void setSealedSsn(SealedSsn sealedSsn) {
+    this.sealedSsn = sealedSsn;
+  }
+
 }
@@ -1,24 +1,28 @@
 package net.javaguides.cms.entity;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import java.util.Set;
+import net.javaguides.cms.Enums.UserRole;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
 /**
  * Represents an abstract user entity in the system.
@@ -29,9 +33,11 @@ import lombok.Setter;
  * <p>This entity includes basic user details such as name, username, email, and password.
  * It is designed to be extended by other user-specific entities that may require additional fields or behavior.
  *
- * <p>Relationships:
+ * <p>Roles:
  * <ul>
- *   <li>Many-to-many relationship with {@link Role} entity: A user can possess multiple unique roles.
+ *   <li>The user's roles are stored in the {@code role_mask} column as a bitmask of {@link UserRole} bits.
+ *   <li>The legacy many-to-many relationship with the {@link Role} entity is kept, lazily loaded, only to migrate
+ *       users whose roles were recorded in {@code users_roles} before the mask existed.
  * </ul>
  *
  * <p>Database interactions are managed by Jakarta Persistence API, with features like:
@@ -39,8 +45,7 @@ import lombok.Setter;
  *   <li>Automatic generation of IDs.
  *   <li>Enforcement of non-null constraints on username, email, and password.
  *   <li>Enforcement of uniqueness on username and email to prevent duplicates.
- *   <li>Eager fetching of roles associated with the user, ensuring that roles are loaded at the same time as the user entity.
- *   <li>Cascading all persistence operations to the associated roles.
+ *   <li>Soft deletion: deleted users stay in the table, hidden from every entity query, until they are purged.
  * </ul>
  *
  * @author Annotated with Lombok annotations for boilerplate getter and setter methods, as well as constructors.
@@ -53,7 +58,8 @@ import lombok.Setter;
 @AllArgsConstructor
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_deleted", columnList = "deleted"))
+@SQLRestriction("deleted = 0")
 public abstract class User {
 
   /**
@@ -86,11 +92,35 @@ public abstract class User {
   private String password;
 
   /**
-   * Set of roles associated with the user. Defined as a many-to-many relationship.
-   * Changes to the user entity (such as save, update, delete) will cascade to the roles.
-   * This field is fetched eagerly, which means it is loaded at the same time as the user.
+   * The optimistic lock version of the user. Hibernate increments it on every update and only
+   * writes the row while it still holds the version that was read; existing rows start at 0.
    */
-  @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private Long version;
+
+  /**
+   * Whether the user has been deleted. Deleted users are excluded from entity queries and their
+   * rows are removed in the background by the deleted user purger.
+   */
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private boolean deleted;
+
+  /**
+   * The roles of the user as a bitmask of {@link UserRole} bits. A single column read is enough to
+   * build the user's authorities.
+   */
+  @ColumnDefault("0")
+  @Column(name = "role_mask", nullable = false)
+  private int roleMask;
+
+  /**
+   * Legacy set of roles associated with the user, through the {@code users_roles} join table.
+   * It is no longer written; {@link #roleMask} is filled from it for users created before the mask existed.
+   */
+  @ManyToMany(fetch = FetchType.LAZY)
   @JoinTable(name = "users_roles",
       //users - primary key becomes foreign key in user_roles table
       joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
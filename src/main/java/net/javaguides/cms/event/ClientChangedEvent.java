@@ -0,0 +1,25 @@
+package net.javaguides.cms.event;
+
+import net.javaguides.cms.dto.ClientDTO;
+
+/**
+ * Published by the client service whenever a client is created, updated or deleted,
+ * so that in-memory views of the client data can be kept up to date.
+ *
+ * @param clientId the id of the client that changed.
+ * @param client the client as it is now, or null if it was deleted.
+ */
+public record ClientChangedEvent(Long clientId, ClientDTO client) {
+
+  public static ClientChangedEvent saved(ClientDTO client) {
+    return new ClientChangedEvent(client.getId(), client);
+  }
+
+  public static ClientChangedEvent deleted(Long clientId) {
+    return new ClientChangedEvent(clientId, null);
+  }
+
+  public boolean isDeleted() {
+    return client == null;
+  }
+}
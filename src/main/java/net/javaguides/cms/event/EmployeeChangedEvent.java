@@ -0,0 +1,25 @@
+package net.javaguides.cms.event;
+
+import net.javaguides.cms.dto.EmployeeDto;
+
+/**
+ * Published by the employee service whenever an employee is created, updated or deleted,
+ * so that in-memory views of the employee data can be kept up to date.
+ *
+ * @param employeeId the id of the employee that changed.
+ * @param employee the employee as it is now, or null if it was deleted.
+ */
+public record EmployeeChangedEvent(Long employeeId, EmployeeDto employee) {
+
+  public static EmployeeChangedEvent saved(EmployeeDto employee) {
+    return new EmployeeChangedEvent(employee.getId(), employee);
+  }
+
+  public static EmployeeChangedEvent deleted(Long employeeId) {
+    return new EmployeeChangedEvent(employeeId, null);
+  }
+
+  public boolean isDeleted() {
+    return employee == null;
+  }
+}
@@ -0,0 +1,15 @@
+package net.javaguides.cms.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//thrown when a write was based on a version of the record that has since changed;
+//spring returns 409 Conflict and the caller should reload the record before retrying
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class ConcurrentUpdateException extends RuntimeException {
+
+  public ConcurrentUpdateException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,15 @@
+package net.javaguides.cms.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//thrown when a create would violate a unique key (username, email or SSN);
+//spring returns 409 Conflict along with the message
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class DuplicateResourceException extends RuntimeException {
+
+  public DuplicateResourceException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,27 @@
+package net.javaguides.cms.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//thrown while the database circuit breaker is open and no last known good result can be served;
+//spring returns 503 Service Unavailable and the caller should retry after the Retry-After delay
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceDegradedException extends RuntimeException {
+
+  private final int retryAfterSeconds;
+
+  public ServiceDegradedException(String message) {
+    this(message, 0);
+  }
+
+  public ServiceDegradedException(String message, int retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  //how long the caller should wait before retrying, 0 if unknown
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+}
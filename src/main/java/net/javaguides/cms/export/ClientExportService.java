@@ -0,0 +1,211 @@
+package net.javaguides.cms.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.web.JdbcListStreamer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Runs full client snapshot exports in the background.
+ *
+ * <p>An export streams the client rows of every shard, straight from JDBC, into a gzip-compressed
+ * NDJSON file under {@code cms.export.dir}. SSNs are written encrypted, as they are stored, so the file
+ * holds no plaintext SSN. It runs on a dedicated thread, so no request thread waits on it. A database
+ * connection is only held while a shard is being read.
+ *
+ * <p>A completed snapshot is reused by later export requests until a client changes, as seen through
+ * {@link ClientChangedEvent}, or until it is older than {@code cms.export.max-age-minutes}. The age
+ * limit covers changes made by other application instances. Starting an export while another is
+ * running returns the running job. When a newer snapshot completes, older jobs are retired: they can no
+ * longer be found, and their files are deleted once no download holds an {@link ExportLease} on them and
+ * the last one was released more than {@code cms.export.retired-grace-seconds} ago. The grace period covers
+ * {@code sendfile} downloads, which the servlet container starts only after the handler has returned.
+ * A failed job is forgotten once it failed more than the grace period ago, so its status can still be
+ * polled briefly but failures do not pile up.
+ */
+@Slf4j
+@Service
+public class ClientExportService implements DisposableBean {
+
+  private final JdbcListStreamer jdbcListStreamer;
+  private final ClientShards clientShards;
+  private final Path directory;
+  private final Duration maxAge;
+  private final Duration retiredGrace;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "client-export");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+  private final List<ExportJob> retired = new CopyOnWriteArrayList<>();
+  private final AtomicLong generation = new AtomicLong();
+  private ExportJob latest;
+
+  public ClientExportService(JdbcListStreamer jdbcListStreamer, ClientShards clientShards,
+      @Value("${cms.export.dir:${java.io.tmpdir}/cms-exports}") String directory,
+      @Value("${cms.export.max-age-minutes:60}") long maxAgeMinutes,
+      @Value("${cms.export.retired-grace-seconds:60}") long retiredGraceSeconds) {
+    this.jdbcListStreamer = jdbcListStreamer;
+    this.clientShards = clientShards;
+    this.directory = Paths.get(directory);
+    this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+    this.retiredGrace = Duration.ofSeconds(retiredGraceSeconds);
+  }
+
+  /**
+   * Starts a snapshot export, or returns the running or reusable one.
+   *
+   * @return the job producing the snapshot.
+   */
+  public synchronized ExportJob start() {
+    if (latest != null && isReusable(latest)) {
+      return latest;
+    }
+    String id = UUID.randomUUID().toString();
+    ExportJob job = new ExportJob(id, Instant.now(), generation.get(), directory.resolve("clients-" + id + ".ndjson.gz"));
+    jobs.put(id, job);
+    latest = job;
+    executor.execute(() -> run(job));
+    return job;
+  }
+
+  /**
+   * Looks up an export job by its id.
+   *
+   * @param id the id of the job.
+   * @return the job, or empty if it does not exist or its file has been replaced by a newer snapshot.
+   */
+  public Optional<ExportJob> find(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  /**
+   * Leases the file of an export job for a download, so it is not deleted while being sent.
+   *
+   * @param id the id of the job.
+   * @return the lease, to be closed once the file is sent, or empty if the job does not exist or has
+   *     been replaced by a newer snapshot.
+   */
+  public Optional<ExportLease> lease(String id) {
+    ExportJob job = jobs.get(id);
+    if (job == null || !job.tryLease()) {
+      return Optional.empty();
+    }
+    return Optional.of(new ExportLease(job));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onClientChanged(ClientChangedEvent event) {
+    generation.incrementAndGet();
+  }
+
+  private boolean isReusable(ExportJob job) {
+    switch (job.getState()) {
+      case RUNNING:
+        return true;
+      case COMPLETED:
+        return job.getGeneration() == generation.get()
+            && job.getStartedAt().plus(maxAge).isAfter(Instant.now());
+      default:
+        return false;
+    }
+  }
+
+  private void run(ExportJob job) {
+    Path partial = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+    try {
+      Files.createDirectories(directory);
+      long rows = 0;
+      try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16), 1 << 16)) {
+        for (int shard = 0; shard < clientShards.count(); shard++) {
+          rows += clientShards.callOn(shard, () -> {
+            try {
+              return jdbcListStreamer.exportClients(out);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+        }
+      }
+      Files.move(partial, job.getFile(), StandardCopyOption.ATOMIC_MOVE);
+      //retired first, so a caller that sees this job completed never finds an older one
+      removeOlderThan(job);
+      job.complete(rows, Files.size(job.getFile()));
+      log.info("Client export {} completed: {} clients, {} bytes", job.getId(), rows, job.getSizeBytes());
+    } catch (IOException | RuntimeException e) {
+      log.error("Client export {} failed", job.getId(), e);
+      job.fail();
+      deleteQuietly(partial);
+    }
+  }
+
+  private synchronized void removeOlderThan(ExportJob completed) {
+    jobs.values().removeIf(job -> {
+      if (job == completed || job.getState() == ExportJob.State.RUNNING
+          || !job.getStartedAt().isBefore(completed.getStartedAt())) {
+        return false;
+      }
+      job.retire();
+      retired.add(job);
+      return true;
+    });
+    deleteRetired();
+  }
+
+  /**
+   * Deletes the files of retired jobs that no download has used for the grace period, and forgets
+   * jobs that failed before the grace period. Runs on the scheduler once a minute.
+   */
+  @Scheduled(fixedDelay = 60_000)
+  public void deleteRetired() {
+    Instant releasedBefore = Instant.now().minus(retiredGrace);
+    jobs.values().removeIf(job -> job.getState() == ExportJob.State.FAILED
+        && job.getFinishedAt().isBefore(releasedBefore));
+    for (ExportJob job : retired) {
+      Instant lastReleasedAt = job.getLastReleasedAt();
+      if (job.isUnused() && (lastReleasedAt == null || lastReleasedAt.isBefore(releasedBefore))) {
+        deleteQuietly(job.getFile());
+        retired.remove(job);
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete export file {}", file, e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+}
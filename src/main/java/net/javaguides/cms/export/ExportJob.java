@@ -0,0 +1,134 @@
+package net.javaguides.cms.export;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A background export of every client into a gzip-compressed NDJSON file.
+ * The job is returned by the export endpoints to report its progress; the file location stays internal.
+ */
+@Getter
+public class ExportJob {
+
+  /**
+   * The state of an export job.
+   * <ul>
+   *     <li>{@link #RUNNING} - The clients are being written to the file.</li>
+   *     <li>{@link #COMPLETED} - The file is complete and can be downloaded.</li>
+   *     <li>{@link #FAILED} - The export stopped with an error; start a new one.</li>
+   * </ul>
+   */
+  public enum State {
+    RUNNING, COMPLETED, FAILED
+  }
+
+  /**
+   * The unique identifier of the job, used in the status and download URLs.
+   */
+  private final String id;
+
+  /**
+   * When the job started reading clients.
+   */
+  private final Instant startedAt;
+
+  /**
+   * The client data generation the job started from; a later change makes the snapshot outdated.
+   */
+  @JsonIgnore
+  private final long generation;
+
+  /**
+   * The location of the compressed snapshot on local disk.
+   */
+  @JsonIgnore
+  private final Path file;
+
+  private volatile State state = State.RUNNING;
+
+  /**
+   * When the job completed or failed, or null while it is running.
+   */
+  private volatile Instant finishedAt;
+
+  /**
+   * The number of clients written, once the job has completed.
+   */
+  private volatile long rows;
+
+  /**
+   * The size of the compressed file in bytes, once the job has completed.
+   */
+  private volatile long sizeBytes;
+
+  /**
+   * The number of downloads of the file in progress.
+   */
+  @Getter(AccessLevel.NONE)
+  private final AtomicInteger downloads = new AtomicInteger();
+
+  /**
+   * When the last download released the file, or null if it was never downloaded.
+   */
+  @JsonIgnore
+  private volatile Instant lastReleasedAt;
+
+  /**
+   * Set once a newer snapshot has replaced this one; no new download can start after that.
+   */
+  @JsonIgnore
+  private volatile boolean retired;
+
+  public ExportJob(String id, Instant startedAt, long generation, Path file) {
+    this.id = id;
+    this.startedAt = startedAt;
+    this.generation = generation;
+    this.file = file;
+  }
+
+  void complete(long rows, long sizeBytes) {
+    this.rows = rows;
+    this.sizeBytes = sizeBytes;
+    this.finishedAt = Instant.now();
+    this.state = State.COMPLETED;
+  }
+
+  void fail() {
+    this.finishedAt = Instant.now();
+    this.state = State.FAILED;
+  }
+
+  /**
+   * Registers a download, unless the job has been retired.
+   *
+   * @return true if the file stays on disk until {@link #release()} is called.
+   */
+  boolean tryLease() {
+    downloads.incrementAndGet();
+    if (retired) {
+      release();
+      return false;
+    }
+    return true;
+  }
+
+  void release() {
+    lastReleasedAt = Instant.now();
+    downloads.decrementAndGet();
+  }
+
+  void retire() {
+    retired = true;
+  }
+
+  /**
+   * @return true once the job is retired and no download holds its file.
+   */
+  boolean isUnused() {
+    return retired && downloads.get() == 0;
+  }
+}
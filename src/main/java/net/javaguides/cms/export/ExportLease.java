@@ -0,0 +1,29 @@
+package net.javaguides.cms.export;
+
+/**
+ * Keeps the snapshot file of an export job on disk while it is being downloaded.
+ *
+ * <p>Obtained from {@link ClientExportService#lease(String)} and closed once the file has been sent.
+ * A snapshot replaced by a newer one is deleted only after every lease on it has been closed.
+ */
+public class ExportLease implements AutoCloseable {
+
+  private final ExportJob job;
+  private boolean closed;
+
+  ExportLease(ExportJob job) {
+    this.job = job;
+  }
+
+  public ExportJob getJob() {
+    return job;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      job.release();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package net.javaguides.cms.imports;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.entity.Client;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inserts new clients with JDBC batches, which the MySQL driver rewrites into multi-row INSERTs.
+ *
+ * <p>Hibernate cannot batch inserts of entities with database-generated ids, so imports bypass it:
+ * the {@code users} rows are inserted in one batch, their generated ids are read back by username,
+ * and the {@code clients} rows follow in one more batch; roles travel in the {@code role_mask} column. Callers run this
+ * inside a transaction on the shard the clients belong to.
+ */
+@Component
+class ClientBatchInserter {
+
+  private static final String INSERT_USER = "insert into users (first_name, last_name, username, email, password, role_mask, version)"
+      + " values (?, ?, ?, ?, ?, ?, 0)";
+  private static final String SELECT_IDS = "select id, username from users where username in (:usernames)";
+  private static final String INSERT_CLIENT = "insert into clients (id, ssn, ssn_index, date_of_birth, status)"
+      + " values (?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final SsnProtector ssnProtector;
+
+  ClientBatchInserter(DataSource dataSource, SsnProtector ssnProtector) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.ssnProtector = ssnProtector;
+    this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+  }
+
+  /**
+   * Inserts the clients and sets their generated ids and initial versions.
+   *
+   * @param clients new clients with distinct usernames, already validated and with an encoded password
+   *     role mask and SSN blind index.
+   */
+  void insert(List<Client> clients) {
+    jdbcTemplate.batchUpdate(INSERT_USER, new Setter(clients) {
+      @Override
+      void set(PreparedStatement ps, Client client) throws SQLException {
+        ps.setString(1, client.getFirstName());
+        ps.setString(2, client.getLastName());
+        ps.setString(3, client.getUsername());
+        ps.setString(4, client.getEmail());
+        ps.setString(5, client.getPassword());
+        ps.setInt(6, client.getRoleMask());
+      }
+    });
+    Map<String, Long> ids = new HashMap<>();
+    namedJdbcTemplate.query(SELECT_IDS,
+        new MapSqlParameterSource("usernames", clients.stream().map(Client::getUsername).toList()),
+        rs -> {
+          ids.put(rs.getString("username"), rs.getLong("id"));
+        });
+    clients.forEach(client -> {
+      client.setId(ids.get(client.getUsername()));
+      client.setVersion(0L);
+    });
+    jdbcTemplate.batchUpdate(INSERT_CLIENT, new Setter(clients) {
+      @Override
+      void set(PreparedStatement ps, Client client) throws SQLException {
+        ps.setLong(1, client.getId());
+        ps.setString(2, ssnProtector.encrypt(client.getSSN()));
+        ps.setString(3, client.getSsnIndex());
+        ps.setTimestamp(4, new Timestamp(client.getDateOfBirth().getTime()));
+        ps.setInt(5, client.getStatus().ordinal());
+      }
+    });
+  }
+
+  private abstract static class Setter implements BatchPreparedStatementSetter {
+
+    private final List<Client> clients;
+
+    Setter(List<Client> clients) {
+      this.clients = clients;
+    }
+
+    abstract void set(PreparedStatement ps, Client client) throws SQLException;
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+      set(ps, clients.get(i));
+    }
+
+    @Override
+    public int getBatchSize() {
+      return clients.size();
+    }
+  }
+}
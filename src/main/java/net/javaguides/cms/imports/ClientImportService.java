@@ -0,0 +1,350 @@
+package net.javaguides.cms.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.Enums.UserRole;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.entity.Client;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.exception.DuplicateResourceException;
+import net.javaguides.cms.mapper.ClientMapper;
+import net.javaguides.cms.security.LoginAttemptGuard;
+import net.javaguides.cms.util.CsvReader;
+import net.javaguides.cms.util.CsvWriter;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Imports clients from uploaded CSV files in the background.
+ *
+ * <p>The upload is stored under {@code cms.import.dir} and then parsed as a stream, one record at
+ * a time, so memory use does not depend on the size of the file. The first record names the columns
+ * ({@code firstName, lastName, username, email, ssn, dateOfBirth} and optionally {@code status}) in any order.
+ * Valid rows are collected into chunks of {@code cms.import.chunk-size}. Each chunk is inserted with
+ * JDBC batches and committed in its own transaction on the owning shard, so a failing chunk never rolls
+ * back an earlier one. A failing chunk is retried row by row so that only its bad rows are rejected.
+ * Rejected rows are written, with their line number and the reason, to an error file that can be
+ * downloaded once the job has finished.
+ *
+ * <p>Imports run one at a time on a dedicated thread. Finished jobs and their files are kept for
+ * {@code cms.import.retention-hours}.
+ */
+@Slf4j
+@Service
+public class ClientImportService implements DisposableBean {
+
+  //the same initial password createClient gives new clients, encoded once per import
+  private static final String INITIAL_PASSWORD = "defaultClientPassword";
+  private static final int MAX_FIELD_LENGTH = 255;
+  private static final List<String> REQUIRED_COLUMNS =
+      List.of("firstName", "lastName", "username", "email", "ssn", "dateOfBirth");
+  private static final String STATUS_COLUMN = "status";
+  //Expired is only ever set by PendingClientSweeper, never supplied by an upload
+  private static final Set<Status> IMPORTABLE_STATUSES = EnumSet.of(Status.Approved, Status.Pending, Status.Rejected);
+  private static final String IMPORTABLE_STATUSES_MESSAGE = "status must be one of "
+      + IMPORTABLE_STATUSES.stream().map(Status::name).collect(Collectors.joining(", "));
+
+  private record PendingRow(long line, List<String> record, Client client) {
+  }
+
+  private final ClientBatchInserter clientBatchInserter;
+  private final ClientShards clientShards;
+  private final DuplicateUserGuard duplicateUserGuard;
+  private final SsnProtector ssnProtector;
+  private final LoginAttemptGuard loginAttemptGuard;
+  private final PasswordEncoder passwordEncoder;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final Path directory;
+  private final int chunkSize;
+  private final Duration retention;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "client-import");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+  public ClientImportService(ClientBatchInserter clientBatchInserter, ClientShards clientShards,
+      DuplicateUserGuard duplicateUserGuard, SsnProtector ssnProtector, LoginAttemptGuard loginAttemptGuard, PasswordEncoder passwordEncoder,
+      ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+      @Value("${cms.import.dir:${java.io.tmpdir}/cms-imports}") String directory,
+      @Value("${cms.import.chunk-size:1000}") int chunkSize,
+      @Value("${cms.import.retention-hours:24}") long retentionHours) {
+    this.clientBatchInserter = clientBatchInserter;
+    this.clientShards = clientShards;
+    this.duplicateUserGuard = duplicateUserGuard;
+    this.ssnProtector = ssnProtector;
+    this.loginAttemptGuard = loginAttemptGuard;
+    this.passwordEncoder = passwordEncoder;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = transactionTemplate;
+    this.directory = Paths.get(directory);
+    this.chunkSize = chunkSize;
+    this.retention = Duration.ofHours(retentionHours);
+  }
+
+  /**
+   * Stores an uploaded CSV file and queues its import.
+   *
+   * @param upload the uploaded file.
+   * @return the job importing the file.
+   * @throws IOException if the upload cannot be stored.
+   */
+  public ImportJob submit(MultipartFile upload) throws IOException {
+    Files.createDirectories(directory);
+    String id = UUID.randomUUID().toString();
+    Path file = directory.resolve("clients-" + id + ".csv");
+    upload.transferTo(file);
+    ImportJob job = new ImportJob(id, Instant.now(), Files.size(file), file,
+        directory.resolve("clients-" + id + "-errors.csv"));
+    jobs.put(id, job);
+    executor.execute(() -> run(job));
+    return job;
+  }
+
+  /**
+   * Looks up an import job by its id.
+   *
+   * @param id the id of the job.
+   * @return the job, or empty if it does not exist or has expired.
+   */
+  public Optional<ImportJob> find(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  @Scheduled(fixedDelay = 3_600_000)
+  public void evictExpired() {
+    Instant cutoff = Instant.now().minus(retention);
+    jobs.values().removeIf(job -> {
+      if (job.getFinishedAt() == null || job.getFinishedAt().isAfter(cutoff)) {
+        return false;
+      }
+      deleteQuietly(job.getErrorFile());
+      return true;
+    });
+  }
+
+  private void run(ImportJob job) {
+    job.start();
+    String encodedPassword = passwordEncoder.encode(INITIAL_PASSWORD);
+    try (FileChannel channel = FileChannel.open(job.getFile(), StandardOpenOption.READ);
+        CsvReader csv = new CsvReader(new BufferedReader(
+            new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), 1 << 16));
+        CsvWriter errors = new CsvWriter(Files.newBufferedWriter(job.getErrorFile(), StandardCharsets.UTF_8))) {
+      List<String> header = csv.next();
+      if (header == null) {
+        job.complete();
+        return;
+      }
+      Map<String, Integer> columns = indexColumns(header);
+      List<String> errorHeader = new ArrayList<>(List.of("line", "error"));
+      errorHeader.addAll(header);
+      errors.writeRecord(errorHeader);
+
+      List<PendingRow> chunk = new ArrayList<>(chunkSize);
+      List<String> record;
+      while ((record = csv.next()) != null) {
+        if (record.size() == 1 && record.get(0).isBlank()) {
+          continue;
+        }
+        job.rowRead();
+        long line = csv.getRecordLine();
+        try {
+          Client client = toClient(record, columns);
+          client.setSsnIndex(ssnProtector.blindIndex(client.getSSN()));
+          duplicateUserGuard.checkNewUser(client.getUsername(), client.getEmail(), client.getSsnIndex());
+          client.setPassword(encodedPassword);
+          client.setRoleMask(UserRole.CLIENT.bit());
+          chunk.add(new PendingRow(line, record, client));
+        } catch (IllegalArgumentException | DuplicateResourceException e) {
+          reject(job, errors, line, record, e.getMessage());
+        }
+        if (chunk.size() >= chunkSize) {
+          importChunk(job, chunk, errors);
+          chunk.clear();
+          job.setBytesRead(channel.position());
+        }
+      }
+      importChunk(job, chunk, errors);
+      job.setBytesRead(job.getSizeBytes());
+      job.complete();
+      log.info("Client import {} completed: {} imported, {} rejected", job.getId(), job.getRowsImported(),
+          job.getRowsRejected());
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("Client import {} failed: {}", job.getId(), e.getMessage());
+      job.fail(e.getMessage());
+    } catch (RuntimeException e) {
+      log.error("Client import {} failed", job.getId(), e);
+      job.fail("The import stopped unexpectedly; rows committed before the failure are kept");
+    } finally {
+      deleteQuietly(job.getFile());
+    }
+  }
+
+  private static Map<String, Integer> indexColumns(List<String> header) {
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      //spreadsheet exports often start with a byte order mark
+      columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+    }
+    for (String required : REQUIRED_COLUMNS) {
+      if (!columns.containsKey(required.toLowerCase(Locale.ROOT))) {
+        throw new IllegalArgumentException("The header has no " + required + " column");
+      }
+    }
+    return columns;
+  }
+
+  static Client toClient(List<String> record, Map<String, Integer> columns) {
+    ClientDTO clientDto = new ClientDTO();
+    clientDto.setFirstName(required(record, columns, "firstName"));
+    clientDto.setLastName(required(record, columns, "lastName"));
+    clientDto.setUsername(required(record, columns, "username"));
+    String email = required(record, columns, "email");
+    if (!email.matches("[^@\\s]+@[^@\\s]+")) {
+      throw new IllegalArgumentException("email is not a valid email address");
+    }
+    clientDto.setEmail(email);
+    clientDto.setSSN(required(record, columns, "ssn"));
+    String dateOfBirth = required(record, columns, "dateOfBirth");
+    try {
+      LocalDate date = LocalDate.parse(dateOfBirth);
+      clientDto.setDateOfBirth(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("dateOfBirth must be a date such as 1990-01-31");
+    }
+    String status = field(record, columns, STATUS_COLUMN);
+    if (status != null && !status.isEmpty()) {
+      Status parsed = IMPORTABLE_STATUSES.stream().filter(candidate -> candidate.name().equals(status))
+          .findFirst().orElseThrow(() -> new IllegalArgumentException(IMPORTABLE_STATUSES_MESSAGE));
+      clientDto.setStatus(parsed);
+    }
+    return ClientMapper.mapToClient(clientDto);
+  }
+
+  private static String required(List<String> record, Map<String, Integer> columns, String name) {
+    String value = field(record, columns, name);
+    if (value == null || value.isEmpty()) {
+      throw new IllegalArgumentException(name + " is required");
+    }
+    if (value.length() > MAX_FIELD_LENGTH) {
+      throw new IllegalArgumentException(name + " is longer than " + MAX_FIELD_LENGTH + " characters");
+    }
+    return value;
+  }
+
+  private static String field(List<String> record, Map<String, Integer> columns, String name) {
+    Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+    return index == null || index >= record.size() ? null : record.get(index).trim();
+  }
+
+  //commits each shard's rows separately; a failing batch is retried row by row
+  private void importChunk(ImportJob job, List<PendingRow> chunk, CsvWriter errors) throws IOException {
+    Map<Integer, List<PendingRow>> byShard = new LinkedHashMap<>();
+    for (PendingRow row : chunk) {
+      byShard.computeIfAbsent(clientShards.shardForNewClient(row.client().getUsername()), shard -> new ArrayList<>())
+          .add(row);
+    }
+    for (Map.Entry<Integer, List<PendingRow>> shardRows : byShard.entrySet()) {
+      try {
+        insert(job, shardRows.getKey(), shardRows.getValue());
+      } catch (RuntimeException e) {
+        log.warn("Client import {}: batch of {} rows failed, retrying rows individually: {}", job.getId(),
+            shardRows.getValue().size(), e.getMessage());
+        for (PendingRow row : shardRows.getValue()) {
+          try {
+            insert(job, shardRows.getKey(), List.of(row));
+          } catch (DuplicateResourceException rowFailure) {
+            reject(job, errors, row.line(), row.record(), rowFailure.getMessage());
+          } catch (DataIntegrityViolationException rowFailure) {
+            reject(job, errors, row.line(), row.record(), "Conflicts with an existing user or violates a constraint");
+          } catch (RuntimeException rowFailure) {
+            log.warn("Client import {}: row at line {} failed", job.getId(), row.line(), rowFailure);
+            reject(job, errors, row.line(), row.record(), "The row could not be imported");
+          }
+        }
+      }
+    }
+    errors.flush();
+  }
+
+  private void insert(ImportJob job, int shard, List<PendingRow> rows) {
+    List<Client> clients = rows.stream().map(PendingRow::client).toList();
+    clientShards.callOn(shard, () -> transactionTemplate.execute(status -> {
+      duplicateUserGuard.confirmAcrossShards(clients.stream().map(Client::getUsername).toList(),
+          clients.stream().map(Client::getEmail).toList(), clients.stream().map(Client::getSsnIndex).toList());
+      clientBatchInserter.insert(clients);
+      return null;
+    }));
+    job.rowsImported(clients.size());
+    for (Client client : clients) {
+      duplicateUserGuard.register(client.getUsername(), client.getEmail(), client.getSsnIndex());
+      loginAttemptGuard.forgetMissing(client.getUsername(), client.getEmail());
+      eventPublisher.publishEvent(ClientChangedEvent.saved(ClientMapper.mapToClientDto(client)));
+    }
+  }
+
+  private static void reject(ImportJob job, CsvWriter errors, long line, List<String> record, String reason)
+      throws IOException {
+    job.rowRejected();
+    List<String> errorRecord = new ArrayList<>(record.size() + 2);
+    errorRecord.add(Long.toString(line));
+    errorRecord.add(reason);
+    errorRecord.addAll(record);
+    errors.writeRecord(errorRecord);
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete import file {}", file, e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,144 @@
+package net.javaguides.cms.imports;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A background import of clients from an uploaded CSV file.
+ * The job is returned by the import endpoints to report its progress; file locations stay internal.
+ */
+@Getter
+public class ImportJob {
+
+  /**
+   * The state of an import job.
+   * <ul>
+   *     <li>{@link #QUEUED} - The file has been received and waits for earlier imports to finish.</li>
+   *     <li>{@link #RUNNING} - Rows are being read and imported.</li>
+   *     <li>{@link #COMPLETED} - Every row was either imported or written to the error file.</li>
+   *     <li>{@link #FAILED} - The file could not be read to the end; chunks committed so far are kept.</li>
+   * </ul>
+   */
+  public enum State {
+    QUEUED, RUNNING, COMPLETED, FAILED
+  }
+
+  /**
+   * The unique identifier of the job, used in the progress and error file URLs.
+   */
+  private final String id;
+
+  /**
+   * When the file was received.
+   */
+  private final Instant createdAt;
+
+  /**
+   * The size of the uploaded file in bytes.
+   */
+  private final long sizeBytes;
+
+  /**
+   * The uploaded file on local disk; deleted once the job has finished.
+   */
+  @JsonIgnore
+  private final Path file;
+
+  /**
+   * The CSV file the rejected rows are written to.
+   */
+  @JsonIgnore
+  private final Path errorFile;
+
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong bytesRead = new AtomicLong();
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong rowsRead = new AtomicLong();
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong rowsImported = new AtomicLong();
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong rowsRejected = new AtomicLong();
+
+  private volatile State state = State.QUEUED;
+
+  /**
+   * When the job completed or failed, or null while it is queued or running.
+   */
+  private volatile Instant finishedAt;
+
+  /**
+   * Why the job failed, or null when it did not.
+   */
+  private volatile String failureReason;
+
+  public ImportJob(String id, Instant createdAt, long sizeBytes, Path file, Path errorFile) {
+    this.id = id;
+    this.createdAt = createdAt;
+    this.sizeBytes = sizeBytes;
+    this.file = file;
+    this.errorFile = errorFile;
+  }
+
+  /**
+   * @return the data rows read so far, not counting the header.
+   */
+  public long getRowsRead() {
+    return rowsRead.get();
+  }
+
+  /**
+   * @return the rows whose clients have been committed.
+   */
+  public long getRowsImported() {
+    return rowsImported.get();
+  }
+
+  /**
+   * @return the rows written to the error file.
+   */
+  public long getRowsRejected() {
+    return rowsRejected.get();
+  }
+
+  /**
+   * @return the share of the file read so far, from 0 to 100.
+   */
+  public int getPercentRead() {
+    return sizeBytes == 0 ? 100 : (int) Math.min(100, bytesRead.get() * 100 / sizeBytes);
+  }
+
+  void setBytesRead(long bytes) {
+    bytesRead.set(bytes);
+  }
+
+  void rowRead() {
+    rowsRead.incrementAndGet();
+  }
+
+  void rowsImported(int rows) {
+    rowsImported.addAndGet(rows);
+  }
+
+  void rowRejected() {
+    rowsRejected.incrementAndGet();
+  }
+
+  void start() {
+    this.state = State.RUNNING;
+  }
+
+  void complete() {
+    this.finishedAt = Instant.now();
+    this.state = State.COMPLETED;
+  }
+
+  void fail(String reason) {
+    this.failureReason = reason;
+    this.finishedAt = Instant.now();
+    this.state = State.FAILED;
+  }
+}
@@ -0,0 +1,80 @@
+package net.javaguides.cms.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ *
+ * <p>Each slot carries a sequence number telling whether it is free for the producer claiming that
+ * position or filled for the consumer, so producers only contend on one compare-and-set of the tail and
+ * never wait for each other or for the consumer. {@link #offer} fails instead of blocking when the ring is
+ * full. Only one thread may call {@link #poll}.
+ *
+ * @param <E> the element type.
+ */
+final class EventRing<E> {
+
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  /**
+   * @param capacity the number of slots, rounded up to a power of two.
+   */
+  EventRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return false if the ring is full.
+   */
+  boolean offer(E element) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) (position & mask);
+      long sequence = sequences.get(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots.set(index, element);
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (sequence < position) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * @return the oldest element, or null if the ring is empty.
+   */
+  E poll() {
+    int index = (int) (head & mask);
+    if (sequences.get(index) != head + 1) {
+      return null;
+    }
+    E element = slots.get(index);
+    slots.set(index, null);
+    sequences.set(index, head + mask + 1);
+    head++;
+    return element;
+  }
+
+  boolean isEmpty() {
+    return sequences.get((int) (head & mask)) != head + 1;
+  }
+}
@@ -0,0 +1,86 @@
+package net.javaguides.cms.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Encodes logging events as one JSON object per line, with the fields {@code ts}, {@code level},
+ * {@code thread}, {@code logger}, {@code message}, the MDC entries under {@code mdc} if there are any and
+ * the stack trace under {@code exception} if there is one.
+ */
+public class JsonLineEncoder extends EncoderBase<ILoggingEvent> {
+
+  @Override
+  public byte[] headerBytes() {
+    return null;
+  }
+
+  @Override
+  public byte[] encode(ILoggingEvent event) {
+    StringBuilder json = new StringBuilder(256);
+    json.append("{\"ts\":\"").append(DateTimeFormatter.ISO_INSTANT.format(event.getInstant())).append('"');
+    field(json, "level", event.getLevel().toString());
+    field(json, "thread", event.getThreadName());
+    field(json, "logger", event.getLoggerName());
+    field(json, "message", event.getFormattedMessage());
+    Map<String, String> mdc = event.getMDCPropertyMap();
+    if (mdc != null && !mdc.isEmpty()) {
+      json.append(",\"mdc\":{");
+      boolean first = true;
+      for (Map.Entry<String, String> entry : mdc.entrySet()) {
+        if (!first) {
+          json.append(',');
+        }
+        first = false;
+        string(json, entry.getKey()).append(':');
+        string(json, entry.getValue());
+      }
+      json.append('}');
+    }
+    IThrowableProxy throwable = event.getThrowableProxy();
+    if (throwable != null) {
+      field(json, "exception", ThrowableProxyUtil.asString(throwable));
+    }
+    return json.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] footerBytes() {
+    return null;
+  }
+
+  private static void field(StringBuilder json, String name, String value) {
+    json.append(",\"").append(name).append("\":");
+    string(json, value);
+  }
+
+  private static StringBuilder string(StringBuilder json, String value) {
+    if (value == null) {
+      return json.append("null");
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> json.append("\\\"");
+        case '\\' -> json.append("\\\\");
+        case '\n' -> json.append("\\n");
+        case '\r' -> json.append("\\r");
+        case '\t' -> json.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+        }
+      }
+    }
+    return json.append('"');
+  }
+}
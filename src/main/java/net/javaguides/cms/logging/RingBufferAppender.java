@@ -0,0 +1,165 @@
+package net.javaguides.cms.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logback appender that takes logging off the calling thread.
+ *
+ * <p>{@link #append} only prepares the event and puts it into a lock-free {@link EventRing}; a single
+ * daemon thread drains the ring in batches of up to {@code maxBatchSize} events, encodes them with the
+ * configured encoder and writes each batch to standard output with one write and one flush. Request
+ * threads therefore never wait on the console or on each other.
+ *
+ * <p>When the ring is full and {@code dropWhenFull} is true (the default) the event is dropped and
+ * counted, and the writer reports the number of dropped events in a WARN line of its own. With
+ * {@code dropWhenFull} false the caller waits for free space instead. Stopping the appender, which Spring
+ * Boot does on shutdown, writes out everything still queued. An idle writer polls the ring every 10 ms
+ * rather than being woken by each event, so events reach the console at most that late.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+  //how long the writer sleeps once the ring is empty; also the most an event waits to be written
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long STOP_TIMEOUT_MILLIS = 5_000;
+
+  private Encoder<ILoggingEvent> encoder;
+  private int bufferSize = 8192;
+  private int maxBatchSize = 256;
+  private boolean dropWhenFull = true;
+
+  private final LongAdder dropped = new LongAdder();
+  private EventRing<ILoggingEvent> ring;
+  private Thread writer;
+  private OutputStream out;
+
+  public void setEncoder(Encoder<ILoggingEvent> encoder) {
+    this.encoder = encoder;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public void setDropWhenFull(boolean dropWhenFull) {
+    this.dropWhenFull = dropWhenFull;
+  }
+
+  /**
+   * @return the number of events dropped because the ring was full.
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  @Override
+  public void start() {
+    if (encoder == null) {
+      addError("No encoder set for the appender named [" + name + "].");
+      return;
+    }
+    //bypasses System.setOut so nothing else writing to the console can hold us up
+    out = new FileOutputStream(FileDescriptor.out);
+    ring = new EventRing<>(bufferSize);
+    encoder.start();
+    writer = new Thread(this::drainLoop, "log-writer-" + name);
+    writer.setDaemon(true);
+    super.start();
+    writer.start();
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    super.stop();
+    LockSupport.unpark(writer);
+    try {
+      writer.join(STOP_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    encoder.stop();
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    //the writer runs later on another thread, so capture the message, MDC and thread name now
+    event.prepareForDeferredProcessing();
+    while (!ring.offer(event)) {
+      if (dropWhenFull || !isStarted()) {
+        dropped.increment();
+        return;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+  }
+
+  private void drainLoop() {
+    ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * 1024);
+    long reportedDrops = 0;
+    while (isStarted() || !ring.isEmpty()) {
+      int events = 0;
+      ILoggingEvent event;
+      while (events < maxBatchSize && (event = ring.poll()) != null) {
+        write(batch, event);
+        events++;
+      }
+      long drops = dropped.sum();
+      if (drops > reportedDrops) {
+        write(batch, droppedEventsWarning(drops - reportedDrops));
+        reportedDrops = drops;
+      }
+      if (batch.size() > 0) {
+        flush(batch);
+      } else if (isStarted()) {
+        //polling instead of being woken keeps the producers' side to a single compare-and-set
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  private void write(ByteArrayOutputStream batch, ILoggingEvent event) {
+    try {
+      batch.writeBytes(encoder.encode(event));
+    } catch (RuntimeException e) {
+      addError("Failed to encode a logging event", e);
+    }
+  }
+
+  private void flush(ByteArrayOutputStream batch) {
+    try {
+      batch.writeTo(out);
+      out.flush();
+    } catch (IOException e) {
+      addError("Failed to write logging events", e);
+    }
+    batch.reset();
+  }
+
+  private ILoggingEvent droppedEventsWarning(long count) {
+    Logger logger = ((LoggerContext) getContext()).getLogger(RingBufferAppender.class);
+    return new LoggingEvent(RingBufferAppender.class.getName(), logger, Level.WARN,
+        "Dropped {} logging events because the log buffer was full", null, new Object[] {count});
+  }
+}
@@ -0,0 +1,105 @@
+package net.javaguides.cms.maintenance;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Removes soft-deleted users from the database in the background.
+ *
+ * <p>Each run walks every shard and deletes the marked users in batches of
+ * {@code cms.soft-delete.purge-batch-size}: one set-based DELETE each for {@code users_roles},
+ * {@code clients}, {@code employees} and {@code users}, in a single transaction per batch. Before each
+ * batch the shard's connection pool is checked, and the run stops while the pool has more than
+ * {@code cms.soft-delete.purge-max-active-connections} busy connections, so purging only uses
+ * quiet periods. The schedule is set with {@code cms.soft-delete.purge-cron}.
+ *
+ * <p>Once a run has removed users, {@link DuplicateUserGuard} rebuilds its filters, which releases their
+ * usernames, emails and SSN blind indexes.
+ */
+@Slf4j
+@Component
+public class DeletedUserPurger {
+
+  private static final String SELECT_DELETED = "select id from users where deleted = 1 order by id limit :limit";
+  private static final String DELETE_ROLES = "delete from users_roles where user_id in (:ids)";
+  private static final String DELETE_CLIENTS = "delete from clients where id in (:ids)";
+  private static final String DELETE_EMPLOYEES = "delete from employees where id in (:ids)";
+  private static final String DELETE_USERS = "delete from users where id in (:ids) and deleted = 1";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ClientShards clientShards;
+  private final HikariDataSource primaryDataSource;
+  private final DuplicateUserGuard duplicateUserGuard;
+  private final SoftDeleteProperties properties;
+
+  public DeletedUserPurger(DataSource dataSource, TransactionTemplate transactionTemplate, ClientShards clientShards,
+      @Qualifier("primaryDataSource") HikariDataSource primaryDataSource, DuplicateUserGuard duplicateUserGuard,
+      SoftDeleteProperties properties) {
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    this.transactionTemplate = transactionTemplate;
+    this.clientShards = clientShards;
+    this.primaryDataSource = primaryDataSource;
+    this.duplicateUserGuard = duplicateUserGuard;
+    this.properties = properties;
+  }
+
+  @Scheduled(cron = "${cms.soft-delete.purge-cron:0 */5 * * * *}")
+  public void purge() {
+    long total = 0;
+    for (int shard = 0; shard < clientShards.count(); shard++) {
+      int shardIndex = shard;
+      long purged = clientShards.callOn(shard, () -> purgeShard(shardIndex));
+      if (purged > 0) {
+        log.info("Purged {} deleted users from shard {}", purged, shard);
+      }
+      total += purged;
+    }
+    if (total > 0) {
+      duplicateUserGuard.rebuild();
+    }
+  }
+
+  private long purgeShard(int shard) {
+    long purged = 0;
+    while (isQuiet(shard)) {
+      List<Long> batch = transactionTemplate.execute(status -> purgeBatch());
+      purged += batch.size();
+      if (batch.size() < properties.getPurgeBatchSize()) {
+        break;
+      }
+    }
+    return purged;
+  }
+
+  private List<Long> purgeBatch() {
+    List<Long> batch = jdbcTemplate.queryForList(SELECT_DELETED,
+        new MapSqlParameterSource("limit", properties.getPurgeBatchSize()), Long.class);
+    if (batch.isEmpty()) {
+      return batch;
+    }
+    MapSqlParameterSource ids = new MapSqlParameterSource("ids", batch);
+    jdbcTemplate.update(DELETE_ROLES, ids);
+    jdbcTemplate.update(DELETE_CLIENTS, ids);
+    jdbcTemplate.update(DELETE_EMPLOYEES, ids);
+    jdbcTemplate.update(DELETE_USERS, ids);
+    return batch;
+  }
+
+  private boolean isQuiet(int shard) {
+    HikariDataSource pool = shard == 0 ? primaryDataSource : clientShards.getExtraShards().get(shard - 1);
+    HikariPoolMXBean poolStats = pool.getHikariPoolMXBean();
+    return poolStats == null || poolStats.getActiveConnections() <= properties.getPurgeMaxActiveConnections();
+  }
+}
@@ -0,0 +1,173 @@
+package net.javaguides.cms.maintenance;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.datasource.ReplicaLagMonitor;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.mapper.ClientMapper;
+import net.javaguides.cms.repository.ClientRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves clients that stayed {@link Status#Pending} longer than {@code cms.pending-sweep.max-age-days}
+ * to {@link Status#Expired}, so they stop weighing on the review queue.
+ *
+ * <p>Each run walks every shard in id order, in batches of {@code cms.pending-sweep.batch-size}: the
+ * batch is selected with {@code FOR UPDATE SKIP LOCKED} and expired with one set-based UPDATE in a short
+ * transaction, which also bumps the users' versions. Clients currently leased to a reviewer are left
+ * alone. The run pauses {@code cms.pending-sweep.pause-millis} between batches and stops early while
+ * the read replica is lagging; the next run picks up the remaining clients. In dry-run mode the clients
+ * are only counted. Progress is available from {@link #getProgress()}.
+ */
+@Slf4j
+@Component
+public class PendingClientSweeper {
+
+  private static final String SELECT_EXPIRED = "select c.id from clients c join users u on u.id = c.id"
+      + " where c.status = :pending and u.deleted = 0 and c.created_at < :cutoff and c.id > :afterId"
+      + " and (c.review_lease_until is null or c.review_lease_until < :now)"
+      + " order by c.id limit :limit";
+  private static final String LOCK = " for update of c skip locked";
+  private static final String EXPIRE = "update users u join clients c on c.id = u.id"
+      + " set c.status = :expired, u.version = u.version + 1"
+      + " where c.id in (:ids) and c.status = :pending";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ClientShards clientShards;
+  private final ClientRepository clientRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+  private final PendingSweepProperties properties;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong matched = new AtomicLong();
+  private final AtomicLong expired = new AtomicLong();
+  private final AtomicLong totalExpired = new AtomicLong();
+  private volatile boolean dryRun;
+  private volatile Instant lastStartedAt;
+  private volatile Instant lastFinishedAt;
+
+  public PendingClientSweeper(DataSource dataSource, TransactionTemplate transactionTemplate,
+      ClientShards clientShards, ClientRepository clientRepository, ApplicationEventPublisher eventPublisher,
+      ObjectProvider<ReplicaLagMonitor> replicaLagMonitor, PendingSweepProperties properties) {
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    this.transactionTemplate = transactionTemplate;
+    this.clientShards = clientShards;
+    this.clientRepository = clientRepository;
+    this.eventPublisher = eventPublisher;
+    this.replicaLagMonitor = replicaLagMonitor;
+    this.properties = properties;
+  }
+
+  @Scheduled(cron = "${cms.pending-sweep.cron:0 30 2 * * *}")
+  public void sweep() {
+    if (!properties.isEnabled() || !running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      dryRun = properties.isDryRun();
+      lastStartedAt = Instant.now();
+      batches.set(0);
+      matched.set(0);
+      expired.set(0);
+      LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getMaxAgeDays());
+      for (int shard = 0; shard < clientShards.count(); shard++) {
+        int shardIndex = shard;
+        if (!clientShards.callOn(shard, () -> sweepShard(shardIndex, cutoff))) {
+          break;
+        }
+      }
+      lastFinishedAt = Instant.now();
+      log.info("Pending sweep{}: {} clients older than {} days, {} expired", dryRun ? " (dry run)" : "",
+          matched.get(), properties.getMaxAgeDays(), expired.get());
+    } finally {
+      running.set(false);
+    }
+  }
+
+  public SweepProgress getProgress() {
+    return new SweepProgress(running.get(), dryRun, lastStartedAt, lastFinishedAt, batches.get(),
+        matched.get(), expired.get(), totalExpired.get());
+  }
+
+  /**
+   * Sweeps one shard.
+   *
+   * @return false if the run stopped early and should not continue with the next shard.
+   */
+  private boolean sweepShard(int shard, LocalDateTime cutoff) {
+    long afterId = 0;
+    while (true) {
+      long lastId = afterId;
+      List<Long> ids = transactionTemplate.execute(status -> sweepBatch(cutoff, lastId));
+      if (ids.isEmpty()) {
+        return true;
+      }
+      batches.incrementAndGet();
+      matched.addAndGet(ids.size());
+      afterId = ids.get(ids.size() - 1);
+      if (ids.size() < properties.getBatchSize()) {
+        return true;
+      }
+      if (!pause()) {
+        log.info("Pending sweep stopped on shard {} after id {}", shard, afterId);
+        return false;
+      }
+    }
+  }
+
+  private List<Long> sweepBatch(LocalDateTime cutoff, long afterId) {
+    MapSqlParameterSource params = new MapSqlParameterSource()
+        .addValue("pending", Status.Pending.ordinal())
+        .addValue("expired", Status.Expired.ordinal())
+        .addValue("cutoff", cutoff)
+        .addValue("now", LocalDateTime.now())
+        .addValue("afterId", afterId)
+        .addValue("limit", properties.getBatchSize());
+    if (dryRun) {
+      return jdbcTemplate.queryForList(SELECT_EXPIRED, params, Long.class);
+    }
+    List<Long> ids = jdbcTemplate.queryForList(SELECT_EXPIRED + LOCK, params, Long.class);
+    if (ids.isEmpty()) {
+      return ids;
+    }
+    int updated = jdbcTemplate.update(EXPIRE, params.addValue("ids", ids));
+    expired.addAndGet(updated);
+    totalExpired.addAndGet(updated);
+    //delivered after commit, so cached client views pick up the new status
+    clientRepository.findAllById(ids).forEach(client ->
+        eventPublisher.publishEvent(ClientChangedEvent.saved(ClientMapper.mapToClientDto(client))));
+    return ids;
+  }
+
+  /**
+   * Waits between batches.
+   *
+   * @return false if the sweep should stop because the replica is lagging or the thread was interrupted.
+   */
+  private boolean pause() {
+    try {
+      Thread.sleep(properties.getPauseMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+    return monitor == null || !monitor.isLagging();
+  }
+}
@@ -0,0 +1,43 @@
+package net.javaguides.cms.maintenance;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for expiring clients that stayed pending for too long, bound from {@code cms.pending-sweep.*}.
+ *
+ * <p>See {@link PendingClientSweeper}. The schedule is set with {@code cms.pending-sweep.cron}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.pending-sweep")
+public class PendingSweepProperties {
+
+  /**
+   * Whether the scheduled sweep runs at all.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Only count the clients that would expire, without changing them.
+   */
+  private boolean dryRun = true;
+
+  /**
+   * Pending clients created more than this many days ago are expired.
+   */
+  private int maxAgeDays = 180;
+
+  /**
+   * How many clients one transaction expires.
+   */
+  private int batchSize = 500;
+
+  /**
+   * How long to pause between batches, so replicas keep up and locks are released.
+   */
+  private long pauseMillis = 200;
+}
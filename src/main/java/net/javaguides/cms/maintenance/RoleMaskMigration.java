@@ -0,0 +1,72 @@
+package net.javaguides.cms.maintenance;
+
+import java.util.Locale;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.Enums.UserRole;
+import net.javaguides.cms.datasource.ClientShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies the roles of existing users from the legacy {@code users_roles} join table into the
+ * {@code role_mask} column of {@code users}.
+ *
+ * <p>Runs once on start-up on every shard, as a single set-based UPDATE that only touches users whose
+ * mask is still 0, so it is a no-op once everything is migrated. Users are no longer written to the join
+ * table; until this has run, logins of unmigrated users fall back to it. Disable with
+ * {@code cms.roles.migrate-join-table=false}.
+ */
+@Slf4j
+@Component
+public class RoleMaskMigration {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ClientShards clientShards;
+  private final boolean enabled;
+
+  public RoleMaskMigration(DataSource dataSource, ClientShards clientShards,
+      @Value("${cms.roles.migrate-join-table:true}") boolean enabled) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.clientShards = clientShards;
+    this.enabled = enabled;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void migrate() {
+    if (!enabled) {
+      return;
+    }
+    String sql = migrationSql();
+    for (int shard = 0; shard < clientShards.count(); shard++) {
+      try {
+        int migrated = clientShards.callOn(shard, () -> jdbcTemplate.update(sql));
+        if (migrated > 0) {
+          log.info("Migrated the roles of {} users to role_mask on shard {}", migrated, shard);
+        }
+      } catch (RuntimeException e) {
+        //logins keep working through the join-table fallback, so do not fail start-up
+        log.warn("Could not migrate roles to role_mask on shard {}", shard, e);
+      }
+    }
+  }
+
+  /**
+   * Builds the UPDATE mapping every role name, with or without the {@code ROLE_} prefix, to its bit.
+   */
+  private static String migrationSql() {
+    StringBuilder bits = new StringBuilder("case upper(r.name)");
+    for (UserRole role : UserRole.values()) {
+      String name = role.name().toUpperCase(Locale.ROOT);
+      bits.append(" when '").append(name).append("' then ").append(role.bit());
+      bits.append(" when '").append(role.authority()).append("' then ").append(role.bit());
+    }
+    bits.append(" else 0 end");
+    return "update users u join (select ur.user_id, bit_or(" + bits + ") mask"
+        + " from users_roles ur join role r on r.id = ur.role_id group by ur.user_id) m on m.user_id = u.id"
+        + " set u.role_mask = m.mask where u.role_mask = 0";
+  }
+}
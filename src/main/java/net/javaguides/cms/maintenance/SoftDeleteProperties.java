@@ -0,0 +1,34 @@
+package net.javaguides.cms.maintenance;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for soft deletion of clients and employees, bound from {@code cms.soft-delete.*}.
+ *
+ * <p>When enabled, deleting a user is a single UPDATE that marks the row, and {@link DeletedUserPurger}
+ * removes the marked rows later. When disabled, the default, users are deleted through JPA right away.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.soft-delete")
+public class SoftDeleteProperties {
+
+  /**
+   * Whether deletes only mark the user.
+   */
+  private boolean enabled = false;
+
+  /**
+   * How many users one purge transaction removes.
+   */
+  private int purgeBatchSize = 500;
+
+  /**
+   * The purge pauses while a database pool has more active connections than this.
+   */
+  private int purgeMaxActiveConnections = 2;
+}
@@ -0,0 +1,86 @@
+package net.javaguides.cms.maintenance;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encrypts SSNs stored in plaintext before field-level encryption was introduced, and fills in their
+ * blind index.
+ *
+ * <p>Runs at start-up, before the application accepts requests, so duplicate checks by blind index see
+ * every client. Each shard is processed in id order in batches of {@value #BATCH_SIZE} rows; it is a
+ * no-op once every client has a blind index. A client whose SSN normalizes to the same blind index as
+ * another client's is left in plaintext and logged, to be resolved by hand.
+ */
+@Slf4j
+@Component
+//the schema update that adds ssn_index runs with the entity manager factory
+@DependsOn("entityManagerFactory")
+public class SsnEncryptionMigration {
+
+  private static final int BATCH_SIZE = 500;
+  private static final String SELECT_PLAINTEXT = "select id, ssn from clients"
+      + " where ssn_index is null and id > ? order by id limit " + BATCH_SIZE;
+  private static final String ENCRYPT = "update clients set ssn = ?, ssn_index = ? where id = ? and ssn_index is null";
+
+  private record PlaintextSsn(long id, String ssn) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ClientShards clientShards;
+  private final SsnProtector ssnProtector;
+
+  public SsnEncryptionMigration(DataSource dataSource, ClientShards clientShards, SsnProtector ssnProtector) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.clientShards = clientShards;
+    this.ssnProtector = ssnProtector;
+  }
+
+  @PostConstruct
+  public void migrate() {
+    for (int shard = 0; shard < clientShards.count(); shard++) {
+      long migrated = clientShards.callOn(shard, this::migrateShard);
+      if (migrated > 0) {
+        log.info("Encrypted the SSNs of {} clients on shard {}", migrated, shard);
+      }
+    }
+  }
+
+  private long migrateShard() {
+    long migrated = 0;
+    long afterId = 0;
+    while (true) {
+      List<PlaintextSsn> batch = jdbcTemplate.query(SELECT_PLAINTEXT,
+          (rs, rowNum) -> new PlaintextSsn(rs.getLong("id"), rs.getString("ssn")), afterId);
+      if (batch.isEmpty()) {
+        return migrated;
+      }
+      try {
+        jdbcTemplate.batchUpdate(ENCRYPT, batch.stream().map(this::encryptedRow).toList());
+        migrated += batch.size();
+      } catch (DataIntegrityViolationException e) {
+        //retry one by one so only the clashing clients are skipped
+        for (PlaintextSsn row : batch) {
+          try {
+            migrated += jdbcTemplate.update(ENCRYPT, encryptedRow(row));
+          } catch (DataIntegrityViolationException clash) {
+            log.warn("Client {} has the same SSN as another client and was left unencrypted", row.id());
+          }
+        }
+      }
+      afterId = batch.get(batch.size() - 1).id();
+    }
+  }
+
+  private Object[] encryptedRow(PlaintextSsn row) {
+    return new Object[] {ssnProtector.encrypt(row.ssn()), ssnProtector.blindIndex(row.ssn()), row.id()};
+  }
+}
@@ -0,0 +1,19 @@
+package net.javaguides.cms.maintenance;
+
+import java.time.Instant;
+
+/**
+ * Progress of the pending-client sweep, as reported to administrators.
+ *
+ * @param running whether a sweep is in progress.
+ * @param dryRun whether the current or last sweep only counted clients.
+ * @param lastStartedAt when the current or last sweep started, null if none ran yet.
+ * @param lastFinishedAt when the last sweep finished, null if none finished yet.
+ * @param batches the batches processed by the current or last sweep.
+ * @param matched the clients the current or last sweep found past the age limit.
+ * @param expired the clients the current or last sweep expired.
+ * @param totalExpired the clients expired by all sweeps since start-up.
+ */
+public record SweepProgress(boolean running, boolean dryRun, Instant lastStartedAt, Instant lastFinishedAt,
+    long batches, long matched, long expired, long totalExpired) {
+}
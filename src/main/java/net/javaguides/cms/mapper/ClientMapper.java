@@ -28,10 +28,12 @@ public class ClientMapper {
     clientDto.setFirstName(client.getFirstName());
     clientDto.setLastName(client.getLastName());
     clientDto.setEmail(client.getEmail());
-    clientDto.setSSN(client.getSSN());
+    //the SSN stays encrypted until the DTO is serialized
+    clientDto.setSealedSsn(client.getSealedSsn());
     clientDto.setUsername(client.getUsername());
     clientDto.setDateOfBirth(client.getDateOfBirth());
     clientDto.setStatus(client.getStatus());
+    clientDto.setVersion(client.getVersion());
 
     return clientDto;
   }
@@ -53,7 +55,7 @@ public class ClientMapper {
     client.setFirstName(clientDto.getFirstName());
     client.setLastName(clientDto.getLastName());
     client.setEmail(clientDto.getEmail());
-    client.setSSN(clientDto.getSSN());
+    client.setSealedSsn(clientDto.getSealedSsn());
     client.setUsername(clientDto.getUsername());
     client.setDateOfBirth(clientDto.getDateOfBirth());
     client.setStatus(clientDto.getStatus() != null ? clientDto.getStatus() : Status.Pending);
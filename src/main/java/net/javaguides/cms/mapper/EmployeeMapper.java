@@ -28,6 +28,7 @@ public class EmployeeMapper {
     employeeDto.setUsername(employee.getUsername());  // Assuming username is part of User
     employeeDto.setEmail(employee.getEmail());
     employeeDto.setDepartment(employee.getDepartment());
+    employeeDto.setVersion(employee.getVersion());
 
     return employeeDto;
   }
@@ -0,0 +1,166 @@
+package net.javaguides.cms.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Wraps a {@link DataSource} so that every statement it runs is timed and reported to {@link SqlProfiler}.
+ *
+ * <p>Connections and statements are wrapped in JDK proxies. The {@code execute*} methods are timed; for
+ * prepared statements the SQL is taken from {@code prepareStatement} and the types of the values bound
+ * with the {@code set*} methods are remembered, never the values themselves.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+  static final String UNSET_PARAMETER = "unset";
+
+  private final SqlProfiler profiler;
+
+  public ProfilingDataSource(DataSource targetDataSource, SqlProfiler profiler) {
+    super(targetDataSource);
+    this.profiler = profiler;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return wrap(obtainTargetDataSource().getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return wrap(obtainTargetDataSource().getConnection(username, password));
+  }
+
+  private Connection wrap(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+        new ConnectionHandler(connection));
+  }
+
+  private static boolean isIdentityMethod(Method method) {
+    return method.getDeclaringClass() == Object.class
+        && (method.getName().equals("equals") || method.getName().equals("hashCode"));
+  }
+
+  //proxies are equal only to themselves, as the pooled objects they wrap are
+  private static Object identity(Object proxy, Method method, Object[] args) {
+    return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+  }
+
+  private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private final class ConnectionHandler implements InvocationHandler {
+
+    private final Connection target;
+
+    ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (isIdentityMethod(method)) {
+        return identity(proxy, method, args);
+      }
+      Object result = invokeTarget(target, method, args);
+      if (result instanceof CallableStatement statement) {
+        return wrap(statement, CallableStatement.class, (String) args[0], (Connection) proxy);
+      }
+      if (result instanceof PreparedStatement statement) {
+        return wrap(statement, PreparedStatement.class, (String) args[0], (Connection) proxy);
+      }
+      if (result instanceof Statement statement) {
+        return wrap(statement, Statement.class, null, (Connection) proxy);
+      }
+      return result;
+    }
+
+    private Object wrap(Statement statement, Class<? extends Statement> type, String sql, Connection connection) {
+      return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[] {type},
+          new StatementHandler(statement, sql, connection));
+    }
+  }
+
+  private final class StatementHandler implements InvocationHandler {
+
+    private final Statement target;
+    private final String preparedSql;
+    private final Connection connection;
+    private final List<String> parameterTypes = new ArrayList<>();
+    private String batchSql;
+    private int batchSize;
+
+    StatementHandler(Statement target, String preparedSql, Connection connection) {
+      this.target = target;
+      this.preparedSql = preparedSql;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (isIdentityMethod(method)) {
+        return identity(proxy, method, args);
+      }
+      String name = method.getName();
+      if (name.equals("getConnection")) {
+        return connection;
+      }
+      if (name.startsWith("execute")) {
+        return timed(method, args);
+      }
+      if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index
+          && index > 0) {
+        recordParameterType(index, args[1]);
+      } else if (name.equals("clearParameters")) {
+        parameterTypes.clear();
+      } else if (name.equals("addBatch")) {
+        batchSize++;
+        if (args != null && args.length == 1) {
+          batchSql = (String) args[0];
+        }
+      } else if (name.equals("clearBatch")) {
+        batchSize = 0;
+      }
+      return invokeTarget(target, method, args);
+    }
+
+    private Object timed(Method method, Object[] args) throws Throwable {
+      String sql = args != null && args.length > 0 && args[0] instanceof String text ? text
+          : preparedSql != null ? preparedSql : batchSql;
+      int batch = method.getName().equals("executeBatch") ? batchSize : 0;
+      long start = System.nanoTime();
+      try {
+        return invokeTarget(target, method, args);
+      } finally {
+        profiler.record(sql, System.nanoTime() - start, parameterTypes, batch);
+        if (batch > 0) {
+          batchSize = 0;
+        }
+      }
+    }
+
+    private void recordParameterType(int index, Object value) {
+      //parameters may be bound out of order; the ones not bound yet are shown as unset
+      while (parameterTypes.size() < index) {
+        parameterTypes.add(UNSET_PARAMETER);
+      }
+      parameterTypes.set(index - 1, value == null ? "null" : value.getClass().getSimpleName());
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package net.javaguides.cms.profiling;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aggregates the timings of JDBC statements reported by {@link ProfilingDataSource}.
+ *
+ * <p>Statements are grouped by shape: the SQL with string and number literals replaced by {@code ?},
+ * IN lists collapsed and whitespace normalized, so the same query with different arguments or list
+ * sizes counts once. Per shape the run count, total and maximum time and a log-scale latency histogram
+ * (for the 99th percentile) are kept with lock-free counters. Statements slower than the threshold are
+ * also written to a fixed-size ring buffer, with the types of their parameters but not the values, and
+ * logged at WARN by shape.
+ */
+@Slf4j
+@Component
+public class SqlProfiler {
+
+  private static final String OTHER_SHAPES = "(other statements)";
+  private static final int MAX_CACHED_SQL = 10_000;
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final SqlProfilerProperties properties;
+  private final Map<String, String> shapesBySql = new ConcurrentHashMap<>();
+  private final Map<String, ShapeStats> stats = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<SqlStatsReport.SlowStatement> slowLog;
+  private final AtomicLong slowCount = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private volatile Instant since = Instant.now();
+
+  public SqlProfiler(SqlProfilerProperties properties) {
+    this.properties = properties;
+    this.slowLog = new AtomicReferenceArray<>(Math.max(1, properties.getSlowLogSize()));
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Records one statement execution. It is called on the JDBC path after every statement, so it never
+   * throws: a failure is logged and the timing is dropped, leaving the statement's own result or
+   * exception untouched.
+   *
+   * @param sql the SQL as sent to the driver.
+   * @param nanos how long the execution took.
+   * @param parameterTypes the types of the bound parameters, in order.
+   * @param batchSize the number of parameter sets for a batch, otherwise 0.
+   */
+  public void record(String sql, long nanos, List<String> parameterTypes, int batchSize) {
+    try {
+      String shape = shapeOf(sql);
+      ShapeStats shapeStats = stats.get(shape);
+      if (shapeStats == null) {
+        String key = stats.size() < properties.getMaxShapes() ? shape : OTHER_SHAPES;
+        shapeStats = stats.computeIfAbsent(key, k -> new ShapeStats());
+      }
+      shapeStats.add(nanos);
+      if (nanos >= TimeUnit.MILLISECONDS.toNanos(properties.getSlowThresholdMillis())) {
+        int slot = (int) (slowCount.getAndIncrement() % slowLog.length());
+        //may hold nulls, which List.copyOf rejects
+        List<String> types = Collections.unmodifiableList(new ArrayList<>(parameterTypes));
+        slowLog.set(slot, new SqlStatsReport.SlowStatement(Instant.now(), shape, toMillis(nanos), types, batchSize));
+        log.warn("Slow SQL ({} ms): {}", Math.round(toMillis(nanos)), shape);
+      }
+    } catch (RuntimeException e) {
+      //the first failure is logged with its stack trace, later ones only at debug
+      if (failures.getAndIncrement() == 0) {
+        log.warn("Could not record SQL timing; further failures are logged at debug", e);
+      } else {
+        log.debug("Could not record SQL timing", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the collected timings.
+   *
+   * @param limit the maximum number of shapes to include.
+   * @return the shapes by total time and the slow statements by duration.
+   */
+  public SqlStatsReport report(int limit) {
+    List<SqlStatsReport.Shape> shapes = new ArrayList<>();
+    stats.forEach((sql, shapeStats) -> shapes.add(shapeStats.toShape(sql)));
+    shapes.sort(Comparator.comparingDouble(SqlStatsReport.Shape::totalMillis).reversed());
+    List<SqlStatsReport.SlowStatement> slowest = new ArrayList<>();
+    for (int i = 0; i < slowLog.length(); i++) {
+      SqlStatsReport.SlowStatement statement = slowLog.get(i);
+      if (statement != null) {
+        slowest.add(statement);
+      }
+    }
+    slowest.sort(Comparator.comparingDouble(SqlStatsReport.SlowStatement::millis).reversed());
+    return new SqlStatsReport(since, shapes.subList(0, Math.min(limit, shapes.size())), slowest);
+  }
+
+  /**
+   * Discards everything collected so far.
+   */
+  public void reset() {
+    stats.clear();
+    for (int i = 0; i < slowLog.length(); i++) {
+      slowLog.set(i, null);
+    }
+    since = Instant.now();
+  }
+
+  private String shapeOf(String sql) {
+    String raw = Objects.requireNonNullElse(sql, "");
+    String shape = shapesBySql.get(raw);
+    if (shape == null) {
+      shape = normalize(raw);
+      if (shapesBySql.size() >= MAX_CACHED_SQL) {
+        shapesBySql.clear();
+      }
+      shapesBySql.put(raw, shape);
+    }
+    return shape;
+  }
+
+  static String normalize(String sql) {
+    String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+    shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    shape = IN_LIST.matcher(shape).replaceAll("in (?...)");
+    return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  /**
+   * Counters for one statement shape. The histogram has four buckets per power of two microseconds.
+   */
+  static final class ShapeStats {
+
+    private static final int BUCKETS = 192;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    void add(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+      histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    SqlStatsReport.Shape toShape(String sql) {
+      long runs = count.sum();
+      long total = totalNanos.sum();
+      long max = maxNanos.get();
+      return new SqlStatsReport.Shape(sql, runs, toMillis(total), runs == 0 ? 0 : toMillis(total / runs),
+          Math.min(percentileMicros(runs, 0.99) / 1000.0, toMillis(max)), toMillis(max));
+    }
+
+    private long percentileMicros(long runs, double percentile) {
+      long target = (long) Math.ceil(runs * percentile);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += histogram.get(i);
+        if (seen >= target && seen > 0) {
+          return upperMicros(i);
+        }
+      }
+      return upperMicros(BUCKETS - 1);
+    }
+
+    static int bucket(long micros) {
+      if (micros < 4) {
+        return (int) Math.max(micros, 0);
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(micros);
+      int sub = (int) ((micros >>> (exponent - 2)) & 3);
+      return Math.min(exponent * 4 + sub - 4, BUCKETS - 1);
+    }
+
+    static long upperMicros(int bucket) {
+      if (bucket < 4) {
+        return bucket;
+      }
+      int exponent = (bucket + 4) / 4;
+      int sub = (bucket + 4) % 4;
+      return ((5L + sub) << (exponent - 2)) - 1;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package net.javaguides.cms.profiling;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for JDBC statement profiling, bound from {@code cms.sql-profiler.*}.
+ *
+ * <p>When enabled, every statement run through the application's data source is timed by
+ * {@link ProfilingDataSource} and aggregated by {@link SqlProfiler}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.sql-profiler")
+public class SqlProfilerProperties {
+
+  /**
+   * Whether statements are timed at all.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Statements taking at least this long are kept in the slow statement log.
+   */
+  private long slowThresholdMillis = 100;
+
+  /**
+   * How many slow statements are kept; older ones are overwritten.
+   */
+  private int slowLogSize = 100;
+
+  /**
+   * How many distinct statement shapes are tracked; statements of further shapes are counted together.
+   */
+  private int maxShapes = 500;
+}
@@ -0,0 +1,40 @@
+package net.javaguides.cms.profiling;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Statement timings collected by {@link SqlProfiler}, as reported to administrators.
+ *
+ * @param since when collection started or was last reset.
+ * @param shapes the statement shapes, by total time spent, most expensive first.
+ * @param slowest the statements in the slow log, slowest first.
+ */
+public record SqlStatsReport(Instant since, List<Shape> shapes, List<SlowStatement> slowest) {
+
+  /**
+   * Aggregated timings of all statements with the same normalized SQL.
+   *
+   * @param sql the SQL with literals replaced by {@code ?} and IN lists collapsed.
+   * @param count how many times it ran.
+   * @param totalMillis the total time spent running it.
+   * @param meanMillis the mean time per run.
+   * @param p99Millis the 99th percentile time per run, accurate to about 20%.
+   * @param maxMillis the longest run.
+   */
+  public record Shape(String sql, long count, double totalMillis, double meanMillis, double p99Millis,
+      double maxMillis) {
+  }
+
+  /**
+   * One statement that took longer than {@code cms.sql-profiler.slow-threshold-millis}.
+   *
+   * @param at when it finished.
+   * @param sql the normalized SQL.
+   * @param millis how long it took.
+   * @param parameterTypes the types of its bound parameters; the values are not kept.
+   * @param batchSize the number of parameter sets for a batch, otherwise 0.
+   */
+  public record SlowStatement(Instant at, String sql, double millis, List<String> parameterTypes, int batchSize) {
+  }
+}
@@ -1,9 +1,16 @@
 package net.javaguides.cms.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import net.javaguides.cms.entity.Client;
 import net.javaguides.cms.entity.User;
+import net.javaguides.cms.security.UserCredentials;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 /**
  * Repository interface for {@link Client} entities. This interface handles data access operations for clients
  * within the system's database. It extends {@link JpaRepository}, providing CRUD operations and additional
@@ -33,5 +40,121 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
    */
   Optional<Client> findByUsername(String username);
 
+  /**
+   * Reads the credentials and role mask of a client by username, without loading the entity.
+   *
+   * @param username the username of the client.
+   * @return an {@link Optional} containing the credentials, or empty if no client has this username.
+   */
+  @Query("select new net.javaguides.cms.security.UserCredentials(c.username, c.password, c.roleMask)"
+      + " from Client c where c.username = :username")
+  Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+  /**
+   * Checks whether a client with the given SSN exists, using the unique index on the SSN blind index column.
+   *
+   * @param ssnIndex the blind index of the Social Security Number to look for.
+   * @return true if a client, deleted or not, already holds this SSN; soft-deleted clients keep it until purged.
+   */
+  default boolean existsBySsnIndex(String ssnIndex) {
+    return countBySsnIndexIncludingDeleted(ssnIndex) > 0;
+  }
+
+  @Query(value = "select count(*) from clients where ssn_index = :ssnIndex", nativeQuery = true)
+  long countBySsnIndexIncludingDeleted(@Param("ssnIndex") String ssnIndex);
+
+  /**
+   * Finds a client by the blind index of their SSN, using its unique index.
+   *
+   * @param ssnIndex the blind index of the Social Security Number to look for.
+   * @return an {@link Optional} containing the client, or empty if no client holds this SSN.
+   */
+  Optional<Client> findBySsnIndex(String ssnIndex);
+
+  /**
+   * Retrieves which of the given SSN blind indexes are taken, by any row of the {@code clients} table.
+   *
+   * @param ssnIndexes the blind indexes to look for.
+   * @return the blind indexes that exist.
+   */
+  @Query(value = "select ssn_index from clients where ssn_index in (:ssnIndexes)", nativeQuery = true)
+  List<String> findExistingSsnIndexes(@Param("ssnIndexes") Collection<String> ssnIndexes);
+
+  /**
+   * Retrieves the SSN blind index of every client, including soft-deleted clients, without loading the
+   * entities or their roles.
+   *
+   * @return the SSN blind indexes of all clients.
+   */
+  @Query(value = "select ssn_index from clients where ssn_index is not null", nativeQuery = true)
+  List<String> findAllSsnIndexes();
+
+  /**
+   * Applies a partial profile update in a single statement, without loading the client or its roles.
+   * Each column is only rewritten when a new value is supplied; null arguments keep the stored value.
+   * When a version is given, the row is only updated while it still holds that version.
+   * The version is incremented either way. The persistence context is cleared afterwards so that later
+   * reads see the new values.
+   *
+   * @param id the id of the client to update.
+   * @param firstName the new first name, or null to keep the current one.
+   * @param lastName the new last name, or null to keep the current one.
+   * @param email the new email address, or null to keep the current one.
+   * @param version the version the caller read, or null to update whatever version is stored.
+   * @return the number of updated rows, 0 if no client exists with the given id.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update users u join clients c on c.id = u.id"
+      + " set u.first_name = coalesce(:firstName, u.first_name),"
+      + " u.last_name = coalesce(:lastName, u.last_name),"
+      + " u.email = coalesce(:email, u.email),"
+      + " u.version = u.version + 1"
+      + " where u.id = :id and u.deleted = 0 and (:version is null or u.version = :version)", nativeQuery = true)
+  int updateProfile(@Param("id") Long id, @Param("firstName") String firstName,
+      @Param("lastName") String lastName, @Param("email") String email,
+      @Param("version") Long version);
+
+  /**
+   * Marks a client as deleted in a single statement, without loading it. The rows stay in place,
+   * hidden from entity queries, until the deleted user purger removes them.
+   *
+   * @param id the id of the client to delete.
+   * @return the number of updated rows, 0 if no client exists with the given id.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update users u join clients c on c.id = u.id"
+      + " set u.deleted = 1, u.version = u.version + 1"
+      + " where u.id = :id and u.deleted = 0", nativeQuery = true)
+  int markDeleted(@Param("id") Long id);
+
+  /**
+   * Locks the ids of the next clients waiting for review whose lease is free or expired, skipping rows
+   * another transaction has locked, so concurrent reviewers never wait on or receive the same clients.
+   *
+   * @param status the ordinal of the status awaiting review.
+   * @param now the current time; leases ending before it are free.
+   * @param limit the maximum number of ids to return.
+   * @return the locked ids, in id order.
+   */
+  @Query(value = "select c.id from clients c join users u on u.id = c.id"
+      + " where c.status = :status and u.deleted = 0"
+      + " and (c.review_lease_until is null or c.review_lease_until < :now)"
+      + " order by c.id limit :limit for update of c skip locked", nativeQuery = true)
+  List<Long> lockClaimableForReview(@Param("status") int status, @Param("now") LocalDateTime now,
+      @Param("limit") int limit);
+
+  /**
+   * Leases the given clients to a reviewer until the given time.
+   *
+   * @param ids the ids of the clients, locked by {@link #lockClaimableForReview}.
+   * @param owner the username of the reviewer.
+   * @param until when the lease expires.
+   * @return the number of leased clients.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update clients set review_lease_owner = :owner, review_lease_until = :until"
+      + " where id in (:ids)", nativeQuery = true)
+  int leaseForReview(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+      @Param("until") LocalDateTime until);
 
 }
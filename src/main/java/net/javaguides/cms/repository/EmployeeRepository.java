@@ -1,9 +1,14 @@
 package net.javaguides.cms.repository;
 
 import java.util.Optional;
+import net.javaguides.cms.dto.EmployeeDto;
 import net.javaguides.cms.entity.Employee;
 import net.javaguides.cms.entity.User;
+import net.javaguides.cms.security.UserCredentials;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
 
@@ -17,5 +22,75 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
   Optional<Employee> findByUsernameOrEmail(String username,String email);
 
 
-  Boolean existsByUsername(String username);
+  /**
+   * Checks whether a username is taken by any row of the {@code users} table, including soft-deleted users,
+   * whose rows still hold the unique username until they are purged.
+   *
+   * @param username the username to look for.
+   * @return true if a user, deleted or not, holds the username.
+   */
+  default boolean existsByUsername(String username) {
+    return countByUsernameIncludingDeleted(username) > 0;
+  }
+
+  @Query(value = "select count(*) from users where username = :username", nativeQuery = true)
+  long countByUsernameIncludingDeleted(@Param("username") String username);
+
+  /**
+   * Reads the credentials and role mask of an employee by username or email, without loading the entity.
+   *
+   * @param usernameOrEmail the username or email of the employee.
+   * @return an {@link Optional} containing the credentials, or empty if no employee matches.
+   */
+  @Query("select new net.javaguides.cms.security.UserCredentials(e.username, e.password, e.roleMask)"
+      + " from Employee e where e.username = :usernameOrEmail or e.email = :usernameOrEmail")
+  Optional<UserCredentials> findCredentials(@Param("usernameOrEmail") String usernameOrEmail);
+
+  /**
+   * Applies a partial profile update in a single statement, without loading the employee or its roles.
+   * Each column is only rewritten when a new value is supplied; null arguments keep the stored value.
+   * When a version is given, the row is only updated while it still holds that version.
+   * The version is incremented either way. The persistence context is cleared afterwards so that later
+   * reads see the new values.
+   *
+   * @param id the id of the employee to update.
+   * @param firstName the new first name, or null to keep the current one.
+   * @param lastName the new last name, or null to keep the current one.
+   * @param department the new department, or null to keep the current one.
+   * @param version the version the caller read, or null to update whatever version is stored.
+   * @return the number of updated rows, 0 if no employee exists with the given id.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update users u join employees e on e.id = u.id"
+      + " set u.first_name = coalesce(:firstName, u.first_name),"
+      + " u.last_name = coalesce(:lastName, u.last_name),"
+      + " e.department = coalesce(:department, e.department),"
+      + " u.version = u.version + 1"
+      + " where u.id = :id and u.deleted = 0 and (:version is null or u.version = :version)", nativeQuery = true)
+  int updateProfile(@Param("id") Long id, @Param("firstName") String firstName,
+      @Param("lastName") String lastName, @Param("department") String department,
+      @Param("version") Long version);
+
+  /**
+   * Marks a employee as deleted in a single statement, without loading it. The rows stay in place,
+   * hidden from entity queries, until the deleted user purger removes them.
+   *
+   * @param id the id of the employee to delete.
+   * @return the number of updated rows, 0 if no employee exists with the given id.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update users u join employees e on e.id = u.id"
+      + " set u.deleted = 1, u.version = u.version + 1"
+      + " where u.id = :id and u.deleted = 0", nativeQuery = true)
+  int markDeleted(@Param("id") Long id);
+
+  /**
+   * Reads an employee straight into an {@link EmployeeDto}, selecting only the mapped columns and not the roles.
+   *
+   * @param id the id of the employee to read.
+   * @return an {@link Optional} containing the employee details, or empty if no employee exists with the given id.
+   */
+  @Query("select new net.javaguides.cms.dto.EmployeeDto(e.id, e.firstName, e.lastName, e.username, e.email,"
+      + " e.department, e.version) from Employee e where e.id = :id")
+  Optional<EmployeeDto> findDtoById(@Param("id") Long id);
 }
@@ -0,0 +1,88 @@
+package net.javaguides.cms.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import net.javaguides.cms.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Repository interface for queries that span every kind of {@link User}, such as checks against
+ * the username and email uniqueness constraints shared by clients and employees.
+ */
+public interface UserRepository extends JpaRepository<User, Long> {
+
+  /**
+   * Checks whether a username is taken by any row of the {@code users} table. Unlike entity queries this
+   * includes soft-deleted users, whose rows hold their unique keys until they are purged.
+   *
+   * @param username the username to look for.
+   * @return true if a user, deleted or not, holds the username.
+   */
+  default boolean existsByUsername(String username) {
+    return countByUsernameIncludingDeleted(username) > 0;
+  }
+
+  /**
+   * Checks whether an email is taken by any row of the {@code users} table, including soft-deleted users.
+   *
+   * @param email the email to look for.
+   * @return true if a user, deleted or not, holds the email.
+   */
+  default boolean existsByEmail(String email) {
+    return countByEmailIncludingDeleted(email) > 0;
+  }
+
+  @Query(value = "select count(*) from users where username = :username", nativeQuery = true)
+  long countByUsernameIncludingDeleted(@Param("username") String username);
+
+  @Query(value = "select count(*) from users where email = :email", nativeQuery = true)
+  long countByEmailIncludingDeleted(@Param("email") String email);
+
+  /**
+   * Retrieves the username and email of every row of the {@code users} table, including soft-deleted users,
+   * without loading the entities or their roles.
+   *
+   * @return one {@code [username, email]} pair per user.
+   */
+  @Query(value = "select username, email from users", nativeQuery = true)
+  List<Object[]> findAllUsernamesAndEmails();
+
+  /**
+   * Retrieves which of the given usernames are taken, by any row of the {@code users} table.
+   *
+   * @param usernames the usernames to look for.
+   * @return the usernames that exist, as stored.
+   */
+  @Query(value = "select username from users where username in (:usernames)", nativeQuery = true)
+  List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+  /**
+   * Retrieves which of the given emails are taken, by any row of the {@code users} table.
+   *
+   * @param emails the emails to look for.
+   * @return the emails that exist, as stored.
+   */
+  @Query(value = "select email from users where email in (:emails)", nativeQuery = true)
+  List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  /**
+   * Retrieves the current email of a user, without loading the entity.
+   *
+   * @param id the id of the user.
+   * @return the user's email, empty if no user exists with the given id.
+   */
+  @Query("select u.email from User u where u.id = :id")
+  Optional<String> findEmailById(@Param("id") Long id);
+
+  /**
+   * Retrieves the role names a user holds in the legacy {@code users_roles} join table.
+   *
+   * @param username the username of the user.
+   * @return the names of the user's roles, empty if the user has none there.
+   */
+  @Query("select r.name from User u join u.roles r where u.username = :username")
+  List<String> findLegacyRoleNames(@Param("username") String username);
+}
@@ -0,0 +1,104 @@
+package net.javaguides.cms.resilience;
+
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.exception.ServiceDegradedException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Puts the client and employee services behind {@link DatabaseCircuitBreaker}.
+ *
+ * <p>Every public service call is timed and its outcome recorded; only failures to reach the database
+ * (no connection, timeouts, lost connections) count against it, not business errors such as a missing
+ * record. While the breaker is open, {@link ServeStaleWhenDegraded} reads return their last known good
+ * result and all other calls fail with {@link ServiceDegradedException} right away instead of queueing
+ * for a connection. A stale answer is recorded in {@link ServedStale} for the web layer to turn into
+ * response headers; the aspect itself does not touch the HTTP response.
+ *
+ * <p>The aspect runs before shard routing and the transaction, so a fan-out read counts as one call and
+ * a failure to open the transaction is seen. Calls made from inside another service call are not
+ * counted again.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 50)
+public class CircuitBreakerAspect {
+
+  private static final ThreadLocal<Boolean> IN_SERVICE_CALL = new ThreadLocal<>();
+
+  private final DatabaseCircuitBreaker circuitBreaker;
+  private final StaleResults staleResults;
+  private final CircuitBreakerProperties properties;
+
+  public CircuitBreakerAspect(DatabaseCircuitBreaker circuitBreaker, StaleResults staleResults,
+      CircuitBreakerProperties properties) {
+    this.circuitBreaker = circuitBreaker;
+    this.staleResults = staleResults;
+    this.properties = properties;
+  }
+
+  @Around("execution(public * net.javaguides.cms.service.Implementations.*ServiceImpl.*(..))")
+  public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (!properties.isEnabled() || IN_SERVICE_CALL.get() != null) {
+      return joinPoint.proceed();
+    }
+    ServeStaleWhenDegraded stale = ((MethodSignature) joinPoint.getSignature()).getMethod()
+        .getAnnotation(ServeStaleWhenDegraded.class);
+    if (!circuitBreaker.tryAcquire()) {
+      return fallback(joinPoint, stale, null);
+    }
+    IN_SERVICE_CALL.set(Boolean.TRUE);
+    long start = System.nanoTime();
+    boolean failed = false;
+    try {
+      Object result = joinPoint.proceed();
+      if (stale != null && result != null) {
+        staleResults.put(stale.value(), joinPoint.getArgs(), result);
+      }
+      return result;
+    } catch (RuntimeException e) {
+      failed = isDatabaseFailure(e);
+      if (failed) {
+        return fallback(joinPoint, stale, e);
+      }
+      throw e;
+    } finally {
+      IN_SERVICE_CALL.remove();
+      circuitBreaker.record(failed, System.nanoTime() - start);
+    }
+  }
+
+  private Object fallback(ProceedingJoinPoint joinPoint, ServeStaleWhenDegraded stale, RuntimeException failure) {
+    Optional<StaleResults.Entry> entry = stale == null ? Optional.empty()
+        : staleResults.get(stale.value(), joinPoint.getArgs());
+    if (entry.isPresent()) {
+      log.debug("Serving a {} s old result for {}", entry.get().ageSeconds(), joinPoint.getSignature().toShortString());
+      ServedStale.mark(entry.get().ageSeconds());
+      return entry.get().value();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    throw new ServiceDegradedException("The database is unavailable, try again later", properties.getOpenSeconds());
+  }
+
+  private static boolean isDatabaseFailure(Throwable e) {
+    return e instanceof DataAccessResourceFailureException
+        || e instanceof TransientDataAccessResourceException
+        || e instanceof RecoverableDataAccessException
+        || e instanceof QueryTimeoutException
+        || e instanceof CannotCreateTransactionException;
+  }
+}
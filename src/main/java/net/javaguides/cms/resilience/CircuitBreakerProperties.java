@@ -0,0 +1,66 @@
+package net.javaguides.cms.resilience;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the database circuit breaker, bound from {@code cms.circuit-breaker.*}.
+ *
+ * <p>The breaker opens when, over the last {@code window-size} service calls, the share of calls that
+ * failed to reach the database or took longer than {@code slow-call-millis} crosses its threshold. It
+ * stays open for {@code open-seconds}, then lets {@code half-open-probes} calls through and closes again
+ * if they all succeed.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.circuit-breaker")
+public class CircuitBreakerProperties {
+
+  /**
+   * Whether service calls go through the breaker at all.
+   */
+  private boolean enabled = true;
+
+  /**
+   * How many of the most recent calls the failure and slow-call rates are taken over.
+   */
+  private int windowSize = 50;
+
+  /**
+   * The breaker does not open before the window holds this many calls.
+   */
+  private int minimumCalls = 20;
+
+  /**
+   * Percentage of failed calls in the window that opens the breaker.
+   */
+  private int failureRatePercent = 50;
+
+  /**
+   * Calls taking at least this long count as slow.
+   */
+  private long slowCallMillis = 2000;
+
+  /**
+   * Percentage of slow calls in the window that opens the breaker.
+   */
+  private int slowCallRatePercent = 80;
+
+  /**
+   * How long the breaker stays open before probing the database.
+   */
+  private int openSeconds = 30;
+
+  /**
+   * How many calls are let through while half open; all of them must succeed to close the breaker.
+   */
+  private int halfOpenProbes = 5;
+
+  /**
+   * How many last-known-good results are kept for reads served while the breaker is open.
+   */
+  private int staleCacheSize = 10_000;
+}
@@ -0,0 +1,131 @@
+package net.javaguides.cms.resilience;
+
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks whether the database is healthy enough to be called.
+ *
+ * <p>Closed, every call is let through and its outcome recorded in a window of the most recent calls;
+ * when the share of failed or slow calls crosses its threshold the breaker opens. Open, no call is let
+ * through until {@code cms.circuit-breaker.open-seconds} have passed. Half open, a few probe calls are let
+ * through: if all succeed quickly the breaker closes with a fresh window, otherwise it opens again.
+ *
+ * <p>The methods are synchronized; they are called once per service call, next to a database round trip.
+ */
+@Slf4j
+@Component
+public class DatabaseCircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final CircuitBreakerProperties properties;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final boolean[] failedCalls;
+  private final boolean[] slowCalls;
+
+  private State state = State.CLOSED;
+  private int next;
+  private int recorded;
+  private int failures;
+  private int slow;
+  private long openedAt;
+  private int probesStarted;
+  private int probesSucceeded;
+
+  public DatabaseCircuitBreaker(CircuitBreakerProperties properties) {
+    this.properties = properties;
+    this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowCallMillis());
+    this.openNanos = TimeUnit.SECONDS.toNanos(properties.getOpenSeconds());
+    this.failedCalls = new boolean[Math.max(1, properties.getWindowSize())];
+    this.slowCalls = new boolean[failedCalls.length];
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Asks whether a call may go to the database. Every call that was let through must be followed by
+   * {@link #record}.
+   *
+   * @return false if the breaker is open, or half open with all probes already under way.
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openedAt < openNanos) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      probesStarted = 0;
+      probesSucceeded = 0;
+      log.info("Database circuit breaker half open, probing with {} calls", properties.getHalfOpenProbes());
+    }
+    if (state == State.HALF_OPEN) {
+      if (probesStarted >= properties.getHalfOpenProbes()) {
+        return false;
+      }
+      probesStarted++;
+    }
+    return true;
+  }
+
+  /**
+   * Records the outcome of a call that {@link #tryAcquire} let through.
+   *
+   * @param failed whether the call failed because the database could not be reached or timed out.
+   * @param nanos how long the call took.
+   */
+  public synchronized void record(boolean failed, long nanos) {
+    boolean slowCall = nanos >= slowCallNanos;
+    if (state == State.HALF_OPEN) {
+      if (failed || slowCall) {
+        open("a probe call " + (failed ? "failed" : "was slow"));
+      } else if (++probesSucceeded >= properties.getHalfOpenProbes()) {
+        close();
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      //a call that started before the breaker opened
+      return;
+    }
+    if (recorded == failedCalls.length) {
+      failures -= failedCalls[next] ? 1 : 0;
+      slow -= slowCalls[next] ? 1 : 0;
+    } else {
+      recorded++;
+    }
+    failedCalls[next] = failed;
+    slowCalls[next] = slowCall;
+    failures += failed ? 1 : 0;
+    slow += slowCall ? 1 : 0;
+    next = (next + 1) % failedCalls.length;
+    if (recorded >= properties.getMinimumCalls()) {
+      if (failures * 100 >= properties.getFailureRatePercent() * recorded) {
+        open(failures + " of the last " + recorded + " calls failed");
+      } else if (slow * 100 >= properties.getSlowCallRatePercent() * recorded) {
+        open(slow + " of the last " + recorded + " calls were slow");
+      }
+    }
+  }
+
+  private void open(String reason) {
+    state = State.OPEN;
+    openedAt = System.nanoTime();
+    log.warn("Database circuit breaker opened for {} s: {}", properties.getOpenSeconds(), reason);
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    next = 0;
+    recorded = 0;
+    failures = 0;
+    slow = 0;
+    log.info("Database circuit breaker closed");
+  }
+}
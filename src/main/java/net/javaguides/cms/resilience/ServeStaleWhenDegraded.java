@@ -0,0 +1,24 @@
+package net.javaguides.cms.resilience;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only service method that may answer from its last known good result while the database
+ * is unavailable.
+ * {@link CircuitBreakerAspect} remembers each successful result under {@link #value()} and the method's
+ * arguments. When the circuit breaker is open, or the call fails to reach the database, the remembered
+ * result is returned instead and the response carries the {@value StaleResults#STALE_HEADER} and
+ * {@code Age} headers. Service methods without this annotation fail fast while the breaker is open.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ServeStaleWhenDegraded {
+
+  /**
+   * The name results are remembered under, e.g. {@code "client"}.
+   */
+  String value();
+}
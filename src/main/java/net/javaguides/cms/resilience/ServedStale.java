@@ -0,0 +1,44 @@
+package net.javaguides.cms.resilience;
+
+import java.util.OptionalLong;
+
+/**
+ * Remembers, for the current thread, that a {@link ServeStaleWhenDegraded} call answered from its last
+ * known good result, so that the web layer can mark the response without the services knowing about it.
+ *
+ * <p>{@link CircuitBreakerAspect} marks the thread with the age of the result it served; when several
+ * stale results are served for one request the oldest age is kept. The web layer clears the mark when a
+ * request starts and takes it when the response body is written.
+ */
+public final class ServedStale {
+
+  private static final ThreadLocal<Long> AGE_SECONDS = new ThreadLocal<>();
+
+  private ServedStale() {
+  }
+
+  /**
+   * Marks the current thread as having served a stale result.
+   *
+   * @param ageSeconds how old the served result is.
+   */
+  public static void mark(long ageSeconds) {
+    Long marked = AGE_SECONDS.get();
+    AGE_SECONDS.set(marked == null ? ageSeconds : Math.max(marked, ageSeconds));
+  }
+
+  /**
+   * Returns and clears the mark of the current thread.
+   *
+   * @return the age of the oldest stale result served since the mark was last cleared, or empty if none was.
+   */
+  public static OptionalLong take() {
+    Long marked = AGE_SECONDS.get();
+    AGE_SECONDS.remove();
+    return marked == null ? OptionalLong.empty() : OptionalLong.of(marked);
+  }
+
+  public static void clear() {
+    AGE_SECONDS.remove();
+  }
+}
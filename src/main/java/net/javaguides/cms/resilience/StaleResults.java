@@ -0,0 +1,89 @@
+package net.javaguides.cms.resilience;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * The last known good results of {@link ServeStaleWhenDegraded} methods, kept in memory and evicted least
+ * recently used first beyond {@code cms.circuit-breaker.stale-cache-size} entries.
+ *
+ * <p>Single clients and employees are also kept current from {@link ClientChangedEvent}s and
+ * {@link EmployeeChangedEvent}s, so a record edited or deleted through this instance is not served in its
+ * old state. Lists are only refreshed by successful reads.
+ */
+@Component
+public class StaleResults {
+
+  public static final String STALE_HEADER = "Served-Stale";
+  public static final String CLIENT = "client";
+  public static final String CLIENTS = "clients";
+  public static final String EMPLOYEE = "employee";
+  public static final String EMPLOYEES = "employees";
+
+  public record Entry(Object value, Instant storedAt) {
+
+    public long ageSeconds() {
+      return Math.max(0, Duration.between(storedAt, Instant.now()).toSeconds());
+    }
+  }
+
+  private record Key(String name, List<Object> arguments) {
+  }
+
+  private final Map<Key, Entry> entries;
+
+  public StaleResults(CircuitBreakerProperties properties) {
+    int maxEntries = properties.getStaleCacheSize();
+    this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public void put(String name, Object[] arguments, Object value) {
+    Key key = new Key(name, Arrays.asList(arguments.clone()));
+    synchronized (entries) {
+      entries.put(key, new Entry(value, Instant.now()));
+    }
+  }
+
+  public Optional<Entry> get(String name, Object[] arguments) {
+    Key key = new Key(name, Arrays.asList(arguments.clone()));
+    synchronized (entries) {
+      return Optional.ofNullable(entries.get(key));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onClientChanged(ClientChangedEvent event) {
+    replace(CLIENT, event.clientId(), event.client());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEmployeeChanged(EmployeeChangedEvent event) {
+    replace(EMPLOYEE, event.employeeId(), event.employee());
+  }
+
+  //drops the remembered result of a deleted record and refreshes that of an updated one
+  private void replace(String name, Long id, Object current) {
+    Key key = new Key(name, List.of(id));
+    synchronized (entries) {
+      if (current == null) {
+        entries.remove(key);
+      } else if (entries.containsKey(key)) {
+        entries.put(key, new Entry(current, Instant.now()));
+      }
+    }
+  }
+}
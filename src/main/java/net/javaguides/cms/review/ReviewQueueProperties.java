@@ -0,0 +1,29 @@
+package net.javaguides.cms.review;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the pending-client review queue, bound from {@code cms.review.*}.
+ *
+ * <p>A reviewer claims pending clients for {@code lease-minutes}; clients not approved or rejected by
+ * then go back to the queue.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.review")
+public class ReviewQueueProperties {
+
+  /**
+   * How long a claimed client stays leased to its reviewer.
+   */
+  private int leaseMinutes = 15;
+
+  /**
+   * The most clients one claim may lease.
+   */
+  private int maxClaim = 50;
+}
@@ -0,0 +1,89 @@
+package net.javaguides.cms.security;
+
+import java.util.Collection;
+import java.util.Set;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * The authenticated user. Unlike Spring's {@code User}, it keeps the shared authority set of its
+ * role combination (see {@link RoleAuthorities}) rather than copying it on every login.
+ *
+ * <p>Like Spring's {@code User}, it drops its password hash when the authentication manager erases
+ * credentials after a successful login, so the hash does not stay in the security context or session.
+ * Two instances are equal when they have the same username.
+ */
+public class CmsUserDetails implements UserDetails, CredentialsContainer {
+
+  private final String username;
+  private String password;
+  private final Set<GrantedAuthority> authorities;
+
+  /**
+   * @param username the username of the user.
+   * @param password the encoded password.
+   * @param authorities the authorities granted to the user.
+   */
+  public CmsUserDetails(String username, String password, Set<GrantedAuthority> authorities) {
+    this.username = username;
+    this.password = password;
+    this.authorities = authorities;
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return authorities;
+  }
+
+  @Override
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public boolean isAccountNonExpired() {
+    return true;
+  }
+
+  @Override
+  public boolean isAccountNonLocked() {
+    return true;
+  }
+
+  @Override
+  public boolean isCredentialsNonExpired() {
+    return true;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void eraseCredentials() {
+    password = null;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof CmsUserDetails details && username.equals(details.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return username.hashCode();
+  }
+
+  //keep the password hash out of logs
+  @Override
+  public String toString() {
+    return "CmsUserDetails[username=" + username + ", authorities=" + authorities + "]";
+  }
+}
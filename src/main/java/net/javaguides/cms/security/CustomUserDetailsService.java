@@ -1,15 +1,13 @@
 package net.javaguides.cms.security;
 
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
-import net.javaguides.cms.entity.Client;
-import net.javaguides.cms.entity.Employee;
+import net.javaguides.cms.Enums.UserRole;
+import net.javaguides.cms.datasource.ClientShards;
 import net.javaguides.cms.repository.ClientRepository;
 import net.javaguides.cms.repository.EmployeeRepository;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import net.javaguides.cms.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -20,6 +18,12 @@ import org.springframework.stereotype.Service;
  * This service provides a method to load user details based on a username or email address.
  * It first attempts to find an employee by the username or email; if not found, it tries to find a client.
  * This approach supports authentication for both employees and clients within the same system.
+ * Only the username, password hash and {@code role_mask} column are read, so a login costs one
+ * indexed single-row lookup and no join against the roles tables; authorities come from the
+ * shared sets in {@link RoleAuthorities}. Users whose mask has not been migrated yet fall back to
+ * the legacy {@code users_roles} table.
+ * Identifiers that are backed off after repeated failures, or that recently matched no user, are
+ * rejected by {@link LoginAttemptGuard} without querying either repository.
  *
  */
 @Service
@@ -29,63 +33,70 @@ public class CustomUserDetailsService implements UserDetailsService {
 
   private EmployeeRepository employeeRepository;
   private ClientRepository clientRepository;
+  private UserRepository userRepository;
+  private ClientShards clientShards;
+  private LoginAttemptGuard loginAttemptGuard;
 
   /**
    * Loads the user's details based on the username or email provided.
    *
    * This method first checks the {@link EmployeeRepository} for a user matching the username or email.
-   * If an employee is found, it constructs a {@link UserDetails} object with roles converted to {@link GrantedAuthority}.
-   * If no employee is found, it then checks the {@link ClientRepository}.
-   * If a client is found, it similarly constructs a {@link UserDetails} object.
+   * If no employee is found, it then checks the {@link ClientRepository} on every shard.
+   * The authorities of the user found are derived from its role mask.
    * If neither repository contains the user, it throws a {@link UsernameNotFoundException}.
    *
    * @param usernameOrEmail The username or email of the user to load.
    * @return UserDetails containing the user's information and authorities.
    * @throws UsernameNotFoundException if no user is found in either repository.
+   * @throws org.springframework.security.authentication.LockedException if the identifier is backed off
+   *         after too many failed attempts.
    */
 
 
   @Override
   public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-    //create UserDetails object to return later
+    //refuse backed-off identifiers and recently missed ones before touching the database
+    loginAttemptGuard.checkNotBlocked(usernameOrEmail);
+    if (loginAttemptGuard.isKnownMissing(usernameOrEmail)) {
+      throw new UsernameNotFoundException("User not found with username: " + usernameOrEmail);
+    }
     //check if there is an employee
-    Optional<Employee> employee = employeeRepository.findByUsernameOrEmail(usernameOrEmail,
-        usernameOrEmail);
+    Optional<UserCredentials> employee = employeeRepository.findCredentials(usernameOrEmail);
     if (employee.isPresent()) {
-      //retrieve employee if present
-      Employee employeeReceived = employee.get();
-
-      //create list of granted authorities
-      Set<GrantedAuthority> grantedAuthorities = employeeReceived.getRoles().stream()
-          .map(role -> new SimpleGrantedAuthority(role.getName()))
-          .collect(Collectors.toSet());
-
-
-      return new org.springframework.security.core.userdetails.User(
-          employeeReceived.getUsername(),
-          employeeReceived.getPassword(),
-          grantedAuthorities
-      );
-
-    } else {
-      // If not found, try to load the user as a client
-      Client client = clientRepository.findByUsername(usernameOrEmail)
-          //if no username is found, then it means they are not in the CMS system
-          .orElseThrow(() -> new UsernameNotFoundException(
-              "User not found with username: " + usernameOrEmail));
-      //create list of granted authorities
-      Set<GrantedAuthority> grantedAuthorities = client.getRoles().stream()
-          .map(role -> new SimpleGrantedAuthority(role.getName()))
-          .collect(Collectors.toSet());
+      UserCredentials credentials = employee.get();
+      int roleMask = credentials.roleMask() != 0 ? credentials.roleMask()
+          : UserRole.maskOf(userRepository.findLegacyRoleNames(credentials.username()));
+      return toUserDetails(credentials, roleMask);
+    }
+    // If not found, try to load the user as a client from whichever shard holds them
+    UserCredentials client = clientShards.findFirst(
+            () -> clientRepository.findCredentialsByUsername(usernameOrEmail))
+        //if no username is found, then it means they are not in the CMS system
+        .orElseThrow(() -> {
+          loginAttemptGuard.recordMissing(usernameOrEmail);
+          return new UsernameNotFoundException("User not found with username: " + usernameOrEmail);
+        });
+    int roleMask = client.roleMask() != 0 ? client.roleMask() : legacyClientMask(client.username());
+    return toUserDetails(client, roleMask);
+  }
 
-      //return the user
-      return new org.springframework.security.core.userdetails.User(
-          client.getUsername(),
-          client.getPassword(),
-          grantedAuthorities
-      );
+  /**
+   * Derives the role mask of a client that has not been migrated yet from the legacy join table,
+   * looking on whichever shard holds the client.
+   *
+   * @param username the username of the client.
+   * @return the role mask, 0 if the client has no roles there either.
+   */
+  private int legacyClientMask(String username) {
+    return clientShards.findFirst(() -> {
+      List<String> roleNames = userRepository.findLegacyRoleNames(username);
+      return roleNames.isEmpty() ? Optional.<List<String>>empty() : Optional.of(roleNames);
+    }).map(UserRole::maskOf).orElse(0);
+  }
 
-    }
+  private static UserDetails toUserDetails(UserCredentials credentials, int roleMask) {
+    return new CmsUserDetails(credentials.username(), credentials.password(),
+        RoleAuthorities.forMask(roleMask));
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package net.javaguides.cms.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Protects {@link CustomUserDetailsService} against credential-stuffing traffic.
+ *
+ * <p>It keeps two short-lived, in-memory records per username or email:
+ * <ul>
+ *   <li>A negative cache of identifiers that recently matched no user, so that repeated attempts
+ *       for unknown users do not query the employee and client tables again. Entries are removed
+ *       as soon as a user with that identifier is created.
+ *   <li>A count of consecutive failed logins. After {@code cms.login.free-attempts} failures the
+ *       identifier is blocked for an exponentially growing period, during which attempts are refused
+ *       before any repository call or password check. A successful login resets the count.
+ * </ul>
+ *
+ * <p>Each record set holds at most {@code cms.login.max-tracked-identifiers} entries, kept in the order
+ * they were last written. When a set is full the oldest entry is evicted, so new identifiers are always
+ * tracked; since entries are time-ordered, the expiry sweep only walks the expired head of each set.
+ */
+@Component
+public class LoginAttemptGuard {
+
+  private final Map<String, Long> missingUntil;
+  private final Map<String, Failures> failures;
+  private final long negativeTtlNanos;
+  private final int freeAttempts;
+  private final long baseBackoffNanos;
+  private final long maxBackoffNanos;
+
+  public LoginAttemptGuard(@Value("${cms.login.negative-cache-ttl-seconds:60}") long negativeTtlSeconds,
+      @Value("${cms.login.free-attempts:5}") int freeAttempts,
+      @Value("${cms.login.base-backoff-seconds:1}") long baseBackoffSeconds,
+      @Value("${cms.login.max-backoff-seconds:900}") long maxBackoffSeconds,
+      @Value("${cms.login.max-tracked-identifiers:100000}") int maxTrackedIdentifiers) {
+    this.missingUntil = oldestEvictedBeyond(maxTrackedIdentifiers);
+    this.failures = oldestEvictedBeyond(maxTrackedIdentifiers);
+    this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+    this.freeAttempts = freeAttempts;
+    this.baseBackoffNanos = TimeUnit.SECONDS.toNanos(baseBackoffSeconds);
+    this.maxBackoffNanos = TimeUnit.SECONDS.toNanos(maxBackoffSeconds);
+  }
+
+  /**
+   * Refuses the attempt if the identifier is currently backed off.
+   *
+   * @throws LockedException if too many recent attempts for this identifier failed.
+   */
+  public void checkNotBlocked(String usernameOrEmail) {
+    Failures record;
+    synchronized (failures) {
+      record = failures.get(normalize(usernameOrEmail));
+    }
+    if (record != null && System.nanoTime() - record.blockedUntil < 0) {
+      throw new LockedException("Too many failed login attempts, try again later");
+    }
+  }
+
+  /**
+   * @return true if the identifier recently matched no user.
+   */
+  public boolean isKnownMissing(String usernameOrEmail) {
+    Long until;
+    synchronized (missingUntil) {
+      until = missingUntil.get(normalize(usernameOrEmail));
+    }
+    return until != null && System.nanoTime() - until < 0;
+  }
+
+  /**
+   * Records that the identifier matched no user.
+   */
+  public void recordMissing(String usernameOrEmail) {
+    String key = normalize(usernameOrEmail);
+    synchronized (missingUntil) {
+      //re-inserted, so the map stays ordered by expiry
+      missingUntil.remove(key);
+      missingUntil.put(key, System.nanoTime() + negativeTtlNanos);
+    }
+  }
+
+  /**
+   * Removes identifiers from the negative cache, called when a user holding them is created.
+   */
+  public void forgetMissing(String... identifiers) {
+    synchronized (missingUntil) {
+      for (String identifier : identifiers) {
+        if (identifier != null) {
+          missingUntil.remove(normalize(identifier));
+        }
+      }
+    }
+  }
+
+  @EventListener
+  public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+    String key = normalize(event.getAuthentication().getName());
+    synchronized (failures) {
+      //re-inserted, so the map stays ordered by last failure
+      Failures previous = failures.remove(key);
+      int count = previous == null ? 1 : previous.count + 1;
+      long now = System.nanoTime();
+      long blockedUntil = now;
+      if (count > freeAttempts) {
+        int doublings = Math.min(count - freeAttempts - 1, 30);
+        blockedUntil = now + Math.min(maxBackoffNanos, baseBackoffNanos << doublings);
+      }
+      failures.put(key, new Failures(count, now, blockedUntil));
+    }
+  }
+
+  @EventListener
+  public void onSuccess(AuthenticationSuccessEvent event) {
+    synchronized (failures) {
+      failures.remove(normalize(event.getAuthentication().getName()));
+    }
+  }
+
+  /**
+   * Drops expired negative entries and failure records idle for longer than the maximum backoff.
+   * Runs on the scheduler once a minute.
+   */
+  @Scheduled(fixedDelay = 60_000)
+  public void evictExpired() {
+    long now = System.nanoTime();
+    evictHead(missingUntil, until -> now - until >= 0);
+    //a record idle for longer than the maximum backoff is no longer blocked either
+    evictHead(failures, record -> now - record.lastFailureAt > maxBackoffNanos);
+  }
+
+  private static <V> void evictHead(Map<String, V> entries, Predicate<V> expired) {
+    synchronized (entries) {
+      Iterator<V> oldestFirst = entries.values().iterator();
+      while (oldestFirst.hasNext() && expired.test(oldestFirst.next())) {
+        oldestFirst.remove();
+      }
+    }
+  }
+
+  private static <V> Map<String, V> oldestEvictedBeyond(int maxEntries) {
+    return new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  private static String normalize(String identifier) {
+    return identifier.toLowerCase(Locale.ROOT);
+  }
+
+  private record Failures(int count, long lastFailureAt, long blockedUntil) {
+  }
+}
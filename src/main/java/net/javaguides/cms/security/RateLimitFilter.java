@@ -0,0 +1,79 @@
+package net.javaguides.cms.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Security filter that applies {@link RateLimiter}, in one of two stages around HTTP Basic authentication.
+ *
+ * <p>The {@link #perAddress(RateLimiter) address stage} runs ahead of authentication and charges every
+ * request to its client address, so a rejected request never costs a BCrypt verification or a user
+ * lookup, whatever credentials it claims. The {@link #perPrincipal(RateLimiter) principal stage} runs
+ * after authentication and charges only requests whose credentials were verified, so rotating claimed
+ * usernames gains nothing and nobody can spend another user's quota without their password.
+ * Rejected requests receive 429 Too Many Requests with a {@code Retry-After} header.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private final RateLimiter rateLimiter;
+  private final boolean perPrincipal;
+
+  private RateLimitFilter(RateLimiter rateLimiter, boolean perPrincipal) {
+    this.rateLimiter = rateLimiter;
+    this.perPrincipal = perPrincipal;
+  }
+
+  /**
+   * @return a filter to place before authentication, limiting requests per client address.
+   */
+  public static RateLimitFilter perAddress(RateLimiter rateLimiter) {
+    return new RateLimitFilter(rateLimiter, false);
+  }
+
+  /**
+   * @return a filter to place after authentication, limiting authenticated requests per principal.
+   */
+  public static RateLimitFilter perPrincipal(RateLimiter rateLimiter) {
+    return new RateLimitFilter(rateLimiter, true);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String group = rateLimiter.groupFor(request.getRequestURI().substring(request.getContextPath().length()));
+    if (group != null) {
+      long retryAfter = perPrincipal ? chargePrincipal(group) : rateLimiter.tryAcquireForAddress(group, request.getRemoteAddr());
+      if (retryAfter > 0) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.getWriter().write("Too many requests");
+        return;
+      }
+    }
+    filterChain.doFilter(request, response);
+  }
+
+  private long chargePrincipal(String group) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()
+        || authentication instanceof AnonymousAuthenticationToken) {
+      return 0;
+    }
+    return rateLimiter.tryAcquireForPrincipal(group, authentication.getName());
+  }
+
+  //both stages run on the same request, so each needs its own already-filtered marker
+  @Override
+  protected String getAlreadyFilteredAttributeName() {
+    return RateLimitFilter.class.getName() + (perPrincipal ? ".principal" : ".address") + ALREADY_FILTERED_SUFFIX;
+  }
+}
@@ -0,0 +1,81 @@
+package net.javaguides.cms.security;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for {@link RateLimitFilter}, bound from {@code cms.rate-limit.*}.
+ *
+ * <p>Each route group lists the path patterns it covers, the token bucket granted to every
+ * authenticated user of that group, and the bucket granted to every client address, which is charged
+ * for all requests including unauthenticated ones. Requests that match no group are not limited.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cms.rate-limit")
+public class RateLimitProperties {
+
+  /**
+   * Whether rate limiting is applied at all.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Buckets unused for this long are evicted.
+   */
+  private long idleEvictionSeconds = 600;
+
+  /**
+   * The most buckets kept at once; beyond it new callers share an overflow bucket per group.
+   */
+  private int maxBuckets = 100_000;
+
+  /**
+   * The route groups, checked in declaration order.
+   */
+  private Map<String, Group> groups = new LinkedHashMap<>();
+
+  @Getter
+  @Setter
+  public static class Group {
+
+    /**
+     * Ant-style path patterns that belong to the group.
+     */
+    private List<String> paths = List.of();
+
+    /**
+     * The maximum burst of requests per caller.
+     */
+    private long capacity = 50;
+
+    /**
+     * The sustained number of requests per second per caller.
+     */
+    private double refillPerSecond = 10;
+
+    /**
+     * The maximum burst of requests per client address, or null for the per-user capacity.
+     */
+    private Long addressCapacity;
+
+    /**
+     * The sustained number of requests per second per client address, or null for the per-user rate.
+     */
+    private Double addressRefillPerSecond;
+
+    public long addressCapacity() {
+      return addressCapacity != null ? addressCapacity : capacity;
+    }
+
+    public double addressRefillPerSecond() {
+      return addressRefillPerSecond != null ? addressRefillPerSecond : refillPerSecond;
+    }
+  }
+}
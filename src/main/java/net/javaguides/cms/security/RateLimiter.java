@@ -0,0 +1,127 @@
+package net.javaguides.cms.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.javaguides.cms.util.TokenBucket;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Keeps one token bucket per route group and caller and decides whether a request may proceed.
+ *
+ * <p>Callers are either client addresses, charged before authentication, or authenticated principals,
+ * charged after it; each kind has its own limits. Buckets live in a {@link ConcurrentHashMap}, so callers
+ * on different buckets never contend, and each bucket is updated without locks. Buckets that have been
+ * idle for {@code cms.rate-limit.idle-eviction-seconds} are dropped by a scheduled sweep.
+ *
+ * <p>At most {@code cms.rate-limit.max-buckets} buckets are kept. When the map is full and an idle sweep
+ * frees nothing, new callers of a group share one overflow bucket until space is freed, so a flood of
+ * distinct addresses cannot grow memory without bound and only throttles other newcomers.
+ */
+@Component
+public class RateLimiter {
+
+  private static final String OVERFLOW = "overflow";
+  private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final RateLimitProperties properties;
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong lastFullSweepAt = new AtomicLong(System.nanoTime() - FULL_SWEEP_INTERVAL_NANOS);
+
+  public RateLimiter(RateLimitProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Finds the route group a request path belongs to.
+   *
+   * @param path the request path, without the context path.
+   * @return the group name, or null if the path is not rate limited.
+   */
+  public String groupFor(String path) {
+    if (!properties.isEnabled()) {
+      return null;
+    }
+    for (Map.Entry<String, RateLimitProperties.Group> group : properties.getGroups().entrySet()) {
+      for (String pattern : group.getValue().getPaths()) {
+        if (pathMatcher.match(pattern, path)) {
+          return group.getKey();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Takes a token from the bucket of a client address for the group.
+   *
+   * @param group the route group, as returned by {@link #groupFor(String)}.
+   * @param address the remote address of the request.
+   * @return 0 if the request is permitted, otherwise the number of seconds to wait before retrying (at least 1).
+   */
+  public long tryAcquireForAddress(String group, String address) {
+    RateLimitProperties.Group limits = properties.getGroups().get(group);
+    return tryAcquire(group, "ip:" + address, limits.addressCapacity(), limits.addressRefillPerSecond());
+  }
+
+  /**
+   * Takes a token from the bucket of an authenticated principal for the group.
+   *
+   * @param group the route group, as returned by {@link #groupFor(String)}.
+   * @param principal the name of the authenticated user.
+   * @return 0 if the request is permitted, otherwise the number of seconds to wait before retrying (at least 1).
+   */
+  public long tryAcquireForPrincipal(String group, String principal) {
+    RateLimitProperties.Group limits = properties.getGroups().get(group);
+    return tryAcquire(group, "user:" + principal, limits.getCapacity(), limits.getRefillPerSecond());
+  }
+
+  private long tryAcquire(String group, String caller, long capacity, double refillPerSecond) {
+    String key = group + '|' + caller;
+    TokenBucket bucket = buckets.get(key);
+    if (bucket == null) {
+      if (isFull()) {
+        key = group + '|' + OVERFLOW + '|' + caller.substring(0, caller.indexOf(':'));
+      }
+      bucket = buckets.computeIfAbsent(key, ignored -> new TokenBucket(capacity, refillPerSecond));
+    }
+    if (bucket.tryAcquire()) {
+      return 0;
+    }
+    return Math.max(1, bucket.secondsUntilNextToken());
+  }
+
+  private boolean isFull() {
+    if (buckets.size() < properties.getMaxBuckets()) {
+      return false;
+    }
+    //sweep early, at most once a second, before falling back to the overflow bucket
+    long last = lastFullSweepAt.get();
+    long now = System.nanoTime();
+    if (now - last >= FULL_SWEEP_INTERVAL_NANOS && lastFullSweepAt.compareAndSet(last, now)) {
+      evictIdleBuckets();
+    }
+    return buckets.size() >= properties.getMaxBuckets();
+  }
+
+  /**
+   * @return the number of buckets currently held.
+   */
+  public int bucketCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Drops idle buckets. Runs on the scheduler once a minute.
+   */
+  @Scheduled(fixedDelay = 60_000)
+  public void evictIdleBuckets() {
+    long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleEvictionSeconds());
+    long now = System.nanoTime();
+    buckets.values().removeIf(bucket -> now - bucket.lastUsedAt() > idleNanos);
+  }
+}
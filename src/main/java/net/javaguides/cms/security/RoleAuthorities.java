@@ -0,0 +1,51 @@
+package net.javaguides.cms.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.javaguides.cms.Enums.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * The granted authorities of every role combination, computed once.
+ * A login maps the user's role mask to a shared, immutable authority set instead of building one.
+ */
+public final class RoleAuthorities {
+
+  private static final List<Set<GrantedAuthority>> BY_MASK;
+
+  static {
+    Map<UserRole, GrantedAuthority> authorities = new EnumMap<>(UserRole.class);
+    for (UserRole role : UserRole.values()) {
+      authorities.put(role, new SimpleGrantedAuthority(role.authority()));
+    }
+    int combinations = UserRole.allBits() + 1;
+    List<Set<GrantedAuthority>> byMask = new ArrayList<>(combinations);
+    for (int mask = 0; mask < combinations; mask++) {
+      Set<GrantedAuthority> granted = new LinkedHashSet<>();
+      for (UserRole role : UserRole.values()) {
+        if ((mask & role.bit()) != 0) {
+          granted.add(authorities.get(role));
+        }
+      }
+      byMask.add(Collections.unmodifiableSet(granted));
+    }
+    BY_MASK = List.copyOf(byMask);
+  }
+
+  private RoleAuthorities() {
+  }
+
+  /**
+   * @param roleMask a mask of {@link UserRole} bits; unknown bits are ignored.
+   * @return the authorities of the roles in the mask.
+   */
+  public static Set<GrantedAuthority> forMask(int roleMask) {
+    return BY_MASK.get(roleMask & UserRole.allBits());
+  }
+}
@@ -0,0 +1,11 @@
+package net.javaguides.cms.security;
+
+/**
+ * The columns needed to authenticate a user, read without loading the user entity.
+ *
+ * @param username the username of the user.
+ * @param password the encoded password.
+ * @param roleMask the user's roles as a mask of {@link net.javaguides.cms.Enums.UserRole} bits.
+ */
+public record UserCredentials(String username, String password, int roleMask) {
+}
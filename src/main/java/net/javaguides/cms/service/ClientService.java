@@ -1,6 +1,8 @@
 package net.javaguides.cms.service;
 
+import java.util.Collection;
 import java.util.List;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.ClientDTO;
 import net.javaguides.cms.dto.PasswordChangeDto;
 
@@ -33,6 +35,23 @@ public interface ClientService {
    */
   List<ClientDTO> getClients();
 
+  /**
+   * Retrieves a client by their Social Security Number, with one indexed lookup on the SSN blind index.
+   *
+   * @param ssn the Social Security Number of the client
+   * @return the client data transfer object
+   * @throws net.javaguides.cms.exception.ResourceNotFoundException if no client holds this SSN
+   */
+  ClientDTO getClientBySsn(String ssn);
+
+  /**
+   * Retrieves the clients with the given ids using a single query.
+   *
+   * @param clientIds the unique identifiers of the clients to retrieve
+   * @return the clients that exist, in no particular order; ids with no client are left out
+   */
+  List<ClientDTO> getClientsByIds(Collection<Long> clientIds);
+
   /**
    * Updates the existing client's information with the provided updated data.
    *
@@ -42,6 +61,15 @@ public interface ClientService {
    */
   ClientDTO updateClient(Long clientId, ClientDTO updatedClient);
 
+  /**
+   * Applies partial changes to many clients at once. Only the first name, last name and email of each
+   * item are applied, and only when they are not null. Changes are committed in chunks.
+   *
+   * @param updates the changes, each identifying its client by id
+   * @return one result per change, in the same order
+   */
+  List<BatchItemResult> updateClients(List<ClientDTO> updates);
+
   /**
    * Deletes a client from the system based on the client's ID. Typically restricted to employee use.
    *
@@ -65,6 +93,16 @@ public interface ClientService {
    */
   ClientDTO updateStatusToRejected(Long clientId);
 
+  /**
+   * Leases the next pending clients to a reviewer. Clients leased to another reviewer are skipped
+   * until their lease expires, and approving or rejecting a client completes its lease.
+   *
+   * @param reviewer the username of the reviewer claiming work
+   * @param count the number of clients wanted, capped by {@code cms.review.max-claim}
+   * @return the leased clients in id order, fewer than requested if the queue runs out
+   */
+  List<ClientDTO> claimForReview(String reviewer, int count);
+
 
   /**
    * Changes the password of a client.
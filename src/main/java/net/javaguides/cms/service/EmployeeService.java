@@ -1,6 +1,8 @@
 package net.javaguides.cms.service;
 
+import java.util.Collection;
 import java.util.List;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.EmployeeDto;
 import net.javaguides.cms.dto.PasswordChangeDto;
 
@@ -32,6 +34,15 @@ public interface EmployeeService {
 
   List<EmployeeDto> getEmployees();
 
+  /**
+   * Retrieves the employees with the given ids using a single query.
+   *
+   * @param employeeIds The unique identifiers of the employees to retrieve.
+   * @return The employees that exist, in no particular order; ids with no employee are left out.
+   */
+
+  List<EmployeeDto> getEmployeesByIds(Collection<Long> employeeIds);
+
   /**
    * Updates the details of an existing employee.
    *
@@ -42,6 +53,16 @@ public interface EmployeeService {
 
   EmployeeDto updateEmployee(Long clientId, EmployeeDto updatedClient);
 
+  /**
+   * Applies partial changes to many employees at once. Only the first name, last name and department
+   * of each item are applied, and only when they are not null. Changes are committed in chunks.
+   *
+   * @param updates The changes, each identifying its employee by id.
+   * @return One result per change, in the same order.
+   */
+
+  List<BatchItemResult> updateEmployees(List<EmployeeDto> updates);
+
   /**
    * Deletes an employee by their ID.
    *
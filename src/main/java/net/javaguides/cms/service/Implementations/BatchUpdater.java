@@ -0,0 +1,139 @@
+package net.javaguides.cms.service.Implementations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.dto.BatchItemResult;
+import net.javaguides.cms.dto.BatchItemResult.Outcome;
+import net.javaguides.cms.entity.User;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Applies a list of partial changes to existing entities in chunked transactions.
+ *
+ * <p>Each chunk loads its entities with one {@code IN} query, applies the changes and flushes once,
+ * so Hibernate sends the UPDATE statements as JDBC batches ({@code hibernate.jdbc.batch_size},
+ * ordered by {@code hibernate.order_updates}). Chunks commit independently. If a chunk fails,
+ * its items are retried one by one so that a single bad item does not fail its neighbours.
+ * A change that carries a version is only applied while its entity still holds that version.
+ */
+@Slf4j
+@Component
+public class BatchUpdater {
+
+  /**
+   * The maximum number of items accepted by one batch request.
+   */
+  public static final int MAX_ITEMS = 10_000;
+
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+
+  public BatchUpdater(TransactionTemplate transactionTemplate,
+      @Value("${cms.batch.chunk-size:500}") int chunkSize) {
+    this.transactionTemplate = transactionTemplate;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Applies the changes and reports one result per change, in the same order.
+   *
+   * @param changes the partial changes, each identifying its target by id.
+   * @param idOf extracts the target id of a change.
+   * @param versionOf extracts the version a change was based on, or null when it does not track versions.
+   * @param repository loads the target entities.
+   * @param apply copies the supplied fields of a change onto its entity.
+   * @param afterCommit receives each updated entity once its chunk has committed.
+   * @return the outcome of each change.
+   */
+  public <C, E extends User> List<BatchItemResult> update(List<C> changes, Function<C, Long> idOf,
+      Function<C, Long> versionOf, JpaRepository<E, Long> repository, BiConsumer<E, C> apply, Consumer<E> afterCommit) {
+    validate(changes, idOf);
+    List<BatchItemResult> results = new ArrayList<>(changes.size());
+    for (int start = 0; start < changes.size(); start += chunkSize) {
+      List<C> chunk = changes.subList(start, Math.min(start + chunkSize, changes.size()));
+      try {
+        results.addAll(updateChunk(chunk, idOf, versionOf, repository, apply, afterCommit));
+      } catch (RuntimeException e) {
+        log.warn("Batch chunk of {} items failed, retrying items individually: {}", chunk.size(), e.getMessage());
+        for (C change : chunk) {
+          try {
+            results.addAll(updateChunk(List.of(change), idOf, versionOf, repository, apply, afterCommit));
+          } catch (RuntimeException itemFailure) {
+            results.add(new BatchItemResult(idOf.apply(change), Outcome.FAILED, describe(itemFailure)));
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private <C, E extends User> List<BatchItemResult> updateChunk(List<C> chunk, Function<C, Long> idOf,
+      Function<C, Long> versionOf, JpaRepository<E, Long> repository, BiConsumer<E, C> apply, Consumer<E> afterCommit) {
+    List<E> updated = new ArrayList<>(chunk.size());
+    List<BatchItemResult> results = transactionTemplate.execute(status -> {
+      Map<Long, E> entities = new HashMap<>();
+      List<Long> ids = chunk.stream().map(idOf).toList();
+      for (E entity : repository.findAllById(ids)) {
+        entities.put(entity.getId(), entity);
+      }
+      List<BatchItemResult> chunkResults = new ArrayList<>(chunk.size());
+      for (C change : chunk) {
+        Long id = idOf.apply(change);
+        E entity = entities.get(id);
+        Long expectedVersion = versionOf.apply(change);
+        if (entity == null) {
+          chunkResults.add(new BatchItemResult(id, Outcome.NOT_FOUND, null));
+        } else if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+          chunkResults.add(new BatchItemResult(id, Outcome.FAILED, "The record was modified concurrently"));
+        } else {
+          apply.accept(entity, change);
+          updated.add(entity);
+          chunkResults.add(new BatchItemResult(id, Outcome.UPDATED, null));
+        }
+      }
+      repository.flush();
+      return chunkResults;
+    });
+    updated.forEach(afterCommit);
+    return results;
+  }
+
+  private static <C> void validate(List<C> changes, Function<C, Long> idOf) {
+    if (changes.size() > MAX_ITEMS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_ITEMS + " items can be updated at once");
+    }
+    Set<Long> seen = new HashSet<>();
+    for (C change : changes) {
+      Long id = idOf.apply(change);
+      if (id == null || !seen.add(id)) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every item needs a distinct id");
+      }
+    }
+  }
+
+  //keep database details such as other users' values out of the response
+  private static String describe(RuntimeException e) {
+    if (e instanceof DataIntegrityViolationException) {
+      return "Conflicts with an existing record or violates a constraint";
+    }
+    if (e instanceof OptimisticLockingFailureException) {
+      return "The record was modified concurrently";
+    }
+    return "The update could not be applied";
+  }
+}
@@ -1,52 +1,102 @@
 package net.javaguides.cms.service.Implementations;
 
-import java.util.Arrays;
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.AllArgsConstructor;
 import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.Enums.UserRole;
+import net.javaguides.cms.concurrency.RetryOnConflict;
+import net.javaguides.cms.concurrency.SingleFlight;
+import net.javaguides.cms.concurrency.SingleFlightAspect;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.datasource.ShardRouted;
+import net.javaguides.cms.datasource.ShardRouted.Mode;
 import java.util.List;
 import java.util.stream.Collectors;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.ClientDTO;
 import net.javaguides.cms.dto.PasswordChangeDto;
 import net.javaguides.cms.entity.Client;
-import net.javaguides.cms.entity.Role;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import net.javaguides.cms.exception.DuplicateResourceException;
 import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.maintenance.SoftDeleteProperties;
 import net.javaguides.cms.mapper.ClientMapper;
 import net.javaguides.cms.repository.ClientRepository;
-import net.javaguides.cms.repository.RoleRepository;
+import net.javaguides.cms.repository.UserRepository;
+import net.javaguides.cms.resilience.ServeStaleWhenDegraded;
+import net.javaguides.cms.resilience.StaleResults;
+import net.javaguides.cms.review.ReviewQueueProperties;
+import net.javaguides.cms.security.LoginAttemptGuard;
 import net.javaguides.cms.service.ClientService;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @AllArgsConstructor
 public class ClientServiceImpl implements ClientService {
 
   private ClientRepository clientRepository;
-  private RoleRepository roleRepository;
+  private UserRepository userRepository;
   private PasswordEncoder passwordEncoder;
+  private DuplicateUserGuard duplicateUserGuard;
+  private LoginAttemptGuard loginAttemptGuard;
+  private ApplicationEventPublisher eventPublisher;
+  private BatchUpdater batchUpdater;
+  private ClientShards clientShards;
+  private SsnProtector ssnProtector;
+  private SoftDeleteProperties softDeleteProperties;
+  private ReviewQueueProperties reviewQueueProperties;
+  private TransactionTemplate transactionTemplate;
   //for new client
 
+  @ShardRouted(Mode.NEW_CLIENT)
   @Transactional
   @Override
   public ClientDTO createClient(ClientDTO clientDTO) {
+    //reject duplicate username, email or SSN before hashing the password
+    String ssnIndex = ssnProtector.blindIndex(clientDTO.getSSN());
+    duplicateUserGuard.checkNewUser(clientDTO.getUsername(), clientDTO.getEmail(), ssnIndex);
     Client client = ClientMapper.mapToClient(clientDTO);
+    client.setSsnIndex(ssnIndex);
 
     //initialize password
     String initialPassword = "defaultClientPassword";
     client.setPassword(passwordEncoder.encode(initialPassword));
 
-    Role clientRole = roleRepository.findByName("ROLE_CLIENT");
-    client.setRoles(new HashSet<>(Arrays.asList(clientRole)));
-    Client savedClient = clientRepository.save(client);
+    client.setRoleMask(UserRole.CLIENT.bit());
+    Client savedClient;
+    try {
+      savedClient = clientRepository.save(client);
+    } catch (DataIntegrityViolationException e) {
+      //a concurrent create took the same username, email or SSN
+      throw new DuplicateResourceException("A user already exists with the same username, email or SSN");
+    }
+    duplicateUserGuard.register(savedClient.getUsername(), savedClient.getEmail(), savedClient.getSsnIndex());
+    loginAttemptGuard.forgetMissing(savedClient.getUsername(), savedClient.getEmail());
 
-    return ClientMapper.mapToClientDto(savedClient);
-    //add error message here if someone tries to create a duplicate w/email and SSN
+    ClientDTO savedClientDto = ClientMapper.mapToClientDto(savedClient);
+    eventPublisher.publishEvent(ClientChangedEvent.saved(savedClientDto));
+    return savedClientDto;
   }
 
 
+  @ShardRouted(Mode.BY_ID)
+  @ServeStaleWhenDegraded(StaleResults.CLIENT)
+  @SingleFlight(SingleFlightAspect.CLIENT)
+  @Transactional(readOnly = true)
   @Override
   public ClientDTO getClientById(Long clientId) {
     ClientDTO client = ClientMapper.mapToClientDto(clientRepository.findById(clientId).
@@ -56,6 +106,19 @@ public class ClientServiceImpl implements ClientService {
     return client;
   }
 
+  //the SSN is found through its blind index, one indexed lookup per shard
+  @Override
+  public ClientDTO getClientBySsn(String ssn) {
+    String ssnIndex = ssnProtector.blindIndex(ssn);
+    return clientShards.findFirst(() -> clientRepository.findBySsnIndex(ssnIndex))
+        .map(ClientMapper::mapToClientDto)
+        .orElseThrow(() -> new ResourceNotFoundException("No client exists with the given SSN"));
+  }
+
+  @ShardRouted(Mode.ALL_SHARDS)
+  @ServeStaleWhenDegraded(StaleResults.CLIENTS)
+  @SingleFlight(SingleFlightAspect.CLIENTS)
+  @Transactional(readOnly = true)
   @Override
   public List<ClientDTO> getClients() {
 
@@ -67,39 +130,118 @@ public class ClientServiceImpl implements ClientService {
     return clients.stream().map(ClientMapper::mapToClientDto).collect(Collectors.toList());
   }
 
+  @ShardRouted(Mode.ALL_SHARDS)
+  @Transactional(readOnly = true)
+  @Override
+  public List<ClientDTO> getClientsByIds(Collection<Long> clientIds) {
+    //one IN query instead of a findById per client
+    return clientRepository.findAllById(clientIds).stream()
+        .map(ClientMapper::mapToClientDto).collect(Collectors.toList());
+  }
+
 
   //if client wants to update their intake
+  @ShardRouted(Mode.BY_ID)
   @Transactional
   @Override
   public ClientDTO updateClient(Long clientId, ClientDTO updatedClient) {
-    Client client = clientRepository.findById(clientId).orElseThrow(()->
-        new ResourceNotFoundException("Client does not exist with given id"));
+    //one UPDATE touching only the supplied columns, then a re-read of the row
+    String currentEmail = null;
+    if (updatedClient.getEmail() != null) {
+      currentEmail = userRepository.findEmailById(clientId).orElse(null);
+      duplicateUserGuard.checkEmailChange(currentEmail, updatedClient.getEmail());
+    }
+    int updated;
+    try {
+      updated = clientRepository.updateProfile(clientId, updatedClient.getFirstName(),
+          updatedClient.getLastName(), updatedClient.getEmail(), updatedClient.getVersion());
+    } catch (DataIntegrityViolationException e) {
+      throw new DuplicateResourceException("A user already exists with the same email");
+    }
+    if (updated == 0) {
+      if (updatedClient.getVersion() != null && clientRepository.existsById(clientId)) {
+        throw new ConcurrentUpdateException("The client was modified concurrently, reload it and try again");
+      }
+      throw new ResourceNotFoundException("Client does not exist with given id");
+    }
+    if (currentEmail != null) {
+      duplicateUserGuard.changeEmail(currentEmail, updatedClient.getEmail());
+    }
 
-    client.setFirstName(updatedClient.getFirstName());
-    client.setLastName(updatedClient.getLastName());
-    client.setEmail(updatedClient.getEmail());
+    ClientDTO updatedClientDto = clientRepository.findById(clientId).map(ClientMapper::mapToClientDto).orElseThrow(()->
+        new ResourceNotFoundException("Client does not exist with given id"));
+    eventPublisher.publishEvent(ClientChangedEvent.saved(updatedClientDto));
+    return updatedClientDto;
+  }
 
-    //save this client object with save method
-    //performs save and update operations
-    Client updatedClientObject = clientRepository.save(client);
-    return ClientMapper.mapToClientDto((updatedClientObject));
+  //applies back-office corrections in chunked, JDBC-batched transactions, per shard
+  @Override
+  public List<BatchItemResult> updateClients(List<ClientDTO> updates) {
+    Map<Long, BatchItemResult> resultsById = new HashMap<>();
+    Map<Integer, List<Long>> idsByShard = clientShards.partition(updates.stream().map(ClientDTO::getId).toList());
+    Map<Long, ClientDTO> updatesById = new HashMap<>();
+    updates.forEach(update -> updatesById.put(update.getId(), update));
+    idsByShard.forEach((shard, ids) -> clientShards.callOn(shard, () -> {
+      List<ClientDTO> shardUpdates = ids.stream().map(updatesById::get).toList();
+      batchUpdater.update(shardUpdates, ClientDTO::getId, ClientDTO::getVersion, clientRepository, (client, update) -> {
+        if (update.getFirstName() != null) {
+          client.setFirstName(update.getFirstName());
+        }
+        if (update.getLastName() != null) {
+          client.setLastName(update.getLastName());
+        }
+        if (update.getEmail() != null) {
+          duplicateUserGuard.checkEmailChange(client.getEmail(), update.getEmail());
+          duplicateUserGuard.changeEmail(client.getEmail(), update.getEmail());
+          client.setEmail(update.getEmail());
+        }
+      }, client -> eventPublisher.publishEvent(ClientChangedEvent.saved(ClientMapper.mapToClientDto(client))))
+          .forEach(result -> resultsById.put(result.getId(), result));
+      return null;
+    }));
+    return updates.stream().map(update -> resultsById.get(update.getId())).collect(Collectors.toList());
   }
 
+  @ShardRouted(Mode.BY_ID)
+  @RetryOnConflict
+  @Transactional
   @Override
   public void deleteClient(Long clientId) {
-    clientRepository.deleteById(clientId);
+    if (softDeleteProperties.isEnabled()) {
+      //one UPDATE; the rows are removed later by DeletedUserPurger
+      if (clientRepository.markDeleted(clientId) > 0) {
+        eventPublisher.publishEvent(ClientChangedEvent.deleted(clientId));
+      }
+      return;
+    }
+    clientRepository.findById(clientId).ifPresent(client -> {
+      //the keys stay in the duplicate filters until their next rebuild, costing a database check meanwhile
+      clientRepository.delete(client);
+      eventPublisher.publishEvent(ClientChangedEvent.deleted(clientId));
+    });
   }
 
+  //setting a status does not depend on what else changed, so conflicts are retried
+  @ShardRouted(Mode.BY_ID)
+  @RetryOnConflict
+  @Transactional
   @Override
   public ClientDTO updateStatusToApproved(Long clientId) {
     Client client = clientRepository.findById(clientId)
         .orElseThrow(()->new ResourceNotFoundException("This client is not in our system"));
 
     client.setStatus(Status.Approved);
-    return ClientMapper.mapToClientDto(client);
+    completeReviewLease(client);
+    //flush so the version check runs here and the response carries the new version
+    clientRepository.flush();
+    ClientDTO clientDto = ClientMapper.mapToClientDto(client);
+    eventPublisher.publishEvent(ClientChangedEvent.saved(clientDto));
+    return clientDto;
   }
 
 
+  @ShardRouted(Mode.BY_ID)
+  @RetryOnConflict
   @Transactional
   @Override
   public ClientDTO updateStatusToRejected(Long clientId) {
@@ -107,9 +249,41 @@ public class ClientServiceImpl implements ClientService {
         .orElseThrow(()->new ResourceNotFoundException("This client is not in our system"));
 
     client.setStatus(Status.Rejected);
-    return ClientMapper.mapToClientDto(client);
+    completeReviewLease(client);
+    clientRepository.flush();
+    ClientDTO clientDto = ClientMapper.mapToClientDto(client);
+    eventPublisher.publishEvent(ClientChangedEvent.saved(clientDto));
+    return clientDto;
+  }
+
+  //each shard claims in its own short transaction; SKIP LOCKED keeps concurrent claims apart
+  @Override
+  public List<ClientDTO> claimForReview(String reviewer, int count) {
+    int wanted = Math.min(count, reviewQueueProperties.getMaxClaim());
+    List<ClientDTO> claimed = new ArrayList<>();
+    for (int shard = 0; shard < clientShards.count() && claimed.size() < wanted; shard++) {
+      int limit = wanted - claimed.size();
+      claimed.addAll(clientShards.callOn(shard, () -> transactionTemplate.execute(status -> {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = clientRepository.lockClaimableForReview(Status.Pending.ordinal(), now, limit);
+        if (ids.isEmpty()) {
+          return List.<ClientDTO>of();
+        }
+        clientRepository.leaseForReview(ids, reviewer, now.plusMinutes(reviewQueueProperties.getLeaseMinutes()));
+        return clientRepository.findAllById(ids).stream().map(ClientMapper::mapToClientDto).toList();
+      })));
+    }
+    claimed.sort(Comparator.comparing(ClientDTO::getId));
+    return claimed;
+  }
+
+  private static void completeReviewLease(Client client) {
+    client.setReviewLeaseOwner(null);
+    client.setReviewLeaseUntil(null);
   }
 
+  @ShardRouted(Mode.BY_ID)
+  @RetryOnConflict(attempts = 1)
   @Transactional
   @Override
   public boolean changePassword(Long id, PasswordChangeDto passwordChangeDto) {
@@ -1,24 +1,35 @@
 package net.javaguides.cms.service.Implementations;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
+import net.javaguides.cms.Enums.UserRole;
+import net.javaguides.cms.concurrency.RetryOnConflict;
+import net.javaguides.cms.concurrency.SingleFlight;
+import net.javaguides.cms.concurrency.SingleFlightAspect;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.ClientDTO;
 import net.javaguides.cms.dto.EmployeeDto;
 import net.javaguides.cms.dto.PasswordChangeDto;
 import net.javaguides.cms.entity.Client;
 import net.javaguides.cms.entity.Employee;
-import net.javaguides.cms.entity.Role;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import net.javaguides.cms.exception.DuplicateResourceException;
 import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.maintenance.SoftDeleteProperties;
 import net.javaguides.cms.mapper.ClientMapper;
 import net.javaguides.cms.mapper.EmployeeMapper;
 import net.javaguides.cms.repository.EmployeeRepository;
-import net.javaguides.cms.repository.RoleRepository;
+import net.javaguides.cms.resilience.ServeStaleWhenDegraded;
+import net.javaguides.cms.resilience.StaleResults;
+import net.javaguides.cms.security.LoginAttemptGuard;
 import net.javaguides.cms.service.EmployeeService;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -29,8 +40,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class EmployeeServiceImpl implements EmployeeService {
 
   private EmployeeRepository employeeRepository;
-  private RoleRepository roleRepository;
   private PasswordEncoder passwordEncoder;
+  private DuplicateUserGuard duplicateUserGuard;
+  private LoginAttemptGuard loginAttemptGuard;
+  private BatchUpdater batchUpdater;
+  private SoftDeleteProperties softDeleteProperties;
+  private ApplicationEventPublisher eventPublisher;
 
   /**
    * Initializes the admin account at application start-up.
@@ -39,7 +54,8 @@ public class EmployeeServiceImpl implements EmployeeService {
    * user does not exist, it creates a new admin user with predefined attributes and a strong encoded password.
    * The new admin user is then saved to the repository.
    *
-   * If an admin user already exists, the method simply returns without making any changes.
+   * If an admin user already exists, the method simply returns without making any changes. A soft-deleted
+   * admin counts as existing, since its row still holds the unique username until it is purged.
    */
 
   @PostConstruct
@@ -57,9 +73,7 @@ public class EmployeeServiceImpl implements EmployeeService {
     admin.setLastName("User");
     admin.setPassword(passwordEncoder.encode("strongAdminPassword"));
     admin.setDepartment("IT");
-    Role adminRole = roleRepository.findByName("ADMIN");
-
-    admin.setRoles(new HashSet<>(Collections.singletonList(adminRole)));
+    admin.setRoleMask(UserRole.ADMIN.bit());
 
     employeeRepository.save(admin);
   }
@@ -68,19 +82,33 @@ public class EmployeeServiceImpl implements EmployeeService {
   @Override
   @Transactional
   public EmployeeDto createEmployee(EmployeeDto employeeDto) {
+    //reject duplicate username or email before hashing the password
+    duplicateUserGuard.checkNewUser(employeeDto.getUsername(), employeeDto.getEmail(), null);
     Employee employee = EmployeeMapper.mapToEmployee(employeeDto);
 
     String initialPassword = "defaultEmployeePassword";  // This should be securely generated or set
     employee.setPassword(passwordEncoder.encode(initialPassword));
 
-    Role employeeRole = roleRepository.findByName("ROLE_EMPLOYEE");
-    employee.setRoles(new HashSet<>(Arrays.asList(employeeRole)));
-    Employee savedEmployee = employeeRepository.save(employee);
+    employee.setRoleMask(UserRole.EMPLOYEE.bit());
+    Employee savedEmployee;
+    try {
+      savedEmployee = employeeRepository.save(employee);
+    } catch (DataIntegrityViolationException e) {
+      //a concurrent create took the same username or email
+      throw new DuplicateResourceException("A user already exists with the same username or email");
+    }
+    duplicateUserGuard.register(savedEmployee.getUsername(), savedEmployee.getEmail(), null);
+    loginAttemptGuard.forgetMissing(savedEmployee.getUsername(), savedEmployee.getEmail());
 
-    return EmployeeMapper.mapToEmployeeDto(savedEmployee);
+    EmployeeDto savedEmployeeDto = EmployeeMapper.mapToEmployeeDto(savedEmployee);
+    eventPublisher.publishEvent(EmployeeChangedEvent.saved(savedEmployeeDto));
+    return savedEmployeeDto;
   }
 
   @Override
+  @ServeStaleWhenDegraded(StaleResults.EMPLOYEE)
+  @SingleFlight(SingleFlightAspect.EMPLOYEE)
+  @Transactional(readOnly = true)
   public EmployeeDto getEmployeeById(Long employeeId) {
     EmployeeDto employeeDto = EmployeeMapper.mapToEmployeeDto(employeeRepository.findById(employeeId).
         orElseThrow(()->new ResourceNotFoundException("Employee does not exist by the given id "
@@ -90,7 +118,9 @@ public class EmployeeServiceImpl implements EmployeeService {
   }
 
   @Override
-
+  @ServeStaleWhenDegraded(StaleResults.EMPLOYEES)
+  @SingleFlight(SingleFlightAspect.EMPLOYEES)
+  @Transactional(readOnly = true)
   public List<EmployeeDto> getEmployees() {
     List<Employee> employees = employeeRepository.findAll();
 
@@ -98,34 +128,76 @@ public class EmployeeServiceImpl implements EmployeeService {
     return employees.stream().map(EmployeeMapper::mapToEmployeeDto).collect(Collectors.toList());
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public List<EmployeeDto> getEmployeesByIds(Collection<Long> employeeIds) {
+    //one IN query instead of a findById per employee
+    return employeeRepository.findAllById(employeeIds).stream()
+        .map(EmployeeMapper::mapToEmployeeDto).collect(Collectors.toList());
+  }
+
   @Override
   @Transactional
   public EmployeeDto updateEmployee(Long employeeId, EmployeeDto updatedClient) {
-    Employee employee = employeeRepository.findById(employeeId).orElseThrow(()->
-        new ResourceNotFoundException("Client does not exist with given id"));
-
-    employee.setFirstName(updatedClient.getFirstName());
-    employee.setLastName(updatedClient.getLastName());
+    //one UPDATE touching only the supplied columns, then a roles-free re-read of the row
+    int updated = employeeRepository.updateProfile(employeeId, updatedClient.getFirstName(),
+        updatedClient.getLastName(), updatedClient.getDepartment(), updatedClient.getVersion());
+    if (updated == 0) {
+      if (updatedClient.getVersion() != null && employeeRepository.existsById(employeeId)) {
+        throw new ConcurrentUpdateException("The employee was modified concurrently, reload it and try again");
+      }
+      throw new ResourceNotFoundException("Employee does not exist with given id " + employeeId);
+    }
     //employee.setUsername(updatedClient.getUsername());
    // employee.setEmail(updatedClient.getEmail());
-    employee.setDepartment(updatedClient.getDepartment());
-    Employee updatedEmployeeObject = employeeRepository.save(employee);
-    return EmployeeMapper.mapToEmployeeDto((updatedEmployeeObject));
+    EmployeeDto updatedEmployeeDto = employeeRepository.findDtoById(employeeId).orElseThrow(()->
+        new ResourceNotFoundException("Employee does not exist with given id " + employeeId));
+    eventPublisher.publishEvent(EmployeeChangedEvent.saved(updatedEmployeeDto));
+    return updatedEmployeeDto;
+  }
+
+  //applies back-office corrections in chunked, JDBC-batched transactions
+  @Override
+  public List<BatchItemResult> updateEmployees(List<EmployeeDto> updates) {
+    return batchUpdater.update(updates, EmployeeDto::getId, EmployeeDto::getVersion, employeeRepository, (employee, update) -> {
+      if (update.getFirstName() != null) {
+        employee.setFirstName(update.getFirstName());
+      }
+      if (update.getLastName() != null) {
+        employee.setLastName(update.getLastName());
+      }
+      if (update.getDepartment() != null) {
+        employee.setDepartment(update.getDepartment());
+      }
+    }, employee -> eventPublisher.publishEvent(
+        EmployeeChangedEvent.saved(EmployeeMapper.mapToEmployeeDto(employee))));
   }
 
   @Override
+  @RetryOnConflict
   @Transactional
   public void deleteEmployee(Long employeeId) {
+    if (softDeleteProperties.isEnabled()) {
+      //one UPDATE; the rows are removed later by DeletedUserPurger
+      if (employeeRepository.markDeleted(employeeId) == 0) {
+        throw new ResourceNotFoundException("Employee not found with id: " + employeeId);
+      }
+      eventPublisher.publishEvent(EmployeeChangedEvent.deleted(employeeId));
+      return;
+    }
     Employee employee = employeeRepository.findById(employeeId)
             .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
     employee.getRoles().clear(); // Clearing roles associated with the employee
     employeeRepository.save(employee); // Save the employee to update the change
 
+    //the keys stay in the duplicate filters until their next rebuild, costing a database check meanwhile
     employeeRepository.deleteById(employeeId);
+    eventPublisher.publishEvent(EmployeeChangedEvent.deleted(employeeId));
   }
 
 
   @Override
+  @RetryOnConflict(attempts = 1)
   @Transactional
   public boolean changePassword(Long employeeId, PasswordChangeDto passwordChangeDto) {
     Employee employee = employeeRepository.findById(employeeId)
@@ -0,0 +1,92 @@
+package net.javaguides.cms.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Bloom filter over strings that also supports removal, by keeping a small saturating
+ * counter per slot instead of a single bit.
+ *
+ * <p>{@link #mightContain(String)} never returns false for a key that was added and not removed,
+ * so a negative answer is definite. A positive answer only means the key may be present.
+ * Reads are lock-free; writes are serialized, which suits a workload of frequent checks and rare inserts.
+ */
+public class CountingBloomFilter {
+
+  private static final int MAX_COUNT = 0xFF;
+
+  private final byte[] counters;
+  private final int hashFunctions;
+
+  /**
+   * Sizes the filter for the expected number of keys and the desired false positive rate.
+   *
+   * @param expectedInsertions how many keys the filter is expected to hold.
+   * @param falsePositiveRate the acceptable probability of a false positive, e.g. 0.01.
+   */
+  public CountingBloomFilter(int expectedInsertions, double falsePositiveRate) {
+    long slots = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.counters = new byte[(int) Math.max(64, Math.min(slots, Integer.MAX_VALUE - 8))];
+    this.hashFunctions = Math.max(1, (int) Math.round((double) counters.length / expectedInsertions * Math.log(2)));
+  }
+
+  /**
+   * @return false if the key is definitely absent, true if it may be present.
+   */
+  public boolean mightContain(String key) {
+    long hash = hash64(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashFunctions; i++) {
+      if (counters[slot(h1, h2, i)] == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public synchronized void add(String key) {
+    long hash = hash64(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashFunctions; i++) {
+      int slot = slot(h1, h2, i);
+      int count = counters[slot] & 0xFF;
+      if (count < MAX_COUNT) {
+        counters[slot] = (byte) (count + 1);
+      }
+    }
+  }
+
+  /**
+   * Removes a key that was previously added. Saturated counters are never decremented,
+   * since their true count is unknown.
+   */
+  public synchronized void remove(String key) {
+    long hash = hash64(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashFunctions; i++) {
+      int slot = slot(h1, h2, i);
+      int count = counters[slot] & 0xFF;
+      if (count > 0 && count < MAX_COUNT) {
+        counters[slot] = (byte) (count - 1);
+      }
+    }
+  }
+
+  private int slot(int h1, int h2, int i) {
+    return Math.floorMod(h1 + i * h2, counters.length);
+  }
+
+  // FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer to spread the high bits
+  private static long hash64(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+}
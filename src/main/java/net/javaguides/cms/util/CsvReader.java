@@ -0,0 +1,120 @@
+package net.javaguides.cms.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 comma-separated values one record at a time, so memory use does not grow with the input.
+ * Fields may be quoted; quoted fields can contain commas, line breaks and doubled quotes.
+ */
+public class CsvReader implements Closeable {
+
+  /**
+   * The longest record accepted, in characters. It bounds memory when a quote is never closed.
+   */
+  public static final int MAX_RECORD_CHARS = 64 * 1024;
+
+  private final Reader reader;
+  private int pushedBack = -2;
+  private long line = 1;
+  private long recordLine;
+
+  /**
+   * @param reader the characters to parse; buffering is up to the caller.
+   */
+  public CsvReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the fields of the record, or null at the end of the input.
+   * @throws IOException if reading fails, or the record is malformed or longer than {@link #MAX_RECORD_CHARS}.
+   */
+  public List<String> next() throws IOException {
+    int c = read();
+    if (c == -1) {
+      return null;
+    }
+    recordLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    int recordChars = 0;
+    boolean quoted = false;
+    boolean afterQuote = false;
+    while (true) {
+      if (++recordChars > MAX_RECORD_CHARS) {
+        throw new IOException("Record at line " + recordLine + " is longer than " + MAX_RECORD_CHARS + " characters");
+      }
+      if (quoted) {
+        if (c == -1) {
+          throw new IOException("Unterminated quoted field in record at line " + recordLine);
+        }
+        if (c == '"') {
+          int following = read();
+          if (following == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            afterQuote = true;
+            c = following;
+            continue;
+          }
+        } else {
+          if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+        afterQuote = false;
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        if (c == '\r') {
+          int following = read();
+          if (following != '\n') {
+            pushedBack = following;
+          }
+        }
+        if (c != -1) {
+          line++;
+        }
+        fields.add(field.toString());
+        return fields;
+      } else if (c == '"' && field.length() == 0 && !afterQuote) {
+        quoted = true;
+      } else if (afterQuote) {
+        throw new IOException("Unexpected character after a quoted field in record at line " + recordLine);
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * @return the line on which the record returned by the last {@link #next()} call started.
+   */
+  public long getRecordLine() {
+    return recordLine;
+  }
+
+  private int read() throws IOException {
+    if (pushedBack != -2) {
+      int c = pushedBack;
+      pushedBack = -2;
+      return c;
+    }
+    return reader.read();
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,53 @@
+package net.javaguides.cms.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes RFC 4180 comma-separated values, quoting only the fields that need it.
+ */
+public class CsvWriter implements Closeable {
+
+  private final Writer writer;
+
+  /**
+   * @param writer where the records are written; buffering is up to the caller.
+   */
+  public CsvWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Writes one record followed by a CRLF line break.
+   *
+   * @param fields the fields of the record; null fields are written empty.
+   * @throws IOException if writing fails.
+   */
+  public void writeRecord(List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      String field = fields.get(i) == null ? "" : fields.get(i);
+      if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+      } else {
+        writer.write(field);
+      }
+    }
+    writer.write("\r\n");
+  }
+
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
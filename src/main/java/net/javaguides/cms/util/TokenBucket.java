@@ -0,0 +1,62 @@
+package net.javaguides.cms.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free token bucket. Tokens refill continuously at a fixed rate up to the capacity,
+ * and each permitted request takes one token.
+ */
+public class TokenBucket {
+
+  private final long capacity;
+  private final double refillPerNano;
+  private final AtomicReference<State> state;
+
+  /**
+   * @param capacity the maximum burst size.
+   * @param refillPerSecond how many tokens are added per second.
+   */
+  public TokenBucket(long capacity, double refillPerSecond) {
+    this.capacity = capacity;
+    this.refillPerNano = refillPerSecond / 1_000_000_000d;
+    this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+  }
+
+  /**
+   * Takes a token if one is available.
+   *
+   * @return true if the request is permitted.
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      State current = state.get();
+      long now = System.nanoTime();
+      double tokens = Math.min(capacity, current.tokens + (now - current.updatedAt) * refillPerNano);
+      if (tokens < 1) {
+        return false;
+      }
+      if (state.compareAndSet(current, new State(tokens - 1, now))) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @return how many whole seconds until the next token is available.
+   */
+  public long secondsUntilNextToken() {
+    State current = state.get();
+    double missing = 1 - Math.min(capacity, current.tokens + (System.nanoTime() - current.updatedAt) * refillPerNano);
+    return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano / 1_000_000_000d);
+  }
+
+  /**
+   * @return the time of the last permitted request, from {@link System#nanoTime()}.
+   */
+  public long lastUsedAt() {
+    return state.get().updatedAt;
+  }
+
+  private record State(double tokens, long updatedAt) {
+  }
+}
@@ -0,0 +1,271 @@
+package net.javaguides.cms.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.datasource.UserKeyLocks;
+import net.javaguides.cms.exception.DuplicateResourceException;
+import net.javaguides.cms.repository.ClientRepository;
+import net.javaguides.cms.repository.UserRepository;
+import net.javaguides.cms.util.CountingBloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Rejects duplicate users before any expensive work (password hashing, inserts) is done.
+ *
+ * <p>In-memory Bloom filters are kept over the unique keys of the {@code users} and {@code clients}
+ * tables: username, email and the blind index of the SSN (see
+ * {@link net.javaguides.cms.crypto.SsnProtector#blindIndex(String)}), so no plaintext SSN is held. A key the filter has never seen is definitely new and needs no
+ * database round trip. A key the filter may have seen is confirmed with an indexed existence query.
+ * Usernames and emails are compared case-insensitively, like MySQL's default collation.
+ *
+ * <p>The filters are loaded once the application is ready; until then every key is checked in the
+ * database. The unique constraints remain the final authority for concurrent creates. Soft-deleted users
+ * keep their keys until they are purged, so they are loaded and checked like live ones.
+ *
+ * <p>Keys are never removed one by one: a key this instance did not add, such as one created by another
+ * instance, cannot be removed without taking counts from other keys. Instead the filters are rebuilt
+ * from the database on {@code cms.dedup.rebuild-cron} and after deleted users are purged; until then a
+ * released key only costs a database check.
+ *
+ * <p>When clients are sharded the unique constraints of one shard cannot see the others, so inside a
+ * transaction the keys are first locked across shards with {@link UserKeyLocks} and then always checked
+ * in every shard; another instance's filter may not know a key this one has never seen.
+ */
+@Slf4j
+@Component
+public class DuplicateUserGuard {
+
+  private final UserRepository userRepository;
+  private final ClientRepository clientRepository;
+  private final ClientShards clientShards;
+  private final UserKeyLocks userKeyLocks;
+  private final int expectedUsers;
+  private final double falsePositiveRate;
+  private volatile Filters filters;
+  //set while a rebuild reads the database, so keys registered meanwhile reach the new filters too
+  private volatile Filters rebuilding;
+  private volatile boolean loaded;
+
+  public DuplicateUserGuard(UserRepository userRepository, ClientRepository clientRepository,
+      ClientShards clientShards, UserKeyLocks userKeyLocks,
+      @Value("${cms.dedup.expected-users:200000}") int expectedUsers,
+      @Value("${cms.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+    this.userRepository = userRepository;
+    this.clientRepository = clientRepository;
+    this.clientShards = clientShards;
+    this.userKeyLocks = userKeyLocks;
+    this.expectedUsers = expectedUsers;
+    this.falsePositiveRate = falsePositiveRate;
+    this.filters = newFilters();
+  }
+
+  /**
+   * Loads the existing keys of every shard, including those of soft-deleted users, into new filters and
+   * swaps them in.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void load() {
+    Filters loading = newFilters();
+    rebuilding = loading;
+    try {
+      for (List<Object[]> rows : clientShards.onAllShards(userRepository::findAllUsernamesAndEmails)) {
+        for (Object[] row : rows) {
+          addIfPresent(loading.usernames(), normalize((String) row[0]));
+          addIfPresent(loading.emails(), normalize((String) row[1]));
+        }
+      }
+      for (List<String> shardSsnIndexes : clientShards.onAllShards(clientRepository::findAllSsnIndexes)) {
+        shardSsnIndexes.forEach(ssnIndex -> addIfPresent(loading.ssnIndexes(), ssnIndex));
+      }
+      filters = loading;
+    } finally {
+      rebuilding = null;
+    }
+    loaded = true;
+    log.info("Duplicate user filters loaded");
+  }
+
+  /**
+   * Rebuilds the filters, dropping the keys of users that no longer exist or changed their email.
+   */
+  @Scheduled(cron = "${cms.dedup.rebuild-cron:0 30 * * * *}")
+  public void rebuild() {
+    if (loaded) {
+      load();
+    }
+  }
+
+  /**
+   * Verifies that none of the given keys is already taken.
+   *
+   * @param username the username of the new user.
+   * @param email the email of the new user.
+   * @param ssnIndex the blind index of the SSN of the new client, or null for employees.
+   * @throws DuplicateResourceException if any of the keys belongs to an existing user.
+   */
+  public void checkNewUser(String username, String email, String ssnIndex) {
+    String normalizedUsername = normalize(username);
+    String normalizedEmail = normalize(email);
+    if (userKeyLocks.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()) {
+      userKeyLocks.lockUntilTransactionEnds(keys(List.of(normalizedUsername), List.of(normalizedEmail),
+          ssnIndex == null ? List.of() : List.of(ssnIndex)));
+    }
+    Filters current = filters;
+    if (isTaken(current.usernames(), normalizedUsername, () -> existsOnAnyShard(() -> userRepository.existsByUsername(username)))) {
+      throw new DuplicateResourceException("A user already exists with username " + username);
+    }
+    if (isTaken(current.emails(), normalizedEmail, () -> existsOnAnyShard(() -> userRepository.existsByEmail(email)))) {
+      throw new DuplicateResourceException("A user already exists with email " + email);
+    }
+    if (isTaken(current.ssnIndexes(), ssnIndex, () -> existsOnAnyShard(() -> clientRepository.existsBySsnIndex(ssnIndex)))) {
+      throw new DuplicateResourceException("A client already exists with this SSN");
+    }
+  }
+
+  /**
+   * Confirms that none of the keys of users inserted together is taken on any shard, locking them until the
+   * current transaction completes. Call it inside the inserting transaction. Does nothing when clients are
+   * not sharded, where the unique constraints reject duplicates on insert.
+   *
+   * @throws DuplicateResourceException if any of the keys belongs to an existing user.
+   */
+  public void confirmAcrossShards(Collection<String> usernames, Collection<String> emails,
+      Collection<String> ssnIndexes) {
+    if (!userKeyLocks.isEnabled()) {
+      return;
+    }
+    List<String> normalizedUsernames = usernames.stream().map(DuplicateUserGuard::normalize).toList();
+    List<String> normalizedEmails = emails.stream().map(DuplicateUserGuard::normalize).toList();
+    userKeyLocks.lockUntilTransactionEnds(keys(normalizedUsernames, normalizedEmails, ssnIndexes));
+    if (anyOnAnyShard(usernames, userRepository::findExistingUsernames)
+        || anyOnAnyShard(emails, userRepository::findExistingEmails)
+        || anyOnAnyShard(ssnIndexes, clientRepository::findExistingSsnIndexes)) {
+      throw new DuplicateResourceException("A user already exists with one of the usernames, emails or SSNs");
+    }
+  }
+
+  /**
+   * Verifies that a user's email can be changed to a new one. When clients are not sharded this is left to
+   * the unique constraint on update; when they are, the new email is locked and checked on every shard.
+   *
+   * @param currentEmail the email the user holds now.
+   * @param newEmail the requested email, or null to keep the current one.
+   * @throws DuplicateResourceException if the new email belongs to another user.
+   */
+  public void checkEmailChange(String currentEmail, String newEmail) {
+    if (newEmail == null || normalize(newEmail).equals(normalize(currentEmail)) || !userKeyLocks.isEnabled()) {
+      return;
+    }
+    userKeyLocks.lockUntilTransactionEnds(keys(List.of(), List.of(normalize(newEmail)), List.of()));
+    if (existsOnAnyShard(() -> userRepository.existsByEmail(newEmail))) {
+      throw new DuplicateResourceException("A user already exists with email " + newEmail);
+    }
+  }
+
+  /**
+   * Records the new email of a user. It is recorded at once, so it is checked in the database while the
+   * change commits, and removed again if the change rolls back. The old email stays in the filter until
+   * the next rebuild.
+   *
+   * @param oldEmail the email the user held.
+   * @param newEmail the email being written, or null when it does not change.
+   */
+  public void changeEmail(String oldEmail, String newEmail) {
+    String normalizedOld = normalize(oldEmail);
+    String normalizedNew = normalize(newEmail);
+    if (normalizedNew == null || normalizedNew.equals(normalizedOld)) {
+      return;
+    }
+    Filters added = add(null, normalizedNew, null);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        //only the filters the email was added to; a rebuild since then read the rolled back state
+        if (status != STATUS_COMMITTED && added == filters) {
+          added.emails().remove(normalizedNew);
+        }
+      }
+    });
+  }
+
+  /**
+   * Records the keys of a user that has just been created.
+   */
+  public void register(String username, String email, String ssnIndex) {
+    add(normalize(username), normalize(email), ssnIndex);
+  }
+
+  //adds to the current filters, and to those being rebuilt, if any; returns the current ones
+  private Filters add(String username, String email, String ssnIndex) {
+    Filters current = filters;
+    Filters next = rebuilding;
+    for (Filters target : next == null || next == current ? List.of(current) : List.of(current, next)) {
+      addIfPresent(target.usernames(), username);
+      addIfPresent(target.emails(), email);
+      addIfPresent(target.ssnIndexes(), ssnIndex);
+    }
+    return current;
+  }
+
+  private Filters newFilters() {
+    return new Filters(new CountingBloomFilter(expectedUsers, falsePositiveRate),
+        new CountingBloomFilter(expectedUsers, falsePositiveRate),
+        new CountingBloomFilter(expectedUsers, falsePositiveRate));
+  }
+
+  private boolean isTaken(CountingBloomFilter filter, String key, BooleanSupplier existsInDatabase) {
+    if (key == null) {
+      return false;
+    }
+    if (loaded && !userKeyLocks.isEnabled() && !filter.mightContain(key)) {
+      return false;
+    }
+    return existsInDatabase.getAsBoolean();
+  }
+
+  private boolean existsOnAnyShard(BooleanSupplier query) {
+    return clientShards.onAllShards(query::getAsBoolean).contains(true);
+  }
+
+  private boolean anyOnAnyShard(Collection<String> keys, Function<Collection<String>, List<String>> findExisting) {
+    return !keys.isEmpty() && clientShards.onAllShards(() -> findExisting.apply(keys)).stream()
+        .anyMatch(existing -> !existing.isEmpty());
+  }
+
+  private static List<String> keys(Collection<String> usernames, Collection<String> emails,
+      Collection<String> ssnIndexes) {
+    List<String> keys = new ArrayList<>();
+    usernames.forEach(username -> keys.add(username == null ? null : "username:" + username));
+    emails.forEach(email -> keys.add(email == null ? null : "email:" + email));
+    ssnIndexes.forEach(ssnIndex -> keys.add(ssnIndex == null ? null : "ssn:" + ssnIndex));
+    return keys;
+  }
+
+  private static void addIfPresent(CountingBloomFilter filter, String key) {
+    if (key != null) {
+      filter.add(key);
+    }
+  }
+
+  private static String normalize(String key) {
+    return key == null ? null : key.toLowerCase(Locale.ROOT);
+  }
+
+  private record Filters(CountingBloomFilter usernames, CountingBloomFilter emails, CountingBloomFilter ssnIndexes) {
+  }
+}
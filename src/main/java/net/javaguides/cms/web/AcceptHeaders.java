@@ -0,0 +1,74 @@
+package net.javaguides.cms.web;
+
+import java.util.List;
+import java.util.Locale;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Helpers for endpoints that bypass the message converters and must honor the {@code Accept} and
+ * {@code Accept-Encoding} headers themselves.
+ */
+public final class AcceptHeaders {
+
+  private AcceptHeaders() {
+  }
+
+  /**
+   * Checks whether JSON is the caller's preferred representation, as opposed to CBOR or Smile.
+   *
+   * @param accept the value of the {@code Accept} header, or null if absent.
+   * @return true if the most specific accepted media type is compatible with JSON.
+   */
+  public static boolean prefersJson(String accept) {
+    if (accept == null || accept.isBlank()) {
+      return true;
+    }
+    List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+    MimeTypeUtils.sortBySpecificity(mediaTypes);
+    return mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+  }
+
+  /**
+   * Checks whether the caller accepts a gzip-compressed response, honoring the q-values of the
+   * {@code Accept-Encoding} header: an explicit {@code gzip} entry decides, otherwise a {@code *} entry
+   * does, and a q-value of 0 means "not acceptable".
+   *
+   * @param acceptEncoding the value of the {@code Accept-Encoding} header, or null if absent.
+   * @return true if gzip is acceptable with a q-value above 0.
+   */
+  public static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isBlank()) {
+      return false;
+    }
+    Double gzip = null;
+    Double wildcard = null;
+    for (String entry : acceptEncoding.split(",")) {
+      String[] parts = entry.split(";");
+      String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+      double quality = quality(parts);
+      if (coding.equals("gzip") || coding.equals("x-gzip")) {
+        gzip = gzip == null ? quality : Math.max(gzip, quality);
+      } else if (coding.equals("*")) {
+        wildcard = quality;
+      }
+    }
+    Double decisive = gzip != null ? gzip : wildcard;
+    return decisive != null && decisive > 0;
+  }
+
+  //the q parameter of one Accept-Encoding entry, 1 if absent and 0 if malformed
+  private static double quality(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      String parameter = parts[i].trim();
+      if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+        try {
+          return Double.parseDouble(parameter.substring(2).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+}
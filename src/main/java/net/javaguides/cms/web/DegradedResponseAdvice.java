@@ -0,0 +1,67 @@
+package net.javaguides.cms.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import net.javaguides.cms.exception.ServiceDegradedException;
+import net.javaguides.cms.resilience.ServedStale;
+import net.javaguides.cms.resilience.StaleResults;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Turns degraded service answers into response headers, keeping the services free of HTTP concerns.
+ *
+ * <p>A response whose data was served stale by the circuit breaker, as recorded in {@link ServedStale},
+ * carries the {@value StaleResults#STALE_HEADER} and {@code Age} headers. A {@link ServiceDegradedException}
+ * becomes a 503 with a {@code Retry-After} header. Registered as an interceptor as well, so a mark left
+ * by a request that never wrote a body is not carried over to the next request on the same thread.
+ */
+@ControllerAdvice
+public class DegradedResponseAdvice implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+      Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+      ServerHttpResponse response) {
+    ServedStale.take().ifPresent(ageSeconds -> {
+      response.getHeaders().set(StaleResults.STALE_HEADER, "true");
+      response.getHeaders().set(HttpHeaders.AGE, String.valueOf(ageSeconds));
+    });
+    return body;
+  }
+
+  @ExceptionHandler(ServiceDegradedException.class)
+  public void serviceDegraded(ServiceDegradedException e, HttpServletResponse response) throws IOException {
+    if (e.getRetryAfterSeconds() > 0) {
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    }
+    //rendered by the error controller like the @ResponseStatus of the exception
+    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    ServedStale.clear();
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    ServedStale.clear();
+  }
+}
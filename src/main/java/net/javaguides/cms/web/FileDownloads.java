@@ -0,0 +1,64 @@
+package net.javaguides.cms.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Sends files from local disk without copying them through the Java heap.
+ *
+ * <p>When the servlet container supports it (Tomcat's NIO connectors with {@code useSendfile}), the
+ * file is handed to the container, which writes it to the socket with the operating system's
+ * {@code sendfile} once the handler returns. Otherwise the file is written with
+ * {@link FileChannel#transferTo}, which lets the JDK pick the cheapest copy it has for the response.
+ */
+public final class FileDownloads {
+
+  private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private FileDownloads() {
+  }
+
+  /**
+   * Sends a file as an attachment.
+   *
+   * @param file the file to send.
+   * @param contentType the media type of the file.
+   * @param filename the name suggested to the caller for saving the file.
+   * @param request the current request.
+   * @param response the response to write to; its status and headers must not be committed yet.
+   * @throws IOException if the file cannot be read or the response cannot be written.
+   */
+  public static void send(Path file, String contentType, String filename, HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      response.setContentType(contentType);
+      response.setContentLengthLong(size);
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+          ContentDisposition.attachment().filename(filename).build().toString());
+      if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, size);
+        return;
+      }
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long position = 0;
+      while (position < size) {
+        position += channel.transferTo(position, size - position, out);
+      }
+      response.flushBuffer();
+    }
+  }
+}
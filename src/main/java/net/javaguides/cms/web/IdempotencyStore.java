@@ -0,0 +1,183 @@
+package net.javaguides.cms.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Makes create endpoints safe to retry by honoring the {@code Idempotency-Key} request header.
+ *
+ * <p>The first request carrying a given key (per endpoint and per authenticated user) runs normally
+ * and its response is remembered for {@code cms.idempotency.ttl-seconds}. Retries with the same key
+ * receive the stored response, marked with an {@code Idempotent-Replayed} header, instead of creating
+ * the resource again. A retry that arrives while the original is still running waits for its result.
+ * A request that reuses a key with a different body is rejected with 422 Unprocessable Entity, since
+ * replaying the first response would silently drop the new request.
+ *
+ * <p>Failed requests are not remembered, so a retry after an error runs again. The store holds at most
+ * {@code cms.idempotency.max-entries} keys; the oldest are evicted first.
+ */
+@Component
+public class IdempotencyStore {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final ObjectMapper objectMapper;
+  //salts the body digests, so a stored digest cannot be matched against guessed bodies such as SSNs
+  private final byte[] digestSalt = new byte[16];
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final long waitMillis;
+
+  public IdempotencyStore(ObjectMapper objectMapper, @Value("${cms.idempotency.ttl-seconds:86400}") long ttlSeconds,
+      @Value("${cms.idempotency.max-entries:100000}") int maxEntries,
+      @Value("${cms.idempotency.wait-ms:30000}") long waitMillis) {
+    this.objectMapper = objectMapper;
+    new SecureRandom().nextBytes(digestSalt);
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.maxEntries = maxEntries;
+    this.waitMillis = waitMillis;
+  }
+
+  /**
+   * Runs the action once per idempotency key and replays its response for retries.
+   *
+   * @param endpoint identifies the operation, so the same key can be reused across endpoints.
+   * @param idempotencyKey the value of the {@code Idempotency-Key} header, or null to run without deduplication.
+   * @param requestBody the deserialized request body, compared with the body the key was first used with.
+   * @param action the request handling to protect.
+   * @return the response of the first request carrying this key.
+   * @throws ResponseStatusException with 422 if the key was already used with a different request body.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> ResponseEntity<T> execute(String endpoint, String idempotencyKey, Object requestBody,
+      Supplier<ResponseEntity<T>> action) {
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      return action.get();
+    }
+    if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+    }
+
+    String storeKey = endpoint + '\n' + currentPrincipal() + '\n' + idempotencyKey;
+    Entry created = new Entry(System.nanoTime(), digest(requestBody));
+    Entry existing = entries.putIfAbsent(storeKey, created);
+    if (existing != null && existing.isExpired(ttlNanos)) {
+      entries.remove(storeKey, existing);
+      existing = entries.putIfAbsent(storeKey, created);
+    }
+    if (existing != null) {
+      if (!MessageDigest.isEqual(existing.bodyDigest, created.bodyDigest)) {
+        throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+            HEADER + " was already used with a different request body");
+      }
+      return (ResponseEntity<T>) replay(existing);
+    }
+
+    insertionOrder.add(storeKey);
+    evictOverflow();
+    try {
+      ResponseEntity<T> response = action.get();
+      created.response.complete(response);
+      return response;
+    } catch (RuntimeException | Error e) {
+      entries.remove(storeKey, created);
+      created.response.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private ResponseEntity<?> replay(Entry entry) {
+    ResponseEntity<?> original;
+    try {
+      original = entry.response.get(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.addAll(original.getHeaders());
+    headers.set(REPLAYED_HEADER, "true");
+    return new ResponseEntity<>(original.getBody(), headers, original.getStatusCode());
+  }
+
+  private void evictOverflow() {
+    while (entries.size() > maxEntries) {
+      String oldest = insertionOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      entries.remove(oldest);
+    }
+  }
+
+  /**
+   * Drops expired keys. Runs on the scheduler once a minute.
+   */
+  @Scheduled(fixedDelay = 60_000)
+  public void evictExpired() {
+    entries.values().removeIf(entry -> entry.isExpired(ttlNanos));
+    insertionOrder.removeIf(key -> !entries.containsKey(key));
+  }
+
+  private byte[] digest(Object requestBody) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(digestSalt);
+      return digest.digest(objectMapper.writeValueAsBytes(requestBody));
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new IllegalStateException("Could not digest the request body", e);
+    }
+  }
+
+  private static String currentPrincipal() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null ? authentication.getName() : "";
+  }
+
+  private static final class Entry {
+    private final long createdAt;
+    private final byte[] bodyDigest;
+    private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+    private Entry(long createdAt, byte[] bodyDigest) {
+      this.createdAt = createdAt;
+      this.bodyDigest = bodyDigest;
+    }
+
+    private boolean isExpired(long ttlNanos) {
+      return response.isDone() && System.nanoTime() - createdAt > ttlNanos;
+    }
+  }
+}
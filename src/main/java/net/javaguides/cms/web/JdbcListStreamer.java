@@ -0,0 +1,225 @@
+package net.javaguides.cms.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.EmployeeDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes the {@code GET /cms/clients} and {@code GET /cms/employees} response bodies straight from JDBC.
+ *
+ * <p>Each row of a read-only native projection is written to a Jackson {@link JsonGenerator} on the
+ * response stream as soon as it is read, so no entity, persistence context or DTO is created. The
+ * property names and their order are taken from the serializer Jackson uses for {@link ClientDTO} and
+ * {@link EmployeeDto}, and each value is written by the serializer Jackson would pick for it, so the
+ * output is the same as that of the regular endpoints. A DTO property without a column here fails
+ * start-up instead of silently changing the response.
+ *
+ * <p>The fast path is enabled with {@code cms.lists.streaming.enabled}. Clients are only streamed when
+ * they are not sharded, since the regular endpoint merges the shards in id order.
+ *
+ * <p>Snapshot exports are written to disk, so they carry the SSN as stored, encrypted, rather than decrypted
+ * like the list responses.
+ */
+@Component
+public class JdbcListStreamer {
+
+  private static final String CLIENTS_SQL = "select u.id, u.first_name, u.last_name, u.username, u.email,"
+      + " c.ssn, c.date_of_birth, c.status, u.version from users u join clients c on c.id = u.id where u.deleted = 0 order by u.id";
+  private static final String EMPLOYEES_SQL = "select u.id, u.first_name, u.last_name, u.username, u.email,"
+      + " e.department, u.version from users u join employees e on e.id = u.id where u.deleted = 0 order by u.id";
+
+  /**
+   * Reads the value of one DTO property from the current row.
+   */
+  @FunctionalInterface
+  private interface Column {
+    Object read(ResultSet rs) throws SQLException;
+  }
+
+  private record NamedColumn(String name, Column column) {
+  }
+
+  private final ObjectMapper objectMapper;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTransaction;
+  private final boolean enabled;
+  private final boolean clientsSharded;
+  private final List<NamedColumn> clientColumns;
+  private final List<NamedColumn> exportColumns;
+  private final List<NamedColumn> employeeColumns;
+
+  public JdbcListStreamer(ObjectMapper objectMapper, DataSource dataSource,
+      PlatformTransactionManager transactionManager, ClientShards clientShards, SsnProtector ssnProtector,
+      @Value("${cms.lists.streaming.enabled:false}") boolean enabled) {
+    this.objectMapper = objectMapper;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    //makes MySQL Connector/J stream rows one by one instead of buffering the whole result
+    this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.enabled = enabled;
+    this.clientsSharded = clientShards.isSharded();
+    //decrypted only here, as the row is written out
+    this.clientColumns = clientColumns(rs -> ssnProtector.decrypt(rs.getString("ssn")));
+    //rows not yet rewritten by the SSN encryption migration are encrypted before they reach the file
+    this.exportColumns = clientColumns(rs -> {
+      String stored = rs.getString("ssn");
+      return stored == null || ssnProtector.isEncrypted(stored) ? stored : ssnProtector.encrypt(stored);
+    });
+    this.employeeColumns = columnsFor(EmployeeDto.class, Map.of(
+        "id", rs -> rs.getObject("id", Long.class),
+        "firstName", rs -> rs.getString("first_name"),
+        "lastName", rs -> rs.getString("last_name"),
+        "username", rs -> rs.getString("username"),
+        "email", rs -> rs.getString("email"),
+        "department", rs -> rs.getString("department"),
+        "version", rs -> rs.getObject("version", Long.class)));
+  }
+
+  private List<NamedColumn> clientColumns(Column ssn) {
+    return columnsFor(ClientDTO.class, Map.of(
+        "id", rs -> rs.getLong("id"),
+        "firstName", rs -> rs.getString("first_name"),
+        "lastName", rs -> rs.getString("last_name"),
+        "username", rs -> rs.getString("username"),
+        "email", rs -> rs.getString("email"),
+        "ssn", ssn,
+        "dateOfBirth", rs -> rs.getTimestamp("date_of_birth"),
+        "status", rs -> {
+          int ordinal = rs.getInt("status");
+          return rs.wasNull() ? null : Status.values()[ordinal];
+        },
+        "version", rs -> rs.getObject("version", Long.class)));
+  }
+
+  public boolean streamsClients() {
+    return enabled && !clientsSharded;
+  }
+
+  public boolean streamsEmployees() {
+    return enabled;
+  }
+
+  /**
+   * @return a response body that writes every client as a JSON array.
+   */
+  public StreamingResponseBody clients() {
+    return out -> write(out, CLIENTS_SQL, clientColumns, false);
+  }
+
+  /**
+   * @return a response body that writes every employee as a JSON array.
+   */
+  public StreamingResponseBody employees() {
+    return out -> write(out, EMPLOYEES_SQL, employeeColumns, false);
+  }
+
+  /**
+   * Writes every client of the current shard as one JSON object per line (NDJSON), with the SSN encrypted
+   * as stored. Unlike the list endpoints this is not gated by {@code cms.lists.streaming.enabled}; it is
+   * used by snapshot exports.
+   *
+   * @param out the stream to write to; it is flushed but not closed.
+   * @return the number of clients written.
+   * @throws IOException if writing to the stream fails.
+   */
+  public long exportClients(OutputStream out) throws IOException {
+    return write(out, CLIENTS_SQL, exportColumns, true);
+  }
+
+  private long write(OutputStream out, String sql, List<NamedColumn> columns, boolean lineDelimited)
+      throws IOException {
+    SerializerProvider provider = objectMapper.getSerializerProviderInstance();
+    JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    long[] rows = new long[1];
+    try {
+      if (lineDelimited) {
+        generator.setRootValueSeparator(null);
+      } else {
+        generator.writeStartArray();
+      }
+      readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+        try {
+          writeRow(generator, provider, rs, columns);
+          if (lineDelimited) {
+            generator.writeRaw('\n');
+          }
+          rows[0]++;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      if (!lineDelimited) {
+        generator.writeEndArray();
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      generator.close();
+    }
+    return rows[0];
+  }
+
+  private static void writeRow(JsonGenerator generator, SerializerProvider provider, ResultSet rs,
+      List<NamedColumn> columns) throws IOException, SQLException {
+    generator.writeStartObject();
+    for (NamedColumn column : columns) {
+      generator.writeFieldName(column.name());
+      Object value = column.column().read(rs);
+      if (value == null) {
+        provider.defaultSerializeNull(generator);
+      } else {
+        provider.findValueSerializer(value.getClass()).serialize(value, generator, provider);
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  //orders the columns like Jackson orders the DTO's properties
+  private List<NamedColumn> columnsFor(Class<?> dtoType, Map<String, Column> columnsByProperty) {
+    List<NamedColumn> columns = new ArrayList<>();
+    try {
+      JsonSerializer<Object> serializer = objectMapper.getSerializerProviderInstance().findValueSerializer(dtoType);
+      Iterator<PropertyWriter> properties = serializer.properties();
+      while (properties.hasNext()) {
+        String name = properties.next().getName();
+        Column column = columnsByProperty.get(name);
+        if (column == null) {
+          throw new IllegalStateException("No column is mapped to " + dtoType.getSimpleName() + "." + name);
+        }
+        columns.add(new NamedColumn(name, column));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot introspect " + dtoType.getSimpleName(), e);
+    }
+    if (columns.size() != columnsByProperty.size()) {
+      throw new IllegalStateException("Columns are mapped to properties " + dtoType.getSimpleName() + " does not have");
+    }
+    return columns;
+  }
+}
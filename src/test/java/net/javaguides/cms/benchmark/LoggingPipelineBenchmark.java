@@ -0,0 +1,83 @@
+package net.javaguides.cms.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.ConsoleAppender;
+import net.javaguides.cms.logging.JsonLineEncoder;
+import net.javaguides.cms.logging.RingBufferAppender;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures what a log call costs the calling thread with logback's synchronous console appender and
+ * with {@link RingBufferAppender}. A single thread logs one line and then simulates 20 microseconds of
+ * request work, so the ring never fills. The log lines go to standard output and the results to standard
+ * error; run it with stdout redirected, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.javaguides.cms.benchmark.LoggingPipelineBenchmark > /dev/null}.
+ */
+public class LoggingPipelineBenchmark {
+
+  private static final int WARMUP_CALLS = 100_000;
+  private static final int MEASURED_CALLS = 100_000;
+  private static final long WORK_NANOS = 20_000;
+
+  public static void main(String[] args) {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    System.err.printf("%-8s %18s %10s%n", "appender", "ns per log call", "dropped");
+    run("console", context, consoleAppender(context));
+    run("ring", context, ringBufferAppender(context));
+  }
+
+  private static void run(String name, LoggerContext context, Appender<ILoggingEvent> appender) {
+    context.reset();
+    context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+    org.slf4j.Logger log = LoggerFactory.getLogger(LoggingPipelineBenchmark.class);
+    for (int i = 0; i < WARMUP_CALLS; i++) {
+      log.info("Client {} updated their profile", i);
+      work();
+    }
+
+    long logNanos = 0;
+    for (int i = 0; i < MEASURED_CALLS; i++) {
+      long start = System.nanoTime();
+      log.info("Client {} updated their profile", i);
+      logNanos += System.nanoTime() - start;
+      work();
+    }
+    appender.stop();
+    String dropped = appender instanceof RingBufferAppender ring ? String.valueOf(ring.getDroppedCount()) : "-";
+    System.err.printf("%-8s %18d %10s%n", name, logNanos / MEASURED_CALLS, dropped);
+  }
+
+  private static void work() {
+    long until = System.nanoTime() + WORK_NANOS;
+    while (System.nanoTime() < until) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static Appender<ILoggingEvent> consoleAppender(LoggerContext context) {
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+    encoder.start();
+    ConsoleAppender<ILoggingEvent> appender = new ConsoleAppender<>();
+    appender.setContext(context);
+    appender.setEncoder(encoder);
+    appender.start();
+    return appender;
+  }
+
+  private static Appender<ILoggingEvent> ringBufferAppender(LoggerContext context) {
+    JsonLineEncoder encoder = new JsonLineEncoder();
+    encoder.setContext(context);
+    RingBufferAppender appender = new RingBufferAppender();
+    appender.setContext(context);
+    appender.setName("benchmark");
+    appender.setEncoder(encoder);
+    appender.start();
+    return appender;
+  }
+}
@@ -0,0 +1,61 @@
+package net.javaguides.cms.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.dto.ClientDTO;
+
+/**
+ * Compares JSON, CBOR and Smile for a 10,000-row client list: payload size and the time to
+ * serialize and parse it. Run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.javaguides.cms.benchmark.PayloadFormatBenchmark}.
+ */
+public class PayloadFormatBenchmark {
+
+  private static final int ROWS = 10_000;
+  private static final int WARMUP_ROUNDS = 50;
+  private static final int MEASURED_ROUNDS = 100;
+
+  public static void main(String[] args) throws Exception {
+    List<ClientDTO> clients = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      clients.add(new ClientDTO(i, "First" + i, "Last" + i, "user" + i, "user" + i + "@example.com",
+          String.format("%09d", i), new Date(631152000000L + i * 86_400_000L), Status.values()[i % 3]));
+    }
+
+    System.out.printf("%-6s %12s %16s %16s%n", "format", "bytes", "serialize (ms)", "parse (ms)");
+    run("json", new ObjectMapper(), clients);
+    run("cbor", new ObjectMapper(new CBORFactory()), clients);
+    run("smile", new ObjectMapper(new SmileFactory()), clients);
+  }
+
+  private static void run(String name, ObjectMapper mapper, List<ClientDTO> clients) throws Exception {
+    mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    TypeReference<List<ClientDTO>> listType = new TypeReference<>() {
+    };
+    byte[] payload = mapper.writeValueAsBytes(clients);
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      mapper.readValue(mapper.writeValueAsBytes(clients), listType);
+    }
+
+    long serializeNanos = 0;
+    long parseNanos = 0;
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      long start = System.nanoTime();
+      payload = mapper.writeValueAsBytes(clients);
+      serializeNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      mapper.readValue(payload, listType);
+      parseNanos += System.nanoTime() - start;
+    }
+    System.out.printf("%-6s %12d %16.2f %16.2f%n", name, payload.length,
+        serializeNanos / 1e6 / MEASURED_ROUNDS, parseNanos / 1e6 / MEASURED_ROUNDS);
+  }
+}
@@ -0,0 +1,123 @@
+package net.javaguides.cms.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.event.ClientChangedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Tests for {@link ClientListSnapshot}: loading and reloading, applying change events, and the plain and
+ * gzip-compressed bodies.
+ */
+class ClientListSnapshotTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final List<ClientDTO> database = new ArrayList<>(List.of(client(1L, "alice"), client(2L, "bob")));
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Supplier<List<ClientDTO>> loader = () -> {
+    loads.incrementAndGet();
+    return List.copyOf(database);
+  };
+
+  @Test
+  void theListIsLoadedOnceWithinTheMaximumAge() throws IOException {
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 60);
+
+    ClientListSnapshot.Body first = snapshot.get(loader);
+    ClientListSnapshot.Body second = snapshot.get(loader);
+
+    Assertions.assertEquals(1, loads.get());
+    Assertions.assertSame(first, second);
+    Assertions.assertEquals(objectMapper.writeValueAsString(database), new String(first.json()));
+  }
+
+  @Test
+  void theListIsReloadedOnceTheMaximumAgeHasPassed() throws IOException {
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 0);
+    snapshot.get(loader);
+    //a change made through another instance, which sends no event here
+    database.add(client(3L, "carol"));
+
+    ClientListSnapshot.Body body = snapshot.get(loader);
+
+    Assertions.assertEquals(2, loads.get());
+    Assertions.assertEquals(objectMapper.writeValueAsString(database), new String(body.json()));
+  }
+
+  @Test
+  void changesAreAppliedWithoutReloading() throws IOException {
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 60);
+    ClientListSnapshot.Body before = snapshot.get(loader);
+
+    ClientDTO renamed = client(2L, "robert");
+    snapshot.onClientChanged(ClientChangedEvent.saved(renamed));
+    snapshot.onClientChanged(ClientChangedEvent.saved(client(3L, "carol")));
+    snapshot.onClientChanged(ClientChangedEvent.deleted(1L));
+    ClientListSnapshot.Body after = snapshot.get(loader);
+
+    Assertions.assertEquals(1, loads.get());
+    Assertions.assertNotSame(before, after);
+    Assertions.assertEquals(objectMapper.writeValueAsString(List.of(renamed, client(3L, "carol"))),
+        new String(after.json()));
+  }
+
+  @Test
+  void aChangeCommittedDuringALoadCausesAnotherLoad() throws IOException {
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 60);
+    Supplier<List<ClientDTO>> racingLoader = () -> {
+      List<ClientDTO> clients = loader.get();
+      if (loads.get() == 1) {
+        //committed after the list was read, so the first load may not include it
+        database.set(0, client(1L, "alicia"));
+        snapshot.onClientChanged(ClientChangedEvent.saved(database.get(0)));
+      }
+      return clients;
+    };
+
+    snapshot.get(racingLoader);
+    ClientListSnapshot.Body body = snapshot.get(racingLoader);
+
+    Assertions.assertEquals(2, loads.get());
+    Assertions.assertEquals(objectMapper.writeValueAsString(database), new String(body.json()));
+    snapshot.get(racingLoader);
+    Assertions.assertEquals(2, loads.get());
+  }
+
+  @Test
+  void theGzipBodyHoldsTheSameJsonAndIsCompressedOnce() throws IOException {
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 60);
+    ClientListSnapshot.Body body = snapshot.get(loader);
+
+    byte[] gzip = body.gzip();
+
+    Assertions.assertSame(gzip, body.gzip());
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+      Assertions.assertArrayEquals(body.json(), in.readAllBytes());
+    }
+  }
+
+  @Test
+  void anEmptyListIsAnEmptyArray() {
+    database.clear();
+    ClientListSnapshot snapshot = new ClientListSnapshot(objectMapper, true, 60);
+
+    Assertions.assertEquals("[]", new String(snapshot.get(loader).json()));
+  }
+
+  private static ClientDTO client(long id, String username) {
+    ClientDTO client = new ClientDTO();
+    client.setId(id);
+    client.setUsername(username);
+    client.setEmail(username + "@example.com");
+    return client;
+  }
+}
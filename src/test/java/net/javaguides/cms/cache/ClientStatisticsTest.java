@@ -0,0 +1,166 @@
+package net.javaguides.cms.cache;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.ClientStats;
+import net.javaguides.cms.event.ClientChangedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Tests for {@link ClientStatistics}: how change events adjust the counts, the age band and onboarding
+ * day boundaries, and changes that commit while a reconcile reads the clients table. The reconcile
+ * reads an in-memory H2 database in MySQL mode.
+ */
+class ClientStatisticsTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2026, 6, 15);
+
+  @Test
+  void changesAdjustTheCountsOfTheOneClient() {
+    ClientStatistics.Counts counts = new ClientStatistics.Counts();
+    counts.apply(ClientChangedEvent.saved(client(1L, Status.Pending, TODAY.minusYears(30))), TODAY);
+    counts.apply(ClientChangedEvent.saved(client(2L, Status.Pending, TODAY.minusYears(40))), TODAY);
+
+    counts.apply(ClientChangedEvent.saved(client(1L, Status.Approved, TODAY.minusYears(30))), TODAY);
+    ClientStats stats = counts.toStats(TODAY, 2, null);
+
+    Assertions.assertEquals(2, stats.getTotal());
+    Assertions.assertEquals(1L, stats.getByStatus().get(Status.Pending));
+    Assertions.assertEquals(1L, stats.getByStatus().get(Status.Approved));
+    Assertions.assertEquals(Map.of(TODAY.minusDays(1), 0L, TODAY, 2L), stats.getOnboardedPerDay());
+    Assertions.assertEquals(1L, stats.getAgeBands().get("25-34"));
+    Assertions.assertEquals(1L, stats.getAgeBands().get("35-44"));
+  }
+
+  @Test
+  void deletedClientsAreRemovedFromEveryCount() {
+    ClientStatistics.Counts counts = new ClientStatistics.Counts();
+    counts.apply(ClientChangedEvent.saved(client(1L, Status.Pending, TODAY.minusYears(30))), TODAY);
+
+    counts.apply(ClientChangedEvent.deleted(1L), TODAY);
+    counts.apply(ClientChangedEvent.deleted(2L), TODAY);
+    ClientStats stats = counts.toStats(TODAY, 1, null);
+
+    Assertions.assertEquals(0, stats.getTotal());
+    Assertions.assertEquals(0L, stats.getByStatus().get(Status.Pending));
+    Assertions.assertEquals(Map.of(TODAY, 0L), stats.getOnboardedPerDay());
+    Assertions.assertTrue(stats.getAgeBands().values().stream().allMatch(count -> count == 0));
+  }
+
+  @Test
+  void ageBandsIncludeTheBirthdayOfTheirLowerBound() {
+    ClientStatistics.Counts counts = new ClientStatistics.Counts();
+    counts.add(1L, facts(TODAY.minusYears(18).plusDays(1)));
+    counts.add(2L, facts(TODAY.minusYears(18)));
+    counts.add(3L, facts(TODAY.minusYears(25).plusDays(1)));
+    counts.add(4L, facts(TODAY.minusYears(65).plusDays(1)));
+    counts.add(5L, facts(TODAY.minusYears(65)));
+    counts.add(6L, facts(TODAY.minusYears(90)));
+
+    Map<String, Long> ageBands = counts.toStats(TODAY, 1, null).getAgeBands();
+
+    Assertions.assertEquals(List.of("0-17", "18-24", "25-34", "35-44", "45-54", "55-64", "65+"),
+        List.copyOf(ageBands.keySet()));
+    Assertions.assertEquals(1L, ageBands.get("0-17"));
+    Assertions.assertEquals(2L, ageBands.get("18-24"));
+    Assertions.assertEquals(1L, ageBands.get("55-64"));
+    Assertions.assertEquals(2L, ageBands.get("65+"));
+  }
+
+  @Test
+  void theNextDayMovesBirthdaysAndOnboardingDays() {
+    ClientStatistics.Counts counts = new ClientStatistics.Counts();
+    counts.apply(ClientChangedEvent.saved(client(1L, Status.Pending, TODAY.minusYears(18).plusDays(1))), TODAY);
+    Assertions.assertEquals(1L, counts.toStats(TODAY, 1, null).getAgeBands().get("0-17"));
+
+    ClientStats tomorrow = counts.toStats(TODAY.plusDays(1), 1, null);
+
+    Assertions.assertEquals(0L, tomorrow.getAgeBands().get("0-17"));
+    Assertions.assertEquals(1L, tomorrow.getAgeBands().get("18-24"));
+    Assertions.assertEquals(Map.of(TODAY.plusDays(1), 0L), tomorrow.getOnboardedPerDay());
+  }
+
+  @Test
+  void changesCommittedDuringAReconcileAreReplayed() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:client-statistics;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    RacingJdbcTemplate jdbcTemplate = new RacingJdbcTemplate(dataSource);
+    jdbcTemplate.execute("create table users (id bigint primary key, deleted tinyint not null default 0)");
+    jdbcTemplate.execute("create table clients (id bigint primary key, status int,"
+        + " created_at timestamp, date_of_birth timestamp)");
+    try {
+      insert(jdbcTemplate, 1L, Status.Pending);
+      insert(jdbcTemplate, 2L, Status.Pending);
+      ClientStatistics statistics = new ClientStatistics(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+          new ClientShards(List.of(), 0), 30);
+      Assertions.assertEquals(2, statistics.get().getTotal());
+
+      //client 1 is approved before the read sees it; client 3 is created and client 2 deleted after it
+      jdbcTemplate.update("update clients set status = ? where id = 1", Status.Approved.ordinal());
+      jdbcTemplate.afterRead = () -> {
+        statistics.onClientChanged(ClientChangedEvent.saved(client(1L, Status.Approved, TODAY.minusYears(30))));
+        statistics.onClientChanged(ClientChangedEvent.saved(client(3L, Status.Pending, TODAY.minusYears(30))));
+        statistics.onClientChanged(ClientChangedEvent.deleted(2L));
+      };
+      statistics.scheduledReconcile();
+
+      ClientStats stats = statistics.get();
+      Assertions.assertEquals(2, stats.getTotal());
+      Assertions.assertEquals(1L, stats.getByStatus().get(Status.Approved));
+      Assertions.assertEquals(1L, stats.getByStatus().get(Status.Pending));
+      Assertions.assertNotNull(stats.getReconciledAt());
+    } finally {
+      jdbcTemplate.execute("drop all objects");
+    }
+  }
+
+  private static void insert(JdbcTemplate jdbcTemplate, long id, Status status) {
+    jdbcTemplate.update("insert into users (id) values (?)", id);
+    jdbcTemplate.update("insert into clients (id, status, created_at, date_of_birth) values (?, ?, ?, ?)",
+        id, status.ordinal(), Timestamp.valueOf(TODAY.atStartOfDay()), Timestamp.valueOf(TODAY.minusYears(30).atStartOfDay()));
+  }
+
+  private static ClientStatistics.Facts facts(LocalDate dateOfBirth) {
+    return new ClientStatistics.Facts(Status.Pending, TODAY, dateOfBirth);
+  }
+
+  private static ClientDTO client(long id, Status status, LocalDate dateOfBirth) {
+    ClientDTO client = new ClientDTO();
+    client.setId(id);
+    client.setStatus(status);
+    client.setDateOfBirth(Date.from(dateOfBirth.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    return client;
+  }
+
+  /**
+   * A {@link JdbcTemplate} that runs an action once a query has read its rows, standing in for changes
+   * that commit after the reconcile's read.
+   */
+  static class RacingJdbcTemplate extends JdbcTemplate {
+
+    Runnable afterRead = () -> { };
+
+    RacingJdbcTemplate(DriverManagerDataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler handler) throws DataAccessException {
+      super.query(sql, handler);
+      afterRead.run();
+    }
+  }
+}
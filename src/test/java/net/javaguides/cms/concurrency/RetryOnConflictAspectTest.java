@@ -0,0 +1,134 @@
+package net.javaguides.cms.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Tests for {@link RetryOnConflictAspect}: how often a conflicting method is run, and that a conflict
+ * left over is reported as 409 Conflict.
+ */
+class RetryOnConflictAspectTest {
+
+  private ConflictingWrites target;
+  private ConflictingWrites writes;
+
+  @BeforeEach
+  void createWrites() {
+    target = new ConflictingWrites();
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new RetryOnConflictAspect());
+    writes = factory.getProxy();
+  }
+
+  @Test
+  void aConflictIsRetriedOnFreshData() {
+    target.conflicts = 2;
+
+    Assertions.assertEquals("saved", writes.setStatus());
+    Assertions.assertEquals(3, target.invocations.get());
+  }
+
+  @Test
+  void conflictsBeyondTheAttemptsAreReported() {
+    target.conflicts = Integer.MAX_VALUE;
+
+    Assertions.assertThrows(ConcurrentUpdateException.class, () -> writes.setStatus());
+    Assertions.assertEquals(3, target.invocations.get());
+  }
+
+  @Test
+  void aSingleAttemptReportsTheFirstConflict() {
+    target.conflicts = 1;
+
+    Assertions.assertThrows(ConcurrentUpdateException.class, () -> writes.changePassword());
+    Assertions.assertEquals(1, target.invocations.get());
+  }
+
+  @Test
+  void otherFailuresAreNotRetried() {
+    target.failure = new IllegalStateException("broken");
+
+    Assertions.assertSame(target.failure, Assertions.assertThrows(IllegalStateException.class, () -> writes.setStatus()));
+    Assertions.assertEquals(1, target.invocations.get());
+  }
+
+  @Test
+  void callsInsideATransactionAreLeftToTheirCaller() {
+    target.conflicts = 1;
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () -> writes.setStatus());
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+    Assertions.assertEquals(1, target.invocations.get());
+  }
+
+  @Test
+  void aReportedConflictIsA409() throws Exception {
+    target.conflicts = Integer.MAX_VALUE;
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StatusController(writes)).build();
+
+    mockMvc.perform(MockMvcRequestBuilders.put("/status"))
+        .andExpect(MockMvcResultMatchers.status().isConflict());
+  }
+
+  /**
+   * A stand-in for a service whose commits fail their version check a given number of times.
+   */
+  static class ConflictingWrites {
+
+    final AtomicInteger invocations = new AtomicInteger();
+    volatile int conflicts;
+    volatile RuntimeException failure;
+
+    @RetryOnConflict
+    public String setStatus() {
+      return write();
+    }
+
+    @RetryOnConflict(attempts = 1)
+    public String changePassword() {
+      return write();
+    }
+
+    private String write() {
+      invocations.incrementAndGet();
+      if (failure != null) {
+        throw failure;
+      }
+      if (conflicts-- > 0) {
+        throw new ObjectOptimisticLockingFailureException("Client", 1L);
+      }
+      return "saved";
+    }
+  }
+
+  @RestController
+  static class StatusController {
+
+    private final ConflictingWrites writes;
+
+    StatusController(ConflictingWrites writes) {
+      this.writes = writes;
+    }
+
+    @PutMapping("/status")
+    String setStatus() {
+      return writes.setStatus();
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package net.javaguides.cms.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import net.javaguides.cms.datasource.ReadYourWritesTracker;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.EmployeeDto;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Concurrency tests for {@link SingleFlightAspect}: callers of a read already in flight share the
+ * leader's result or exception, and a {@link ClientChangedEvent} or {@link EmployeeChangedEvent} makes
+ * later callers start a new read.
+ */
+class SingleFlightAspectTest {
+
+  private static final int FOLLOWERS = 7;
+
+  private SingleFlightMetrics metrics;
+  private SingleFlightAspect aspect;
+  private BlockingReads target;
+  private BlockingReads reads;
+  private ExecutorService callers;
+
+  @BeforeEach
+  void createReads() {
+    metrics = new SingleFlightMetrics();
+    aspect = new SingleFlightAspect(new ReadYourWritesTracker(1000), metrics, true);
+    target = new BlockingReads();
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    reads = factory.getProxy();
+    callers = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void stopCallers() {
+    target.release.countDown();
+    callers.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareOneRead() throws Exception {
+    Future<ClientDTO> leader = callers.submit(() -> reads.client(1L));
+    awaitInFlight(1);
+    List<Future<ClientDTO>> followers = new ArrayList<>();
+    for (int i = 0; i < FOLLOWERS; i++) {
+      followers.add(callers.submit(() -> reads.client(1L)));
+    }
+    awaitCoalesced(FOLLOWERS);
+
+    target.release.countDown();
+
+    ClientDTO result = leader.get(5, TimeUnit.SECONDS);
+    for (Future<ClientDTO> follower : followers) {
+      Assertions.assertSame(result, follower.get(5, TimeUnit.SECONDS));
+    }
+    Assertions.assertEquals(1, target.invocations.get());
+    SingleFlightStats.Flights flights = metrics.getStats().flights().get(SingleFlightAspect.CLIENT);
+    Assertions.assertEquals(FOLLOWERS + 1, flights.calls());
+    Assertions.assertEquals(FOLLOWERS, flights.coalesced());
+    Assertions.assertEquals(0, flights.inFlight());
+  }
+
+  @Test
+  void callersWithOtherArgumentsReadOnTheirOwn() throws Exception {
+    Future<ClientDTO> first = callers.submit(() -> reads.client(1L));
+    Future<ClientDTO> second = callers.submit(() -> reads.client(2L));
+    awaitInFlight(2);
+
+    target.release.countDown();
+
+    Assertions.assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+    Assertions.assertEquals(2L, second.get(5, TimeUnit.SECONDS).getId());
+    Assertions.assertEquals(2, target.invocations.get());
+  }
+
+  @Test
+  void followersReceiveTheLeadersException() throws Exception {
+    target.failure = new IllegalStateException("read failed");
+    Future<ClientDTO> leader = callers.submit(() -> reads.client(1L));
+    awaitInFlight(1);
+    List<Future<ClientDTO>> followers = new ArrayList<>();
+    for (int i = 0; i < FOLLOWERS; i++) {
+      followers.add(callers.submit(() -> reads.client(1L)));
+    }
+    awaitCoalesced(FOLLOWERS);
+
+    target.release.countDown();
+
+    Assertions.assertSame(target.failure, causeOf(leader));
+    for (Future<ClientDTO> follower : followers) {
+      Assertions.assertSame(target.failure, causeOf(follower));
+    }
+    Assertions.assertEquals(1, target.invocations.get());
+
+    //the failed flight is over, so the next caller reads again
+    target.failure = null;
+    Assertions.assertEquals(1L, reads.client(1L).getId());
+    Assertions.assertEquals(2, target.invocations.get());
+  }
+
+  @Test
+  void aChangeToTheClientStartsANewRead() throws Exception {
+    Future<ClientDTO> beforeChange = callers.submit(() -> reads.client(1L));
+    awaitInFlight(1);
+    Future<ClientDTO> waiting = callers.submit(() -> reads.client(1L));
+    awaitCoalesced(1);
+
+    aspect.onClientChanged(ClientChangedEvent.saved(clientWithId(1L)));
+    Future<ClientDTO> afterChange = callers.submit(() -> reads.client(1L));
+    awaitInFlight(2);
+    target.release.countDown();
+
+    Assertions.assertSame(beforeChange.get(5, TimeUnit.SECONDS), waiting.get(5, TimeUnit.SECONDS));
+    Assertions.assertNotSame(beforeChange.get(), afterChange.get(5, TimeUnit.SECONDS));
+    Assertions.assertEquals(2, target.invocations.get());
+  }
+
+  @Test
+  void aChangeToAnyClientStartsANewListRead() throws Exception {
+    Future<List<ClientDTO>> beforeChange = callers.submit(() -> reads.clients());
+    awaitInFlight(1);
+
+    aspect.onClientChanged(ClientChangedEvent.deleted(42L));
+    Future<List<ClientDTO>> afterChange = callers.submit(() -> reads.clients());
+    awaitInFlight(2);
+    target.release.countDown();
+
+    Assertions.assertNotSame(beforeChange.get(5, TimeUnit.SECONDS), afterChange.get(5, TimeUnit.SECONDS));
+    Assertions.assertEquals(2, target.invocations.get());
+  }
+
+  @Test
+  void aChangeToAnotherClientKeepsTheReadShared() throws Exception {
+    Future<ClientDTO> leader = callers.submit(() -> reads.client(1L));
+    awaitInFlight(1);
+
+    aspect.onClientChanged(ClientChangedEvent.saved(clientWithId(2L)));
+    Future<ClientDTO> follower = callers.submit(() -> reads.client(1L));
+    awaitCoalesced(1);
+    target.release.countDown();
+
+    Assertions.assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+    Assertions.assertEquals(1, target.invocations.get());
+  }
+
+  @Test
+  void aChangeToAnEmployeeStartsNewReadsOfItAndTheList() throws Exception {
+    Future<EmployeeDto> changedBefore = callers.submit(() -> reads.employee(1L));
+    Future<EmployeeDto> otherBefore = callers.submit(() -> reads.employee(2L));
+    Future<List<EmployeeDto>> listBefore = callers.submit(() -> reads.employees());
+    awaitInFlight(3);
+
+    aspect.onEmployeeChanged(EmployeeChangedEvent.deleted(1L));
+    Future<EmployeeDto> changedAfter = callers.submit(() -> reads.employee(1L));
+    Future<EmployeeDto> otherAfter = callers.submit(() -> reads.employee(2L));
+    Future<List<EmployeeDto>> listAfter = callers.submit(() -> reads.employees());
+    awaitCoalesced(SingleFlightAspect.EMPLOYEE, 1);
+    awaitInFlight(5);
+    target.release.countDown();
+
+    Assertions.assertNotSame(changedBefore.get(5, TimeUnit.SECONDS), changedAfter.get(5, TimeUnit.SECONDS));
+    Assertions.assertSame(otherBefore.get(5, TimeUnit.SECONDS), otherAfter.get(5, TimeUnit.SECONDS));
+    Assertions.assertNotSame(listBefore.get(5, TimeUnit.SECONDS), listAfter.get(5, TimeUnit.SECONDS));
+    Assertions.assertEquals(5, target.invocations.get());
+  }
+
+  @Test
+  void callersInsideATransactionReadOnTheirOwn() throws Exception {
+    Future<ClientDTO> leader = callers.submit(() -> reads.client(1L));
+    awaitInFlight(1);
+    Future<ClientDTO> transactional = callers.submit(() -> {
+      TransactionSynchronizationManager.setActualTransactionActive(true);
+      try {
+        return reads.client(1L);
+      } finally {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+      }
+    });
+    await(() -> target.invocations.get() == 2);
+    target.release.countDown();
+
+    Assertions.assertNotSame(leader.get(5, TimeUnit.SECONDS), transactional.get(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * A stand-in for a service whose reads block until released.
+   */
+  static class BlockingReads {
+
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger invocations = new AtomicInteger();
+    volatile RuntimeException failure;
+
+    @SingleFlight(SingleFlightAspect.CLIENT)
+    public ClientDTO client(Long id) throws InterruptedException {
+      invocations.incrementAndGet();
+      release.await();
+      if (failure != null) {
+        throw failure;
+      }
+      return clientWithId(id);
+    }
+
+    @SingleFlight(SingleFlightAspect.CLIENTS)
+    public List<ClientDTO> clients() throws InterruptedException {
+      invocations.incrementAndGet();
+      release.await();
+      return new ArrayList<>();
+    }
+
+    @SingleFlight(SingleFlightAspect.EMPLOYEE)
+    public EmployeeDto employee(Long id) throws InterruptedException {
+      invocations.incrementAndGet();
+      release.await();
+      EmployeeDto employee = new EmployeeDto();
+      employee.setId(id);
+      return employee;
+    }
+
+    @SingleFlight(SingleFlightAspect.EMPLOYEES)
+    public List<EmployeeDto> employees() throws InterruptedException {
+      invocations.incrementAndGet();
+      release.await();
+      return new ArrayList<>();
+    }
+  }
+
+  private static ClientDTO clientWithId(long id) {
+    ClientDTO client = new ClientDTO();
+    client.setId(id);
+    return client;
+  }
+
+  private static Throwable causeOf(Future<?> future) throws Exception {
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    return e.getCause();
+  }
+
+  private void awaitInFlight(int flights) throws InterruptedException {
+    await(() -> target.invocations.get() == flights);
+  }
+
+  private void awaitCoalesced(int followers) throws InterruptedException {
+    awaitCoalesced(SingleFlightAspect.CLIENT, followers);
+  }
+
+  private void awaitCoalesced(String name, int followers) throws InterruptedException {
+    await(() -> {
+      SingleFlightStats.Flights flights = metrics.getStats().flights().get(name);
+      return flights != null && flights.coalesced() == followers;
+    });
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      Assertions.assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(1);
+    }
+  }
+}
@@ -1,13 +1,24 @@
 package net.javaguides.cms.controllerTest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.cache.ClientStatistics;
+import net.javaguides.cms.dto.BatchItemResult;
 import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.ClientStats;
 import net.javaguides.cms.dto.PasswordChangeDto;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import net.javaguides.cms.exception.DuplicateResourceException;
+import net.javaguides.cms.exception.ServiceDegradedException;
 import net.javaguides.cms.service.ClientService;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatchers;
@@ -19,6 +30,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -31,6 +43,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
  */
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 public class ClientControllerTest {
 
@@ -38,6 +51,8 @@ public class ClientControllerTest {
   private MockMvc mockMvc;
   @MockBean
   private ClientService clientService;
+  @MockBean
+  private ClientStatistics clientStatistics;
 
   /**
    * Test for creating a client successfully with the role EMPLOYEE.
@@ -54,6 +69,62 @@ public class ClientControllerTest {
     this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").contentType(MediaType.APPLICATION_JSON).content((new ObjectMapper()).writeValueAsString(newClient))).andExpect(MockMvcResultMatchers.status().isCreated()).andDo(MockMvcResultHandlers.print());
   }
 
+  /**
+   * Test for retrying a client creation with the same Idempotency-Key.
+   * Asserts that both requests return CREATED, the retry is marked as replayed,
+   * and the client is only created once.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void testCreateClientIdempotentRetry() throws Exception {
+    ClientDTO newClient = new ClientDTO(2L, "Mary", "Major", "mmajor", "mmajor@example.com", "5554443333", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("1991-01-01T00:00:00.000+00:00"), Status.Pending);
+    Mockito.when(this.clientService.createClient(ArgumentMatchers.any())).thenReturn(newClient);
+    String body = (new ObjectMapper()).writeValueAsString(newClient);
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").header("Idempotency-Key", "retry-test-1").contentType(MediaType.APPLICATION_JSON).content(body)).andExpect(MockMvcResultMatchers.status().isCreated());
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").header("Idempotency-Key", "retry-test-1").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(MockMvcResultMatchers.status().isCreated())
+        .andExpect(MockMvcResultMatchers.header().string("Idempotent-Replayed", "true"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.username").value("mmajor"));
+    (Mockito.verify(this.clientService, Mockito.times(1))).createClient(ArgumentMatchers.any());
+  }
+
+  /**
+   * Test for reusing an Idempotency-Key with a different request body.
+   * Asserts that the second request is rejected with UNPROCESSABLE_ENTITY and nothing is created for it.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void testCreateClientIdempotencyKeyReusedWithDifferentBody() throws Exception {
+    ClientDTO newClient = new ClientDTO(2L, "Mary", "Major", "mmajor", "mmajor@example.com", "5554443333", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("1991-01-01T00:00:00.000+00:00"), Status.Pending);
+    Mockito.when(this.clientService.createClient(ArgumentMatchers.any())).thenReturn(newClient);
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").header("Idempotency-Key", "reuse-test-1").contentType(MediaType.APPLICATION_JSON).content((new ObjectMapper()).writeValueAsString(newClient))).andExpect(MockMvcResultMatchers.status().isCreated());
+    newClient.setUsername("mmajor2");
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").header("Idempotency-Key", "reuse-test-1").contentType(MediaType.APPLICATION_JSON).content((new ObjectMapper()).writeValueAsString(newClient)))
+        .andExpect(MockMvcResultMatchers.status().isUnprocessableEntity());
+    (Mockito.verify(this.clientService, Mockito.times(1))).createClient(ArgumentMatchers.any());
+  }
+
+  /**
+   * Test for creating a client whose username, email or SSN is already taken.
+   * Asserts that the response status is CONFLICT.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void testCreateClientDuplicate() throws Exception {
+    ClientDTO newClient = new ClientDTO(1L, "John", "Doe", "johndoe", "johndoe@example.com", "1234567890", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("1990-01-01T00:00:00.000+00:00"), Status.Pending);
+    Mockito.when(this.clientService.createClient(ArgumentMatchers.any())).thenThrow(new DuplicateResourceException("A user already exists with username johndoe"));
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients").contentType(MediaType.APPLICATION_JSON).content((new ObjectMapper()).writeValueAsString(newClient))).andExpect(MockMvcResultMatchers.status().isConflict());
+  }
+
   /**
    * Test for attempting to create a client with the role CLIENT, expecting a Forbidden response.
    * Asserts that the response status is FORBIDDEN.
@@ -99,6 +170,52 @@ public class ClientControllerTest {
                 + "'ssn':'98765432101','dateOfBirth':'2005-09-16T00:00:00.000+00:00','status':'Pending'}]"));
     (Mockito.verify(this.clientService, Mockito.times(1))).getClients();
   }
+  /**
+   * Test for retrieving several clients by id with the role EMPLOYEE.
+   * Asserts that the clients come back in request order and that unknown ids are reported as missing.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getClientsByIds() throws Exception {
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    List<ClientDTO> found = Arrays.asList(
+        new ClientDTO(6L, "Vamsi1", "Mannava1", "vmannava", "vmannava2003@gmail.com", "68389399202", dateFormat.parse("2003-09-16T00:00:00.000+00:00"), Status.Pending),
+        new ClientDTO(10L, "Alice", "Smith", "asmith", "asmith@example.com", "98765432101", dateFormat.parse("2005-09-16T00:00:00.000+00:00"), Status.Pending));
+    Mockito.when(this.clientService.getClientsByIds(ArgumentMatchers.anyCollection())).thenReturn(found);
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients").param("ids", "10,7,6"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(10))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].id").value(6))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.missing[0]").value(7));
+    (Mockito.verify(this.clientService, Mockito.never())).getClients();
+  }
+
+  /**
+   * Test for updating several clients in one batch request with the role EMPLOYEE.
+   * Asserts that the response reports the outcome of every item.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void updateClientsBatch() throws Exception {
+    List<BatchItemResult> results = Arrays.asList(
+        new BatchItemResult(6L, BatchItemResult.Outcome.UPDATED, null),
+        new BatchItemResult(7L, BatchItemResult.Outcome.NOT_FOUND, null));
+    Mockito.when(this.clientService.updateClients(ArgumentMatchers.anyList())).thenReturn(results);
+    String body = "[{\"id\": 6, \"firstName\": \"Vamsi\"}, {\"id\": 7, \"lastName\": \"Smith\"}]";
+    this.mockMvc.perform(MockMvcRequestBuilders.patch("/cms/clients/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].outcome").value("UPDATED"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].outcome").value("NOT_FOUND"));
+  }
+
   /**
    * Test for retrieving all clients with the role CLIENT, expecting a Forbidden response.
    * Asserts that the response status is FORBIDDEN.
@@ -140,6 +257,46 @@ public class ClientControllerTest {
     (Mockito.verify(this.clientService, Mockito.times(1))).getClientById(clientId);
   }
 
+  /**
+   * Test for retrieving a client by ID as CBOR with the role EMPLOYEE.
+   * Asserts that the response is encoded as CBOR and decodes to the expected client.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void testGetClientByIdAsCbor() throws Exception {
+    Long clientId = 1L;
+    ClientDTO clientDTO = new ClientDTO(clientId, "John", "Doe", "john_doe", "johndoe@gmail.com", "2939392040", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("2004-09-16T00:00:00.000+00:00"), Status.Pending);
+    Mockito.when(this.clientService.getClientById(clientId)).thenReturn(clientDTO);
+    byte[] body = this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/{id}", clientId).accept("application/cbor"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+    ClientDTO decoded = new ObjectMapper(new CBORFactory()).readValue(body, ClientDTO.class);
+    Assert.assertEquals("john_doe", decoded.getUsername());
+    Assert.assertEquals(Status.Pending, decoded.getStatus());
+  }
+
+  /**
+   * Test for retrieving a client by ID with the role EMPLOYEE while the database is unavailable and no
+   * earlier result is known, expecting a Service Unavailable response with a Retry-After header.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void testGetClientByIdWhileDegraded() throws Exception {
+    Long clientId = 1L;
+    Mockito.when(this.clientService.getClientById(clientId))
+        .thenThrow(new ServiceDegradedException("The database is unavailable, try again later", 30));
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/{id}", clientId))
+        .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+        .andExpect(MockMvcResultMatchers.header().string("Retry-After", "30"));
+  }
+
   /**
    * Test for attempting to retrieve a client by ID with the role CLIENT, expecting a Forbidden response.
    * Asserts that the response status is FORBIDDEN.
@@ -224,6 +381,106 @@ public void editProfileTest() throws Exception {
   (Mockito.verify(this.clientService)).updateClient(ArgumentMatchers.eq(clientId), ArgumentMatchers.any(ClientDTO.class));
 }
 
+  /**
+   * Tests updating a client with a stale version, expecting a Conflict response.
+   * Asserts that the response status is CONFLICT.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"CLIENT"}
+  )
+  public void updateClientStaleVersion() throws Exception {
+    Long clientId = 1L;
+    Mockito.when(this.clientService.updateClient(ArgumentMatchers.eq(clientId), ArgumentMatchers.any(ClientDTO.class)))
+        .thenThrow(new ConcurrentUpdateException("The client was modified concurrently, reload it and try again"));
+    this.mockMvc.perform(MockMvcRequestBuilders.patch("/cms/profile/{id}", clientId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"firstName\": \"Jane\", \"version\": 3}"))
+        .andExpect(MockMvcResultMatchers.status().isConflict());
+  }
+
+  /**
+   * Tests finding a client by an SSN sent in the request body as an employee.
+   * Asserts that the client is returned with the decrypted SSN.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getClientBySsn() throws Exception {
+    ClientDTO client = new ClientDTO(5L, "Ben", "Ross", "bross", "bross@example.com", "4445556666", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("1985-07-01T00:00:00.000+00:00"), Status.Approved);
+    Mockito.when(this.clientService.getClientBySsn("4445556666")).thenReturn(client);
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients/by-ssn")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"ssn\":\"4445556666\"}"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(5))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.ssn").value("4445556666"));
+  }
+
+  /**
+   * Tests that an SSN is not accepted in the URL and that a lookup without an SSN is rejected.
+   * Asserts that the client service is not called.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getClientBySsnRequiresTheSsnInTheBody() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/by-ssn").param("ssn", "4445556666"))
+        .andExpect(MockMvcResultMatchers.status().isMethodNotAllowed());
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients/by-ssn")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{}"))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    Mockito.verify(this.clientService, Mockito.never()).getClientBySsn(Mockito.any());
+  }
+
+  /**
+   * Tests reading the client statistics as an employee.
+   * Asserts that the statistics are returned from memory without calling the client service.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getClientStats() throws Exception {
+    Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+    byStatus.put(Status.Pending, 2L);
+    byStatus.put(Status.Approved, 1L);
+    ClientStats stats = new ClientStats(3L, byStatus, Map.of(), Map.of("18-24", 3L), Instant.now());
+    Mockito.when(this.clientStatistics.get()).thenReturn(stats);
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/stats"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(3))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.byStatus.Pending").value(2))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.ageBands['18-24']").value(3));
+    Mockito.verifyNoInteractions(this.clientService);
+  }
+
+  /**
+   * Tests claiming pending clients for review as an employee.
+   * Asserts that the claim is made for the authenticated reviewer and returns the leased clients.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      username = "reviewer1",
+      roles = {"EMPLOYEE"}
+  )
+  public void claimClientsForReview() throws Exception {
+    ClientDTO pending = new ClientDTO(4L, "Ann", "Lee", "annlee", "annlee@example.com", "3332221111", (new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")).parse("1988-03-01T00:00:00.000+00:00"), Status.Pending);
+    Mockito.when(this.clientService.claimForReview("reviewer1", 2)).thenReturn(List.of(pending));
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients/review/claim").param("n", "2"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(4));
+    Mockito.verify(this.clientService).claimForReview("reviewer1", 2);
+  }
+
   /**
    * Tests deleting functionality of the client with a role of CLIENT, expecting a Forbidden response.
    * Asserts that the response status is FORBIDDEN.
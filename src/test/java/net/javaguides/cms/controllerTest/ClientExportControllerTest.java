@@ -0,0 +1,101 @@
+package net.javaguides.cms.controllerTest;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Optional;
+import net.javaguides.cms.export.ClientExportService;
+import net.javaguides.cms.export.ExportJob;
+import net.javaguides.cms.export.ExportLease;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class for client snapshot export operations within the CMS application.
+ * Uses Mockito for mocking the export service and Spring's MockMvc to perform and assert web requests.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ClientExportControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @MockBean
+  private ClientExportService clientExportService;
+
+  /**
+   * Test for starting an export with the role EMPLOYEE.
+   * Asserts that the response status is ACCEPTED and points to the job.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void startExport() throws Exception {
+    ExportJob job = new ExportJob("job-1", Instant.now(), 0L, Paths.get("clients-job-1.ndjson.gz"));
+    Mockito.when(this.clientExportService.start()).thenReturn(job);
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients/exports"))
+        .andExpect(MockMvcResultMatchers.status().isAccepted())
+        .andExpect(MockMvcResultMatchers.header().string("Location", "/cms/clients/exports/job-1"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.state").value("RUNNING"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.file").doesNotExist());
+  }
+
+  /**
+   * Test for downloading an export that is still running, expecting a Conflict response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void downloadRunningExport() throws Exception {
+    ExportJob job = new ExportJob("job-1", Instant.now(), 0L, Paths.get("clients-job-1.ndjson.gz"));
+    ExportLease lease = Mockito.mock(ExportLease.class);
+    Mockito.when(lease.getJob()).thenReturn(job);
+    Mockito.when(this.clientExportService.lease("job-1")).thenReturn(Optional.of(lease));
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/exports/{id}/file", "job-1"))
+        .andExpect(MockMvcResultMatchers.status().isConflict());
+    Mockito.verify(lease).close();
+  }
+
+  /**
+   * Test for downloading an export that has been replaced by a newer snapshot, expecting a Not Found response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void downloadReplacedExport() throws Exception {
+    Mockito.when(this.clientExportService.lease("job-1")).thenReturn(Optional.empty());
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/clients/exports/{id}/file", "job-1"))
+        .andExpect(MockMvcResultMatchers.status().isNotFound());
+  }
+
+  /**
+   * Test for starting an export with the role CLIENT, expecting a Forbidden response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"CLIENT"}
+  )
+  public void startExportError() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.post("/cms/clients/exports"))
+        .andExpect(MockMvcResultMatchers.status().isForbidden());
+  }
+}
@@ -0,0 +1,74 @@
+package net.javaguides.cms.controllerTest;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import net.javaguides.cms.imports.ClientImportService;
+import net.javaguides.cms.imports.ImportJob;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class for client CSV import operations within the CMS application.
+ * Uses Mockito for mocking the import service and Spring's MockMvc to perform and assert web requests.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ClientImportControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @MockBean
+  private ClientImportService clientImportService;
+
+  /**
+   * Test for uploading a CSV file with the role EMPLOYEE.
+   * Asserts that the response status is ACCEPTED and reports the queued job.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void startImport() throws Exception {
+    ImportJob job = new ImportJob("job-1", Instant.now(), 120L, Paths.get("clients-job-1.csv"),
+        Paths.get("clients-job-1-errors.csv"));
+    Mockito.when(this.clientImportService.submit(ArgumentMatchers.any())).thenReturn(job);
+    MockMultipartFile file = new MockMultipartFile("file", "clients.csv", "text/csv",
+        "firstName,lastName,username,email,ssn,dateOfBirth\r\nJohn,Doe,johndoe,johndoe@example.com,1234567890,1990-01-01\r\n".getBytes());
+    this.mockMvc.perform(MockMvcRequestBuilders.multipart("/cms/clients/imports").file(file))
+        .andExpect(MockMvcResultMatchers.status().isAccepted())
+        .andExpect(MockMvcResultMatchers.header().string("Location", "/cms/clients/imports/job-1"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.state").value("QUEUED"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.rowsRead").value(0));
+  }
+
+  /**
+   * Test for uploading an empty file, expecting a Bad Request response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void startImportEmptyFile() throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", "clients.csv", "text/csv", new byte[0]);
+    this.mockMvc.perform(MockMvcRequestBuilders.multipart("/cms/clients/imports").file(file))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    Mockito.verify(this.clientImportService, Mockito.never()).submit(ArgumentMatchers.any());
+  }
+}
@@ -0,0 +1,65 @@
+package net.javaguides.cms.controllerTest;
+
+import java.time.Instant;
+import net.javaguides.cms.maintenance.PendingClientSweeper;
+import net.javaguides.cms.maintenance.SweepProgress;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class for the maintenance endpoints within the CMS application.
+ * Uses Mockito for mocking the background jobs and Spring's MockMvc to perform and assert web requests.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class MaintenanceControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @MockBean
+  private PendingClientSweeper pendingClientSweeper;
+
+  /**
+   * Test for reading the pending sweep progress with the role ADMIN.
+   * Asserts that the response status is OK and carries the counters.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"ADMIN"}
+  )
+  public void getPendingSweepProgress() throws Exception {
+    SweepProgress progress = new SweepProgress(false, true, Instant.now(), Instant.now(), 3L, 1200L, 0L, 0L);
+    Mockito.when(this.pendingClientSweeper.getProgress()).thenReturn(progress);
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/sweeps/pending-clients"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.dryRun").value(true))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.matched").value(1200));
+  }
+
+  /**
+   * Test for reading the pending sweep progress with the role EMPLOYEE, expecting a Forbidden response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getPendingSweepProgressForbidden() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/sweeps/pending-clients"))
+        .andExpect(MockMvcResultMatchers.status().isForbidden());
+  }
+}
@@ -0,0 +1,67 @@
+package net.javaguides.cms.controllerTest;
+
+import java.time.Instant;
+import java.util.Map;
+import net.javaguides.cms.concurrency.SingleFlightAspect;
+import net.javaguides.cms.concurrency.SingleFlightMetrics;
+import net.javaguides.cms.concurrency.SingleFlightStats;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class for the read coalescing endpoint within the CMS application.
+ * Uses Mockito for mocking the single-flight metrics and Spring's MockMvc to perform and assert web requests.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ReadCoalescingControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @MockBean
+  private SingleFlightMetrics singleFlightMetrics;
+
+  /**
+   * Test for reading the single-flight counters with the role ADMIN.
+   * Asserts that the response status is OK and carries the counters by name.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"ADMIN"}
+  )
+  public void getSingleFlightStats() throws Exception {
+    SingleFlightStats stats = new SingleFlightStats(Instant.now(),
+        Map.of(SingleFlightAspect.CLIENT, new SingleFlightStats.Flights(40L, 36L, 0L)));
+    Mockito.when(this.singleFlightMetrics.getStats()).thenReturn(stats);
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/single-flight"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.flights.client.coalesced").value(36));
+  }
+
+  /**
+   * Test for reading the single-flight counters with the role EMPLOYEE, expecting a Forbidden response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getSingleFlightStatsForbidden() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/single-flight"))
+        .andExpect(MockMvcResultMatchers.status().isForbidden());
+  }
+}
@@ -0,0 +1,84 @@
+package net.javaguides.cms.controllerTest;
+
+import java.time.Instant;
+import java.util.List;
+import net.javaguides.cms.profiling.SqlProfiler;
+import net.javaguides.cms.profiling.SqlStatsReport;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class for the SQL statistics endpoints within the CMS application.
+ * Uses Mockito for mocking the profiler and Spring's MockMvc to perform and assert web requests.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class SqlStatsControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @MockBean
+  private SqlProfiler sqlProfiler;
+
+  /**
+   * Test for reading the SQL statistics with the role ADMIN.
+   * Asserts that the response status is OK and lists the statement shapes and slow statements.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"ADMIN"}
+  )
+  public void getSqlStats() throws Exception {
+    SqlStatsReport report = new SqlStatsReport(Instant.now(),
+        List.of(new SqlStatsReport.Shape("select * from clients where id=?", 10L, 25.0, 2.5, 9.0, 9.5)),
+        List.of(new SqlStatsReport.SlowStatement(Instant.now(), "select * from clients where id=?", 150.0,
+            List.of("Long"), 0)));
+    Mockito.when(this.sqlProfiler.report(50)).thenReturn(report);
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/sql-stats"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.shapes[0].count").value(10))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.slowest[0].parameterTypes[0]").value("Long"));
+  }
+
+  /**
+   * Test for resetting the SQL statistics with the role ADMIN.
+   * Asserts that the response status is No Content.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"ADMIN"}
+  )
+  public void resetSqlStats() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.delete("/cms/admin/sql-stats"))
+        .andExpect(MockMvcResultMatchers.status().isNoContent());
+    Mockito.verify(this.sqlProfiler).reset();
+  }
+
+  /**
+   * Test for reading the SQL statistics with the role EMPLOYEE, expecting a Forbidden response.
+   * @throws Exception if there's an error during request processing.
+   */
+  @Test
+  @WithMockUser(
+      roles = {"EMPLOYEE"}
+  )
+  public void getSqlStatsForbidden() throws Exception {
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/cms/admin/sql-stats"))
+        .andExpect(MockMvcResultMatchers.status().isForbidden());
+  }
+}
@@ -0,0 +1,78 @@
+package net.javaguides.cms.crypto;
+
+import java.util.Base64;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link SsnProtector}: encryption round trips, tampered values are refused, and the blind
+ * index ignores how an SSN is formatted.
+ */
+class SsnProtectorTest {
+
+  private static final String ENCRYPTION_KEY = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=";
+  private static final String INDEX_KEY = "AQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQE=";
+
+  private final SsnProtector protector = new SsnProtector(ENCRYPTION_KEY, INDEX_KEY);
+
+  @Test
+  void encryptedSsnsDecryptToTheOriginal() {
+    String stored = protector.encrypt("123-45-6789");
+
+    Assertions.assertTrue(protector.isEncrypted(stored));
+    Assertions.assertFalse(stored.contains("6789"));
+    Assertions.assertEquals("123-45-6789", protector.decrypt(stored));
+  }
+
+  @Test
+  void equalSsnsAreStoredDifferently() {
+    Assertions.assertNotEquals(protector.encrypt("123-45-6789"), protector.encrypt("123-45-6789"));
+  }
+
+  @Test
+  void tamperedValuesAreRefused() {
+    byte[] sealed = Base64.getDecoder().decode(protector.encrypt("123-45-6789").substring("v1:".length()));
+    sealed[sealed.length - 1] ^= 1;
+    String tampered = "v1:" + Base64.getEncoder().encodeToString(sealed);
+
+    Assertions.assertThrows(IllegalStateException.class, () -> protector.decrypt(tampered));
+  }
+
+  @Test
+  void valuesEncryptedUnderAnotherKeyAreRefused() {
+    SsnProtector other = new SsnProtector("AgICAgICAgICAgICAgICAgICAgICAgICAgICAgICAgI=", INDEX_KEY);
+
+    Assertions.assertThrows(IllegalStateException.class, () -> protector.decrypt(other.encrypt("123-45-6789")));
+  }
+
+  @Test
+  void legacyPlaintextIsReturnedUnchanged() {
+    Assertions.assertFalse(protector.isEncrypted("123-45-6789"));
+    Assertions.assertEquals("123-45-6789", protector.decrypt("123-45-6789"));
+    Assertions.assertNull(protector.decrypt(null));
+  }
+
+  @Test
+  void theBlindIndexIgnoresSpacesAndDashes() {
+    String index = protector.blindIndex("123456789");
+
+    Assertions.assertEquals(index, protector.blindIndex("123-45-6789"));
+    Assertions.assertEquals(index, protector.blindIndex("123 45 6789"));
+    Assertions.assertEquals(index, protector.blindIndex(" 123-45 6789 "));
+    Assertions.assertNotEquals(index, protector.blindIndex("123-45-6780"));
+    Assertions.assertNull(protector.blindIndex(null));
+  }
+
+  @Test
+  void theBlindIndexDependsOnTheIndexKey() {
+    SsnProtector other = new SsnProtector(ENCRYPTION_KEY, "AgICAgICAgICAgICAgICAgICAgICAgICAgICAgICAgI=");
+
+    Assertions.assertNotEquals(protector.blindIndex("123-45-6789"), other.blindIndex("123-45-6789"));
+  }
+
+  @Test
+  void keysOfTheWrongLengthAreRejected() {
+    Assertions.assertThrows(IllegalStateException.class, () -> new SsnProtector("AAAA", INDEX_KEY));
+    Assertions.assertThrows(IllegalStateException.class, () -> new SsnProtector(ENCRYPTION_KEY, "AAAA"));
+  }
+}
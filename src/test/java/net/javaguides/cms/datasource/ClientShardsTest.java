@@ -0,0 +1,156 @@
+package net.javaguides.cms.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.javaguides.cms.dto.ClientDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests for client sharding, with in-memory H2 databases standing in for the primary and two extra shards.
+ */
+class ClientShardsTest {
+
+  private HikariDataSource primary;
+  private List<HikariDataSource> extraShards;
+  private JdbcTemplate routed;
+
+  @BeforeEach
+  void createShards() {
+    primary = database("primary");
+    extraShards = List.of(database("shard1"), database("shard2"));
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(0, primary);
+    targets.put(1, extraShards.get(0));
+    targets.put(2, extraShards.get(1));
+    ShardRoutingDataSource routing = new ShardRoutingDataSource();
+    routing.setTargetDataSources(targets);
+    routing.setDefaultTargetDataSource(primary);
+    routing.afterPropertiesSet();
+    routed = new JdbcTemplate(routing);
+  }
+
+  @AfterEach
+  void dropShards() {
+    primary.close();
+    extraShards.forEach(HikariDataSource::close);
+  }
+
+  @Test
+  void idsAreOwnedByShardIdMinusOneModCount() {
+    ClientShards shards = new ClientShards(extraShards, 0);
+    Assertions.assertEquals(3, shards.count());
+    Assertions.assertEquals(List.of(0, 1, 2, 0, 1, 2),
+        List.of(1L, 2L, 3L, 4L, 5L, 6L).stream().map(shards::shardForId).toList());
+  }
+
+  @Test
+  void idsAllocatedBeforeShardingStayOnThePrimary() {
+    ClientShards shards = new ClientShards(extraShards, 10);
+    Assertions.assertEquals(0, shards.shardForId(2));
+    Assertions.assertEquals(0, shards.shardForId(10));
+    Assertions.assertEquals(1, shards.shardForId(11));
+    Assertions.assertEquals(2, shards.shardForId(12));
+    Assertions.assertEquals(0, shards.shardForId(13));
+  }
+
+  @Test
+  void rowsAreWrittenToAndReadFromTheirOwningShard() {
+    ClientShards shards = new ClientShards(extraShards, 0);
+    for (long id = 1; id <= 9; id++) {
+      insert(shards, id);
+    }
+
+    Assertions.assertEquals(List.of(1L, 4L, 7L), idsIn(primary));
+    Assertions.assertEquals(List.of(2L, 5L, 8L), idsIn(extraShards.get(0)));
+    Assertions.assertEquals(List.of(3L, 6L, 9L), idsIn(extraShards.get(1)));
+    Assertions.assertEquals(List.of(3, 3, 3),
+        shards.onAllShards(() -> routed.queryForObject("select count(*) from users", Integer.class)));
+    Assertions.assertEquals(Optional.of("user8"), shards.findFirst(() -> usernameOf(8)));
+    shards.destroy();
+  }
+
+  @Test
+  void serviceMethodsAreRoutedByTheAspect() {
+    ClientShards shards = new ClientShards(extraShards, 3);
+    //ids 1..3 were created before sharding and live on the primary
+    for (long id = 1; id <= 9; id++) {
+      insert(shards, id);
+    }
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 7L), idsIn(primary));
+    AspectJProxyFactory factory = new AspectJProxyFactory(new ShardedClients(routed));
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new ClientShardRoutingAspect(shards));
+    ShardedClients clients = factory.getProxy();
+
+    Assertions.assertEquals("user2", clients.usernameOf(2L));
+    Assertions.assertEquals("user8", clients.usernameOf(8L));
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L),
+        clients.all().stream().map(ClientDTO::getId).toList());
+    ClientDTO newClient = new ClientDTO();
+    newClient.setUsername("new_client");
+    Assertions.assertEquals(shards.shardForNewClient("new_client"), clients.shardOf(newClient));
+    shards.destroy();
+  }
+
+  /**
+   * A stand-in for the client service, reading through the shard-routed data source.
+   */
+  static class ShardedClients {
+
+    private final JdbcTemplate routed;
+
+    ShardedClients(JdbcTemplate routed) {
+      this.routed = routed;
+    }
+
+    @ShardRouted(ShardRouted.Mode.BY_ID)
+    public String usernameOf(Long id) {
+      return routed.queryForObject("select username from users where id = ?", String.class, id);
+    }
+
+    @ShardRouted(ShardRouted.Mode.ALL_SHARDS)
+    public List<ClientDTO> all() {
+      return routed.query("select id, username from users order by id desc", (rs, rowNum) -> {
+        ClientDTO client = new ClientDTO();
+        client.setId(rs.getLong("id"));
+        client.setUsername(rs.getString("username"));
+        return client;
+      });
+    }
+
+    @ShardRouted(ShardRouted.Mode.NEW_CLIENT)
+    public Integer shardOf(ClientDTO client) {
+      return ShardContext.current();
+    }
+  }
+
+  private void insert(ClientShards shards, long id) {
+    shards.callOn(shards.shardForId(id),
+        () -> routed.update("insert into users (id, username) values (?, ?)", id, "user" + id));
+  }
+
+  private Optional<String> usernameOf(long id) {
+    return routed.queryForList("select username from users where id = ?", String.class, id).stream().findFirst();
+  }
+
+  private static List<Long> idsIn(HikariDataSource shard) {
+    return new JdbcTemplate(shard).queryForList("select id from users order by id", Long.class);
+  }
+
+  private static HikariDataSource database(String name) {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    dataSource.setPoolName(name);
+    new JdbcTemplate(dataSource).execute("drop table if exists users");
+    new JdbcTemplate(dataSource).execute("create table users (id bigint primary key, username varchar(50))");
+    return dataSource;
+  }
+}
@@ -0,0 +1,89 @@
+package net.javaguides.cms.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the routing key chosen by {@link ReadWriteRoutingDataSource}: read-only transactions
+ * go to the replica unless it lags or the caller wrote recently, everything else goes to the primary.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+  private final ReplicaLagMonitor lagMonitor = Mockito.mock(ReplicaLagMonitor.class);
+  private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(60_000);
+  private final ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(lagMonitor, tracker);
+
+  @BeforeEach
+  void signIn() {
+    signInAs("alice");
+  }
+
+  @AfterEach
+  void clear() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void readOnlyTransactionGoesToReplica() {
+    inTransaction(true);
+    Assertions.assertEquals(DataSourceRole.REPLICA, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void readOnlyTransactionGoesToPrimaryWhileReplicaLags() {
+    Mockito.when(lagMonitor.isLagging()).thenReturn(true);
+    inTransaction(true);
+    Assertions.assertEquals(DataSourceRole.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void readWriteTransactionGoesToPrimary() {
+    inTransaction(false);
+    Assertions.assertEquals(DataSourceRole.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void readAfterOwnWriteIsPinnedToPrimary() {
+    inTransaction(false);
+    dataSource.determineCurrentLookupKey();
+
+    inTransaction(true);
+    Assertions.assertEquals(DataSourceRole.PRIMARY, dataSource.determineCurrentLookupKey());
+
+    signInAs("bob");
+    Assertions.assertEquals(DataSourceRole.REPLICA, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void pinningEndsAfterTheStickyWindow() {
+    ReadWriteRoutingDataSource unpinned = new ReadWriteRoutingDataSource(lagMonitor, new ReadYourWritesTracker(0));
+    inTransaction(false);
+    unpinned.determineCurrentLookupKey();
+
+    inTransaction(true);
+    Assertions.assertEquals(DataSourceRole.REPLICA, unpinned.determineCurrentLookupKey());
+  }
+
+  @Test
+  void connectionOutsideTransactionGoesToPrimaryWithoutPinning() {
+    Assertions.assertEquals(DataSourceRole.PRIMARY, dataSource.determineCurrentLookupKey());
+    Assertions.assertFalse(tracker.hasRecentWrite());
+  }
+
+  private static void inTransaction(boolean readOnly) {
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+  }
+
+  private static void signInAs(String username) {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, "n/a"));
+  }
+}
@@ -0,0 +1,54 @@
+package net.javaguides.cms.dto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for the id handling of {@link MultiGetResponse}.
+ */
+class MultiGetResponseTest {
+
+  @Test
+  void duplicateIdsAreDroppedInRequestOrder() {
+    Assertions.assertEquals(List.of(3L, 1L, 2L), MultiGetResponse.distinctIds(List.of(3L, 1L, 3L, 2L, 1L)));
+  }
+
+  @Test
+  void emptyIdsAreRejected() {
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> MultiGetResponse.distinctIds(Arrays.asList(1L, null, 2L)));
+
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+  }
+
+  @Test
+  void tooManyIdsAreRejected() {
+    List<Long> ids = LongStream.rangeClosed(1, MultiGetResponse.MAX_IDS + 1).boxed().toList();
+
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> MultiGetResponse.distinctIds(ids));
+
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    Assertions.assertEquals(MultiGetResponse.MAX_IDS, MultiGetResponse.distinctIds(ids.subList(0, MultiGetResponse.MAX_IDS)).size());
+  }
+
+  @Test
+  void foundRecordsFollowTheRequestOrderAndTheRestAreMissing() {
+    MultiGetResponse<ClientDTO> response = MultiGetResponse.of(List.of(3L, 1L, 2L),
+        List.of(client(1L), client(3L)), ClientDTO::getId);
+
+    Assertions.assertEquals(List.of(3L, 1L), response.getItems().stream().map(ClientDTO::getId).toList());
+    Assertions.assertEquals(List.of(2L), response.getMissing());
+  }
+
+  private static ClientDTO client(long id) {
+    ClientDTO client = new ClientDTO();
+    client.setId(id);
+    return client;
+  }
+}
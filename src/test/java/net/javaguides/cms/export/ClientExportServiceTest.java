@@ -0,0 +1,103 @@
+package net.javaguides.cms.export;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.event.ClientChangedEvent;
+import net.javaguides.cms.web.JdbcListStreamer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+/**
+ * Tests for {@link ClientExportService}: replaced snapshots stay on disk while they are being downloaded,
+ * and failed jobs are forgotten.
+ */
+class ClientExportServiceTest {
+
+  @TempDir
+  Path directory;
+
+  private JdbcListStreamer streamer;
+  private ClientExportService service;
+
+  @BeforeEach
+  void createService() throws Exception {
+    streamer = Mockito.mock(JdbcListStreamer.class);
+    Mockito.when(streamer.exportClients(ArgumentMatchers.any())).thenAnswer(invocation -> {
+      invocation.getArgument(0, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+      return 1L;
+    });
+    service = new ClientExportService(streamer, new ClientShards(List.of(), 0), directory.toString(), 60, 0);
+  }
+
+  @AfterEach
+  void stopService() {
+    service.destroy();
+  }
+
+  @Test
+  void replacedSnapshotIsDeletedOnlyAfterItsDownloadEnds() throws Exception {
+    ExportJob first = completed(service.start());
+    ExportLease download = service.lease(first.getId()).orElseThrow();
+
+    service.onClientChanged(ClientChangedEvent.deleted(1L));
+    completed(service.start());
+
+    Assertions.assertTrue(Files.exists(first.getFile()), "deleted while being downloaded");
+    Assertions.assertTrue(service.find(first.getId()).isEmpty());
+    Assertions.assertTrue(service.lease(first.getId()).isEmpty());
+
+    download.close();
+    Thread.sleep(5);
+    service.deleteRetired();
+
+    Assertions.assertFalse(Files.exists(first.getFile()));
+  }
+
+  @Test
+  void replacedSnapshotWithoutDownloadsIsDeletedAtOnce() throws Exception {
+    ExportJob first = completed(service.start());
+
+    service.onClientChanged(ClientChangedEvent.deleted(1L));
+    ExportJob second = completed(service.start());
+
+    Assertions.assertFalse(Files.exists(first.getFile()));
+    Assertions.assertTrue(Files.exists(second.getFile()));
+  }
+
+  @Test
+  void failedJobIsForgottenAfterTheGracePeriod() throws Exception {
+    Mockito.doThrow(new IllegalStateException("shard down")).when(streamer).exportClients(ArgumentMatchers.any());
+    ExportJob failed = finished(service.start());
+    Assertions.assertEquals(ExportJob.State.FAILED, failed.getState());
+    Assertions.assertTrue(service.find(failed.getId()).isPresent());
+
+    Thread.sleep(5);
+    service.deleteRetired();
+
+    Assertions.assertTrue(service.find(failed.getId()).isEmpty());
+    Assertions.assertTrue(service.lease(failed.getId()).isEmpty());
+  }
+
+  private static ExportJob completed(ExportJob job) throws InterruptedException {
+    Assertions.assertEquals(ExportJob.State.COMPLETED, finished(job).getState());
+    return job;
+  }
+
+  private static ExportJob finished(ExportJob job) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (job.getState() == ExportJob.State.RUNNING && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    return job;
+  }
+}
@@ -0,0 +1,44 @@
+package net.javaguides.cms.imports;
+
+import java.util.List;
+import java.util.Map;
+import net.javaguides.cms.Enums.Status;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for how {@link ClientImportService} turns a CSV record into a client, in particular which
+ * statuses an upload may set.
+ */
+class ClientImportServiceTest {
+
+  private static final Map<String, Integer> COLUMNS = Map.of("firstname", 0, "lastname", 1, "username", 2,
+      "email", 3, "ssn", 4, "dateofbirth", 5, "status", 6);
+
+  @Test
+  void reviewStatusesAreImported() {
+    for (Status status : List.of(Status.Approved, Status.Pending, Status.Rejected)) {
+      Assertions.assertEquals(status, ClientImportService.toClient(record(status.name()), COLUMNS).getStatus());
+    }
+  }
+
+  @Test
+  void expiredIsRejectedLikeAnUnknownStatus() {
+    IllegalArgumentException expired = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ClientImportService.toClient(record("Expired"), COLUMNS));
+    IllegalArgumentException unknown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ClientImportService.toClient(record("Archived"), COLUMNS));
+
+    Assertions.assertEquals("status must be one of Approved, Pending, Rejected", expired.getMessage());
+    Assertions.assertEquals(expired.getMessage(), unknown.getMessage());
+  }
+
+  @Test
+  void aMissingStatusDefaultsToPending() {
+    Assertions.assertEquals(Status.Pending, ClientImportService.toClient(record(""), COLUMNS).getStatus());
+  }
+
+  private static List<String> record(String status) {
+    return List.of("Jane", "Doe", "jane", "jane@example.com", "123-45-6789", "1990-01-31", status);
+  }
+}
@@ -0,0 +1,112 @@
+package net.javaguides.cms.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link EventRing}: ordering, bounds, and no lost or duplicated elements with concurrent
+ * producers.
+ */
+class EventRingTest {
+
+  @Test
+  void capacityIsRoundedUpToAPowerOfTwo() {
+    Assertions.assertEquals(2, new EventRing<>(1).capacity());
+    Assertions.assertEquals(8, new EventRing<>(8).capacity());
+    Assertions.assertEquals(16, new EventRing<>(9).capacity());
+  }
+
+  @Test
+  void elementsArePolledInOfferOrder() {
+    EventRing<Integer> ring = new EventRing<>(4);
+    Assertions.assertTrue(ring.isEmpty());
+    Assertions.assertNull(ring.poll());
+
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertTrue(ring.offer(i));
+    }
+
+    Assertions.assertFalse(ring.isEmpty());
+    Assertions.assertEquals(0, ring.poll());
+    Assertions.assertEquals(1, ring.poll());
+    Assertions.assertEquals(2, ring.poll());
+    Assertions.assertNull(ring.poll());
+    Assertions.assertTrue(ring.isEmpty());
+  }
+
+  @Test
+  void aFullRingRefusesOffersUntilPolled() {
+    EventRing<Integer> ring = new EventRing<>(4);
+    for (int i = 0; i < 4; i++) {
+      Assertions.assertTrue(ring.offer(i));
+    }
+
+    Assertions.assertFalse(ring.offer(4));
+    Assertions.assertEquals(0, ring.poll());
+    Assertions.assertTrue(ring.offer(4));
+    Assertions.assertFalse(ring.offer(5));
+  }
+
+  @Test
+  void slotsAreReusedAcrossManyWraps() {
+    EventRing<Integer> ring = new EventRing<>(2);
+    for (int i = 0; i < 1_000; i++) {
+      Assertions.assertTrue(ring.offer(i));
+      Assertions.assertEquals(i, ring.poll());
+    }
+    Assertions.assertTrue(ring.isEmpty());
+  }
+
+  @Test
+  void concurrentProducersLoseNothingAndKeepTheirOwnOrder() throws Exception {
+    int producers = 4;
+    int perProducer = 50_000;
+    EventRing<long[]> ring = new EventRing<>(64);
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> running = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      long producer = p;
+      running.add(executor.submit(() -> {
+        start.await();
+        for (long i = 0; i < perProducer; i++) {
+          while (!ring.offer(new long[] {producer, i})) {
+            Thread.yield();
+          }
+        }
+        return null;
+      }));
+    }
+
+    start.countDown();
+    long[] next = new long[producers];
+    long received = 0;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (received < (long) producers * perProducer) {
+      Assertions.assertTrue(System.nanoTime() < deadline, "timed out after " + received + " elements");
+      long[] element = ring.poll();
+      if (element == null) {
+        Thread.yield();
+        continue;
+      }
+      Assertions.assertEquals(next[(int) element[0]]++, element[1], "out of order from producer " + element[0]);
+      received++;
+    }
+    for (Future<?> producer : running) {
+      producer.get(5, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    Assertions.assertTrue(ring.isEmpty());
+    for (int p = 0; p < producers; p++) {
+      Assertions.assertEquals(perProducer, next[p]);
+    }
+  }
+}
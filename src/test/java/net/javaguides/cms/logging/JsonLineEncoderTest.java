@@ -0,0 +1,87 @@
+package net.javaguides.cms.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link JsonLineEncoder}: every event is one line of valid JSON, whatever its message holds.
+ */
+class JsonLineEncoderTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Logger logger = ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("net.javaguides.cms.Example");
+
+  @Test
+  void fieldsAreWrittenOnOneLine() throws Exception {
+    LoggingEvent event = event("Client {} created", null, 42);
+    event.setInstant(Instant.parse("2024-05-01T10:15:30.123Z"));
+    event.setThreadName("http-nio-8080-exec-1");
+
+    String line = encode(event);
+
+    Assertions.assertTrue(line.endsWith("}\n"));
+    Assertions.assertEquals(1, line.split("\n", -1).length - 1);
+    JsonNode json = objectMapper.readTree(line);
+    Assertions.assertEquals("2024-05-01T10:15:30.123Z", json.get("ts").asText());
+    Assertions.assertEquals("INFO", json.get("level").asText());
+    Assertions.assertEquals("http-nio-8080-exec-1", json.get("thread").asText());
+    Assertions.assertEquals("net.javaguides.cms.Example", json.get("logger").asText());
+    Assertions.assertEquals("Client 42 created", json.get("message").asText());
+    Assertions.assertFalse(json.has("mdc"));
+    Assertions.assertFalse(json.has("exception"));
+  }
+
+  @Test
+  void specialCharactersAreEscaped() throws Exception {
+    String message = "quote \" backslash \\ newline \n return \r tab \t bell \u0007 unicode é";
+
+    String line = encode(event(message, null));
+
+    Assertions.assertEquals(1, line.split("\n", -1).length - 1);
+    Assertions.assertEquals(message, objectMapper.readTree(line).get("message").asText());
+  }
+
+  @Test
+  void mdcEntriesAreNested() throws Exception {
+    LoggingEvent event = event("request", null);
+    event.setMDCPropertyMap(Map.of("requestId", "abc-123", "user", "o\"brien"));
+
+    JsonNode mdc = objectMapper.readTree(encode(event)).get("mdc");
+
+    Assertions.assertEquals("abc-123", mdc.get("requestId").asText());
+    Assertions.assertEquals("o\"brien", mdc.get("user").asText());
+  }
+
+  @Test
+  void exceptionsAreWrittenAsOneEscapedString() throws Exception {
+    String line = encode(event("failed", new IllegalStateException("broken\nstate")));
+
+    Assertions.assertEquals(1, line.split("\n", -1).length - 1);
+    String exception = objectMapper.readTree(line).get("exception").asText();
+    Assertions.assertTrue(exception.startsWith("java.lang.IllegalStateException: broken\nstate"), exception);
+    Assertions.assertTrue(exception.contains("at net.javaguides.cms.logging.JsonLineEncoderTest"), exception);
+  }
+
+  @Test
+  void nullMessagesAreWrittenAsNull() throws Exception {
+    Assertions.assertTrue(objectMapper.readTree(encode(event(null, null))).get("message").isNull());
+  }
+
+  private LoggingEvent event(String message, Throwable throwable, Object... arguments) {
+    return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, throwable, arguments);
+  }
+
+  private static String encode(LoggingEvent event) {
+    return new String(new JsonLineEncoder().encode(event), StandardCharsets.UTF_8);
+  }
+}
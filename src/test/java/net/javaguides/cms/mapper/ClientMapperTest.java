@@ -0,0 +1,61 @@
+package net.javaguides.cms.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.cms.crypto.SealedSsnConverter;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.entity.Client;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Tests for {@link ClientMapper}: a stored SSN stays encrypted in the DTO until the DTO is serialized.
+ */
+class ClientMapperTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  @Test
+  void storedSsnIsDecryptedOnlyWhenTheDtoIsSerialized() throws Exception {
+    SsnProtector ssnProtector = Mockito.mock(SsnProtector.class);
+    Mockito.when(ssnProtector.decrypt("v1:sealed")).thenReturn("123-45-6789");
+    Client client = new Client();
+    client.setId(7L);
+    client.setSealedSsn(new SealedSsnConverter(ssnProtector).convertToEntityAttribute("v1:sealed"));
+
+    ClientDTO clientDto = ClientMapper.mapToClientDto(client);
+    Mockito.verifyNoInteractions(ssnProtector);
+
+    JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(clientDto));
+    Assertions.assertEquals("123-45-6789", json.get("ssn").asText());
+    Assertions.assertFalse(json.has("sealedSsn"));
+    Mockito.verify(ssnProtector).decrypt("v1:sealed");
+  }
+
+  @Test
+  void storedSsnIsWrittenBackWithoutEncryptingAgain() {
+    SsnProtector ssnProtector = Mockito.mock(SsnProtector.class);
+    Mockito.when(ssnProtector.isEncrypted("v1:sealed")).thenReturn(true);
+    SealedSsnConverter converter = new SealedSsnConverter(ssnProtector);
+    Client client = new Client();
+    client.setId(7L);
+    client.setSealedSsn(converter.convertToEntityAttribute("v1:sealed"));
+
+    Client mapped = ClientMapper.mapToClient(ClientMapper.mapToClientDto(client));
+
+    Assertions.assertEquals("v1:sealed", converter.convertToDatabaseColumn(mapped.getSealedSsn()));
+    Mockito.verify(ssnProtector, Mockito.never()).decrypt(Mockito.any());
+    Mockito.verify(ssnProtector, Mockito.never()).encrypt(Mockito.any());
+  }
+
+  @Test
+  void ssnReceivedInARequestIsKeptAsPlaintext() throws Exception {
+    ClientDTO clientDto = objectMapper.readValue("{\"ssn\":\"123-45-6789\"}", ClientDTO.class);
+
+    Assertions.assertEquals("123-45-6789", clientDto.getSSN());
+    Assertions.assertEquals("123-45-6789", ClientMapper.mapToClient(clientDto).getSSN());
+  }
+}
@@ -0,0 +1,76 @@
+package net.javaguides.cms.profiling;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Tests for {@link ProfilingDataSource} against an in-memory H2 database: statements are reported to the
+ * profiler without changing their outcome.
+ */
+class ProfilingDataSourceTest {
+
+  private SqlProfiler profiler;
+  private ProfilingDataSource dataSource;
+
+  @BeforeEach
+  void createDataSource() throws SQLException {
+    SqlProfilerProperties properties = new SqlProfilerProperties();
+    properties.setSlowThresholdMillis(0);
+    profiler = new SqlProfiler(properties);
+    dataSource = new ProfilingDataSource(new DriverManagerDataSource("jdbc:h2:mem:profiling;DB_CLOSE_DELAY=-1"),
+        profiler);
+    try (Connection connection = dataSource.getConnection()) {
+      connection.createStatement().execute("drop table if exists users");
+      connection.createStatement().execute("create table users (id bigint primary key, username varchar(50))");
+    }
+    profiler.reset();
+  }
+
+  @Test
+  void parametersBoundOutOfOrderAreReported() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("insert into users (id, username) values (?, ?)")) {
+      statement.setString(2, "alice");
+      statement.execute();
+    } catch (SQLException e) {
+      //parameter 1 is missing, which the driver reports as usual
+    }
+
+    SqlStatsReport.SlowStatement recorded = profiler.report(10).slowest().get(0);
+    Assertions.assertEquals("insert into users (id, username) values (?, ?)", recorded.sql());
+    Assertions.assertEquals(List.of(ProfilingDataSource.UNSET_PARAMETER, "String"), recorded.parameterTypes());
+  }
+
+  @Test
+  void statementFailuresReachTheCaller() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      Assertions.assertThrows(SQLException.class,
+          () -> connection.createStatement().execute("select * from missing_table"));
+    }
+
+    Assertions.assertEquals(1, profiler.report(10).shapes().get(0).count());
+  }
+
+  @Test
+  void batchesAreReportedWithTheirSize() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("insert into users (id, username) values (?, ?)")) {
+      for (long id = 1; id <= 3; id++) {
+        statement.setLong(1, id);
+        statement.setString(2, "user" + id);
+        statement.addBatch();
+      }
+      Assertions.assertArrayEquals(new int[] {1, 1, 1}, statement.executeBatch());
+    }
+
+    SqlStatsReport.SlowStatement recorded = profiler.report(10).slowest().get(0);
+    Assertions.assertEquals(3, recorded.batchSize());
+    Assertions.assertEquals(List.of("Long", "String"), recorded.parameterTypes());
+  }
+}
@@ -0,0 +1,108 @@
+package net.javaguides.cms.profiling;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests for {@link SqlProfiler}: how statements are grouped into shapes, the latency histogram, and that
+ * recording never fails the statement being recorded.
+ */
+class SqlProfilerTest {
+
+  @Test
+  void literalsAreReplacedAndWhitespaceCollapsed() {
+    Assertions.assertEquals("select * from users where username = ? and id = ? and score > ?",
+        SqlProfiler.normalize("select *\n  from users\twhere username = 'o''brien' and id = 42 and score > 1.5"));
+  }
+
+  @Test
+  void identifiersEndingInDigitsAreKept() {
+    Assertions.assertEquals("select col1, t2.id from table2 t2 where t2.id = ?",
+        SqlProfiler.normalize("select col1, t2.id from table2 t2 where t2.id = 7"));
+  }
+
+  @Test
+  void inListsOfAnySizeHaveOneShape() {
+    String shape = "select * from users where id in (?...)";
+
+    Assertions.assertEquals(shape, SqlProfiler.normalize("select * from users where id in (?)"));
+    Assertions.assertEquals(shape, SqlProfiler.normalize("select * from users where id in (?, ?, ?)"));
+    Assertions.assertEquals(shape, SqlProfiler.normalize("select * from users where id IN (1,2,3,4)"));
+  }
+
+  @Test
+  void smallLatenciesHaveTheirOwnBuckets() {
+    for (int micros = 0; micros < 8; micros++) {
+      Assertions.assertEquals(micros, SqlProfiler.ShapeStats.bucket(micros));
+      Assertions.assertEquals(micros, SqlProfiler.ShapeStats.upperMicros(micros));
+    }
+    Assertions.assertEquals(0, SqlProfiler.ShapeStats.bucket(-5));
+  }
+
+  @Test
+  void everyLatencyFallsWithinItsBucketWithinAQuarter() {
+    long micros = 1;
+    while (micros < TimeUnit.DAYS.toMicros(1)) {
+      int bucket = SqlProfiler.ShapeStats.bucket(micros);
+      long upper = SqlProfiler.ShapeStats.upperMicros(bucket);
+      Assertions.assertTrue(upper >= micros, micros + " lies above its bucket");
+      Assertions.assertTrue(bucket == 0 || SqlProfiler.ShapeStats.upperMicros(bucket - 1) < micros,
+          micros + " belongs to an earlier bucket");
+      Assertions.assertTrue(upper <= micros * 1.25 + 1, micros + " is reported as " + upper);
+      micros += Math.max(1, micros / 7);
+    }
+  }
+
+  @Test
+  void bucketsGrowWithLatencyAndStopAtTheLast() {
+    int previous = 0;
+    for (long micros = 0; micros < 100_000; micros++) {
+      int bucket = SqlProfiler.ShapeStats.bucket(micros);
+      Assertions.assertTrue(bucket == previous || bucket == previous + 1, "bucket skipped at " + micros);
+      previous = bucket;
+    }
+    Assertions.assertEquals(191, SqlProfiler.ShapeStats.bucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  void theReportedPercentileCoversTheSlowestRuns() {
+    SqlProfiler profiler = new SqlProfiler(new SqlProfilerProperties());
+    for (int i = 0; i < 98; i++) {
+      profiler.record("select 1", TimeUnit.MILLISECONDS.toNanos(1), List.of(), 0);
+    }
+    profiler.record("select 1", TimeUnit.MILLISECONDS.toNanos(40), List.of(), 0);
+    profiler.record("select 1", TimeUnit.MILLISECONDS.toNanos(50), List.of(), 0);
+
+    SqlStatsReport.Shape shape = profiler.report(10).shapes().get(0);
+    Assertions.assertEquals(100, shape.count());
+    Assertions.assertTrue(shape.p99Millis() >= 40 && shape.p99Millis() <= 50, "p99 was " + shape.p99Millis());
+    Assertions.assertEquals(50, shape.maxMillis(), 0.001);
+  }
+
+  @Test
+  void slowStatementsKeepUnknownParameterTypes() {
+    SqlProfilerProperties properties = new SqlProfilerProperties();
+    properties.setSlowThresholdMillis(0);
+    SqlProfiler profiler = new SqlProfiler(properties);
+
+    profiler.record("select * from users where id = ?", 10, Arrays.asList(null, "Long"), 0);
+
+    Assertions.assertEquals(Arrays.asList(null, "Long"), profiler.report(10).slowest().get(0).parameterTypes());
+  }
+
+  @Test
+  void failuresWhileRecordingAreNotThrown() {
+    SqlProfilerProperties properties = Mockito.mock(SqlProfilerProperties.class);
+    Mockito.when(properties.getSlowLogSize()).thenReturn(10);
+    Mockito.when(properties.getMaxShapes()).thenThrow(new IllegalStateException("broken"));
+    SqlProfiler profiler = new SqlProfiler(properties);
+
+    Assertions.assertDoesNotThrow(() -> profiler.record("select 1", 10, List.of(), 0));
+    Assertions.assertDoesNotThrow(() -> profiler.record("select 1", 10, List.of(), 0));
+    Assertions.assertTrue(profiler.report(10).shapes().isEmpty());
+  }
+}
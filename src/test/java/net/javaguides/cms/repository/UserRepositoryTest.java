@@ -0,0 +1,94 @@
+package net.javaguides.cms.repository;
+
+import java.util.Date;
+import java.util.List;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.entity.Client;
+import net.javaguides.cms.entity.Employee;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for the uniqueness queries of {@link UserRepository} and {@link ClientRepository} against an
+ * in-memory H2 database: soft-deleted users still hold their keys until they are purged. Entity queries
+ * are not covered here, since the {@code deleted = 0} restriction is written for MySQL's boolean type.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop"})
+@ActiveProfiles("test")
+@Import(SsnProtector.class)
+class UserRepositoryTest {
+
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private ClientRepository clientRepository;
+  @Autowired
+  private EmployeeRepository employeeRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void saveClients() {
+    clientRepository.save(client("alice", "alice@example.com", "index-alice"));
+    Client deleted = clientRepository.save(client("bob", "bob@example.com", "index-bob"));
+    clientRepository.flush();
+    jdbcTemplate.update("update users set deleted = 1 where id = ?", deleted.getId());
+  }
+
+  @Test
+  void softDeletedUsersStillHoldTheirKeys() {
+    Assertions.assertTrue(userRepository.existsByUsername("bob"));
+    Assertions.assertTrue(userRepository.existsByEmail("bob@example.com"));
+    Assertions.assertTrue(clientRepository.existsBySsnIndex("index-bob"));
+    Assertions.assertTrue(userRepository.existsByUsername("alice"));
+    Assertions.assertFalse(userRepository.existsByUsername("carol"));
+  }
+
+  @Test
+  void softDeletedAdminStillHoldsItsUsername() {
+    Employee admin = new Employee();
+    admin.setFirstName("Admin");
+    admin.setLastName("User");
+    admin.setUsername("admin");
+    admin.setEmail("admin@example.com");
+    admin.setPassword("hash");
+    admin.setDepartment("IT");
+    admin = employeeRepository.saveAndFlush(admin);
+    jdbcTemplate.update("update users set deleted = 1 where id = ?", admin.getId());
+
+    //the start-up admin check must see it, or inserting a new admin breaks the unique username
+    Assertions.assertTrue(employeeRepository.existsByUsername("admin"));
+    Assertions.assertFalse(employeeRepository.existsByUsername("root"));
+  }
+
+  @Test
+  void loadQueriesIncludeSoftDeletedUsers() {
+    Assertions.assertEquals(List.of("alice", "bob"),
+        userRepository.findAllUsernamesAndEmails().stream().map(row -> (String) row[0]).sorted().toList());
+    Assertions.assertEquals(List.of("index-alice", "index-bob"),
+        clientRepository.findAllSsnIndexes().stream().sorted().toList());
+  }
+
+  private static Client client(String username, String email, String ssnIndex) {
+    Client client = new Client();
+    client.setFirstName(username);
+    client.setLastName("Test");
+    client.setUsername(username);
+    client.setEmail(email);
+    client.setPassword("hash");
+    client.setSSN("123-45-" + ssnIndex.hashCode() % 10_000);
+    client.setSsnIndex(ssnIndex);
+    client.setDateOfBirth(new Date(0));
+    client.setStatus(Status.Pending);
+    return client;
+  }
+}
@@ -0,0 +1,156 @@
+package net.javaguides.cms.resilience;
+
+import java.util.List;
+import java.util.OptionalLong;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.dto.EmployeeDto;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.exception.ServiceDegradedException;
+import net.javaguides.cms.service.Implementations.ClientServiceImpl;
+import net.javaguides.cms.service.Implementations.EmployeeServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * Tests for {@link CircuitBreakerAspect} around mocked services: last known good results are served while
+ * the database is unreachable, other calls fail fast, and business errors do not count as failures.
+ */
+class CircuitBreakerAspectTest {
+
+  private CircuitBreakerProperties properties;
+  private DatabaseCircuitBreaker breaker;
+  private StaleResults staleResults;
+  private ClientServiceImpl clientTarget;
+  private ClientServiceImpl clients;
+  private EmployeeServiceImpl employeeTarget;
+  private EmployeeServiceImpl employees;
+
+  @BeforeEach
+  void createServices() {
+    properties = new CircuitBreakerProperties();
+    properties.setMinimumCalls(2);
+    properties.setWindowSize(2);
+    properties.setOpenSeconds(60);
+    breaker = new DatabaseCircuitBreaker(properties);
+    staleResults = new StaleResults(properties);
+    CircuitBreakerAspect aspect = new CircuitBreakerAspect(breaker, staleResults, properties);
+    clientTarget = Mockito.mock(ClientServiceImpl.class);
+    clients = proxy(clientTarget, aspect);
+    employeeTarget = Mockito.mock(EmployeeServiceImpl.class);
+    employees = proxy(employeeTarget, aspect);
+    ServedStale.clear();
+  }
+
+  @AfterEach
+  void clearMark() {
+    ServedStale.clear();
+  }
+
+  @Test
+  void aReadFailingToReachTheDatabaseServesItsLastResult() {
+    ClientDTO client = client(1L, "alice");
+    Mockito.when(clientTarget.getClientById(1L)).thenReturn(client)
+        .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+    Assertions.assertSame(client, clients.getClientById(1L));
+    Assertions.assertEquals(OptionalLong.empty(), ServedStale.take());
+    Assertions.assertSame(client, clients.getClientById(1L));
+    Assertions.assertEquals(OptionalLong.of(0), ServedStale.take());
+  }
+
+  @Test
+  void aReadWithoutAnEarlierResultRethrowsTheFailure() {
+    Mockito.when(clientTarget.getClientById(2L)).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+    Assertions.assertThrows(DataAccessResourceFailureException.class, () -> clients.getClientById(2L));
+    Assertions.assertEquals(OptionalLong.empty(), ServedStale.take());
+  }
+
+  @Test
+  void whileOpenReadsAreServedStaleWithoutCallingTheService() {
+    ClientDTO client = client(1L, "alice");
+    Mockito.when(clientTarget.getClientById(1L)).thenReturn(client);
+    clients.getClientById(1L);
+    open();
+    Mockito.clearInvocations(clientTarget);
+
+    Assertions.assertSame(client, clients.getClientById(1L));
+    Assertions.assertTrue(ServedStale.take().isPresent());
+    Mockito.verifyNoInteractions(clientTarget);
+  }
+
+  @Test
+  void whileOpenOtherCallsFailFastWithARetryDelay() {
+    open();
+    Mockito.clearInvocations(clientTarget);
+
+    ServiceDegradedException degraded = Assertions.assertThrows(ServiceDegradedException.class,
+        () -> clients.createClient(client(5L, "bob")));
+    Assertions.assertEquals(60, degraded.getRetryAfterSeconds());
+    Assertions.assertThrows(ServiceDegradedException.class, () -> clients.getClientById(3L));
+    Mockito.verifyNoInteractions(clientTarget);
+  }
+
+  @Test
+  void businessErrorsDoNotOpenTheBreaker() {
+    Mockito.when(clientTarget.getClientById(4L)).thenThrow(new ResourceNotFoundException("missing"));
+
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertThrows(ResourceNotFoundException.class, () -> clients.getClientById(4L));
+    }
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void employeeChangesReplaceOrDropTheirLastResult() {
+    EmployeeDto employee = employee(7L, "Sales");
+    Mockito.when(employeeTarget.getEmployeeById(7L)).thenReturn(employee);
+    employees.getEmployeeById(7L);
+    open();
+
+    EmployeeDto moved = employee(7L, "Support");
+    staleResults.onEmployeeChanged(EmployeeChangedEvent.saved(moved));
+    Assertions.assertSame(moved, employees.getEmployeeById(7L));
+
+    staleResults.onEmployeeChanged(EmployeeChangedEvent.deleted(7L));
+    Assertions.assertThrows(ServiceDegradedException.class, () -> employees.getEmployeeById(7L));
+  }
+
+  //with a window of two, one or two failed calls open the breaker
+  private void open() {
+    Mockito.when(clientTarget.getClientsByIds(Mockito.any()))
+        .thenThrow(new DataAccessResourceFailureException("connection refused"));
+    for (int i = 0; i < 2 && breaker.getState() == DatabaseCircuitBreaker.State.CLOSED; i++) {
+      Assertions.assertThrows(DataAccessResourceFailureException.class,
+          () -> clients.getClientsByIds(List.of(99L)));
+    }
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  private static <T> T proxy(T target, CircuitBreakerAspect aspect) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    return factory.getProxy();
+  }
+
+  private static ClientDTO client(long id, String username) {
+    ClientDTO client = new ClientDTO();
+    client.setId(id);
+    client.setUsername(username);
+    return client;
+  }
+
+  private static EmployeeDto employee(Long id, String department) {
+    EmployeeDto employee = new EmployeeDto();
+    employee.setId(id);
+    employee.setDepartment(department);
+    return employee;
+  }
+}
@@ -0,0 +1,133 @@
+package net.javaguides.cms.resilience;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the state transitions of {@link DatabaseCircuitBreaker}.
+ */
+class DatabaseCircuitBreakerTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+  private static final long SLOW = TimeUnit.SECONDS.toNanos(3);
+
+  @Test
+  void failuresBelowTheMinimumCallCountDoNotOpen() {
+    DatabaseCircuitBreaker breaker = breaker(60);
+    calls(breaker, 9, true, FAST);
+
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+    Assertions.assertTrue(breaker.tryAcquire());
+  }
+
+  @Test
+  void aFailureRateAtTheThresholdOpens() {
+    DatabaseCircuitBreaker breaker = breaker(60);
+    calls(breaker, 5, false, FAST);
+    calls(breaker, 4, true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+
+    calls(breaker, 1, true, FAST);
+
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+    Assertions.assertFalse(breaker.tryAcquire());
+  }
+
+  @Test
+  void aSlowCallRateAtTheThresholdOpens() {
+    DatabaseCircuitBreaker breaker = breaker(60);
+    calls(breaker, 2, false, FAST);
+    calls(breaker, 8, false, SLOW);
+
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void failuresOutsideTheWindowAreForgotten() {
+    DatabaseCircuitBreaker breaker = breaker(60);
+    calls(breaker, 4, true, FAST);
+    calls(breaker, 20, false, FAST);
+    calls(breaker, 9, true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+
+    calls(breaker, 1, true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  void onceTheOpenPeriodIsOverOnlyTheProbesAreLetThrough() {
+    DatabaseCircuitBreaker breaker = breaker(0);
+    calls(breaker, 10, true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+
+    Assertions.assertTrue(breaker.tryAcquire());
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assertions.assertTrue(breaker.tryAcquire());
+    Assertions.assertFalse(breaker.tryAcquire());
+  }
+
+  @Test
+  void successfulProbesCloseWithAFreshWindow() {
+    DatabaseCircuitBreaker breaker = breaker(0);
+    calls(breaker, 10, true, FAST);
+    Assertions.assertTrue(breaker.tryAcquire());
+    Assertions.assertTrue(breaker.tryAcquire());
+
+    breaker.record(false, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    breaker.record(false, FAST);
+
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+    calls(breaker, 9, true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void aFailedOrSlowProbeOpensAgain() {
+    DatabaseCircuitBreaker failing = breaker(0);
+    calls(failing, 10, true, FAST);
+    Assertions.assertTrue(failing.tryAcquire());
+    Assertions.assertTrue(failing.tryAcquire());
+    failing.record(false, FAST);
+    failing.record(true, FAST);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, failing.getState());
+
+    DatabaseCircuitBreaker slow = breaker(0);
+    calls(slow, 10, true, FAST);
+    Assertions.assertTrue(slow.tryAcquire());
+    slow.record(false, SLOW);
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, slow.getState());
+  }
+
+  @Test
+  void callsStartedBeforeOpeningAreIgnored() {
+    DatabaseCircuitBreaker breaker = breaker(60);
+    calls(breaker, 10, true, FAST);
+
+    breaker.record(false, FAST);
+    breaker.record(true, FAST);
+
+    Assertions.assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  //a window of 20 calls that may open after 10, at 50% failed or 80% slow, probed by two calls
+  private static DatabaseCircuitBreaker breaker(int openSeconds) {
+    CircuitBreakerProperties properties = new CircuitBreakerProperties();
+    properties.setWindowSize(20);
+    properties.setMinimumCalls(10);
+    properties.setFailureRatePercent(50);
+    properties.setSlowCallMillis(2000);
+    properties.setSlowCallRatePercent(80);
+    properties.setOpenSeconds(openSeconds);
+    properties.setHalfOpenProbes(2);
+    return new DatabaseCircuitBreaker(properties);
+  }
+
+  private static void calls(DatabaseCircuitBreaker breaker, int count, boolean failed, long nanos) {
+    for (int i = 0; i < count; i++) {
+      Assertions.assertTrue(breaker.tryAcquire());
+      breaker.record(failed, nanos);
+    }
+  }
+}
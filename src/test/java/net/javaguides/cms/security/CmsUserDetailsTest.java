@@ -0,0 +1,47 @@
+package net.javaguides.cms.security;
+
+import net.javaguides.cms.Enums.UserRole;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Tests for {@link CmsUserDetails}: the password hash is dropped once a login has been authenticated.
+ */
+class CmsUserDetailsTest {
+
+  @Test
+  void successfulLoginErasesThePasswordHash() {
+    DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+    provider.setUserDetailsService(username -> details(username, "{noop}secret"));
+    ProviderManager manager = new ProviderManager(provider);
+
+    Authentication authentication = manager.authenticate(
+        UsernamePasswordAuthenticationToken.unauthenticated("alice", "secret"));
+
+    CmsUserDetails principal = (CmsUserDetails) authentication.getPrincipal();
+    Assertions.assertEquals("alice", principal.getUsername());
+    Assertions.assertNull(principal.getPassword());
+    Assertions.assertNull(authentication.getCredentials());
+    Assertions.assertSame(RoleAuthorities.forMask(UserRole.CLIENT.bit()), principal.getAuthorities());
+  }
+
+  @Test
+  void usersWithTheSameUsernameAreEqual() {
+    CmsUserDetails loaded = details("alice", "{noop}secret");
+    CmsUserDetails erased = details("alice", "{noop}secret");
+    erased.eraseCredentials();
+
+    Assertions.assertEquals(loaded, erased);
+    Assertions.assertEquals(loaded.hashCode(), erased.hashCode());
+    Assertions.assertNotEquals(loaded, details("bob", "{noop}secret"));
+    Assertions.assertFalse(loaded.toString().contains("secret"));
+  }
+
+  private static CmsUserDetails details(String username, String password) {
+    return new CmsUserDetails(username, password, RoleAuthorities.forMask(UserRole.CLIENT.bit()));
+  }
+}
@@ -0,0 +1,93 @@
+package net.javaguides.cms.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+
+/**
+ * Tests for {@link LoginAttemptGuard}: backoff after repeated failures, the negative cache, and eviction
+ * of the oldest records once the tracked identifiers reach their bound.
+ */
+class LoginAttemptGuardTest {
+
+  @Test
+  void identifiersAreBlockedAfterTheFreeAttempts() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(60, 2, 60, 900, 100);
+    fail(guard, "alice");
+    fail(guard, "ALICE");
+    guard.checkNotBlocked("alice");
+
+    fail(guard, "alice");
+
+    Assertions.assertThrows(LockedException.class, () -> guard.checkNotBlocked("Alice"));
+  }
+
+  @Test
+  void successfulLoginResetsTheFailures() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(60, 0, 60, 900, 100);
+    fail(guard, "alice");
+    Assertions.assertThrows(LockedException.class, () -> guard.checkNotBlocked("alice"));
+
+    guard.onSuccess(new AuthenticationSuccessEvent(new TestingAuthenticationToken("alice", null)));
+
+    guard.checkNotBlocked("alice");
+  }
+
+  @Test
+  void theOldestFailureRecordIsEvictedWhenFull() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(60, 0, 60, 900, 2);
+    fail(guard, "alice");
+    fail(guard, "bob");
+    fail(guard, "alice");
+
+    fail(guard, "carol");
+
+    Assertions.assertThrows(LockedException.class, () -> guard.checkNotBlocked("alice"));
+    Assertions.assertThrows(LockedException.class, () -> guard.checkNotBlocked("carol"));
+    guard.checkNotBlocked("bob");
+  }
+
+  @Test
+  void newMissingIdentifiersAreTrackedWhenFull() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(60, 5, 1, 900, 2);
+    guard.recordMissing("ghost1");
+    guard.recordMissing("ghost2");
+
+    guard.recordMissing("ghost3");
+
+    Assertions.assertFalse(guard.isKnownMissing("ghost1"));
+    Assertions.assertTrue(guard.isKnownMissing("ghost2"));
+    Assertions.assertTrue(guard.isKnownMissing("GHOST3"));
+  }
+
+  @Test
+  void createdUsersLeaveTheNegativeCache() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(60, 5, 1, 900, 100);
+    guard.recordMissing("new.user@example.com");
+
+    guard.forgetMissing("newuser", "New.User@example.com");
+
+    Assertions.assertFalse(guard.isKnownMissing("new.user@example.com"));
+  }
+
+  @Test
+  void expiredRecordsAreSwept() {
+    LoginAttemptGuard guard = new LoginAttemptGuard(0, 0, 0, 0, 100);
+    guard.recordMissing("ghost");
+    fail(guard, "alice");
+
+    guard.evictExpired();
+
+    Assertions.assertFalse(guard.isKnownMissing("ghost"));
+    guard.checkNotBlocked("alice");
+  }
+
+  private static void fail(LoginAttemptGuard guard, String username) {
+    guard.onFailure(new AuthenticationFailureBadCredentialsEvent(new TestingAuthenticationToken(username, "wrong"),
+        new BadCredentialsException("Bad credentials")));
+  }
+}
@@ -0,0 +1,129 @@
+package net.javaguides.cms.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Tests for {@link RateLimiter} and the two stages of {@link RateLimitFilter}.
+ */
+class RateLimitFilterTest {
+
+  private RateLimitProperties properties;
+  private RateLimiter rateLimiter;
+
+  @BeforeEach
+  void createLimiter() {
+    RateLimitProperties.Group clients = new RateLimitProperties.Group();
+    clients.setPaths(List.of("/cms/clients/**"));
+    clients.setCapacity(2);
+    clients.setRefillPerSecond(0.001);
+    clients.setAddressCapacity(3L);
+    clients.setAddressRefillPerSecond(0.001);
+    properties = new RateLimitProperties();
+    properties.getGroups().put("clients", clients);
+    rateLimiter = new RateLimiter(properties);
+  }
+
+  @AfterEach
+  void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void rotatingClaimedUsernamesDoesNotEscapeTheAddressLimit() throws Exception {
+    RateLimitFilter filter = RateLimitFilter.perAddress(rateLimiter);
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals(200, run(filter, request("10.0.0.1", "user" + i)).getStatus());
+    }
+
+    MockHttpServletResponse rejected = run(filter, request("10.0.0.1", "user-new"));
+
+    Assertions.assertEquals(429, rejected.getStatus());
+    Assertions.assertNotNull(rejected.getHeader(HttpHeaders.RETRY_AFTER));
+    Assertions.assertEquals(200, run(filter, request("10.0.0.2", "user0")).getStatus());
+  }
+
+  @Test
+  void claimedButUnverifiedUsernamesAreNotCharged() throws Exception {
+    RateLimitFilter filter = RateLimitFilter.perPrincipal(rateLimiter);
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertEquals(200, run(filter, request("10.0.0.1", "alice")).getStatus());
+    }
+    Assertions.assertEquals(0, rateLimiter.bucketCount());
+  }
+
+  @Test
+  void authenticatedUsersAreLimitedPerPrincipal() throws Exception {
+    RateLimitFilter filter = RateLimitFilter.perPrincipal(rateLimiter);
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_CLIENT"));
+    Assertions.assertEquals(200, run(filter, request("10.0.0.1", "alice")).getStatus());
+    Assertions.assertEquals(200, run(filter, request("10.0.0.2", "alice")).getStatus());
+
+    Assertions.assertEquals(429, run(filter, request("10.0.0.3", "alice")).getStatus());
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bob", null, "ROLE_CLIENT"));
+    Assertions.assertEquals(200, run(filter, request("10.0.0.3", "bob")).getStatus());
+  }
+
+  @Test
+  void pathsOutsideEveryGroupAreNotLimited() throws Exception {
+    RateLimitFilter filter = RateLimitFilter.perAddress(rateLimiter);
+    MockHttpServletRequest request = request("10.0.0.1", "alice");
+    request.setRequestURI("/api-docs");
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertEquals(200, run(filter, request).getStatus());
+    }
+  }
+
+  @Test
+  void newCallersShareAnOverflowBucketOnceTheMapIsFull() {
+    properties.setMaxBuckets(2);
+    Assertions.assertEquals(0, rateLimiter.tryAcquireForAddress("clients", "10.0.0.1"));
+    Assertions.assertEquals(0, rateLimiter.tryAcquireForAddress("clients", "10.0.0.2"));
+
+    for (int i = 3; i <= 5; i++) {
+      Assertions.assertEquals(0, rateLimiter.tryAcquireForAddress("clients", "10.0.0." + i));
+    }
+
+    Assertions.assertTrue(rateLimiter.tryAcquireForAddress("clients", "10.0.0.6") > 0);
+    Assertions.assertEquals(3, rateLimiter.bucketCount());
+    Assertions.assertEquals(0, rateLimiter.tryAcquireForAddress("clients", "10.0.0.1"));
+  }
+
+  @Test
+  void idleBucketsAreEvicted() {
+    properties.setIdleEvictionSeconds(0);
+    rateLimiter.tryAcquireForAddress("clients", "10.0.0.1");
+    rateLimiter.tryAcquireForPrincipal("clients", "alice");
+
+    rateLimiter.evictIdleBuckets();
+
+    Assertions.assertEquals(0, rateLimiter.bucketCount());
+  }
+
+  private static MockHttpServletRequest request(String address, String claimedUsername) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cms/clients/1");
+    request.setRemoteAddr(address);
+    request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder()
+        .encodeToString((claimedUsername + ":wrong-password").getBytes(StandardCharsets.UTF_8)));
+    return request;
+  }
+
+  private static MockHttpServletResponse run(RateLimitFilter filter, MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    request.removeAttribute(RateLimitFilter.class.getName() + ".address.FILTERED");
+    request.removeAttribute(RateLimitFilter.class.getName() + ".principal.FILTERED");
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+}
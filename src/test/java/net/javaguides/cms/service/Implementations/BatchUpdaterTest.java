@@ -0,0 +1,148 @@
+package net.javaguides.cms.service.Implementations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import net.javaguides.cms.dto.BatchItemResult;
+import net.javaguides.cms.dto.BatchItemResult.Outcome;
+import net.javaguides.cms.dto.EmployeeDto;
+import net.javaguides.cms.entity.Employee;
+import net.javaguides.cms.repository.EmployeeRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link BatchUpdater} with a mocked repository and transaction manager: chunking, outcomes per
+ * item, and the item-by-item retry of a failing chunk.
+ */
+class BatchUpdaterTest {
+
+  private PlatformTransactionManager transactionManager;
+  private EmployeeRepository repository;
+  private BatchUpdater batchUpdater;
+  private final Map<Long, Employee> rows = new LinkedHashMap<>();
+  private final List<Long> committed = new ArrayList<>();
+
+  @BeforeEach
+  void createUpdater() {
+    transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    Mockito.when(transactionManager.getTransaction(Mockito.any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    repository = Mockito.mock(EmployeeRepository.class);
+    Mockito.when(repository.findAllById(Mockito.any())).thenAnswer(invocation -> {
+      List<Employee> found = new ArrayList<>();
+      for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+        if (rows.containsKey(id)) {
+          found.add(rows.get(id));
+        }
+      }
+      return found;
+    });
+    //a department the schema would reject fails the flush of its chunk, and the rollback discards it
+    Mockito.doAnswer(invocation -> {
+      if (rows.values().stream().anyMatch(employee -> "invalid".equals(employee.getDepartment()))) {
+        rows.values().stream().filter(employee -> "invalid".equals(employee.getDepartment()))
+            .forEach(employee -> employee.setDepartment(null));
+        throw new DataIntegrityViolationException("Duplicate entry 'secret' for key 'users.email'");
+      }
+      return null;
+    }).when(repository).flush();
+    batchUpdater = new BatchUpdater(new TransactionTemplate(transactionManager), 2);
+    LongStream.rangeClosed(1, 5).forEach(id -> rows.put(id, employee(id, 3L)));
+  }
+
+  @Test
+  void changesAreAppliedInChunksWithOneQueryAndFlushEach() {
+    List<EmployeeDto> changes = LongStream.rangeClosed(1, 5).mapToObj(id -> change(id, null, "Sales")).toList();
+
+    List<BatchItemResult> results = update(changes);
+
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L), results.stream().map(BatchItemResult::getId).toList());
+    Assertions.assertTrue(results.stream().allMatch(result -> result.getOutcome() == Outcome.UPDATED));
+    Mockito.verify(repository).findAllById(List.of(1L, 2L));
+    Mockito.verify(repository).findAllById(List.of(3L, 4L));
+    Mockito.verify(repository).findAllById(List.of(5L));
+    Mockito.verify(repository, Mockito.times(3)).flush();
+    Mockito.verify(transactionManager, Mockito.times(3)).commit(Mockito.any());
+    Assertions.assertTrue(rows.values().stream().allMatch(employee -> employee.getDepartment().equals("Sales")));
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L), committed);
+  }
+
+  @Test
+  void missingAndOutdatedItemsAreReportedWithoutFailingTheOthers() {
+    List<BatchItemResult> results = update(List.of(
+        change(1L, 3L, "Sales"), change(9L, null, "Sales"), change(2L, 2L, "Sales"), change(3L, null, "Sales")));
+
+    Assertions.assertEquals(List.of(Outcome.UPDATED, Outcome.NOT_FOUND, Outcome.FAILED, Outcome.UPDATED),
+        results.stream().map(BatchItemResult::getOutcome).toList());
+    Assertions.assertEquals("The record was modified concurrently", results.get(2).getMessage());
+    Assertions.assertEquals("IT", rows.get(2L).getDepartment());
+    Assertions.assertEquals(List.of(1L, 3L), committed);
+  }
+
+  @Test
+  void aFailingChunkIsRetriedOneItemAtATime() {
+    List<BatchItemResult> results = update(List.of(
+        change(1L, null, "Sales"), change(2L, null, "invalid"), change(3L, null, "Sales")));
+
+    Assertions.assertEquals(List.of(Outcome.UPDATED, Outcome.FAILED, Outcome.UPDATED),
+        results.stream().map(BatchItemResult::getOutcome).toList());
+    //the database message, which may hold other users' values, is not passed on
+    Assertions.assertEquals("Conflicts with an existing record or violates a constraint", results.get(1).getMessage());
+    Mockito.verify(transactionManager, Mockito.times(2)).rollback(Mockito.any());
+    Mockito.verify(repository).findAllById(List.of(1L, 2L));
+    Mockito.verify(repository).findAllById(List.of(1L));
+    Mockito.verify(repository).findAllById(List.of(2L));
+    Assertions.assertEquals(List.of(1L, 3L), committed);
+  }
+
+  @Test
+  void duplicateOrMissingIdsAreRejected() {
+    assertBadRequest(List.of(change(1L, null, "Sales"), change(1L, null, "IT")));
+    assertBadRequest(List.of(change(null, null, "Sales")));
+    Mockito.verifyNoInteractions(repository);
+  }
+
+  @Test
+  void tooManyItemsAreRejected() {
+    assertBadRequest(LongStream.rangeClosed(1, BatchUpdater.MAX_ITEMS + 1)
+        .mapToObj(id -> change(id, null, "Sales")).toList());
+  }
+
+  private List<BatchItemResult> update(List<EmployeeDto> changes) {
+    return batchUpdater.update(changes, EmployeeDto::getId, EmployeeDto::getVersion, repository,
+        (employee, change) -> employee.setDepartment(change.getDepartment()),
+        employee -> committed.add(employee.getId()));
+  }
+
+  private void assertBadRequest(List<EmployeeDto> changes) {
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> update(changes));
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+  }
+
+  private static Employee employee(long id, Long version) {
+    Employee employee = new Employee();
+    employee.setId(id);
+    employee.setVersion(version);
+    employee.setDepartment("IT");
+    return employee;
+  }
+
+  private static EmployeeDto change(Long id, Long version, String department) {
+    EmployeeDto change = new EmployeeDto();
+    change.setId(id);
+    change.setVersion(version);
+    change.setDepartment(department);
+    return change;
+  }
+}
@@ -0,0 +1,190 @@
+package net.javaguides.cms.service.Implementations;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.entity.Client;
+import net.javaguides.cms.maintenance.SoftDeleteProperties;
+import net.javaguides.cms.repository.ClientRepository;
+import net.javaguides.cms.repository.UserRepository;
+import net.javaguides.cms.review.ReviewQueueProperties;
+import net.javaguides.cms.security.LoginAttemptGuard;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests for the review queue of {@link ClientServiceImpl}: claims lease pending clients to one reviewer,
+ * leased clients are skipped until their lease expires, and rows locked by another transaction are skipped
+ * rather than waited on. They run against an in-memory H2 database in MySQL mode, which supports the
+ * {@code FOR UPDATE ... SKIP LOCKED} claim query; each claim commits its own transaction.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:review-queue;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(SsnProtector.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ClientReviewQueueTest {
+
+  @Autowired
+  private ClientRepository clientRepository;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private ReviewQueueProperties reviewQueueProperties;
+  private ClientServiceImpl clientService;
+  private List<Long> pending;
+
+  @BeforeEach
+  void createQueue() {
+    reviewQueueProperties = new ReviewQueueProperties();
+    clientService = new ClientServiceImpl(clientRepository, userRepository, Mockito.mock(PasswordEncoder.class),
+        Mockito.mock(DuplicateUserGuard.class), Mockito.mock(LoginAttemptGuard.class),
+        Mockito.mock(ApplicationEventPublisher.class), Mockito.mock(BatchUpdater.class),
+        new ClientShards(List.of(), 0), Mockito.mock(SsnProtector.class), new SoftDeleteProperties(),
+        reviewQueueProperties, new TransactionTemplate(transactionManager));
+
+    pending = List.of(save("p1", Status.Pending), save("p2", Status.Pending), save("p3", Status.Pending));
+    save("approved", Status.Approved);
+    long deleted = save("deleted", Status.Pending);
+    jdbcTemplate.update("update users set deleted = 1 where id = ?", deleted);
+  }
+
+  @AfterEach
+  void deleteClients() {
+    jdbcTemplate.update("delete from clients");
+    jdbcTemplate.update("delete from users");
+  }
+
+  @Test
+  void claimLeasesOnlyPendingClientsToTheReviewer() {
+    LocalDateTime before = LocalDateTime.now();
+
+    List<ClientDTO> claimed = clientService.claimForReview("alice", 10);
+
+    Assertions.assertEquals(pending, ids(claimed));
+    for (Long id : pending) {
+      Assertions.assertEquals("alice", leaseOwner(id));
+      LocalDateTime until = leaseUntil(id);
+      Assertions.assertFalse(until.isBefore(before.plusMinutes(reviewQueueProperties.getLeaseMinutes())));
+    }
+  }
+
+  @Test
+  void leasedClientsAreNotClaimedAgain() {
+    Assertions.assertEquals(pending.subList(0, 2), ids(clientService.claimForReview("alice", 2)));
+
+    Assertions.assertEquals(pending.subList(2, 3), ids(clientService.claimForReview("bob", 10)));
+    Assertions.assertEquals(List.of(), clientService.claimForReview("carol", 10));
+    Assertions.assertEquals("alice", leaseOwner(pending.get(0)));
+  }
+
+  @Test
+  void expiredLeasesCanBeClaimedAgain() {
+    clientService.claimForReview("alice", 10);
+    jdbcTemplate.update("update clients set review_lease_until = ? where id = ?",
+        LocalDateTime.now().minusSeconds(1), pending.get(1));
+
+    Assertions.assertEquals(List.of(pending.get(1)), ids(clientService.claimForReview("bob", 10)));
+    Assertions.assertEquals("bob", leaseOwner(pending.get(1)));
+    Assertions.assertEquals("alice", leaseOwner(pending.get(0)));
+  }
+
+  @Test
+  void claimsAreCappedByTheMaximum() {
+    reviewQueueProperties.setMaxClaim(2);
+
+    Assertions.assertEquals(pending.subList(0, 2), ids(clientService.claimForReview("alice", 10)));
+  }
+
+  @Test
+  void rowsLockedByAnotherTransactionAreSkipped() throws Exception {
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      //another transaction holds the row lock on the first pending client without committing
+      Future<List<Long>> concurrent = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+        List<Long> ids = jdbcTemplate.queryForList("select id from clients where id = ? for update", Long.class,
+            pending.get(0));
+        locked.countDown();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return ids;
+      }));
+      Assertions.assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+      List<Long> claimed = ids(clientService.claimForReview("bob", 10));
+
+      release.countDown();
+      Assertions.assertEquals(pending.subList(0, 1), concurrent.get(10, TimeUnit.SECONDS));
+      Assertions.assertEquals(pending.subList(1, 3), claimed);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  private long save(String username, Status status) {
+    Client client = new Client();
+    client.setFirstName(username);
+    client.setLastName("Test");
+    client.setUsername(username);
+    client.setEmail(username + "@example.com");
+    client.setPassword("hash");
+    client.setSSN("123-45-6789");
+    client.setSsnIndex("index-" + username);
+    client.setDateOfBirth(new Date(0));
+    client.setStatus(status);
+    return clientRepository.saveAndFlush(client).getId();
+  }
+
+  private String leaseOwner(long id) {
+    return jdbcTemplate.queryForObject("select review_lease_owner from clients where id = ?", String.class, id);
+  }
+
+  private LocalDateTime leaseUntil(long id) {
+    return jdbcTemplate.queryForObject("select review_lease_until from clients where id = ?", LocalDateTime.class, id);
+  }
+
+  private static List<Long> ids(List<ClientDTO> clients) {
+    return clients.stream().map(ClientDTO::getId).toList();
+  }
+}
@@ -0,0 +1,104 @@
+package net.javaguides.cms.service.Implementations;
+
+import java.util.Optional;
+import net.javaguides.cms.dto.EmployeeDto;
+import net.javaguides.cms.event.EmployeeChangedEvent;
+import net.javaguides.cms.exception.ConcurrentUpdateException;
+import net.javaguides.cms.exception.ResourceNotFoundException;
+import net.javaguides.cms.maintenance.SoftDeleteProperties;
+import net.javaguides.cms.repository.EmployeeRepository;
+import net.javaguides.cms.security.LoginAttemptGuard;
+import net.javaguides.cms.validation.DuplicateUserGuard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Tests for {@link EmployeeServiceImpl} with a mocked repository. The partial UPDATE itself is a
+ * MySQL multi-table statement that the in-memory test database cannot run, so these tests cover what
+ * the service sends to it and how it reacts to the number of updated rows.
+ */
+class EmployeeServiceImplTest {
+
+  private EmployeeRepository employeeRepository;
+  private ApplicationEventPublisher eventPublisher;
+  private EmployeeServiceImpl employeeService;
+
+  @BeforeEach
+  void createService() {
+    employeeRepository = Mockito.mock(EmployeeRepository.class);
+    eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+    employeeService = new EmployeeServiceImpl(employeeRepository, Mockito.mock(PasswordEncoder.class),
+        Mockito.mock(DuplicateUserGuard.class), Mockito.mock(LoginAttemptGuard.class),
+        Mockito.mock(BatchUpdater.class), new SoftDeleteProperties(), eventPublisher);
+  }
+
+  @Test
+  void onlyTheSuppliedFieldsAreSentAndTheRowIsReadBack() {
+    EmployeeDto stored = new EmployeeDto(7L, "Ada", "Lovelace", "ada", "ada@example.com", "Research", 4L);
+    Mockito.when(employeeRepository.updateProfile(7L, null, null, "Research", null)).thenReturn(1);
+    Mockito.when(employeeRepository.findDtoById(7L)).thenReturn(Optional.of(stored));
+
+    EmployeeDto change = new EmployeeDto();
+    change.setDepartment("Research");
+    EmployeeDto updated = employeeService.updateEmployee(7L, change);
+
+    //null fields are passed as null, which the UPDATE's coalesce turns into "keep the stored value"
+    Mockito.verify(employeeRepository).updateProfile(7L, null, null, "Research", null);
+    Mockito.verify(employeeRepository, Mockito.never()).findById(Mockito.any());
+    Assertions.assertSame(stored, updated);
+    Mockito.verify(eventPublisher).publishEvent(EmployeeChangedEvent.saved(stored));
+  }
+
+  @Test
+  void noUpdatedRowMeansTheEmployeeDoesNotExist() {
+    Mockito.when(employeeRepository.updateProfile(8L, "Grace", null, null, null)).thenReturn(0);
+
+    EmployeeDto change = new EmployeeDto();
+    change.setFirstName("Grace");
+    ResourceNotFoundException e = Assertions.assertThrows(ResourceNotFoundException.class,
+        () -> employeeService.updateEmployee(8L, change));
+
+    Assertions.assertEquals("Employee does not exist with given id 8", e.getMessage());
+    Mockito.verify(employeeRepository, Mockito.never()).findDtoById(Mockito.any());
+    Mockito.verifyNoInteractions(eventPublisher);
+  }
+
+  @Test
+  void aVersionedUpdateOfAMissingEmployeeIsNotAConflict() {
+    Mockito.when(employeeRepository.updateProfile(9L, null, null, "Sales", 2L)).thenReturn(0);
+    Mockito.when(employeeRepository.existsById(9L)).thenReturn(false);
+
+    EmployeeDto change = new EmployeeDto();
+    change.setDepartment("Sales");
+    change.setVersion(2L);
+
+    Assertions.assertThrows(ResourceNotFoundException.class, () -> employeeService.updateEmployee(9L, change));
+  }
+
+  @Test
+  void aStaleVersionOfAnExistingEmployeeIsAConflict() {
+    Mockito.when(employeeRepository.updateProfile(7L, "Ada", null, null, 3L)).thenReturn(0);
+    Mockito.when(employeeRepository.existsById(7L)).thenReturn(true);
+
+    EmployeeDto change = new EmployeeDto();
+    change.setFirstName("Ada");
+    change.setVersion(3L);
+
+    Assertions.assertThrows(ConcurrentUpdateException.class, () -> employeeService.updateEmployee(7L, change));
+    Mockito.verify(employeeRepository, Mockito.never()).findDtoById(Mockito.any());
+    Mockito.verifyNoInteractions(eventPublisher);
+  }
+
+  @Test
+  void anExistingAdminIsNotCreatedAgain() {
+    Mockito.when(employeeRepository.existsByUsername("admin")).thenReturn(true);
+
+    employeeService.initAdmin();
+
+    Mockito.verify(employeeRepository, Mockito.never()).save(Mockito.any());
+  }
+}
@@ -0,0 +1,54 @@
+package net.javaguides.cms.util;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CountingBloomFilter}: no false negatives, removal, and a false positive rate near the
+ * one the filter was sized for.
+ */
+class CountingBloomFilterTest {
+
+  @Test
+  void addedKeysAreAlwaysReported() {
+    CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+    IntStream.range(0, 10_000).forEach(i -> filter.add("user" + i + "@example.com"));
+
+    IntStream.range(0, 10_000).forEach(i ->
+        Assertions.assertTrue(filter.mightContain("user" + i + "@example.com"), "missing key " + i));
+  }
+
+  @Test
+  void removedKeysAreForgottenWithoutForgettingOthers() {
+    CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+    filter.add("old@example.com");
+    filter.add("kept@example.com");
+
+    filter.remove("old@example.com");
+
+    Assertions.assertFalse(filter.mightContain("old@example.com"));
+    Assertions.assertTrue(filter.mightContain("kept@example.com"));
+  }
+
+  @Test
+  void aKeyAddedTwiceSurvivesOneRemoval() {
+    CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+    filter.add("shared@example.com");
+    filter.add("shared@example.com");
+
+    filter.remove("shared@example.com");
+
+    Assertions.assertTrue(filter.mightContain("shared@example.com"));
+  }
+
+  @Test
+  void falsePositiveRateStaysNearTheConfiguredRate() {
+    CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+    IntStream.range(0, 10_000).forEach(i -> filter.add("present" + i));
+
+    long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("absent" + i)).count();
+
+    Assertions.assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000 lookups");
+  }
+}
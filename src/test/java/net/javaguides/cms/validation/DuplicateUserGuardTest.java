@@ -0,0 +1,127 @@
+package net.javaguides.cms.validation;
+
+import java.util.List;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.datasource.UserKeyLocks;
+import net.javaguides.cms.exception.DuplicateResourceException;
+import net.javaguides.cms.repository.ClientRepository;
+import net.javaguides.cms.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests for {@link DuplicateUserGuard} over an unsharded, mocked database: which keys reach the database,
+ * how the filters follow writes, and how rebuilds release purged keys.
+ */
+class DuplicateUserGuardTest {
+
+  private UserRepository userRepository;
+  private ClientRepository clientRepository;
+  private DuplicateUserGuard guard;
+
+  @BeforeEach
+  void loadGuard() {
+    userRepository = Mockito.mock(UserRepository.class);
+    clientRepository = Mockito.mock(ClientRepository.class);
+    Mockito.when(userRepository.findAllUsernamesAndEmails())
+        .thenReturn(List.<Object[]>of(new Object[] {"alice", "alice@example.com"}));
+    Mockito.when(clientRepository.findAllSsnIndexes()).thenReturn(List.of());
+    guard = new DuplicateUserGuard(userRepository, clientRepository, new ClientShards(List.of(), 0),
+        new UserKeyLocks(null), 1_000, 0.01);
+    guard.load();
+  }
+
+  @AfterEach
+  void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void committedEmailChangeIsCheckedAndTheOldEmailLeavesOnRebuild() {
+    TransactionSynchronizationManager.initSynchronization();
+    guard.changeEmail("alice@example.com", "Alice.New@example.com");
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    guard.checkNewUser("bob", "alice.new@example.com", null);
+    Mockito.verify(userRepository).existsByEmail("alice.new@example.com");
+
+    Mockito.when(userRepository.findAllUsernamesAndEmails())
+        .thenReturn(List.<Object[]>of(new Object[] {"alice", "alice.new@example.com"}));
+    guard.rebuild();
+    guard.checkNewUser("carol", "alice@example.com", null);
+    Mockito.verify(userRepository, Mockito.never()).existsByEmail("alice@example.com");
+  }
+
+  @Test
+  void rolledBackEmailChangeKeepsTheOldEmail() {
+    TransactionSynchronizationManager.initSynchronization();
+    guard.changeEmail("alice@example.com", "alice.new@example.com");
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    guard.checkNewUser("bob", "alice.new@example.com", null);
+    Mockito.verify(userRepository, Mockito.never()).existsByEmail("alice.new@example.com");
+    guard.checkNewUser("carol", "alice@example.com", null);
+    Mockito.verify(userRepository).existsByEmail("alice@example.com");
+  }
+
+  @Test
+  void unchangedEmailLeavesTheFilterAlone() {
+    guard.changeEmail("alice@example.com", "ALICE@example.com");
+    guard.changeEmail("alice@example.com", null);
+
+    guard.checkNewUser("bob", "alice@example.com", null);
+    Mockito.verify(userRepository).existsByEmail(ArgumentMatchers.anyString());
+  }
+
+  @Test
+  void softDeletedUsersStillHoldTheirKeys() {
+    //the repository counts soft-deleted rows, so a key not yet purged is reported as taken
+    Mockito.when(userRepository.existsByUsername("alice")).thenReturn(true);
+
+    Assertions.assertThrows(DuplicateResourceException.class,
+        () -> guard.checkNewUser("alice", "someone.else@example.com", null));
+  }
+
+  @Test
+  void purgedKeysLeaveOnRebuildWithoutTouchingOtherKeys() {
+    guard.register("bob", "bob@example.com", "index-bob");
+    Mockito.when(userRepository.findAllUsernamesAndEmails())
+        .thenReturn(List.<Object[]>of(new Object[] {"alice", "alice@example.com"}));
+
+    guard.rebuild();
+
+    guard.checkNewUser("bob", "bob@example.com", "index-bob");
+    Mockito.verify(userRepository, Mockito.never()).existsByUsername("bob");
+    Mockito.verify(userRepository, Mockito.never()).existsByEmail("bob@example.com");
+    Mockito.verify(clientRepository, Mockito.never()).existsBySsnIndex("index-bob");
+    guard.checkNewUser("alice", "carol@example.com", null);
+    Mockito.verify(userRepository).existsByUsername("alice");
+  }
+
+  @Test
+  void keysRegisteredDuringARebuildAreKept() {
+    Mockito.when(userRepository.findAllUsernamesAndEmails()).thenAnswer(invocation -> {
+      guard.register("dave", "dave@example.com", null);
+      return List.<Object[]>of(new Object[] {"alice", "alice@example.com"});
+    });
+
+    guard.rebuild();
+
+    guard.checkNewUser("dave", "erin@example.com", null);
+    Mockito.verify(userRepository).existsByUsername("dave");
+  }
+
+  private static void complete(int status) {
+    List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+  }
+}
@@ -0,0 +1,49 @@
+package net.javaguides.cms.web;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@code Accept} and {@code Accept-Encoding} negotiation of {@link AcceptHeaders}.
+ */
+class AcceptHeadersTest {
+
+  @Test
+  void gzipIsAcceptedWhenListed() {
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("gzip"));
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("deflate, gzip;q=0.5, br"));
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("GZIP ; Q=1.0"));
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("x-gzip"));
+  }
+
+  @Test
+  void aZeroQualityRefusesGzip() {
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("gzip;q=0"));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("br, gzip; q=0.000"));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("*, gzip;q=0"));
+  }
+
+  @Test
+  void theWildcardAppliesOnlyWhenGzipIsNotListed() {
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("br, *;q=0.1"));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("br, *;q=0"));
+    Assertions.assertTrue(AcceptHeaders.acceptsGzip("gzip;q=0.2, *;q=0"));
+  }
+
+  @Test
+  void missingOrUnrelatedEncodingsRefuseGzip() {
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip(null));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip(""));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("identity"));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("br, deflate"));
+    Assertions.assertFalse(AcceptHeaders.acceptsGzip("gzip;q=abc"));
+  }
+
+  @Test
+  void jsonIsPreferredUnlessABinaryFormatIsMoreSpecific() {
+    Assertions.assertTrue(AcceptHeaders.prefersJson(null));
+    Assertions.assertTrue(AcceptHeaders.prefersJson("*/*"));
+    Assertions.assertTrue(AcceptHeaders.prefersJson("application/json"));
+    Assertions.assertFalse(AcceptHeaders.prefersJson("application/cbor"));
+  }
+}
@@ -0,0 +1,88 @@
+package net.javaguides.cms.web;
+
+import net.javaguides.cms.exception.ServiceDegradedException;
+import net.javaguides.cms.resilience.ServedStale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Tests for {@link DegradedResponseAdvice} with a stand-in controller: stale answers and degraded
+ * failures are turned into headers, and a stale mark never outlives its request.
+ */
+class DegradedResponseAdviceTest {
+
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void createMvc() {
+    DegradedResponseAdvice advice = new DegradedResponseAdvice();
+    mockMvc = MockMvcBuilders.standaloneSetup(new DegradableController())
+        .setControllerAdvice(advice)
+        .addInterceptors(advice)
+        .build();
+  }
+
+  @Test
+  void staleAnswersAreMarked() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/stale/{age}", 42))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string("Served-Stale", "true"))
+        .andExpect(MockMvcResultMatchers.header().string("Age", "42"));
+    Assertions.assertTrue(ServedStale.take().isEmpty());
+  }
+
+  @Test
+  void freshAnswersAreNotMarked() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/fresh"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.header().doesNotExist("Served-Stale"))
+        .andExpect(MockMvcResultMatchers.header().doesNotExist("Age"));
+  }
+
+  @Test
+  void aMarkLeftOnTheThreadIsNotCarriedIntoTheNextRequest() throws Exception {
+    ServedStale.mark(5);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/fresh"))
+        .andExpect(MockMvcResultMatchers.header().doesNotExist("Served-Stale"));
+  }
+
+  @Test
+  void degradedFailuresAskToRetryLater() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/degraded"))
+        .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+        .andExpect(MockMvcResultMatchers.header().string("Retry-After", "30"));
+  }
+
+  /**
+   * A stand-in for a controller whose service answered stale, fresh, or not at all.
+   */
+  @RestController
+  static class DegradableController {
+
+    @GetMapping("/stale/{age}")
+    ResponseEntity<String> stale(@PathVariable("age") long age) {
+      ServedStale.mark(age);
+      return ResponseEntity.ok("stale");
+    }
+
+    @GetMapping("/fresh")
+    String fresh() {
+      return "fresh";
+    }
+
+    @GetMapping("/degraded")
+    String degraded() {
+      throw new ServiceDegradedException("The database is unavailable, try again later", 30);
+    }
+  }
+}
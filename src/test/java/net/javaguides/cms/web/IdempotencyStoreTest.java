@@ -0,0 +1,83 @@
+package net.javaguides.cms.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link IdempotencyStore}: replays, body mismatches, failures and per-user keys.
+ */
+class IdempotencyStoreTest {
+
+  private final IdempotencyStore store = new IdempotencyStore(new ObjectMapper(), 3600, 100, 1_000);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @AfterEach
+  void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void retryWithTheSameBodyReplaysTheFirstResponse() {
+    ResponseEntity<String> first = store.execute("POST /x", "key-1", Map.of("name", "a"), this::create);
+    ResponseEntity<String> retry = store.execute("POST /x", "key-1", Map.of("name", "a"), this::create);
+
+    Assertions.assertEquals(1, calls.get());
+    Assertions.assertEquals(first.getBody(), retry.getBody());
+    Assertions.assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+    Assertions.assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+  }
+
+  @Test
+  void reusingAKeyWithADifferentBodyIsRejected() {
+    store.execute("POST /x", "key-1", Map.of("name", "a"), this::create);
+
+    ResponseStatusException rejected = Assertions.assertThrows(ResponseStatusException.class,
+        () -> store.execute("POST /x", "key-1", Map.of("name", "b"), this::create));
+
+    Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rejected.getStatusCode());
+    Assertions.assertEquals(1, calls.get());
+  }
+
+  @Test
+  void failedRequestsAreNotRemembered() {
+    Assertions.assertThrows(IllegalStateException.class, () -> store.execute("POST /x", "key-1", "body", () -> {
+      throw new IllegalStateException("boom");
+    }));
+
+    store.execute("POST /x", "key-1", "body", this::create);
+
+    Assertions.assertEquals(1, calls.get());
+  }
+
+  @Test
+  void keysAreScopedToEndpointAndUser() {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null));
+    store.execute("POST /x", "key-1", "body", this::create);
+    store.execute("POST /y", "key-1", "other body", this::create);
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bob", null));
+    store.execute("POST /x", "key-1", "other body", this::create);
+
+    Assertions.assertEquals(3, calls.get());
+  }
+
+  @Test
+  void requestsWithoutAKeyAlwaysRun() {
+    store.execute("POST /x", null, "body", this::create);
+    store.execute("POST /x", " ", "body", this::create);
+
+    Assertions.assertEquals(2, calls.get());
+  }
+
+  private ResponseEntity<String> create() {
+    return new ResponseEntity<>("created-" + calls.incrementAndGet(), HttpStatus.CREATED);
+  }
+}
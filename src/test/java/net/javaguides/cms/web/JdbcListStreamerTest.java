@@ -0,0 +1,156 @@
+package net.javaguides.cms.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import net.javaguides.cms.Enums.Status;
+import net.javaguides.cms.crypto.SsnProtector;
+import net.javaguides.cms.datasource.ClientShards;
+import net.javaguides.cms.dto.ClientDTO;
+import net.javaguides.cms.entity.Client;
+import net.javaguides.cms.mapper.ClientMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Checks that {@link JdbcListStreamer} writes exactly the bytes Jackson writes for the same client
+ * mapped through the entity, including the decrypted SSN, the date of birth and the status enum, and that
+ * exports keep the SSN encrypted.
+ */
+class JdbcListStreamerTest {
+
+  private static final Timestamp DATE_OF_BIRTH = Timestamp.valueOf("1990-05-17 00:00:00");
+
+  //configured like Spring Boot's mapper, which writes dates as ISO-8601 strings
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final SsnProtector ssnProtector = new SsnProtector(randomKey(), randomKey());
+  private JdbcTemplate jdbc;
+  private JdbcListStreamer streamer;
+
+  @BeforeEach
+  void createDatabase() {
+    DriverManagerDataSource database = new DriverManagerDataSource(
+        "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    jdbc = new JdbcTemplate(database);
+    jdbc.execute("create table users (id bigint primary key, first_name varchar(50), last_name varchar(50),"
+        + " username varchar(50), email varchar(100), version bigint, deleted int default 0)");
+    jdbc.execute("create table clients (id bigint primary key, ssn varchar(255), date_of_birth timestamp(6), status int)");
+    jdbc.update("insert into users (id, first_name, last_name, username, email, version) values (7, 'Jane', 'Doe', 'jdoe', 'jdoe@example.com', 3)");
+    jdbc.update("insert into clients (id, ssn, date_of_birth, status) values (7, ?, ?, ?)",
+        ssnProtector.encrypt("123-45-6789"), DATE_OF_BIRTH, Status.Approved.ordinal());
+    FetchSizeTolerantDataSource dataSource = new FetchSizeTolerantDataSource(database);
+    streamer = new JdbcListStreamer(objectMapper, dataSource, new DataSourceTransactionManager(dataSource),
+        new ClientShards(List.of(), 0), ssnProtector, true);
+  }
+
+  @Test
+  void streamedListMatchesTheSerializedDtos() throws Exception {
+    ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+    streamer.clients().writeTo(streamed);
+
+    Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(List.of(expectedClient())), streamed.toByteArray());
+  }
+
+  @Test
+  void exportLinesMatchTheSerializedDtosWithTheSsnEncrypted() throws Exception {
+    ByteArrayOutputStream exported = new ByteArrayOutputStream();
+
+    Assertions.assertEquals(1, streamer.exportClients(exported));
+    String line = exported.toString("UTF-8");
+    Assertions.assertTrue(line.endsWith("\n"));
+    Assertions.assertFalse(line.contains("123-45-6789"), "plaintext SSN in the export");
+    ObjectNode exportedClient = (ObjectNode) objectMapper.readTree(line);
+    Assertions.assertEquals("123-45-6789", ssnProtector.decrypt(exportedClient.get("ssn").asText()));
+    exportedClient.put("ssn", "123-45-6789");
+    Assertions.assertEquals(objectMapper.writeValueAsString(expectedClient()), objectMapper.writeValueAsString(exportedClient));
+  }
+
+  @Test
+  void exportEncryptsSsnsNotMigratedYet() throws Exception {
+    jdbc.update("update clients set ssn = '123-45-6789' where id = 7");
+    ByteArrayOutputStream exported = new ByteArrayOutputStream();
+
+    streamer.exportClients(exported);
+
+    String ssn = objectMapper.readTree(exported.toByteArray()).get("ssn").asText();
+    Assertions.assertTrue(ssnProtector.isEncrypted(ssn));
+    Assertions.assertEquals("123-45-6789", ssnProtector.decrypt(ssn));
+  }
+
+  //the DTO the regular endpoint serializes, mapped from the entity Hibernate would load
+  private static ClientDTO expectedClient() {
+    Client client = new Client();
+    client.setId(7L);
+    client.setFirstName("Jane");
+    client.setLastName("Doe");
+    client.setUsername("jdoe");
+    client.setEmail("jdoe@example.com");
+    client.setSSN("123-45-6789");
+    client.setDateOfBirth(DATE_OF_BIRTH);
+    client.setStatus(Status.Approved);
+    client.setVersion(3L);
+    ClientDTO dto = ClientMapper.mapToClientDto(client);
+    Assertions.assertEquals("123-45-6789", dto.getSSN());
+    return dto;
+  }
+
+  private static String randomKey() {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    return Base64.getEncoder().encodeToString(key);
+  }
+
+  /**
+   * Ignores the negative fetch size that asks MySQL Connector/J to stream rows, which H2 rejects.
+   */
+  private static final class FetchSizeTolerantDataSource extends DelegatingDataSource {
+
+    private FetchSizeTolerantDataSource(DriverManagerDataSource target) {
+      super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      Connection connection = super.getConnection();
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+          (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+              return tolerant(statement);
+            }
+            return result;
+          });
+    }
+
+    private static Statement tolerant(Statement statement) {
+      return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {Statement.class},
+          (proxy, method, args) -> method.getName().equals("setFetchSize") && (int) args[0] < 0
+              ? null : invoke(statement, method, args));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}